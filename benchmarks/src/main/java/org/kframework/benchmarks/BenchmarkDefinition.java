@@ -0,0 +1,185 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import com.google.common.io.Resources;
+import com.google.inject.util.Providers;
+import org.apache.commons.io.FileUtils;
+import org.kframework.attributes.Source;
+import org.kframework.backend.java.compile.KOREtoBackendKIL;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.backend.java.util.Profiler2;
+import org.kframework.builtin.Sorts;
+import org.kframework.compile.ExpandMacros;
+import org.kframework.compile.ResolveSemanticCasts;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.CompiledDefinitionFile;
+import org.kframework.kore.K;
+import org.kframework.kore.KToken;
+import org.kframework.krun.KRun;
+import org.kframework.krun.KRunOptions;
+import org.kframework.krun.ioserver.filesystem.portable.PortableFileSystem;
+import org.kframework.main.GlobalOptions;
+import org.kframework.main.Main;
+import org.kframework.main.StartTimeHolder;
+import org.kframework.unparser.KPrint;
+import org.kframework.utils.Stopwatch;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.file.TTYInfo;
+import org.kframework.utils.options.SMTOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.kframework.kore.KORE.*;
+
+/**
+ * A definition bundled with the benchmarks, kompiled with the K tool under test.
+ * <p>
+ * Definitions are kompiled in process into {@code target/benchmark-definitions}, or the directory given by the
+ * {@code k.benchmarks.dir} system property, and reused by later runs as long as the K tool they were kompiled with
+ * has not been rebuilt since. Kompiling is part of the setup of a benchmark and is never measured.
+ */
+public class BenchmarkDefinition {
+
+    public static final String IMP = "imp";
+
+    private static final String RESOURCES = "/org/kframework/benchmarks/";
+
+    private static final Map<String, BenchmarkDefinition> definitions = new HashMap<>();
+
+    public final String name;
+    public final CompiledDefinition compiledDefinition;
+    public final GlobalOptions globalOptions;
+    public final KExceptionManager kem;
+    public final FileUtil files;
+
+    private BiFunction<String, Source, K> programParser;
+
+    private BenchmarkDefinition(String name, File definitionDir, File kompiledDir) {
+        this.name = name;
+        this.compiledDefinition = CompiledDefinitionFile.load(new File(kompiledDir, "compiled.bin"));
+        this.globalOptions = new GlobalOptions();
+        this.kem = new KExceptionManager(globalOptions);
+        File tempDir = new File(definitionDir, "tmp");
+        this.files = new FileUtil(tempDir, Providers.of(definitionDir), definitionDir, Providers.of(kompiledDir),
+                globalOptions, System.getenv());
+    }
+
+    /**
+     * Returns the bundled definition of the given name, kompiled with the given backend.
+     */
+    public static synchronized BenchmarkDefinition get(String name, String backend) {
+        return definitions.computeIfAbsent(name + "-" + backend, key -> {
+            File definitionDir = new File(System.getProperty("k.benchmarks.dir", "target/benchmark-definitions"), key)
+                    .getAbsoluteFile();
+            File kompiledDir = new File(definitionDir, name + "-kompiled");
+            File compiled = new File(kompiledDir, "compiled.bin");
+            if (!compiled.exists() || compiled.lastModified() < toolLastModified()) {
+                kompile(name, backend, definitionDir);
+            }
+            return new BenchmarkDefinition(name, definitionDir, kompiledDir);
+        });
+    }
+
+    private static long toolLastModified() {
+        return new File(CompiledDefinition.class.getProtectionDomain().getCodeSource().getLocation().getPath())
+                .lastModified();
+    }
+
+    private static void kompile(String name, String backend, File definitionDir) {
+        try {
+            FileUtils.deleteDirectory(definitionDir);
+            File definition = new File(definitionDir, name + ".k");
+            FileUtils.writeStringToFile(definition, resource(name, name + ".k"), StandardCharsets.UTF_8);
+            String[] args = {definition.getAbsolutePath(), "--backend", backend, "-d", definitionDir.getAbsolutePath()};
+            int exit = Main.getInjector("-kompile").getInstance(Main.class)
+                    .runApplication("-kompile", args, definitionDir, System.getenv());
+            if (exit != 0) {
+                throw new IllegalStateException("Could not kompile " + definition + " with the " + backend + " backend");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the contents of a file bundled with the given definition, e.g. one of its programs.
+     */
+    public static String resource(String name, String file) {
+        try {
+            return Resources.toString(BenchmarkDefinition.class.getResource(RESOURCES + name + "/" + file),
+                    StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized K parseProgram(String program) {
+        if (programParser == null) {
+            programParser = compiledDefinition.getProgramParser(kem);
+        }
+        return programParser.apply(program, Source.apply("<benchmark>"));
+    }
+
+    /**
+     * Returns the initial configuration of the given program, as built by krun with I/O off and empty input.
+     */
+    public K initialConfiguration(K program) {
+        Map<KToken, K> configVars = new HashMap<>();
+        configVars.put(KToken("$PGM", Sorts.KConfigVar()), program);
+        configVars.put(KToken("$STDIN", Sorts.KConfigVar()), KToken("\"\"", Sorts.String()));
+        configVars.put(KToken("$IO", Sorts.KConfigVar()), KToken("\"off\"", Sorts.String()));
+        KPrint kprint = new KPrint(compiledDefinition.kompileOptions);
+        return new KRun(kem, files, new TTYInfo(false, false, false), kprint).plugConfigVars(compiledDefinition, configVars);
+    }
+
+    /**
+     * Returns a java backend rewriter for this definition, initialized as krun does.
+     */
+    public InitializeRewriter.SymbolicRewriterGlue javaRewriter() {
+        return javaRewriter(new JavaExecutionOptions());
+    }
+
+    public InitializeRewriter.SymbolicRewriterGlue javaRewriter(JavaExecutionOptions javaExecutionOptions) {
+        InitializeRewriter initializeRewriter = new InitializeRewriter(
+                new PortableFileSystem(kem, files),
+                globalOptions,
+                kem,
+                new SMTOptions(),
+                new KRunOptions(),
+                compiledDefinition.kompileOptions,
+                javaExecutionOptions,
+                files,
+                new InitializeRewriter.InitializeDefinition(),
+                new Stopwatch(globalOptions),
+                new KPrint(compiledDefinition.kompileOptions),
+                new Profiler2(new StartTimeHolder()));
+        return (InitializeRewriter.SymbolicRewriterGlue) initializeRewriter.apply(compiledDefinition.kompiledDefinition);
+    }
+
+    /**
+     * Returns a fresh context to evaluate and rewrite terms with the given rewriter.
+     */
+    public static TermContext termContext(InitializeRewriter.SymbolicRewriterGlue rewriter) {
+        return TermContext.builder(rewriter.rewritingContext).freshCounter(0).build();
+    }
+
+    /**
+     * Converts the given term to the java backend as the rewriter does before execution, without evaluating it.
+     */
+    public Term toBackendTerm(InitializeRewriter.SymbolicRewriterGlue rewriter, TermContext context, K k) {
+        KOREtoBackendKIL converter = new KOREtoBackendKIL(rewriter.module, rewriter.definition, context.global(), false);
+        context.setKOREtoBackendKILConverter(converter);
+        ExpandMacros macroExpander = new ExpandMacros(rewriter.module, files, compiledDefinition.kompileOptions, false);
+        return converter.convert(macroExpander.expand(new ResolveSemanticCasts(true).resolve(k)));
+    }
+}
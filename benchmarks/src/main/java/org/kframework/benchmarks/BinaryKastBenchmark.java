@@ -0,0 +1,60 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.kore.K;
+import org.kframework.parser.binary.BinaryParser;
+import org.kframework.unparser.ToBinary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the binary KAST format the frontend and the backends exchange terms in, on the initial configurations of
+ * the bundled programs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BinaryKastBenchmark {
+
+    @Param({"sum.imp", "collatz.imp", "primes.imp"})
+    public String program;
+
+    private K term;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDefinition def = BenchmarkDefinition.get(BenchmarkDefinition.IMP, "java");
+        term = def.initialConfiguration(def.parseProgram(BenchmarkDefinition.resource(BenchmarkDefinition.IMP, program)));
+        binary = ToBinary.apply(term);
+    }
+
+    @Benchmark
+    public byte[] write() {
+        return ToBinary.apply(term);
+    }
+
+    @Benchmark
+    public K read() {
+        return BinaryParser.parse(binary);
+    }
+
+    @Benchmark
+    public K roundTrip() {
+        return BinaryParser.parse(ToBinary.apply(term));
+    }
+}
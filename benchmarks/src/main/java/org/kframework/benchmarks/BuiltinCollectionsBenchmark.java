@@ -0,0 +1,131 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.builtins.BuiltinListOperations;
+import org.kframework.backend.java.builtins.BuiltinMapOperations;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.kil.BuiltinList;
+import org.kframework.backend.java.kil.BuiltinMap;
+import org.kframework.backend.java.kil.GlobalContext;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the operations of the java backend on concrete maps and lists, which back the state of most definitions.
+ * The keys and indices are drawn from a fixed seed, so every run performs the same operations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BuiltinCollectionsBenchmark {
+
+    private static final int OPERATIONS = 1024;
+
+    @Param({"16", "1024"})
+    public int size;
+
+    private GlobalContext global;
+    private TermContext context;
+    private IntToken[] elements;
+    private IntToken[] keys;
+    private IntToken[] indices;
+    private Term map;
+    private Term list;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        InitializeRewriter.SymbolicRewriterGlue rewriter =
+                BenchmarkDefinition.get(BenchmarkDefinition.IMP, "java").javaRewriter();
+        context = BenchmarkDefinition.termContext(rewriter);
+        global = context.global();
+
+        Random random = new Random(42);
+        elements = new IntToken[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = IntToken.of(random.nextInt());
+        }
+        keys = new IntToken[OPERATIONS];
+        indices = new IntToken[OPERATIONS];
+        for (int i = 0; i < OPERATIONS; i++) {
+            // half of the keys are in the map
+            keys[i] = random.nextBoolean() ? elements[random.nextInt(size)] : IntToken.of(random.nextInt());
+            indices[i] = IntToken.of(random.nextInt(size));
+        }
+        map = buildMap();
+        list = buildList();
+    }
+
+    private IntToken nextKey() {
+        next = (next + 1) % OPERATIONS;
+        return keys[next];
+    }
+
+    private IntToken nextIndex() {
+        next = (next + 1) % OPERATIONS;
+        return indices[next];
+    }
+
+    @Benchmark
+    public Term buildMap() {
+        BuiltinMap.Builder builder = BuiltinMap.builder(global);
+        for (IntToken element : elements) {
+            builder.put(element, element);
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public Term mapLookup() {
+        return BuiltinMapOperations.lookup(map, nextKey(), context);
+    }
+
+    @Benchmark
+    public Term mapUpdate() {
+        return BuiltinMapOperations.update(map, nextKey(), IntToken.of(0), context);
+    }
+
+    @Benchmark
+    public Term mapRemove() {
+        return BuiltinMapOperations.remove(map, nextKey(), context);
+    }
+
+    @Benchmark
+    public Term buildList() {
+        return BuiltinList.builder(global).addAll(elements).build();
+    }
+
+    @Benchmark
+    public Term listGet() {
+        return BuiltinListOperations.get(list, nextIndex(), context);
+    }
+
+    @Benchmark
+    public Term listRange() {
+        IntToken index = nextIndex();
+        return BuiltinListOperations.range(list, index, IntToken.of(size - 1 - index.intValue()), context);
+    }
+
+    @Benchmark
+    public Term listConcatenate() {
+        return BuiltinListOperations.constructor(list, list, context);
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.RewriterResult;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the bundled programs end to end with the java backend, as krun does: parsing the program, building the initial
+ * configuration and rewriting it to its final configuration.
+ * <p>
+ * {@link #execute()} reuses the rewriter of the definition across runs, as kserver does, while {@link #krun()} also
+ * initializes the rewriter from the kompiled definition every time, as a fresh krun process does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExecutionBenchmark {
+
+    @Param({"sum.imp", "collatz.imp", "primes.imp"})
+    public String program;
+
+    private BenchmarkDefinition def;
+    private InitializeRewriter.SymbolicRewriterGlue rewriter;
+    private String input;
+
+    @Setup
+    public void setUp() {
+        def = BenchmarkDefinition.get(BenchmarkDefinition.IMP, "java");
+        rewriter = def.javaRewriter();
+        input = BenchmarkDefinition.resource(BenchmarkDefinition.IMP, program);
+    }
+
+    @Benchmark
+    public RewriterResult execute() {
+        return run(rewriter);
+    }
+
+    @Benchmark
+    public RewriterResult krun() {
+        return run(def.javaRewriter());
+    }
+
+    private RewriterResult run(InitializeRewriter.SymbolicRewriterGlue rewriter) {
+        return rewriter.execute(def.initialConfiguration(def.parseProgram(input)), Optional.empty());
+    }
+}
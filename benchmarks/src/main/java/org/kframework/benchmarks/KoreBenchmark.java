@@ -0,0 +1,72 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import com.google.common.io.CharStreams;
+import org.apache.commons.io.FileUtils;
+import org.kframework.backend.kore.ModuleToKORE;
+import org.kframework.compile.AddSortInjections;
+import org.kframework.compile.GenerateSortPredicateRules;
+import org.kframework.compile.MinimizeTermConstruction;
+import org.kframework.definition.Module;
+import org.kframework.definition.ModuleTransformer;
+import org.kframework.parser.kore.Definition;
+import org.kframework.parser.kore.parser.TextToKore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the translation of a kompiled definition to KORE, as the kore backends write it, and the parsing of the
+ * result, as the backends read it back. Neither is timed with disk I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class KoreBenchmark {
+
+    private BenchmarkDefinition def;
+    private Module module;
+    private String kore;
+
+    @Setup
+    public void setUp() {
+        def = BenchmarkDefinition.get(BenchmarkDefinition.IMP, "kore");
+        // the same passes as KoreBackend runs before the translation
+        Module mainModule = new GenerateSortPredicateRules(true).gen(def.compiledDefinition.kompiledDefinition.mainModule());
+        mainModule = ModuleTransformer.fromKTransformer(new AddSortInjections(mainModule)::addInjections, "Add sort injections").apply(mainModule);
+        module = ModuleTransformer.fromSentenceTransformer(new MinimizeTermConstruction(mainModule)::resolve, "Minimize term construction").apply(mainModule);
+        try {
+            kore = FileUtils.readFileToString(def.files.resolveDefinitionDirectory(def.name + ".kore"), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public void moduleToKORE() throws IOException {
+        Writer out = CharStreams.nullWriter();
+        new ModuleToKORE(module, def.files, def.compiledDefinition.topCellInitializer).convert(false, out);
+    }
+
+    @Benchmark
+    public Definition textToKore() {
+        return new TextToKore().parse(new StringReader(kore));
+    }
+}
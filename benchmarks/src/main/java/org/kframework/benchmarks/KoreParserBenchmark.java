@@ -0,0 +1,96 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.apache.commons.io.FileUtils;
+import org.kframework.parser.kore.Definition;
+import org.kframework.parser.kore.parser.TextToKore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the KORE parser on generated definitions of increasing size. The definitions have the shape of those the
+ * kore backends write: sorts, symbols and one axiom per rule, with nested applications, variables, domain values and
+ * attributes.
+ * <p>
+ * The definitions are parsed from a file through {@link TextToKore#parse(File)}, which every version of the parser
+ * has, so that the benchmark can be run against the parser of another revision, see the README.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class KoreParserBenchmark {
+
+    private static final int SORTS = 20;
+
+    @Param({"1000", "10000", "100000"})
+    public int axioms;
+
+    private File kore;
+
+    @Setup
+    public void setUp() throws IOException {
+        kore = File.createTempFile("generated", ".kore");
+        FileUtils.writeStringToFile(kore, generate(axioms), StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        kore.delete();
+    }
+
+    private static String generate(int axioms) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("[topCellInitializer{}(LblinitGeneratedTopCell{}())]\n\n");
+        sb.append("module GENERATED\n");
+        for (int i = 0; i < SORTS; i++) {
+            sb.append("  sort SortS").append(i).append("{} []\n");
+        }
+        for (int i = 0; i < SORTS; i++) {
+            String sort = "SortS" + i + "{}";
+            String next = "SortS" + (i + 1) % SORTS + "{}";
+            sb.append("  symbol Lblf").append(i).append("{}(").append(sort).append(", ").append(next).append(") : ")
+                    .append(sort).append(" [functional{}(), klabel{}(\"f").append(i).append("\")]\n");
+            sb.append("  symbol Lblc").append(i).append("{}() : ").append(sort).append(" [constructor{}()]\n");
+        }
+        for (int i = 0; i < axioms; i++) {
+            int s = i % SORTS;
+            String sort = "SortS" + s + "{}";
+            String next = "SortS" + (s + 1) % SORTS + "{}";
+            sb.append("\n// rule ").append(i).append("\n");
+            sb.append("  axiom{R} \\implies{R}(\n");
+            sb.append("    \\and{R}(\\top{R}(), \\equals{").append(sort).append(",R}(X").append(i).append(":").append(sort)
+                    .append(", Lblf").append(s).append("{}(Lblc").append(s).append("{}(), Y:").append(next).append("))),\n");
+            sb.append("    \\and{R}(\\equals{").append(sort).append(",R}(Lblf").append(s).append("{}(X").append(i)
+                    .append(":").append(sort).append(", Y:").append(next).append("), \\dv{").append(sort)
+                    .append("}(\"value \\\"").append(i).append("\\\"\")), \\top{R}()))\n");
+            sb.append("    [UNIQUE'Unds'ID{}(\"").append(Integer.toHexString(i * 31 + 17)).append("\"), label{}(\"rule")
+                    .append(i).append("\"), source{}(\"/generated.k\"), location{}(\"(").append(i).append(",3,")
+                    .append(i).append(",40)\")] /* end of rule */\n");
+        }
+        sb.append("endmodule [initializer{}()]\n");
+        return sb.toString();
+    }
+
+    @Benchmark
+    public Definition textToKore() {
+        return new TextToKore().parse(kore);
+    }
+}
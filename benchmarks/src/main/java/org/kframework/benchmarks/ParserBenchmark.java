@@ -0,0 +1,89 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.attributes.Source;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.parser.Term;
+import org.kframework.parser.concrete2kore.ParseInModule;
+import org.kframework.parser.concrete2kore.generator.RuleGrammarGenerator;
+import org.kframework.parser.concrete2kore.kernel.Grammar;
+import org.kframework.parser.concrete2kore.kernel.Parser;
+import org.kframework.parser.concrete2kore.kernel.Scanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the program parser of a definition: the scanner alone, and the scanner together with the parser, without
+ * the disambiguation passes which run on the result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"sum.imp", "collatz.imp", "primes.imp"})
+    public String program;
+
+    private static final Source SOURCE = Source.apply("<benchmark>");
+
+    private String input;
+    private int[] lines;
+    private int[] columns;
+    private Scanner scanner;
+    private Grammar.NonTerminal startSymbol;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDefinition def = BenchmarkDefinition.get(BenchmarkDefinition.IMP, "java");
+        CompiledDefinition compiledDef = def.compiledDefinition;
+        ParseInModule parseInModule = RuleGrammarGenerator.getCombinedGrammar(
+                compiledDef.programParsingModuleFor(compiledDef.mainSyntaxModuleName(), def.kem).get(),
+                compiledDef.kompileOptions.strict());
+        scanner = parseInModule.getScanner();
+        startSymbol = parseInModule.getGrammar(scanner).get(compiledDef.programStartSymbol.toString());
+
+        input = BenchmarkDefinition.resource(BenchmarkDefinition.IMP, program);
+        // the positions of the bytes of the input, as computed by the parser
+        int length = input.getBytes(StandardCharsets.UTF_8).length;
+        lines = new int[length + 1];
+        columns = new int[length + 1];
+        int l = 1, c = 1;
+        for (int i = 0; i < length; i++) {
+            lines[i] = l;
+            columns[i] = c;
+            if (input.charAt(i) == '\n') {
+                l++;
+                c = 1;
+            } else {
+                c++;
+            }
+        }
+        lines[length] = l;
+        columns[length] = c;
+    }
+
+    @Benchmark
+    public Scanner.Token[] tokenize() {
+        return scanner.tokenize(input, SOURCE, lines, columns);
+    }
+
+    @Benchmark
+    public Term parse() {
+        return new Parser(input, scanner, SOURCE, 1, 1).parse(startSymbol, 0);
+    }
+}
@@ -0,0 +1,96 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.benchmarks;
+
+import org.kframework.backend.java.kil.ConstrainedTerm;
+import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.KItem;
+import org.kframework.backend.java.kil.Term;
+import org.kframework.backend.java.kil.TermContext;
+import org.kframework.backend.java.symbolic.FastRuleMatcher;
+import org.kframework.backend.java.symbolic.InitializeRewriter;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.backend.java.utils.BitSet;
+import org.kframework.builtin.Sorts;
+import org.kframework.kore.K;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.kframework.kore.KORE.*;
+
+/**
+ * Measures the two steps the java backend repeats for every rewrite: matching the rules of a definition against a
+ * configuration with {@link FastRuleMatcher}, and evaluating function symbols.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RewritingBenchmark {
+
+    /**
+     * The program in the configuration the rules are matched against.
+     */
+    @Param({"sum.imp", "collatz.imp", "primes.imp"})
+    public String program;
+
+    /**
+     * The argument of the recursive function which is evaluated.
+     */
+    @Param({"15"})
+    public int fib;
+
+    private InitializeRewriter.SymbolicRewriterGlue rewriter;
+    private TermContext context;
+    private FastRuleMatcher matcher;
+    private BitSet allRules;
+    private ConstrainedTerm configuration;
+    private KItem function;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDefinition def = BenchmarkDefinition.get(BenchmarkDefinition.IMP, "java");
+        JavaExecutionOptions options = new JavaExecutionOptions();
+        // measure the evaluation itself rather than lookups in the function cache
+        options.cacheFunctions = false;
+        rewriter = def.javaRewriter(options);
+        context = BenchmarkDefinition.termContext(rewriter);
+
+        K program = def.parseProgram(BenchmarkDefinition.resource(BenchmarkDefinition.IMP, this.program));
+        Term initial = def.toBackendTerm(rewriter, context, def.initialConfiguration(program)).evaluate(context);
+        function = (KItem) def.toBackendTerm(rewriter, context,
+                KApply(KLabel("fib"), KToken(Integer.toString(fib), Sorts.Int())));
+        rewriter.rewritingContext.setExecutionPhase(true);
+
+        Definition definition = rewriter.definition;
+        matcher = new FastRuleMatcher(context.global(), definition.ruleTable.size());
+        allRules = BitSet.apply(definition.ruleTable.size());
+        allRules.makeOnes(definition.ruleTable.size());
+        configuration = new ConstrainedTerm(initial, context);
+    }
+
+    @Benchmark
+    public List<FastRuleMatcher.RuleMatchResult> matchRulePattern() {
+        return matcher.matchRulePattern(configuration, rewriter.definition.automaton.leftHandSide(), allRules,
+                false, false, Collections.emptyList(), false, context, 0);
+    }
+
+    @Benchmark
+    public Term evaluateFunction() {
+        return function.evaluateFunction(context);
+    }
+}
@@ -28,8 +28,7 @@ public class HaskellBackend extends KoreBackend {
 
     @Override
     public void accept(CompiledDefinition def) {
-        String kore = getKompiledString(def);
-        files.saveToKompiled("definition.kore", kore);
+        writeKompiled(def, files.resolveKompiled("definition.kore"));
     }
 
     @Override
@@ -37,9 +37,12 @@ import org.kframework.utils.inject.RequestScoped;
 import org.kframework.utils.StringUtil;
 import scala.Tuple2;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -246,12 +249,15 @@ public class HaskellRewriter implements Function<Definition, Rewriter> {
 
             @Override
             public K prove(Module rules) {
-                String kompiledModule = KoreBackend.getKompiledString(module, def.topCellInitializer, files, false);
-                files.saveToTemp("vdefinition.kore", kompiledModule);
+                KoreBackend.writeKompiled(module, def.topCellInitializer, files, false, files.resolveTemp("vdefinition.kore"));
 
                 ModuleToKORE rulesConverter = new ModuleToKORE(rules, files, def.topCellInitializer);
-                String koreOutput = rulesConverter.convertSpecificationModule(module, rules);
-                files.saveToTemp("spec.kore", koreOutput);
+                File specFile = files.resolveTemp("spec.kore");
+                try (Writer out = new BufferedWriter(new FileWriter(specFile))) {
+                    rulesConverter.convertSpecificationModule(module, rules, out);
+                } catch (IOException e) {
+                    throw KEMException.criticalError("Could not write to file " + specFile.getAbsolutePath(), e);
+                }
                 String defPath = files.resolveTemp("vdefinition.kore").getAbsolutePath();
                 String specPath = files.resolveTemp("spec.kore").getAbsolutePath();
                 String[] koreCommand = haskellKRunOptions.haskellBackendCommand.split("\\s+");
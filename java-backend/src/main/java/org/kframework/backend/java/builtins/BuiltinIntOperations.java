@@ -8,24 +8,62 @@ import java.util.Random;
 
 /**
  * Table of {@code public static} methods on builtin integers.
+ * <p>
+ * Most operations have a fast path computing on {@code long}s when both operands fit in a {@code long}, falling back
+ * to {@link BigInteger} when they do not, or when the result overflows.
  *
  * @author: AndreiS
  */
 public class BuiltinIntOperations {
 
+    private static boolean fitInLong(IntToken term1, IntToken term2) {
+        return term1.fitsInLong() && term2.fitsInLong();
+    }
+
     public static IntToken add(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2)) {
+            long a = term1.longValue();
+            long b = term2.longValue();
+            long result = a + b;
+            /* overflow iff both operands have the sign opposite to the result */
+            if (((a ^ result) & (b ^ result)) >= 0) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().add(term2.bigIntegerValue()));
     }
 
     public static IntToken sub(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2)) {
+            long a = term1.longValue();
+            long b = term2.longValue();
+            long result = a - b;
+            /* overflow iff the operands have different signs and the result has the sign of b */
+            if (((a ^ b) & (a ^ result)) >= 0) {
+                return IntToken.of(result);
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().subtract(term2.bigIntegerValue()));
     }
 
     public static IntToken mul(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2)) {
+            try {
+                return IntToken.of(Math.multiplyExact(term1.longValue(), term2.longValue()));
+            } catch (ArithmeticException e) {
+                // overflow, fall back to BigInteger
+            }
+        }
         return IntToken.of(term1.bigIntegerValue().multiply(term2.bigIntegerValue()));
     }
 
     public static IntToken div(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2) && !(term1.longValue() == Long.MIN_VALUE && term2.longValue() == -1)) {
+            if (term2.longValue() == 0) {
+                return null;
+            }
+            return IntToken.of(term1.longValue() / term2.longValue());
+        }
         try {
             return IntToken.of(term1.bigIntegerValue().divide(term2.bigIntegerValue()));
         } catch (ArithmeticException e) {
@@ -34,6 +72,9 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken ediv(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2) && term1.longValue() >= 0 && term2.longValue() > 0) {
+            return IntToken.of(term1.longValue() / term2.longValue());
+        }
         try {
             return IntToken.of((term1.bigIntegerValue().signum() < 0 ?
                     (term1.bigIntegerValue().add(BigInteger.ONE).subtract(term2.bigIntegerValue())) : term1.bigIntegerValue())
@@ -44,6 +85,12 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken rem(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2)) {
+            if (term2.longValue() == 0) {
+                return null;
+            }
+            return IntToken.of(term1.longValue() % term2.longValue());
+        }
         try {
             return IntToken.of(term1.bigIntegerValue().remainder(term2.bigIntegerValue()));
         } catch (ArithmeticException e) {
@@ -52,6 +99,9 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken mod(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2) && term2.longValue() > 0) {
+            return IntToken.of(Math.floorMod(term1.longValue(), term2.longValue()));
+        }
         return IntToken.of(term1.bigIntegerValue().mod(term2.bigIntegerValue()));
     }
 
@@ -68,6 +118,9 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken shr(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2) && term2.longValue() >= 0) {
+            return IntToken.of(term1.longValue() >> Math.min(term2.longValue(), Long.SIZE - 1));
+        }
         try {
             return IntToken.of(term1.bigIntegerValue().shiftRight(term2.bigIntegerValue().intValueExact()));
         } catch (ArithmeticException e) {
@@ -80,30 +133,45 @@ public class BuiltinIntOperations {
     }
 
     public static IntToken not(IntToken term, TermContext context) {
+        if (term.fitsInLong()) {
+            return IntToken.of(~term.longValue());
+        }
         return IntToken.of(term.bigIntegerValue().not());
     }
 
     public static IntToken and(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2)) {
+            return IntToken.of(term1.longValue() & term2.longValue());
+        }
         return IntToken.of(term1.bigIntegerValue().and(term2.bigIntegerValue()));
     }
 
     public static IntToken or(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2)) {
+            return IntToken.of(term1.longValue() | term2.longValue());
+        }
         return IntToken.of(term1.bigIntegerValue().or(term2.bigIntegerValue()));
     }
 
     public static IntToken xor(IntToken term1, IntToken term2, TermContext context) {
+        if (fitInLong(term1, term2)) {
+            return IntToken.of(term1.longValue() ^ term2.longValue());
+        }
         return IntToken.of(term1.bigIntegerValue().xor(term2.bigIntegerValue()));
     }
 
     public static IntToken min(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().min(term2.bigIntegerValue()));
+        return compare(term1, term2) <= 0 ? term1 : term2;
     }
 
     public static IntToken max(IntToken term1, IntToken term2, TermContext context) {
-        return IntToken.of(term1.bigIntegerValue().max(term2.bigIntegerValue()));
+        return compare(term1, term2) >= 0 ? term1 : term2;
     }
 
     public static IntToken abs(IntToken term, TermContext context) {
+        if (term.fitsInLong() && term.longValue() != Long.MIN_VALUE) {
+            return IntToken.of(Math.abs(term.longValue()));
+        }
         return IntToken.of(term.bigIntegerValue().abs());
     }
 
@@ -119,28 +187,35 @@ public class BuiltinIntOperations {
         return IntToken.of(log2);
     }
 
+    private static int compare(IntToken term1, IntToken term2) {
+        if (fitInLong(term1, term2)) {
+            return Long.compare(term1.longValue(), term2.longValue());
+        }
+        return term1.bigIntegerValue().compareTo(term2.bigIntegerValue());
+    }
+
     public static BoolToken eq(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) == 0);
+        return BoolToken.of(compare(term1, term2) == 0);
     }
 
     public static BoolToken ne(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) != 0);
+        return BoolToken.of(compare(term1, term2) != 0);
     }
 
     public static BoolToken gt(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) > 0);
+        return BoolToken.of(compare(term1, term2) > 0);
     }
 
     public static BoolToken ge(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) >= 0);
+        return BoolToken.of(compare(term1, term2) >= 0);
     }
 
     public static BoolToken lt(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) < 0);
+        return BoolToken.of(compare(term1, term2) < 0);
     }
 
     public static BoolToken le(IntToken term1, IntToken term2, TermContext context) {
-        return BoolToken.of(term1.bigIntegerValue().compareTo(term2.bigIntegerValue()) <= 0);
+        return BoolToken.of(compare(term1, term2) <= 0);
     }
 
     private static final Random randomGenerator = new Random();
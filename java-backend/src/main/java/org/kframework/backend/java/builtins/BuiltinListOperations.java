@@ -39,13 +39,13 @@ public class BuiltinListOperations {
             try {
                 BuiltinList builtinList = (BuiltinList) list;
                 if (index.intValue() >= 0) {
-                    if (IntStream.range(0, index.intValue()).allMatch(builtinList::isElement)) {
+                    if (builtinList.isElementRange(0, index.intValue())) {
                         return builtinList.get(index.intValue());
                     } else {
                         return null;
                     }
                 } else {
-                    if (IntStream.range(builtinList.size() + index.intValue() + 1, builtinList.size()).allMatch(builtinList::isElement)) {
+                    if (builtinList.isElementRange(builtinList.size() + index.intValue() + 1, builtinList.size())) {
                         return builtinList.get(builtinList.size() + index.intValue());
                     } else {
                         return null;
@@ -109,10 +109,11 @@ public class BuiltinListOperations {
             try {
                 BuiltinList builtinList = (BuiltinList) list;
 
-                int toRemoveFromLeft = IntStream.range(0, removeLeft)
+                /* only the children to be removed are checked, so that the cost does not depend on the list size */
+                int toRemoveFromLeft = builtinList.isElementRange(0, removeLeft) ? removeLeft : IntStream.range(0, removeLeft)
                         .filter(i -> !builtinList.isElement(i))
                         .findFirst().orElse(removeLeft);
-                int toRemoveFromRight = IntStream.range(0, removeRight)
+                int toRemoveFromRight = builtinList.isElementRange(builtinList.size() - removeRight, builtinList.size()) ? removeRight : IntStream.range(0, removeRight)
                         .filter(i -> !builtinList.isElement(builtinList.size() - 1 - i))
                         .findFirst().orElse(removeRight);
 
@@ -207,6 +207,9 @@ public class BuiltinMapOperations {
         return BoolToken.of(map2.getEntries().entrySet().containsAll(map1.getEntries().entrySet()));
     }
 
+    /**
+     * Returns the first key in the iteration order of the map, see {@link BuiltinMap}.
+     */
     public static Term choice(BuiltinMap map, TermContext context) {
         if (!map.getEntries().isEmpty()) {
             return map.getEntries().keySet().iterator().next();
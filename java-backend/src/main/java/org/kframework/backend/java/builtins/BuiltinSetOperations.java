@@ -101,6 +101,9 @@ public class BuiltinSetOperations {
         return BoolToken.of(set2.elements().containsAll(set1.elements()));
     }
 
+    /**
+     * Returns the first element in the iteration order of the set, see {@link BuiltinSet}.
+     */
     public static Term choice(BuiltinSet set, TermContext context) {
         if (!set.elements().isEmpty()) {
             return set.elements().iterator().next();
@@ -12,6 +12,10 @@ import java.math.BigInteger;
 
 /**
  * An integer token. Integer tokens have arbitrary precision.
+ * <p>
+ * Values that fit in a {@code long} are stored as a {@code long}, and only larger values as a {@link BigInteger}, so
+ * that {@link BuiltinIntOperations} can compute on small integers without allocating {@link BigInteger}s. The
+ * representation is canonical: {@link #bigValue} is null if and only if the value fits in a {@code long}.
  *
  * @author AndreiS
  */
@@ -19,25 +23,46 @@ public final class IntToken extends Token {
 
     public static final Sort SORT = Sort.INT;
 
-    /* BigInteger javaBackendValue wrapped by this IntToken */
-    private final BigInteger value;
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final IntToken[] cache = new IntToken[CACHE_HIGH - CACHE_LOW + 1];
 
-    private IntToken(BigInteger value) {
-        this.value = value;
+    static {
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = new IntToken(i + CACHE_LOW, null);
+        }
+    }
+
+    /* value of this IntToken if it fits in a long */
+    private final long smallValue;
+    /* value of this IntToken if it does not fit in a long, null otherwise */
+    private final BigInteger bigValue;
+    /* BigInteger representation of a small value, computed lazily */
+    private transient BigInteger bigIntegerValue;
+
+    private IntToken(long smallValue, BigInteger bigValue) {
+        this.smallValue = smallValue;
+        this.bigValue = bigValue;
     }
 
     /**
      * Returns a {@code IntToken} representation of the given {@link BigInteger} javaBackendValue. The
-     * {@code IntToken} instances are cached to ensure uniqueness (subsequent invocations of this
-     * method with the same {@code BigInteger} javaBackendValue return the same {@code IntToken} object).
+     * {@code IntToken} instances of small values are cached (subsequent invocations of this
+     * method with the same small javaBackendValue return the same {@code IntToken} object).
      */
     public static IntToken of(BigInteger value) {
         assert value != null;
-        return new IntToken(value);
+        if (value.bitLength() < Long.SIZE) {
+            return of(value.longValue());
+        }
+        return new IntToken(0, value);
     }
 
     public static IntToken of(long value) {
-        return of(BigInteger.valueOf(value));
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return cache[(int) value - CACHE_LOW];
+        }
+        return new IntToken(value, null);
     }
 
     public static IntToken of(String value) {
@@ -58,7 +83,22 @@ public final class IntToken extends Token {
      * Returns a {@link BigInteger} representation of the (interpreted) javaBackendValue of this IntToken.
      */
     public BigInteger bigIntegerValue() {
-        return value;
+        if (bigValue != null) {
+            return bigValue;
+        }
+        BigInteger result = bigIntegerValue;
+        if (result == null) {
+            result = BigInteger.valueOf(smallValue);
+            bigIntegerValue = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns true if the value of this IntToken fits in a {@code long}; {@link #longValue()} then does not throw.
+     */
+    public boolean fitsInLong() {
+        return bigValue == null;
     }
 
     /**
@@ -67,13 +107,13 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer does not fit in an int.
      */
     public int intValue() {
-        if (value.compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) > 0) {
+        if (bigValue != null && bigValue.signum() > 0 || smallValue > Integer.MAX_VALUE) {
             throw new ArithmeticException("IntToken too large for Int");
         }
-        if (value.compareTo(BigInteger.valueOf(Integer.MIN_VALUE)) < 0) {
+        if (bigValue != null || smallValue < Integer.MIN_VALUE) {
             throw new ArithmeticException("IntToken too low for Int");
         }
-        return (int)value.longValue();
+        return (int) smallValue;
     }
 
     /**
@@ -82,13 +122,10 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer does not fit in a long.
      */
     public long longValue() {
-        if (value.compareTo(BigInteger.valueOf(Long.MAX_VALUE)) > 0) {
-            throw new ArithmeticException("IntToken too large for Long");
+        if (bigValue != null) {
+            throw new ArithmeticException(bigValue.signum() > 0 ? "IntToken too large for Long" : "IntToken too low for Long");
         }
-        if (value.compareTo(BigInteger.valueOf(Long.MIN_VALUE)) < 0) {
-            throw new ArithmeticException("IntToken too low for Long");
-        }
-        return value.longValue();
+        return smallValue;
     }
 
     /**
@@ -97,13 +134,13 @@ public final class IntToken extends Token {
      * @throws ArithmeticException Integer is not in the range of an unsigned byte.
      */
     public byte unsignedByteValue() {
-        if (value.compareTo(BigInteger.valueOf(255)) > 0) {
+        if (bigValue != null && bigValue.signum() > 0 || smallValue > 255) {
             throw new ArithmeticException("IntToken too large for byte");
         }
-        if (value.compareTo(BigInteger.valueOf(0)) < 0) {
+        if (bigValue != null || smallValue < 0) {
             throw new ArithmeticException("IntToken too low for byte");
         }
-        return (byte)value.longValue();
+        return (byte) smallValue;
     }
 
     @Override
@@ -116,12 +153,24 @@ public final class IntToken extends Token {
      */
     @Override
     public String javaBackendValue() {
-        return value.toString();
+        return bigValue != null ? bigValue.toString() : Long.toString(smallValue);
     }
 
+    /**
+     * Same as {@link BigInteger#hashCode()} of the value, so that hash-based orders do not depend on the
+     * representation.
+     */
     @Override
     protected int computeHash() {
-        return value.hashCode();
+        if (bigValue != null) {
+            return bigValue.hashCode();
+        }
+        /* the magnitude of Long.MIN_VALUE is read correctly as an unsigned long */
+        long magnitude = Math.abs(smallValue);
+        int high = (int) (magnitude >>> 32);
+        int low = (int) magnitude;
+        int hashCode = high == 0 ? low : 31 * high + low;
+        return Long.signum(smallValue) * hashCode;
     }
 
     @Override
@@ -131,7 +180,9 @@ public final class IntToken extends Token {
 
         IntToken intToken = (IntToken) o;
 
-        return value.equals(intToken.value);
+        return bigValue == null
+                ? intToken.bigValue == null && smallValue == intToken.smallValue
+                : bigValue.equals(intToken.bigValue);
 
     }
 
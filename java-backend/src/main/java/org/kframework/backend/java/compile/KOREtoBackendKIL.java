@@ -142,11 +142,8 @@ public class KOREtoBackendKIL {
 
         // we've encountered a regular KApply
         BitSet[] childrenDontCareRuleMask = constructDontCareRuleMask(convertedKList);
-        KItem kItem = KItem.of(convertedKLabel, convertedKList, global, childrenDontCareRuleMask == null ? null : childrenDontCareRuleMask);
-        if (att.contains(Att.transition())) {
-            kItem.addAttribute(Att.transition(), "");
-        }
-        return kItem;
+        Att kItemAtt = att.contains(Att.transition()) ? Att.empty().add(Att.transition(), "") : Att.empty();
+        return KItem.of(convertedKLabel, convertedKList, global, kItemAtt, childrenDontCareRuleMask);
     }
 
     private Optional<KLabel> getAssocKLabelForUnit(KLabel klabel) {
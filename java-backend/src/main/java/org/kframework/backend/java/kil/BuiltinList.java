@@ -7,6 +7,8 @@ import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
 import org.kframework.builtin.KLabels;
 import org.kframework.backend.java.utils.BitSet;
+import org.pcollections.PVector;
+import org.pcollections.TreePVector;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -14,25 +16,32 @@ import java.util.stream.Collectors;
 
 /**
  * Class representing an associative list.
+ * <p>
+ * The children are kept in a persistent vector, so that indexing, replacing a child, and adding or removing children
+ * at either end take O(log n) and share the structure of the original list, instead of copying all children.
  */
 public class BuiltinList extends Collection implements CollectionInternalRepresentation {
 
     /**
      * Flattened list of children.
      */
-    public final ImmutableList<Term> children;
+    public final PVector<Term> children;
     public final Sort sort;
     public final KLabelConstant operatorKLabel;
     public final KLabelConstant unitKLabel;
     private final GlobalContext global;
 
-    private final ElementTailSplit elementTailSplits[];
+    /* allocated lazily, so that updating a list does not cost O(n) */
+    private ElementTailSplit elementTailSplits[];
+
+    /* computed lazily */
+    private Boolean isConcrete;
 
     /**
      * Private constructor used by {@link BuiltinList.Builder}.
      */
     private BuiltinList(
-            ImmutableList<Term> children,
+            PVector<Term> children,
             Sort sort,
             KLabelConstant operatorKLabel,
             KLabelConstant unitKLabel,
@@ -43,8 +52,6 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         this.operatorKLabel = operatorKLabel;
         this.unitKLabel = unitKLabel;
         this.global = global;
-
-        elementTailSplits = new ElementTailSplit[children.size()];
     }
 
     /**
@@ -76,6 +83,11 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      * Returns the element component and the tail component of the list child on position index.
      */
     public ElementTailSplit splitElementTail(int index, int bitSetLength) {
+        ElementTailSplit[] elementTailSplits = this.elementTailSplits;
+        if (elementTailSplits == null) {
+            elementTailSplits = new ElementTailSplit[children.size()];
+            this.elementTailSplits = elementTailSplits;
+        }
         if (elementTailSplits[index] == null) {
             BitSet emptyListMask = BitSet.apply(bitSetLength);
             emptyListMask.makeOnes(bitSetLength);
@@ -162,10 +174,85 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
         return term instanceof Variable && (term.sort().equals(sort) || term.sort().equals(Sort.KSEQUENCE));
     }
 
+    /**
+     * Returns true if the children between beginIndex (inclusive) and endIndex (exclusive) are all elements. Only
+     * those children are checked, unless the whole list is already known to be concrete.
+     */
+    public boolean isElementRange(int beginIndex, int endIndex) {
+        if (isConcrete != null && isConcrete) {
+            return true;
+        }
+        for (int i = beginIndex; i < endIndex; i++) {
+            if (!isElement(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public Term range(int beginIndex, int endIndex) {
-        return BuiltinList.builder(sort, operatorKLabel, unitKLabel, global)
-                .addAll(children.subList(beginIndex, endIndex))
-                .build();
+        if (beginIndex < 0 || endIndex > children.size() || beginIndex > endIndex) {
+            throw new IndexOutOfBoundsException();
+        }
+        return fromChildren(slice(children, beginIndex, endIndex), isConcrete != null && isConcrete);
+    }
+
+    /**
+     * Returns the list obtained by replacing the child on position index with the given term. Children of this list
+     * are shared with the result, unless the term is itself a list of the same kind that needs to be spliced in.
+     */
+    public Term with(int index, Term term) {
+        if (isSameKind(term) || children.size() == 1) {
+            return builder(sort, operatorKLabel, unitKLabel, global)
+                    .add(range(0, index))
+                    .add(term)
+                    .add(range(index + 1, children.size()))
+                    .build();
+        }
+        return fromChildren(children.with(index, term), isConcrete != null && isConcrete && isElement(term));
+    }
+
+    /**
+     * Builds a list of the same kind from the given children. The concreteness of a list derived from a concrete
+     * one is passed along, so that it is not recomputed in O(n) for every updated list.
+     */
+    private Term fromChildren(PVector<Term> children, boolean knownConcrete) {
+        if (children.size() == 1) {
+            return children.get(0);
+        }
+        BuiltinList list = new BuiltinList(children, sort, operatorKLabel, unitKLabel, global);
+        if (knownConcrete) {
+            list.isConcrete = true;
+        }
+        return list;
+    }
+
+    private boolean isSameKind(Term term) {
+        return term instanceof BuiltinList && sort.equals(term.sort())
+                && operatorKLabel.equals(((BuiltinList) term).operatorKLabel)
+                && unitKLabel.equals(((BuiltinList) term).unitKLabel);
+    }
+
+    /**
+     * Returns the children between beginIndex (inclusive) and endIndex (exclusive), either by removing the children
+     * outside of the range or by collecting the children inside of it, whichever touches fewer children.
+     */
+    private static PVector<Term> slice(PVector<Term> vector, int beginIndex, int endIndex) {
+        if (endIndex - beginIndex <= vector.size() / 2) {
+            PVector<Term> result = TreePVector.empty();
+            for (int i = beginIndex; i < endIndex; i++) {
+                result = result.plus(vector.get(i));
+            }
+            return result;
+        }
+        PVector<Term> result = vector;
+        for (int i = vector.size() - 1; i >= endIndex; i--) {
+            result = result.minus(i);
+        }
+        for (int i = 0; i < beginIndex; i++) {
+            result = result.minus(0);
+        }
+        return result;
     }
 
     public boolean contains(Term term) {
@@ -192,7 +279,10 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     @Override
     public final boolean isConcreteCollection() {
-        return children.stream().allMatch(this::isElement);
+        if (isConcrete == null) {
+            isConcrete = children.stream().allMatch(this::isElement);
+        }
+        return isConcrete;
     }
 
     @Override
@@ -298,7 +388,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
     public static class Builder {
 
-        private final ImmutableList.Builder<Term> childrenBuilder = new ImmutableList.Builder<>();
+        private PVector<Term> children = TreePVector.empty();
         private final Sort sort;
         private final KLabelConstant operatorKLabel;
         private final KLabelConstant unitKLabel;
@@ -315,11 +405,20 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
             if (term instanceof BuiltinList && sort.equals(term.sort())
                     && operatorKLabel.equals(((BuiltinList) term).operatorKLabel)
                     && unitKLabel.equals(((BuiltinList) term).unitKLabel)) {
-                return addAll(((BuiltinList) term).children);
+                /* the children of a list are already flattened; concatenate the shorter vector to the longer one */
+                PVector<Term> otherChildren = ((BuiltinList) term).children;
+                if (children.isEmpty()) {
+                    children = otherChildren;
+                } else if (otherChildren.size() > children.size()) {
+                    children = otherChildren.plusAll(0, children);
+                } else {
+                    children = children.plusAll(otherChildren);
+                }
+                return this;
             } else {
                 //assert global.getDefinition().subsorts().isSubsortedEq(sort, term.sort()) :
                 //        "unexpected term: " + term + " of sort " + term.sort() + " added to list of sort " + sort;
-                childrenBuilder.add(term);
+                children = children.plus(term);
                 return this;
             }
         }
@@ -338,7 +437,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
 
         public Term build() {
             BuiltinList builtinList = new BuiltinList(
-                    childrenBuilder.build(),
+                    children,
                     sort,
                     operatorKLabel,
                     unitKLabel,
@@ -362,7 +461,7 @@ public class BuiltinList extends Collection implements CollectionInternalReprese
      */
     public static class SingletonBuiltinList extends BuiltinList {
         private SingletonBuiltinList(Term child, GlobalContext global, Sort sort, KLabelConstant operatorKLabel, KLabelConstant unitKLabel) {
-            super(ImmutableList.of(child), sort, operatorKLabel, unitKLabel, global);
+            super(TreePVector.singleton(child), sort, operatorKLabel, unitKLabel, global);
         }
     }
 
@@ -4,17 +4,17 @@ package org.kframework.backend.java.kil;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.Lists;
-import org.apache.commons.collections4.map.UnmodifiableMap;
 import org.apache.commons.lang3.tuple.Triple;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
 import org.kframework.builtin.KLabels;
 import org.kframework.utils.errorsystem.KEMException;
+import org.pcollections.HashTreePMap;
+import org.pcollections.PMap;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -22,18 +22,25 @@ import java.util.stream.Collectors;
 
 /**
  * Class representing a map.
+ * <p>
+ * The entries are kept in a persistent map, so that a map updated by {@link BuiltinMap.Builder} shares its structure
+ * with the map it was built from, and a single update or removal takes O(log n) instead of copying all entries.
+ * <p>
+ * The entries are iterated in increasing order of the hash codes of their keys, and keys with equal hash codes in an
+ * order that depends on how the map was built. This is the order observed by {@code Map:choice}, {@code keys_list}
+ * and {@code values}.
  *
  * @author AndreiS
  */
 public class BuiltinMap extends AssociativeCommutativeCollection {
 
-    private final UnmodifiableMap<Term, Term> entries;
+    private final PMap<Term, Term> entries;
 
     /**
      * Private efficient constructor used by {@link BuiltinMap.Builder}.
      */
     private BuiltinMap(
-            UnmodifiableMap<Term, Term> entries,
+            PMap<Term, Term> entries,
             ImmutableMultiset<KItem> collectionPatterns,
             ImmutableMultiset<Term> collectionFunctions,
             ImmutableMultiset<Variable> collectionVariables,
@@ -63,7 +70,10 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         return entries.get(key);
     }
 
-    public UnmodifiableMap<Term, Term> getEntries() {
+    /**
+     * Returns a read-only view of the entries of this map.
+     */
+    public Map<Term, Term> getEntries() {
         return entries;
     }
 
@@ -168,7 +178,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
 
     public static class Builder {
 
-        private final Map<Term, Term> entries = new HashMap<>();
+        private PMap<Term, Term> entries = HashTreePMap.empty();
         private final ImmutableMultiset.Builder<KItem> patternsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Term> functionsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Variable> variablesBuilder = new ImmutableMultiset.Builder<>();
@@ -179,7 +189,7 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         public void put(Term key, Term value) {
-            entries.put(key, value);
+            entries = entries.plus(key, value);
         }
 
         /**
@@ -187,15 +197,19 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
          * built.
          */
         public void putAll(Map<? extends Term, ? extends Term> map) {
-            entries.putAll(map);
+            entries = entries.plusAll(map);
         }
 
         public Term remove(Term key) {
-            return entries.remove(key);
+            Term value = entries.get(key);
+            if (value != null) {
+                entries = entries.minus(key);
+            }
+            return value;
         }
 
         public Map<Term, Term> getEntries() {
-            return UnmodifiableMap.unmodifiableMap(entries);
+            return entries;
         }
 
         private void concatenate(Term term, boolean update) {
@@ -214,7 +228,8 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
                             + clashingKeys);
                 }
 
-                entries.putAll(map.entries);
+                /* share the structure of the first concatenated map instead of copying its entries */
+                entries = entries.isEmpty() ? map.entries : entries.plusAll(map.entries);
                 patternsBuilder.addAll(map.collectionPatterns);
                 functionsBuilder.addAll(map.collectionFunctions);
                 variablesBuilder.addAll(map.collectionVariables);
@@ -257,12 +272,8 @@ public class BuiltinMap extends AssociativeCommutativeCollection {
         }
 
         public Term build() {
-            // YilongL: Guava's ImmutableMap.copyOf(entries) is not smart enough
-            // to avoid actually copying the entries, because entries is not an
-            // ImmutableMap yet; using Apache's decorate method because it would
-            // avoid creating nesting wrappers
             BuiltinMap builtinMap = new BuiltinMap(
-                    (UnmodifiableMap<Term, Term>) UnmodifiableMap.unmodifiableMap(entries),
+                    entries,
                     patternsBuilder.build(),
                     functionsBuilder.build(),
                     variablesBuilder.build(),
@@ -3,31 +3,35 @@ package org.kframework.backend.java.kil;
 
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMultiset;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.kframework.backend.java.symbolic.Transformer;
 import org.kframework.backend.java.symbolic.Visitor;
 import org.kframework.backend.java.util.Constants;
 import org.kframework.utils.errorsystem.KEMException;
+import org.pcollections.HashTreePSet;
+import org.pcollections.PSet;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 
 /**
  * Class representing a set.
+ * <p>
+ * Like {@link BuiltinMap}, the elements are kept in a persistent set, so that adding or removing an element takes
+ * O(log n) and shares the structure of the original set. The elements are iterated in the same order as the keys of
+ * a {@link BuiltinMap}, which is the order observed by {@code Set:choice} and {@code Set2List}.
  *
  * @author AndreiS
  */
 public class BuiltinSet extends AssociativeCommutativeCollection {
 
-    private final ImmutableSet<Term> elements;
+    private final PSet<Term> elements;
 
     private BuiltinSet(
-            ImmutableSet<Term> elements,
+            PSet<Term> elements,
             ImmutableMultiset<KItem> collectionPatterns,
             ImmutableMultiset<Term> collectionFunctions,
             ImmutableMultiset<Variable> collectionVariables,
@@ -156,7 +160,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
     public static class Builder {
 
-        private final Set<Term> elements = new HashSet<>();
+        private PSet<Term> elements = HashTreePSet.empty();
         private final ImmutableMultiset.Builder<KItem> patternsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Term> functionsBuilder = new ImmutableMultiset.Builder<>();
         private final ImmutableMultiset.Builder<Variable> variablesBuilder = new ImmutableMultiset.Builder<>();
@@ -167,16 +171,26 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
         }
 
         public boolean add(Term element) {
-            return elements.add(element);
+            if (elements.contains(element)) {
+                return false;
+            }
+            elements = elements.plus(element);
+            return true;
         }
 
         public <T extends Term> boolean addAll(Collection<T> elements) {
             // elements refers to the one in the outer class
-            return this.elements.addAll(elements);
+            int size = this.elements.size();
+            this.elements = this.elements.plusAll(elements);
+            return this.elements.size() != size;
         }
 
         public boolean remove(Term element) {
-            return elements.remove(element);
+            if (!elements.contains(element)) {
+                return false;
+            }
+            elements = elements.minus(element);
+            return true;
         }
 
         /**
@@ -192,7 +206,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
                 if (term instanceof BuiltinSet) {
                     BuiltinSet set = (BuiltinSet) term;
-                    elements.addAll(set.elements);
+                    elements = elements.isEmpty() ? set.elements : elements.plusAll(set.elements);
                     patternsBuilder.addAll(set.collectionPatterns);
                     functionsBuilder.addAll(set.collectionFunctions);
                     variablesBuilder.addAll(set.collectionVariables);
@@ -210,7 +224,7 @@ public class BuiltinSet extends AssociativeCommutativeCollection {
 
         public Term build() {
             BuiltinSet builtinSet = new BuiltinSet(
-                    ImmutableSet.copyOf(elements),
+                    elements,
                     patternsBuilder.build(),
                     functionsBuilder.build(),
                     variablesBuilder.build(),
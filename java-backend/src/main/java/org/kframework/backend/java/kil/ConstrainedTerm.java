@@ -98,7 +98,7 @@ public class ConstrainedTerm extends JavaSymbolicObject {
 
     public boolean implies(ConstrainedTerm constrainedTerm, Rule specRule, boolean logFailures) {
         ConjunctiveFormula conjunctiveFormula = matchImplies(constrainedTerm, true, logFailures,
-                new FormulaContext(FormulaContext.Kind.FinalImplication, specRule), specRule.matchingSymbols());
+                new FormulaContext(FormulaContext.Kind.FinalImplication, specRule, context.global()), specRule.matchingSymbols());
         return conjunctiveFormula != null;
     }
 
@@ -275,7 +275,7 @@ public class ConstrainedTerm extends JavaSymbolicObject {
             if (!isMatching && solution.checkUnsat(
                     //formulaContext param is intended for implication. We have to create a new one here.
                     new FormulaContext(FormulaContext.implicationToConstrKind.get(formulaContext.kind),
-                            formulaContext.rule))) {
+                            formulaContext.rule, context.global()))) {
                 continue;
             }
 
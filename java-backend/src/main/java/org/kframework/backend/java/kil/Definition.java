@@ -35,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static org.kframework.Collections.*;
@@ -105,6 +106,11 @@ public class Definition extends JavaSymbolicObject {
 
     private final Map<KItem.CacheTableColKey, KItem.CacheTableValue> sortCacheTable = new HashMap<>();
 
+    /**
+     * Indices of {@link #functionRules}, built on the first evaluation of each function.
+     */
+    private transient Map<KLabelConstant, FunctionRuleIndex> functionRuleIndices = new ConcurrentHashMap<>();
+
     public Definition(org.kframework.definition.Module module, KExceptionManager kem) {
         kLabels = new HashSet<>();
         this.kem = kem;
@@ -246,6 +252,9 @@ public class Definition extends JavaSymbolicObject {
     public void addRule(Rule rule) {
         if (rule.isFunction()) {
             functionRules.put(rule.definedKLabel(), rule);
+            if (functionRuleIndices != null) {
+                functionRuleIndices.remove(rule.definedKLabel());
+            }
             if (rule.isSortPredicate()) {
                 sortPredicateRules.put((KLabelConstant) rule.sortPredicateArgument().kLabel(), rule);
             }
@@ -299,6 +308,19 @@ public class Definition extends JavaSymbolicObject {
         return functionRules;
     }
 
+    /**
+     * Returns the index of the rules of the given function.
+     */
+    public FunctionRuleIndex functionRuleIndex(KLabelConstant kLabel) {
+        Map<KLabelConstant, FunctionRuleIndex> indices = functionRuleIndices;
+        if (indices == null) {
+            /* not restored by deserialization */
+            indices = new ConcurrentHashMap<>();
+            functionRuleIndices = indices;
+        }
+        return indices.computeIfAbsent(kLabel, label -> new FunctionRuleIndex(functionRules.get(label)));
+    }
+
     public Multimap<KLabelConstant, Rule> anywhereRules() {
         return anywhereRules;
     }
@@ -1,20 +1,33 @@
 package org.kframework.backend.java.kil;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import org.kframework.backend.java.symbolic.ConjunctiveFormula;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.backend.java.util.BoundedCache;
+import org.kframework.backend.java.util.Profiler2;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
+ * Backed by {@link BoundedCache}s, which are thread-safe because ground terms may be shared by rewriters proving
+ * claims concurrently, and can be bounded with {@code --cache-max-entries}.
+ * <p>
+ * The results of evaluating a term under a constraint are cached per term, in a map from constraints to results,
+ * so that lookups do not allocate a key. The bound and the statistics of that cache therefore count terms.
+ *
  * @author Denis Bogdanas
  * Created on 29-Jan-19.
  */
 public class FunctionCache {
 
-    final Table<JavaSymbolicObject<?>, ConjunctiveFormula, Term> evaluationCache = HashBasedTable.create();
-    final Map<JavaSymbolicObject<?>, Term> nullConstraintEvalCache = new HashMap<>();
+    final BoundedCache<JavaSymbolicObject<?>, Map<ConjunctiveFormula, Term>> evaluationCache;
+    final BoundedCache<JavaSymbolicObject<?>, Term> nullConstraintEvalCache;
+
+    public FunctionCache(JavaExecutionOptions options, Profiler2 profiler) {
+        evaluationCache = new BoundedCache<>("function cache", options);
+        nullConstraintEvalCache = new BoundedCache<>("function cache (ground)", options);
+        profiler.registerCache(evaluationCache);
+        profiler.registerCache(nullConstraintEvalCache);
+    }
 
     public void clearCache() {
         evaluationCache.clear();
@@ -0,0 +1,134 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Discrimination index of the rules of a function, used by {@link KItem.KItemOperations#evaluateFunction} to only
+ * try the rules that may match a given function call.
+ * <p>
+ * A rule is indexed on each argument of its left-hand side that is a {@link KItem} with a constant label, or a
+ * {@link Token}. Pattern matching a subject argument that is a {@link KItem} with another constant label, or another
+ * token, against such an argument always fails, so the rule can be skipped. Arguments of any other shape (variables,
+ * collections, ...) match everything, and so do subject arguments that are neither {@link KItem}s nor tokens.
+ * Candidates are returned in the order of the rules in the definition.
+ */
+public class FunctionRuleIndex {
+
+    private final List<Rule> rules;
+    /**
+     * For each indexed argument position: the rules that may match a subject argument with the given head.
+     */
+    private final Map<Integer, Map<Object, BitSet>> candidatesByHead = new HashMap<>();
+    /**
+     * For each indexed argument position: the rules that may match a subject argument whose head has no rule.
+     */
+    private final Map<Integer, BitSet> wildcards = new HashMap<>();
+
+    public FunctionRuleIndex(Collection<Rule> rules) {
+        this.rules = ImmutableList.copyOf(rules);
+
+        List<List<Object>> ruleHeads = new ArrayList<>();
+        int arity = 0;
+        for (Rule rule : this.rules) {
+            List<Object> heads = argumentHeads(rule);
+            ruleHeads.add(heads);
+            arity = Math.max(arity, heads.size());
+        }
+
+        for (int position = 0; position < arity; position++) {
+            BitSet wildcard = new BitSet(this.rules.size());
+            Map<Object, BitSet> keyed = new HashMap<>();
+            for (int i = 0; i < this.rules.size(); i++) {
+                List<Object> heads = ruleHeads.get(i);
+                Object head = position < heads.size() ? heads.get(position) : null;
+                if (head == null) {
+                    wildcard.set(i);
+                } else {
+                    keyed.computeIfAbsent(head, h -> new BitSet(this.rules.size())).set(i);
+                }
+            }
+            if (keyed.isEmpty()) {
+                continue;
+            }
+            keyed.values().forEach(candidates -> candidates.or(wildcard));
+            candidatesByHead.put(position, keyed);
+            wildcards.put(position, wildcard);
+        }
+    }
+
+    /**
+     * Returns the head of each argument of the left-hand side of the given rule, or null for the arguments that are
+     * not indexed. Returns an empty list if the arguments are not a {@link KList} without frame.
+     */
+    private static List<Object> argumentHeads(Rule rule) {
+        List<Object> heads = new ArrayList<>();
+        Term kList = ((KItem) rule.leftHandSide()).kList();
+        if (!(kList instanceof KList) || ((KList) kList).hasFrame()) {
+            return heads;
+        }
+        for (Term argument : ((KList) kList).getContents()) {
+            heads.add(head(argument));
+        }
+        return heads;
+    }
+
+    private static Object head(Term term) {
+        if (term instanceof KItem && ((KItem) term).kLabel() instanceof KLabelConstant
+                && ((KItem) term).kList() instanceof KList) {
+            return ((KItem) term).kLabel();
+        } else if (term instanceof Token) {
+            return term;
+        } else {
+            return null;
+        }
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * Returns the rules that may match a call of this function on the given arguments, in definition order.
+     */
+    public List<Rule> candidates(KList arguments) {
+        if (candidatesByHead.isEmpty() || arguments.hasFrame()) {
+            return rules;
+        }
+
+        BitSet candidates = null;
+        List<Term> contents = arguments.getContents();
+        for (Map.Entry<Integer, Map<Object, BitSet>> entry : candidatesByHead.entrySet()) {
+            int position = entry.getKey();
+            if (position >= contents.size()) {
+                continue;
+            }
+            Object head = head(contents.get(position));
+            if (head == null) {
+                continue;
+            }
+            BitSet positionCandidates = entry.getValue().getOrDefault(head, wildcards.get(position));
+            if (candidates == null) {
+                candidates = (BitSet) positionCandidates.clone();
+            } else {
+                candidates.and(positionCandidates);
+            }
+        }
+
+        if (candidates == null) {
+            return rules;
+        }
+        List<Rule> result = new ArrayList<>(candidates.cardinality());
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            result.add(rules.get(i));
+        }
+        return result;
+    }
+}
@@ -3,13 +3,18 @@
 package org.kframework.backend.java.kil;
 
 import org.kframework.backend.java.kil.KItem.KItemOperations;
+import org.apache.commons.lang3.tuple.Triple;
 import org.kframework.backend.java.symbolic.BuiltinFunction;
+import org.kframework.backend.java.symbolic.ConjunctiveFormula;
 import org.kframework.backend.java.symbolic.Equality.EqualityOperations;
 import org.kframework.backend.java.symbolic.JavaExecutionOptions;
 import org.kframework.backend.java.symbolic.SMTOperations;
 import org.kframework.backend.java.symbolic.Stage;
+import org.kframework.backend.java.util.BoundedCache;
 import org.kframework.backend.java.util.FormulaSimplificationCache;
 import org.kframework.backend.java.util.Profiler2;
+import org.kframework.backend.java.util.RewriterThread;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.backend.java.util.StateLog;
 import org.kframework.backend.java.util.ToStringCache;
 import org.kframework.backend.java.util.Z3Wrapper;
@@ -25,26 +30,45 @@ import org.kframework.utils.options.SMTOptions;
 import java.io.Serializable;
 import java.lang.invoke.MethodHandle;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * The definition, options and services terms are created and rewritten with.
+ * <p>
+ * The fields which are not final belong to a request: they are {@link #rebind rebound} when the java backend
+ * definition built with this context is reused by another kserver request, as the terms of its rules keep referring
+ * to this context.
+ */
 public class GlobalContext implements Serializable {
     private Definition def;
-    public final transient FileSystem fs;
+    public transient FileSystem fs;
     public final Stage stage;
-    public final transient EqualityOperations equalityOps;
-    public final transient SMTOperations constraintOps;
-    public final transient KItemOperations kItemOps;
-    public final transient KRunOptions krunOptions;
-    public final transient JavaExecutionOptions javaExecutionOptions;
-    public final transient KExceptionManager kem;
-    private final transient Map<String, MethodHandle> hookProvider;
-    public final transient FileUtil files;
-    public final transient GlobalOptions globalOptions;
-    public final transient Profiler2 profiler;
-    public final StateLog stateLog;
-    public final PrettyPrinter prettyPrinter;
-    public final transient FunctionCache functionCache = new FunctionCache();
-    public final transient FormulaSimplificationCache formulaCache = new FormulaSimplificationCache();
-    public final transient ToStringCache toStringCache = new ToStringCache();
+    public transient EqualityOperations equalityOps;
+    public transient SMTOperations constraintOps;
+    public transient KItemOperations kItemOps;
+    public transient KRunOptions krunOptions;
+    public transient JavaExecutionOptions javaExecutionOptions;
+    public transient KExceptionManager kem;
+    private transient SMTOptions smtOptions;
+    private transient Map<String, MethodHandle> hookProvider;
+    public transient FileUtil files;
+    public transient GlobalOptions globalOptions;
+    private transient Profiler2 profiler;
+    /**
+     * The per-rule profile of {@code --profile-rules}, or null if disabled. Shared with forked contexts.
+     */
+    public transient RuleProfiler ruleProfiler;
+    public StateLog stateLog;
+    public PrettyPrinter prettyPrinter;
+    public transient FunctionCache functionCache;
+    public transient FormulaSimplificationCache formulaCache;
+    public transient ToStringCache toStringCache;
+    public final transient TermInterner termInterner = new TermInterner();
+    /**
+     * Results of {@link ConjunctiveFormula#implies}'s SMT checks. Shared with forked contexts, as the results only
+     * depend on the definition.
+     */
+    public transient BoundedCache<Triple<ConjunctiveFormula, ConjunctiveFormula, Set<Variable>>, Boolean> impliesSMTCache;
 
     private boolean isExecutionPhase = true;
 
@@ -66,6 +90,7 @@ public class GlobalContext implements Serializable {
         this.krunOptions = krunOptions;
         this.javaExecutionOptions = javaExecutionOptions;
         this.kem = kem;
+        this.smtOptions = smtOptions;
         this.hookProvider = hookProvider;
         this.files = files;
         this.equalityOps = new EqualityOperations(() -> def);
@@ -75,7 +100,91 @@ public class GlobalContext implements Serializable {
         this.kItemOps = new KItemOperations(stage, javaExecutionOptions.deterministicFunctions, kem, this::builtins, globalOptions);
         this.stage = stage;
         this.profiler = profiler;
+        this.ruleProfiler = javaExecutionOptions.profileRules != null ? new RuleProfiler() : null;
         prettyPrinter = new PrettyPrinter(kprint, coreDefinition);
+        this.functionCache = new FunctionCache(javaExecutionOptions, profiler);
+        this.formulaCache = new FormulaSimplificationCache(javaExecutionOptions, profiler);
+        this.toStringCache = new ToStringCache(javaExecutionOptions, profiler);
+        this.impliesSMTCache = new BoundedCache<>("impliesSMT cache", javaExecutionOptions);
+        profiler.registerCache(impliesSMTCache);
+    }
+
+    private GlobalContext(GlobalContext parent, Profiler2 profiler, StateLog stateLog) {
+        this.fs = parent.fs;
+        this.globalOptions = parent.globalOptions;
+        this.krunOptions = parent.krunOptions;
+        this.javaExecutionOptions = parent.javaExecutionOptions;
+        this.kem = parent.kem;
+        this.smtOptions = parent.smtOptions;
+        this.hookProvider = parent.hookProvider;
+        this.files = parent.files;
+        this.equalityOps = new EqualityOperations(() -> def);
+        this.stateLog = stateLog;
+        this.constraintOps = new SMTOperations(() -> def, smtOptions,
+                new Z3Wrapper(smtOptions, kem, javaExecutionOptions, files, stateLog), kem, javaExecutionOptions);
+        this.kItemOps = new KItemOperations(parent.stage, javaExecutionOptions.deterministicFunctions, kem, this::builtins, globalOptions);
+        this.stage = parent.stage;
+        this.profiler = profiler;
+        this.ruleProfiler = parent.ruleProfiler;
+        this.prettyPrinter = parent.prettyPrinter;
+        this.def = parent.def;
+        this.isExecutionPhase = parent.isExecutionPhase;
+        this.functionCache = new FunctionCache(javaExecutionOptions, profiler);
+        this.formulaCache = new FormulaSimplificationCache(javaExecutionOptions, profiler);
+        this.toStringCache = new ToStringCache(javaExecutionOptions, profiler);
+        this.impliesSMTCache = parent.impliesSMTCache;
+    }
+
+    /**
+     * Creates a context for the same definition and options, but with its own profiler, state log, Z3 wrapper and
+     * function, formula and toString caches; the implication cache is shared. Used to prove independent claims concurrently.
+     */
+    public GlobalContext fork(Profiler2 profiler, StateLog stateLog) {
+        return new GlobalContext(this, profiler, stateLog);
+    }
+
+    /**
+     * Rebinds the parts of this context which belong to a request, i.e. the options, exception manager, file system,
+     * profilers, state log, caches and SMT and function evaluation services, to those of the given context of another
+     * request. The definition and the interned terms are kept.
+     */
+    public void rebind(GlobalContext request) {
+        this.fs = request.fs;
+        this.globalOptions = request.globalOptions;
+        this.krunOptions = request.krunOptions;
+        this.javaExecutionOptions = request.javaExecutionOptions;
+        this.kem = request.kem;
+        this.smtOptions = request.smtOptions;
+        this.hookProvider = request.hookProvider;
+        this.files = request.files;
+        this.equalityOps = request.equalityOps;
+        this.stateLog = request.stateLog;
+        this.constraintOps = request.constraintOps;
+        this.kItemOps = request.kItemOps;
+        this.profiler = request.profiler;
+        this.ruleProfiler = request.ruleProfiler;
+        this.prettyPrinter = request.prettyPrinter;
+        this.isExecutionPhase = request.isExecutionPhase;
+        this.functionCache = request.functionCache;
+        this.formulaCache = request.formulaCache;
+        this.toStringCache = request.toStringCache;
+        this.impliesSMTCache = request.impliesSMTCache;
+        this.builtinFunction = null;
+    }
+
+    /**
+     * The profiler of this context, or the one the current {@link RewriterThread} is bound to.
+     */
+    public Profiler2 profiler() {
+        return RewriterThread.profiler(profiler);
+    }
+
+    /**
+     * Returns true if the results of the profiler are reported, with {@code --verbose} or {@code --metrics-file}.
+     * Profiling counters that cost more than an increment are only updated in that case.
+     */
+    public boolean isProfiling() {
+        return globalOptions.verbose || javaExecutionOptions.metricsFile != null;
     }
 
     private transient BuiltinFunction builtinFunction;
@@ -21,6 +21,7 @@ import org.kframework.backend.java.util.ImpureFunctionException;
 import org.kframework.backend.java.util.Profiler;
 import org.kframework.backend.java.util.Profiler2;
 import org.kframework.backend.java.util.RewriteEngineUtils;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.backend.java.util.RuleSourceUtil;
 import org.kframework.backend.java.util.Subsorts;
 import org.kframework.backend.java.utils.BitSet;
@@ -73,7 +74,6 @@ public class KItem extends Term implements KItemRepresentation {
     private Boolean anywhereApplicable = null;
 
     private BitSet[] childrenDontCareRuleMask = null;
-    private final Profiler2 profiler;
 
     public static KItem of(Term kLabel, Term kList, GlobalContext global) {
         return of(kLabel, kList, global, Att.empty(), null);
@@ -92,8 +92,16 @@ public class KItem extends Term implements KItemRepresentation {
          * following conversion is necessary */
         kList = KCollection.upKind(kList, Kind.KLIST);
 
+        /* terms with attributes or rule masks are not shared, as they are specific to their occurrence */
+        boolean hashCons = global.javaExecutionOptions.hashCons && childrenDontCareRuleMask == null
+                && Att.empty().equals(att) && kLabel.isGround() && kList.isGround();
+        if (hashCons) {
+            kList = global.termInterner.intern(kList);
+        }
+
         // TODO(yilongli): break the dependency on the Tool object
-        return new KItem(kLabel, kList, global, global.stage, att, childrenDontCareRuleMask);
+        KItem kItem = new KItem(kLabel, kList, global, global.stage, att, childrenDontCareRuleMask);
+        return hashCons ? global.termInterner.intern(kItem) : kItem;
     }
 
     public KItem(KLabel kLabel, Term kList, GlobalContext global, Sort sort, boolean isExactSort, Att att) {
@@ -112,7 +120,6 @@ public class KItem extends Term implements KItemRepresentation {
         this.isExactSort = isExactSort;
         this.possibleSorts = possibleSorts;
         this.global = global;
-        this.profiler = global.profiler;
         this.enableCache = false;
     }
 
@@ -121,7 +128,6 @@ public class KItem extends Term implements KItemRepresentation {
         this.kLabel = kLabel;
         this.kList = kList;
         this.global = global;
-        this.profiler = global.profiler;
 
         Definition definition = global.getDefinition();
         this.childrenDontCareRuleMask = childrenDonCareRuleMask;
@@ -284,6 +290,7 @@ public class KItem extends Term implements KItemRepresentation {
     }
 
     public Term evaluateFunction(TermContext context) {
+        Profiler2 profiler = context.global().profiler();
         profiler.resFuncNanoTimer.start();
         Term result;
         try {
@@ -315,6 +322,7 @@ public class KItem extends Term implements KItemRepresentation {
     }
 
     public Term resolveFunctionAndAnywhere(TermContext context) {
+        Profiler2 profiler = context.global().profiler();
         profiler.resFuncNanoTimer.start();
         Term result;
         try {
@@ -509,12 +517,25 @@ public class KItem extends Term implements KItemRepresentation {
                 /* apply rules for user defined functions */
                 if (!definition.functionRules().get(kLabelConstant).isEmpty()) {
                     Term result = null;
-                    Term owiseResult = null;
                     Rule appliedRule = null;
+                    /* the right-hand side of the [owise] rule is only built if no other rule applies */
+                    Rule owiseRule = null;
+                    Substitution<Variable, Term> owiseSolution = null;
+
+                    FunctionRuleIndex index = definition.functionRuleIndex(kLabelConstant);
+                    // auditing reports on every rule, so it bypasses the index
+                    List<Rule> candidateRules = RuleAuditing.getAuditingRule() == null && !RuleAuditing.isAuditBegun()
+                            ? index.candidates(kList)
+                            : index.rules();
+                    if (kItem.global.isProfiling()) {
+                        context.global().profiler().countFunctionIndexLookup(kLabelConstant.name(), candidateRules.size(),
+                                index.rules().size());
+                    }
 
                     // an argument is concrete if it doesn't contain variables or unresolved functions
                     boolean isConcrete = kList.getContents().stream().filter(elem -> !elem.isGround() || !elem.isNormal()).collect(Collectors.toList()).isEmpty();
-                    for (Rule rule : definition.functionRules().get(kLabelConstant)) {
+                    RuleProfiler ruleProfiler = kItem.global.ruleProfiler;
+                    for (Rule rule : candidateRules) {
                         try {
                             if (rule == RuleAuditing.getAuditingRule()) {
                                 RuleAuditing.beginAudit();
@@ -528,7 +549,12 @@ public class KItem extends Term implements KItemRepresentation {
                             }
 
                             Substitution<Variable, Term> solution;
+                            long matchStart = ruleProfiler != null ? System.nanoTime() : 0;
                             List<Substitution<Variable, Term>> matches = PatternMatcher.match(kItem, rule, context);
+                            if (ruleProfiler != null) {
+                                ruleProfiler.countAttempt(rule);
+                                ruleProfiler.addMatchTime(rule, System.nanoTime() - matchStart);
+                            }
                             if (matches.isEmpty()) {
                                 continue;
                             } else {
@@ -543,24 +569,20 @@ public class KItem extends Term implements KItemRepresentation {
                                 solution = matches.get(0);
                             }
 
-                            /* rename fresh variables of the rule */
-                            for (Variable freshVar : rule.variableSet()) {
-                                if (!solution.containsKey(freshVar)) {
-                                    solution = solution.plus(freshVar, freshVar.getFreshCopy());
-                                }
-                            }
-                            Term rightHandSide = RewriteEngineUtils.construct(
-                                    rule.rhsInstructions(),
-                                    solution,
-                                    context);
-
                             if (rule.att().contains("owise")) {
-                                if (owiseResult != null) {
+                                if (owiseRule != null) {
                                     throw KEMException.criticalError("Found multiple [owise] rules for the function with KLabel " + kItem.kLabel, rule);
                                 }
                                 RuleAuditing.succeed(rule);
-                                owiseResult = rightHandSide;
+                                owiseRule = rule;
+                                owiseSolution = solution;
                             } else {
+                                long rhsStart = ruleProfiler != null ? System.nanoTime() : 0;
+                                Term rightHandSide = constructRightHandSide(rule, solution, context);
+                                if (ruleProfiler != null) {
+                                    ruleProfiler.countSuccess(rule);
+                                    ruleProfiler.addRhsTime(rule, System.nanoTime() - rhsStart);
+                                }
                                 if (stage == Stage.REWRITING) {
                                     if (deterministicFunctions && result != null && !result.equals(rightHandSide)) {
                                         StringBuffer sb = new StringBuffer();
@@ -605,7 +627,7 @@ public class KItem extends Term implements KItemRepresentation {
 
                     if (result != null) {
                         return result;
-                    } else if (owiseResult != null) {
+                    } else if (owiseRule != null) {
                         if (!kItem.isGround()) {
                             if (context.global().stage != Stage.REWRITING) {
                                 return kItem;
@@ -630,12 +652,18 @@ public class KItem extends Term implements KItemRepresentation {
                                                 .addAll(rule.requires()),
                                         context);
                                 if (!subject.unify(pattern, null,
-                                        new FormulaContext(FormulaContext.Kind.OwiseRule, rule)).isEmpty()) {
+                                        new FormulaContext(FormulaContext.Kind.OwiseRule, rule, context.global())).isEmpty()) {
                                     return kItem;
                                 }
                             }
                         }
-                        return owiseResult;
+                        long rhsStart = ruleProfiler != null ? System.nanoTime() : 0;
+                        Term rightHandSide = constructRightHandSide(owiseRule, owiseSolution, context);
+                        if (ruleProfiler != null) {
+                            ruleProfiler.countSuccess(owiseRule);
+                            ruleProfiler.addRhsTime(owiseRule, System.nanoTime() - rhsStart);
+                        }
+                        return rightHandSide;
                     }
                 }
                 return kItem;
@@ -643,6 +671,20 @@ public class KItem extends Term implements KItemRepresentation {
                 Profiler.stopTimer(Profiler.getTimerForFunction(kLabelConstant));
             }
         }
+
+        private static Term constructRightHandSide(Rule rule, Substitution<Variable, Term> solution,
+                                                   TermContext context) {
+            /* rename fresh variables of the rule */
+            for (Variable freshVar : rule.variableSet()) {
+                if (!solution.containsKey(freshVar)) {
+                    solution = solution.plus(freshVar, freshVar.getFreshCopy());
+                }
+            }
+            return RewriteEngineUtils.construct(
+                    rule.rhsInstructions(),
+                    solution,
+                    context);
+        }
     }
 
     public boolean isAnywhereApplicable(TermContext context) {
@@ -680,6 +722,7 @@ public class KItem extends Term implements KItemRepresentation {
         /* apply [anywhere] rules */
         /* TODO(YilongL): make KLabelConstant dependent on Definition and store
          * anywhere rules in KLabelConstant */
+        RuleProfiler ruleProfiler = global.ruleProfiler;
         for (Rule rule : definition.anywhereRules().get(kLabelConstant)) {
             try {
                 if (rule == RuleAuditing.getAuditingRule()) {
@@ -689,7 +732,12 @@ public class KItem extends Term implements KItemRepresentation {
                 }
                 /* anywhere rules should be applied by pattern match rather than unification */
                 Map<Variable, Term> solution;
+                long matchStart = ruleProfiler != null ? System.nanoTime() : 0;
                 List<Substitution<Variable, Term>> matches = PatternMatcher.match(this, rule, context);
+                if (ruleProfiler != null) {
+                    ruleProfiler.countAttempt(rule);
+                    ruleProfiler.addMatchTime(rule, System.nanoTime() - matchStart);
+                }
                 if (matches.isEmpty()) {
                     continue;
                 } else {
@@ -698,8 +746,13 @@ public class KItem extends Term implements KItemRepresentation {
                 }
 
                 RuleAuditing.succeed(rule);
+                long rhsStart = ruleProfiler != null ? System.nanoTime() : 0;
                 Term rightHandSide = rule.rightHandSide();
                 rightHandSide = rightHandSide.substituteAndEvaluate(solution, context);
+                if (ruleProfiler != null) {
+                    ruleProfiler.countSuccess(rule);
+                    ruleProfiler.addRhsTime(rule, System.nanoTime() - rhsStart);
+                }
 
                 if (global.javaExecutionOptions.logRulesPublic) {
                     RuleSourceUtil.printRuleAndSource(rule);
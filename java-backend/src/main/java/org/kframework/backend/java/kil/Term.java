@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -23,8 +24,6 @@ import java.util.Map;
 public abstract class Term extends JavaSymbolicObject<Term> implements Comparable<Term>,
         org.kframework.kore.K {
 
-    //For performance improvement. Faster than accessing evaluationCache directly.
-    private transient Map<ConjunctiveFormula, Term> evaluationCacheRow;
     private transient Term nullConstraintEvalResult;
 
     protected final Kind kind;
@@ -138,10 +137,8 @@ public abstract class Term extends JavaSymbolicObject<Term> implements Comparabl
             }
             return nullConstraintEvalResult;
         } else {
-            if (evaluationCacheRow == null) {
-                evaluationCacheRow = context.global().functionCache.evaluationCache.row(this);
-            }
-            return evaluationCacheRow.get(constraint);
+            Map<ConjunctiveFormula, Term> results = context.global().functionCache.evaluationCache.get(this);
+            return results != null ? results.get(constraint) : null;
         }
     }
 
@@ -150,10 +147,8 @@ public abstract class Term extends JavaSymbolicObject<Term> implements Comparabl
             context.global().functionCache.nullConstraintEvalCache.put(this, result);
             nullConstraintEvalResult = result;
         } else {
-            if (evaluationCacheRow == null) {
-                evaluationCacheRow = context.global().functionCache.evaluationCache.row(this);
-            }
-            evaluationCacheRow.put(constraint, result);
+            context.global().functionCache.evaluationCache.computeIfAbsent(this, t -> new ConcurrentHashMap<>())
+                    .put(constraint, result);
         }
     }
 
@@ -18,7 +18,7 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 public class TermContext extends JavaSymbolicObject {
 
-    private final AtomicLong counter;
+    private AtomicLong counter;
 
     private final GlobalContext global;
 
@@ -56,6 +56,32 @@ public class TermContext extends JavaSymbolicObject {
         return counter != null ? new TermContext(global, new AtomicLong(counter.get())) : this;
     }
 
+    /**
+     * Forks a {@link TermContext} that shares no mutable state (fresh counter, top term, top constraint) with this one,
+     * so that the two can be used from different threads. The fork numbers fresh constants after
+     * {@code counterValue}, on its own counter, until it is {@link #join joined}.
+     */
+    public TermContext forkForThread(long counterValue) {
+        TermContext forked = new TermContext(global, counter != null ? new AtomicLong(counterValue) : null);
+        forked.initialVariables = initialVariables;
+        forked.topTerm = topTerm;
+        forked.topConstraint = topConstraint;
+        forked.converter = converter;
+        return forked;
+    }
+
+    /**
+     * Makes a context forked by {@link #forkForThread} take its fresh constants from the counter of the given
+     * context again. Must only be called once the thread using the fork is done with it.
+     */
+    public void join(TermContext context) {
+        counter = context.counter;
+    }
+
+    public boolean hasFreshCounter() {
+        return counter != null;
+    }
+
     public BigInteger freshConstant() {
         if (counter == null) {
             throw KEMException.criticalError("No fresh counter available in this TermContext.");
@@ -67,6 +93,10 @@ public class TermContext extends JavaSymbolicObject {
         return counter.get();
     }
 
+    public void setCounterValue(long value) {
+        counter.set(value);
+    }
+
     public Definition definition() {
         return global.getDefinition();
     }
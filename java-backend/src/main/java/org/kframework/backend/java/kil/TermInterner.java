@@ -0,0 +1,28 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Hash-conses the ground {@link KItem}s built by {@link KItem#of}, together with their {@link KList}s, so that
+ * structurally equal ground terms share one instance. Since the children of an interned term are interned
+ * themselves, looking up a new term only compares its label and the identities of its children, through the
+ * reference checks at the start of {@link KItem#equals} and {@link KList#equals}, instead of whole subterms.
+ * <p>
+ * Terms are held weakly, so the table does not keep unused configurations alive. Each {@link GlobalContext} has its
+ * own table, as a {@link KItem} refers to the context it was built in. Enabled by {@code --hash-cons}.
+ */
+public class TermInterner {
+
+    private final Interner<Term> interner = Interners.newWeakInterner();
+
+    /**
+     * Returns the shared instance equal to the given ground term.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Term> T intern(T term) {
+        assert term.isGround();
+        return (T) interner.intern(term);
+    }
+}
@@ -30,7 +30,6 @@ import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.util.Constants;
-import org.kframework.backend.java.util.CounterStopwatch;
 import org.kframework.backend.java.util.FormulaContext;
 import org.kframework.backend.java.util.RewriteEngineUtils;
 import org.kframework.backend.java.util.StateLog;
@@ -953,10 +952,6 @@ public class ConjunctiveFormula extends Term implements CollectionInternalRepres
         return simplifiedConstraint;
     }
 
-    private static final Map<Triple<ConjunctiveFormula, ConjunctiveFormula, Set<Variable>>, Boolean> impliesSMTCache = Collections.synchronizedMap(new HashMap<>());
-
-    public static CounterStopwatch impliesStopwatch = new CounterStopwatch("impliesSMT");
-
     /**
      * Checks if {@code left} implies {@code right}, assuming that {@code existentialQuantVars}
      * are existentially quantified.
@@ -966,24 +961,23 @@ public class ConjunctiveFormula extends Term implements CollectionInternalRepres
             ConjunctiveFormula right,
             Set<Variable> existentialQuantVars,
             FormulaContext formulaContext) {
-        impliesStopwatch.start();
+        formulaContext.profiler.impliesTimer.start();
         formulaContext.z3Profiler.newRequest();
         try {
             Triple<ConjunctiveFormula, ConjunctiveFormula, Set<Variable>> triple = Triple.of(left, right, existentialQuantVars);
-            boolean cached = true;
-            if (!impliesSMTCache.containsKey(triple)) {
-                impliesSMTCache.put(triple,
-                        left.global.constraintOps.impliesSMT(left, right, existentialQuantVars, formulaContext));
-                cached = false;
+            Boolean result = left.global.impliesSMTCache.get(triple);
+            boolean cached = result != null;
+            if (!cached) {
+                result = left.global.constraintOps.impliesSMT(left, right, existentialQuantVars, formulaContext);
+                left.global.impliesSMTCache.put(triple, result);
             }
-            Boolean result = impliesSMTCache.get(triple);
 
             if (left.globalContext().javaExecutionOptions.debugZ3) {
                 formulaContext.printImplication(left, right, result, cached);
             }
             return result;
         } finally {
-            impliesStopwatch.stop();
+            formulaContext.profiler.impliesTimer.stop();
         }
     }
 
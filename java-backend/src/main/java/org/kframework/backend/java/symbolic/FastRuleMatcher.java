@@ -29,6 +29,7 @@ import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Token;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.util.FormulaContext;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.backend.java.utils.BitSet;
 import org.kframework.builtin.KLabels;
 import org.kframework.kore.KApply;
@@ -71,6 +72,26 @@ public class FastRuleMatcher {
     private boolean continuousSimplification = true;
     private TermContext context;
 
+    /**
+     * True while {@link #matchRulePattern} matches incrementally, see {@link #matchIncrementally}.
+     */
+    private boolean incremental = false;
+    /**
+     * The partial matches of the subterms of the previous subject of {@link #matchRulePattern}, and the ones of the
+     * current subject, which replace them once it is matched.
+     */
+    private Map<MatchKey, List<CachedMatch>> matchCache = new HashMap<>();
+    private Map<MatchKey, List<CachedMatch>> nextMatchCache = new HashMap<>();
+    /**
+     * The updates of {@link #constraints} made by the current {@link #matchRulePattern}, in order.
+     */
+    private final List<ConstraintUpdate> updates = new ArrayList<>();
+    /**
+     * Incremented whenever the matching of a subterm stops depending only on the subterm and the pattern, so that
+     * the partial matches enclosing it are not cached.
+     */
+    private int cacheBarriers = 0;
+
     public static ConjunctiveFormula unify(Term term, Term otherTerm, TermContext context) {
         return new FastRuleMatcher(context.global(), 1).unifyEquality(term, otherTerm, false, false, true, context, false);
     }
@@ -104,7 +125,23 @@ public class FastRuleMatcher {
         ruleMask.stream().forEach(i -> constraints[i] = ConjunctiveFormula.of(context.global()));
         empty = BitSet.apply(ruleCount);
 
-        BitSet theMatchingRules = matchAndLog(subject.term(), pattern, ruleMask, List(), false);
+        RuleProfiler ruleProfiler = global.ruleProfiler;
+        long matchStart = ruleProfiler != null ? System.nanoTime() : 0;
+        incremental = global.javaExecutionOptions.incrementalMatching;
+        BitSet theMatchingRules;
+        try {
+            theMatchingRules = matchAndLog(subject.term(), pattern, ruleMask, List(), false);
+        } finally {
+            if (incremental) {
+                matchCache = nextMatchCache;
+                nextMatchCache = new HashMap<>();
+                updates.clear();
+                incremental = false;
+            }
+        }
+        if (ruleProfiler != null) {
+            ruleProfiler.addAutomatonTime(System.nanoTime() - matchStart);
+        }
 
         List<RuleMatchResult> structuralResults = new ArrayList<>();
         List<RuleMatchResult> transitionResults = new ArrayList<>();
@@ -124,7 +161,8 @@ public class FastRuleMatcher {
             } else {
                 patternConstraint = patternConstraint.addAll(rule.requires());
             }
-            FormulaContext formulaContext = new FormulaContext(FormulaContext.Kind.RegularRule, rule);
+            FormulaContext formulaContext = new FormulaContext(FormulaContext.Kind.RegularRule, rule, context.global());
+            long constraintStart = ruleProfiler != null ? System.nanoTime() : 0;
             List<Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>>> ruleResults = ConstrainedTerm.evaluateConstraints(
                     constraints[i],
                     subject.constraint(),
@@ -133,6 +171,10 @@ public class FastRuleMatcher {
                             .filter(v -> !v.name().equals(KOREtoBackendKIL.THE_VARIABLE))
                             .collect(Collectors.toSet()),
                     context, formulaContext);
+            if (ruleProfiler != null) {
+                ruleProfiler.countAttempt(rule);
+                ruleProfiler.addConstraintTime(rule, System.nanoTime() - constraintStart);
+            }
             for (Triple<ConjunctiveFormula, Boolean, Map<scala.collection.immutable.List<Pair<Integer, Integer>>, Term>> triple : ruleResults) {
                 RuleMatchResult result = new RuleMatchResult(triple.getLeft(), triple.getMiddle(), triple.getRight(), i);
                 if (transitions.stream().anyMatch(rule.att()::contains)) {
@@ -258,39 +300,10 @@ public class FastRuleMatcher {
         }
 
         if (pattern instanceof RuleAutomatonDisjunction) {
-            RuleAutomatonDisjunction automatonDisjunction = (RuleAutomatonDisjunction) pattern;
-            BitSet returnSet = BitSet.apply(ruleCount);
-
-            // handle variables in the disjunction
-            List<Pair<Variable, BitSet>> pairs = automatonDisjunction.getVariablesForSort(subject.sort());
-            for (Pair<Variable, BitSet> p : pairs) {
-                if (ruleMask.intersects(p.getRight())) {
-                    BitSet localRuleMask = ruleMask.clone();
-                    localRuleMask.and(p.getRight());
-                    returnSet.or(addSubstitution(p.getLeft(), subject, localRuleMask));
-                }
-            }
-
-            // handle associative constructs with identity
-            for (Pair<BuiltinList, BitSet> p : automatonDisjunction.assocDisjunctionArray[subject.sort().ordinal()]) {
-                matchInside(subject, ruleMask, path, returnSet, p, logFailures);
+            if (incremental && !logFailures && subject instanceof KItem && subject.isConcrete()) {
+                return matchIncrementally((KItem) subject, (RuleAutomatonDisjunction) pattern, ruleMask, path);
             }
-
-            if (subject instanceof KItem) {
-                // main match of KItem
-                matchInside(subject, ruleMask, path, returnSet, automatonDisjunction.getKItemPatternForKLabel((KLabelConstant) ((KItem) subject).kLabel()), logFailures);
-                checkVarLabelPatterns(subject, ruleMask, path, automatonDisjunction, returnSet);
-            } else if (subject instanceof Token) {
-                // and matching Tokens
-                BitSet rules = automatonDisjunction.tokenDisjunctions.get(subject);
-                if (rules != null) {
-                    BitSet localRuleMask = ruleMask.clone();
-                    localRuleMask.and(rules);
-                    returnSet.or(localRuleMask);
-                }
-            }
-
-            return returnSet;
+            return matchDisjunction(subject, (RuleAutomatonDisjunction) pattern, ruleMask, path, logFailures);
         }
 
         // register the RHS of the rewrite we have just encountered, and continue matching on its LHS
@@ -301,7 +314,7 @@ public class FastRuleMatcher {
 
             for (int i = theNewMask.nextSetBit(0); i >= 0; i = theNewMask.nextSetBit(i + 1)) {
                 if (innerRHSRewrite.theRHS[i] != null) {
-                    constraints[i] = constraints[i].add(new LocalRewriteTerm(path.reverse(), innerRHSRewrite.theRHS[i]), BoolToken.TRUE);
+                    update(new ConstraintUpdate(i, null, null, new LocalRewriteTerm(path.reverse(), innerRHSRewrite.theRHS[i])));
                 }
             }
             return theNewMask;
@@ -370,6 +383,175 @@ public class FastRuleMatcher {
         }
     }
 
+    /**
+     * Matches the subject against the disjunction of the patterns of several rules.
+     */
+    private BitSet matchDisjunction(Term subject, RuleAutomatonDisjunction automatonDisjunction, BitSet ruleMask,
+                                    scala.collection.immutable.List<Pair<Integer, Integer>> path, boolean logFailures) {
+        BitSet returnSet = BitSet.apply(ruleCount);
+
+        // handle variables in the disjunction
+        List<Pair<Variable, BitSet>> pairs = automatonDisjunction.getVariablesForSort(subject.sort());
+        for (Pair<Variable, BitSet> p : pairs) {
+            if (ruleMask.intersects(p.getRight())) {
+                BitSet localRuleMask = ruleMask.clone();
+                localRuleMask.and(p.getRight());
+                returnSet.or(addSubstitution(p.getLeft(), subject, localRuleMask));
+            }
+        }
+
+        // handle associative constructs with identity
+        for (Pair<BuiltinList, BitSet> p : automatonDisjunction.assocDisjunctionArray[subject.sort().ordinal()]) {
+            matchInside(subject, ruleMask, path, returnSet, p, logFailures);
+        }
+
+        if (subject instanceof KItem) {
+            // main match of KItem
+            matchInside(subject, ruleMask, path, returnSet, automatonDisjunction.getKItemPatternForKLabel((KLabelConstant) ((KItem) subject).kLabel()), logFailures);
+            checkVarLabelPatterns(subject, ruleMask, path, automatonDisjunction, returnSet);
+        } else if (subject instanceof Token) {
+            // and matching Tokens
+            BitSet rules = automatonDisjunction.tokenDisjunctions.get(subject);
+            if (rules != null) {
+                BitSet localRuleMask = ruleMask.clone();
+                localRuleMask.and(rules);
+                returnSet.or(localRuleMask);
+            }
+        }
+
+        return returnSet;
+    }
+
+    /**
+     * Matches like {@link #matchDisjunction}, but reuses the partial match of the same subterm at the same position
+     * by the previous {@link #matchRulePattern}, enabled by {@code --incremental-matching}. Between rewrite steps,
+     * the right-hand side of a rule only replaces the subterms along its rewrite paths, so the other subterms are
+     * the same objects, and their partial matches are replayed instead of walking the rule automaton again. Only
+     * concrete subterms are matched incrementally: matching a symbolic subterm may depend on the path condition.
+     * <p>
+     * A partial match is the resulting rule mask and the updates of the rule constraints, which only depend on the
+     * subterm, the pattern, the position and the incoming rule mask, unless some constraint becomes false: then the
+     * remaining updates depend on the constraints built so far, and the match is not cached. Replaying the updates
+     * yields the same constraints as matching again, including the rules eliminated by a false constraint.
+     */
+    private BitSet matchIncrementally(KItem subject, RuleAutomatonDisjunction pattern, BitSet ruleMask,
+                                      scala.collection.immutable.List<Pair<Integer, Integer>> path) {
+        MatchKey key = new MatchKey(subject, pattern, path);
+        List<CachedMatch> cachedMatches = matchCache.get(key);
+        if (cachedMatches != null) {
+            for (CachedMatch cachedMatch : cachedMatches) {
+                if (cachedMatch.ruleMask.subset(ruleMask) && ruleMask.subset(cachedMatch.ruleMask)) {
+                    nextMatchCache.computeIfAbsent(key, k -> new ArrayList<>(1)).add(cachedMatch);
+                    BitSet result = cachedMatch.result.clone();
+                    for (ConstraintUpdate update : cachedMatch.updates) {
+                        if (result.get(update.rule) && !update(update)) {
+                            result.clear(update.rule);
+                        }
+                    }
+                    return result;
+                }
+            }
+        }
+
+        BitSet incomingRuleMask = ruleMask.clone();
+        int firstUpdate = updates.size();
+        int barriers = cacheBarriers;
+        BitSet result = matchDisjunction(subject, pattern, ruleMask, path, false);
+        if (cacheBarriers == barriers) {
+            nextMatchCache.computeIfAbsent(key, k -> new ArrayList<>(1)).add(new CachedMatch(
+                    incomingRuleMask, result.clone(), new ArrayList<>(updates.subList(firstUpdate, updates.size()))));
+        }
+        return result;
+    }
+
+    /**
+     * Applies the update to the constraint of its rule, and records it for {@link #matchIncrementally}.
+     *
+     * @return false if the constraint became false, in which case the rule does not match.
+     */
+    private boolean update(ConstraintUpdate update) {
+        if (incremental) {
+            updates.add(update);
+        }
+        int i = update.rule;
+        if (update.left != null) {
+            constraints[i] = constraints[i].add(update.left, update.right);
+            if (continuousSimplification) {
+                constraints[i] = constraints[i].simplify();
+            }
+            if (constraints[i].isFalse()) {
+                cacheBarriers++;
+                return false;
+            }
+        }
+        if (update.rewrite != null) {
+            constraints[i] = constraints[i].add(update.rewrite, BoolToken.TRUE);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the equality {@code left = right} to the constraint of the rule, if {@code left} is not null, and then
+     * the rewrite, if not null.
+     */
+    private static final class ConstraintUpdate {
+        final int rule;
+        final Term left;
+        final Term right;
+        final LocalRewriteTerm rewrite;
+
+        ConstraintUpdate(int rule, Term left, Term right, LocalRewriteTerm rewrite) {
+            this.rule = rule;
+            this.left = left;
+            this.right = right;
+            this.rewrite = rewrite;
+        }
+    }
+
+    /**
+     * A subterm at a position, matched against a pattern. Subterms are compared by identity.
+     */
+    private static final class MatchKey {
+        final Term subject;
+        final Term pattern;
+        final scala.collection.immutable.List<Pair<Integer, Integer>> path;
+        final int hashCode;
+
+        MatchKey(Term subject, Term pattern, scala.collection.immutable.List<Pair<Integer, Integer>> path) {
+            this.subject = subject;
+            this.pattern = pattern;
+            this.path = path;
+            this.hashCode = (System.identityHashCode(subject) * 31 + System.identityHashCode(pattern)) * 31
+                    + path.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof MatchKey)) {
+                return false;
+            }
+            MatchKey key = (MatchKey) o;
+            return subject == key.subject && pattern == key.pattern && path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class CachedMatch {
+        final BitSet ruleMask;
+        final BitSet result;
+        final List<ConstraintUpdate> updates;
+
+        CachedMatch(BitSet ruleMask, BitSet result, List<ConstraintUpdate> updates) {
+            this.ruleMask = ruleMask;
+            this.result = result;
+            this.updates = updates;
+        }
+    }
+
     private void checkVarLabelPatterns(Term subject, BitSet ruleMask, scala.collection.immutable.List<Pair<Integer, Integer>> path, RuleAutomatonDisjunction automatonDisjunction, BitSet returnSet) {
         List<Pair<KItem, BitSet>> varLabelPatterns = automatonDisjunction.getKItemPatternByArity(((KItem) subject).klist().size());
         if (!(varLabelPatterns == null)) {
@@ -460,6 +642,8 @@ public class FastRuleMatcher {
                     subject instanceof BuiltinList.SingletonBuiltinList ? path : path.$colon$colon(Pair.of(subjectIndex, subject.size())));
         }
 
+        // the constraints built below are combined into a disjunction, rather than updated in order
+        cacheBarriers++;
         ListMultimap<Integer, ConjunctiveFormula> nestedConstraints = ArrayListMultimap.create();
         for (int i = subjectIndex; i <= subject.size(); i++) {
             ConjunctiveFormula[] oldConstraints = constraints;
@@ -523,11 +707,7 @@ public class FastRuleMatcher {
         }
 
         for (int i = ruleMask.nextSetBit(0); i >= 0; i = ruleMask.nextSetBit(i + 1)) {
-            constraints[i] = constraints[i].add(variable, term);
-            if (continuousSimplification) {
-                constraints[i] = constraints[i].simplify();
-            }
-            if (constraints[i].isFalse()) {
+            if (!update(new ConstraintUpdate(i, variable, term, null))) {
                 ruleMask.clear(i);
             }
         }
@@ -544,17 +724,9 @@ public class FastRuleMatcher {
                 continue;
             }
 
-            constraints[i] = constraints[i].add(subject, leftHandSide);
-            if (continuousSimplification) {
-                constraints[i] = constraints[i].simplify();
-            }
-            if (constraints[i].isFalse()) {
+            LocalRewriteTerm rewrite = rightHandSide != null ? new LocalRewriteTerm(path.reverse(), rightHandSide) : null;
+            if (!update(new ConstraintUpdate(i, subject, leftHandSide, rewrite))) {
                 ruleMask.clear(i);
-                continue;
-            }
-
-            if (rightHandSide != null) {
-                constraints[i] = constraints[i].add(new LocalRewriteTerm(path.reverse(), rightHandSide), BoolToken.TRUE);
             }
         }
 
@@ -642,6 +814,7 @@ public class FastRuleMatcher {
                         /* since here we have a non-deterministic choice to make, we only make
                          * a choice if it eliminates all map equalities */
                         if (!resultConstraint.hasMapEqualities()) {
+                            cacheBarriers++;
                             constraints[0] = constraints[0].add(resultConstraint);
                             if (continuousSimplification) {
                                 constraints[0] = constraints[0].simplify();
@@ -1,8 +1,8 @@
 // Copyright (c) 2015-2019 K Team. All Rights Reserved.
 package org.kframework.backend.java.symbolic;
 
-import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import org.kframework.RewriterResult;
 import org.kframework.backend.java.compile.KOREtoBackendKIL;
 import org.kframework.backend.java.kil.BuiltinList;
@@ -15,7 +15,9 @@ import org.kframework.backend.java.kil.KList;
 import org.kframework.backend.java.kil.Term;
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.util.HookProvider;
+import org.kframework.backend.java.util.MetricsExporter;
 import org.kframework.backend.java.util.Profiler2;
+import org.kframework.backend.java.util.RewriterThread;
 import org.kframework.backend.java.util.RuleSourceUtil;
 import org.kframework.backend.java.util.StateLog;
 import org.kframework.builtin.BooleanUtils;
@@ -36,11 +38,15 @@ import org.kframework.utils.Stopwatch;
 import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
+import org.kframework.utils.inject.DefinitionScoped;
+import org.kframework.utils.inject.SimpleScope;
 import org.kframework.utils.options.SMTOptions;
 import scala.Function1;
 import scala.Tuple2;
 import scala.collection.JavaConversions;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.lang.invoke.MethodHandle;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -48,6 +54,9 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -70,6 +79,10 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
     private final FileUtil files;
     private final InitializeDefinition initializeDefinition;
     private static final int NEGATIVE_VALUE = -1;
+    /**
+     * The number of fresh constants reserved for each claim proved concurrently, see {@code --prove-threads}.
+     */
+    private static final long CLAIM_FRESH_COUNTER_RANGE = 1_000_000;
     private final KompileOptions kompileOptions;
     private final KPrint kprint;
     private final Profiler2 profiler;
@@ -168,26 +181,29 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
         @Override
         public RewriterResult execute(K k, Optional<Integer> depth) {
             rewritingContext.stateLog.open("execute-" + Integer.toString(Math.abs(k.hashCode())));
-            if (rewritingContext.globalOptions.verbose) {
-                rewritingContext.profiler.logParsingTime();
-            }
-            rewritingContext.setExecutionPhase(false);
-            TermContext termContext = TermContext.builder(rewritingContext).freshCounter(initCounterValue).build();
-            KOREtoBackendKIL converter = new KOREtoBackendKIL(module, definition, termContext.global(), false);
-            ResolveSemanticCasts resolveCasts = new ResolveSemanticCasts(true);
-            ExpandMacros macroExpander = new ExpandMacros(module, files, kompileOptions, false);
-            termContext.setKOREtoBackendKILConverter(converter);
-            Term backendKil = converter.convert(macroExpander.expand(resolveCasts.resolve(k))).evaluate(termContext);
-            rewritingContext.stateLog.log(StateLog.LogEvent.EXECINIT, backendKil, KApply(KLabels.ML_TRUE));
-            SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
-            if (rewritingContext.globalOptions.verbose) {
-                rewritingContext.profiler.logInitTime();
+            MetricsExporter metrics = startMetrics();
+            try {
+                if (rewritingContext.globalOptions.verbose) {
+                    rewritingContext.profiler().logParsingTime();
+                }
+                rewritingContext.setExecutionPhase(false);
+                TermContext termContext = TermContext.builder(rewritingContext).freshCounter(initCounterValue).build();
+                KOREtoBackendKIL converter = new KOREtoBackendKIL(module, definition, termContext.global(), false);
+                ResolveSemanticCasts resolveCasts = new ResolveSemanticCasts(true);
+                ExpandMacros macroExpander = new ExpandMacros(module, files, kompileOptions, false);
+                termContext.setKOREtoBackendKILConverter(converter);
+                Term backendKil = converter.convert(macroExpander.expand(resolveCasts.resolve(k))).evaluate(termContext);
+                rewritingContext.stateLog.log(StateLog.LogEvent.EXECINIT, backendKil, KApply(KLabels.ML_TRUE));
+                SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
+                if (rewritingContext.globalOptions.verbose) {
+                    rewritingContext.profiler().logInitTime();
+                }
+                rewritingContext.setExecutionPhase(true);
+                rewritingContext.javaExecutionOptions.logRulesPublic = rewritingContext.javaExecutionOptions.logRules;
+                return rewriter.rewrite(new ConstrainedTerm(backendKil, termContext), depth.orElse(-1));
+            } finally {
+                finish(metrics);
             }
-            rewritingContext.setExecutionPhase(true);
-            rewritingContext.javaExecutionOptions.logRulesPublic = rewritingContext.javaExecutionOptions.logRules;
-            RewriterResult result = rewriter.rewrite(new ConstrainedTerm(backendKil, termContext), depth.orElse(-1));
-            rewritingContext.stateLog.close();
-            return result;
         }
 
         @Override
@@ -199,18 +215,21 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
         @Override
         public K search(K initialConfiguration, Optional<Integer> depth, Optional<Integer> bound, Rule pattern, SearchType searchType) {
             rewritingContext.stateLog.open("search-" + Integer.toString(Math.abs(initialConfiguration.hashCode())));
-            TermContext termContext = TermContext.builder(rewritingContext).freshCounter(initCounterValue).build();
-            KOREtoBackendKIL converter = new KOREtoBackendKIL(module, definition, termContext.global(), false);
-            ResolveSemanticCasts resolveCasts = new ResolveSemanticCasts(true);
-            ExpandMacros macroExpander = new ExpandMacros(module, files, kompileOptions, false);
-            termContext.setKOREtoBackendKILConverter(converter);
-            Term javaTerm = converter.convert(macroExpander.expand(resolveCasts.resolve(initialConfiguration))).evaluate(termContext);
-            rewritingContext.stateLog.log(StateLog.LogEvent.SEARCHINIT, javaTerm, KApply(KLabels.ML_TRUE));
-            org.kframework.backend.java.kil.Rule javaPattern = converter.convert(Optional.empty(), transformFunction(JavaBackend::convertKSeqToKApply, pattern));
-            SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
-            K result = rewriter.search(javaTerm, javaPattern, bound.orElse(NEGATIVE_VALUE), depth.orElse(NEGATIVE_VALUE), searchType, termContext);
-            rewritingContext.stateLog.close();
-            return result;
+            MetricsExporter metrics = startMetrics();
+            try {
+                TermContext termContext = TermContext.builder(rewritingContext).freshCounter(initCounterValue).build();
+                KOREtoBackendKIL converter = new KOREtoBackendKIL(module, definition, termContext.global(), false);
+                ResolveSemanticCasts resolveCasts = new ResolveSemanticCasts(true);
+                ExpandMacros macroExpander = new ExpandMacros(module, files, kompileOptions, false);
+                termContext.setKOREtoBackendKILConverter(converter);
+                Term javaTerm = converter.convert(macroExpander.expand(resolveCasts.resolve(initialConfiguration))).evaluate(termContext);
+                rewritingContext.stateLog.log(StateLog.LogEvent.SEARCHINIT, javaTerm, KApply(KLabels.ML_TRUE));
+                org.kframework.backend.java.kil.Rule javaPattern = converter.convert(Optional.empty(), transformFunction(JavaBackend::convertKSeqToKApply, pattern));
+                SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
+                return rewriter.search(javaTerm, javaPattern, bound.orElse(NEGATIVE_VALUE), depth.orElse(NEGATIVE_VALUE), searchType, termContext);
+            } finally {
+                finish(metrics);
+            }
         }
 
 
@@ -223,62 +242,195 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
         public K prove(Module mod) {
             //todo kompileOptions.global == null, but shouldn't
             if (rewritingContext.globalOptions.verbose) {
-                rewritingContext.profiler.logParsingTime();
+                rewritingContext.profiler().logParsingTime();
             }
             rewritingContext.stateLog.open("prove-" + Integer.toString(Math.abs(mod.hashCode())));
-            rewritingContext.setExecutionPhase(false);
-            List<Rule> rules = stream(mod.rules()).filter(r -> r.att().contains("specification")).collect(Collectors.toList());
-            ProcessProofRules processProofRules = new ProcessProofRules(rules).invoke(rewritingContext, initCounterValue, module, definition);
-            List<org.kframework.backend.java.kil.Rule> javaRules = processProofRules.getJavaRules();
-            KOREtoBackendKIL converter = processProofRules.getConverter();
-            TermContext termContext = processProofRules.getTermContext();
-            List<org.kframework.backend.java.kil.Rule> specRules = javaRules.stream()
-                    .map(org.kframework.backend.java.kil.Rule::renameVariables)
-                    .collect(Collectors.toList());
+            MetricsExporter metrics = startMetrics();
+            try {
+                rewritingContext.setExecutionPhase(false);
+                List<Rule> rules = stream(mod.rules()).filter(r -> r.att().contains("specification")).collect(Collectors.toList());
+                ProcessProofRules processProofRules = new ProcessProofRules(rules).invoke(rewritingContext, initCounterValue, module, definition);
+                List<org.kframework.backend.java.kil.Rule> javaRules = processProofRules.getJavaRules();
+                KOREtoBackendKIL converter = processProofRules.getConverter();
+                TermContext termContext = processProofRules.getTermContext();
+                List<org.kframework.backend.java.kil.Rule> specRules = javaRules.stream()
+                        .map(org.kframework.backend.java.kil.Rule::renameVariables)
+                        .collect(Collectors.toList());
 
-            // rename all variables again to avoid any potential conflicts with the rules in the semantics
-            javaRules = javaRules.stream()
-                    .map(org.kframework.backend.java.kil.Rule::renameVariables)
-                    .collect(Collectors.toList());
+                // rename all variables again to avoid any potential conflicts with the rules in the semantics
+                javaRules = javaRules.stream()
+                        .map(org.kframework.backend.java.kil.Rule::renameVariables)
+                        .collect(Collectors.toList());
 
-            SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
+                SymbolicRewriter rewriter = new SymbolicRewriter(rewritingContext, transitions, converter);
 
-            if (rewritingContext.globalOptions.verbose) {
-                rewritingContext.profiler.logInitTime();
+                if (rewritingContext.globalOptions.verbose) {
+                    rewritingContext.profiler().logInitTime();
+                }
+                rewritingContext.setExecutionPhase(true);
+                List<org.kframework.backend.java.kil.Rule> claims = javaRules.stream()
+                        .filter(r -> !r.att().contains(Attribute.TRUSTED_KEY))
+                        .collect(Collectors.toList());
+                List<ConstrainedTerm> proofResults;
+                if (rewritingContext.javaExecutionOptions.proveThreads > 1 && claims.size() > 1) {
+                    proofResults = proveConcurrently(claims, specRules, processProofRules, termContext);
+                } else {
+                    proofResults = claims.stream()
+                            .map(r -> proveClaim(r, specRules, processProofRules, rewriter, termContext))
+                            .flatMap(List::stream)
+                            .collect(Collectors.toList());
+                }
+
+                return proofResults.stream()
+                        .map(constrainedTerm -> (K) constrainedTerm.term())
+                        .reduce(((k1, k2) -> KApply(KLabels.ML_AND, k1, k2))).orElse(KApply(KLabels.ML_TRUE));
+            } finally {
+                finish(metrics);
             }
-            rewritingContext.setExecutionPhase(true);
-            List<ConstrainedTerm> proofResults = javaRules.stream()
-                    .filter(r -> !r.att().contains(Attribute.TRUSTED_KEY))
-                    .map(r -> {
-                        //Build LHS with fully evaluated constraint. Then expand patterns.
-                        ConjunctiveFormula constraint = processProofRules.getEvaluatedConstraint(r);
-                        ConstrainedTerm lhs = new ConstrainedTerm(r.leftHandSide(), constraint, termContext);
-                        termContext.setTopConstraint(constraint);
-                        lhs = lhs.expandPatterns(true);
-
-                        //Build RHS with fully evaluated ensures. RHS term is already evaluated.
-                        ConjunctiveFormula ensures = (ConjunctiveFormula) processProofRules.evaluate(
-                                ConjunctiveFormula.of(termContext.global()).addAll(r.ensures()), constraint, termContext);
-                        ConstrainedTerm rhs = new ConstrainedTerm(
-                                r.rightHandSide(), ensures, TermContext.builder(termContext.global()).build());
-
-                        termContext.setInitialVariables(lhs.variableSet());
-                        termContext.setTopConstraint(null);
-                        if (rewritingContext.javaExecutionOptions.cacheFunctionsOptimized) {
-                            rewritingContext.functionCache.clearCache();
-                        }
-                        rewritingContext.stateLog.log(StateLog.LogEvent.REACHINIT,   lhs.term(), lhs.constraint());
-                        rewritingContext.stateLog.log(StateLog.LogEvent.REACHTARGET, rhs.term(), rhs.constraint());
-                        return rewriter.proveRule(r, lhs, rhs, specRules, kem);
-                    })
-                    .flatMap(List::stream)
-                    .collect(Collectors.toList());
+        }
+
+        /**
+         * Starts exporting the metrics of the profiler to {@code --metrics-file}, if set.
+         */
+        private MetricsExporter startMetrics() {
+            return MetricsExporter.start(rewritingContext.profiler(), rewritingContext.javaExecutionOptions, files);
+        }
 
-            K result = proofResults.stream()
-                    .map(constrainedTerm -> (K) constrainedTerm.term())
-                    .reduce(((k1, k2) -> KApply(KLabels.ML_AND, k1, k2))).orElse(KApply(KLabels.ML_TRUE));
+        /**
+         * Closes the state log and writes the final metrics and the rule profile of {@code --profile-rules}, if
+         * enabled, whether the execution succeeded or not.
+         */
+        private void finish(MetricsExporter metrics) {
             rewritingContext.stateLog.close();
-            return result;
+            if (metrics != null) {
+                metrics.close();
+            }
+            if (rewritingContext.ruleProfiler != null) {
+                rewritingContext.ruleProfiler.write(
+                        files.resolveWorkingDirectory(rewritingContext.javaExecutionOptions.profileRules),
+                        rewritingContext.javaExecutionOptions.profileRulesFormat);
+            }
+        }
+
+        private List<ConstrainedTerm> proveClaim(
+                org.kframework.backend.java.kil.Rule r,
+                List<org.kframework.backend.java.kil.Rule> specRules,
+                ProcessProofRules processProofRules,
+                SymbolicRewriter rewriter,
+                TermContext termContext) {
+            GlobalContext global = termContext.global();
+            //Build LHS with fully evaluated constraint. Then expand patterns.
+            ConjunctiveFormula constraint = processProofRules.getEvaluatedConstraint(r, termContext);
+            ConstrainedTerm lhs = new ConstrainedTerm(r.leftHandSide(), constraint, termContext);
+            termContext.setTopConstraint(constraint);
+            lhs = lhs.expandPatterns(true);
+
+            //Build RHS with fully evaluated ensures. RHS term is already evaluated.
+            ConjunctiveFormula ensures = (ConjunctiveFormula) processProofRules.evaluate(
+                    ConjunctiveFormula.of(global).addAll(r.ensures()), constraint, termContext);
+            ConstrainedTerm rhs = new ConstrainedTerm(
+                    r.rightHandSide(), ensures, TermContext.builder(global).build());
+
+            termContext.setInitialVariables(lhs.variableSet());
+            termContext.setTopConstraint(null);
+            if (global.javaExecutionOptions.cacheFunctionsOptimized) {
+                global.functionCache.clearCache();
+            }
+            global.stateLog.log(StateLog.LogEvent.REACHINIT,   lhs.term(), lhs.constraint());
+            global.stateLog.log(StateLog.LogEvent.REACHTARGET, rhs.term(), rhs.constraint());
+            return rewriter.proveRule(r, lhs, rhs, specRules, kem);
+        }
+
+        /**
+         * Proves each claim on a pool of {@code --prove-threads} threads. Every claim gets a {@link GlobalContext}
+         * forked from {@link #rewritingContext}, so that it has its own rewriter, term context, caches, Z3 wrapper,
+         * profiler and state log, which the {@link RewriterThread} proving the claim is bound to. Results, summary
+         * boxes, state log events and profilers are merged in claim order.
+         * <p>
+         * Claim {@code i} draws fresh constants from {@code i * CLAIM_FRESH_COUNTER_RANGE} above the current counter,
+         * so that the constants of a claim do not depend on the other claims or on the number of threads.
+         */
+        private List<ConstrainedTerm> proveConcurrently(
+                List<org.kframework.backend.java.kil.Rule> claims,
+                List<org.kframework.backend.java.kil.Rule> specRules,
+                ProcessProofRules processProofRules,
+                TermContext termContext) {
+            KOREtoBackendKIL converter = termContext.getKOREtoBackendKILConverter();
+            ExecutorService executor = RewriterThread.newPool(
+                    Math.min(rewritingContext.javaExecutionOptions.proveThreads, claims.size()));
+            try {
+                List<Future<ClaimResult>> futures = new ArrayList<>();
+                long freshCounter = termContext.getCounterValue();
+                for (org.kframework.backend.java.kil.Rule claim : claims) {
+                    Profiler2 claimProfiler = rewritingContext.profiler().fork();
+                    StateLog claimStateLog = rewritingContext.stateLog.fork();
+                    GlobalContext claimContext = rewritingContext.fork(claimProfiler, claimStateLog);
+                    TermContext claimTermContext = TermContext.builder(claimContext)
+                            .freshCounter(freshCounter).build();
+                    freshCounter += CLAIM_FRESH_COUNTER_RANGE;
+                    claimTermContext.setKOREtoBackendKILConverter(converter);
+                    futures.add(executor.submit(() -> RewriterThread.bind(claimProfiler, claimStateLog, () -> {
+                        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+                        SymbolicRewriter rewriter = new SymbolicRewriter(claimContext, transitions, converter);
+                        rewriter.setSummaryStream(new PrintStream(summary, true));
+                        try {
+                            List<ConstrainedTerm> results = proveClaim(claim, specRules, processProofRules, rewriter,
+                                    claimTermContext);
+                            return new ClaimResult(results, claimProfiler, claimStateLog, summary,
+                                    claimTermContext.getCounterValue());
+                        } finally {
+                            claimProfiler.releaseCaches();
+                        }
+                    })));
+                }
+
+                List<ConstrainedTerm> proofResults = new ArrayList<>();
+                for (Future<ClaimResult> future : futures) {
+                    ClaimResult claimResult = getClaimResult(future);
+                    rewritingContext.profiler().join(claimResult.profiler);
+                    rewritingContext.stateLog.append(claimResult.stateLog);
+                    System.err.print(claimResult.summary.toString());
+                    proofResults.addAll(claimResult.proofResults);
+                    freshCounter = Math.max(freshCounter, claimResult.freshCounter);
+                }
+                termContext.setCounterValue(freshCounter);
+                return proofResults;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private static ClaimResult getClaimResult(Future<ClaimResult> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw KEMException.criticalError("Interrupted while proving claims.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                } else if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw KEMException.criticalError("Failed to prove claim: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        private static class ClaimResult {
+            final List<ConstrainedTerm> proofResults;
+            final Profiler2 profiler;
+            final StateLog stateLog;
+            final ByteArrayOutputStream summary;
+            final long freshCounter;
+
+            ClaimResult(List<ConstrainedTerm> proofResults, Profiler2 profiler, StateLog stateLog,
+                        ByteArrayOutputStream summary, long freshCounter) {
+                this.proofResults = proofResults;
+                this.profiler = profiler;
+                this.stateLog = stateLog;
+                this.summary = summary;
+                this.freshCounter = freshCounter;
+            }
         }
 
         @Override
@@ -317,8 +469,8 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
 
             ConjunctiveFormula ensure = ConjunctiveFormula.of(global);
 
-            ImmutableList<Term> l1 = getChildren(e1);
-            ImmutableList<Term> l2 = getChildren(e2);
+            List<Term> l1 = getChildren(e1);
+            List<Term> l2 = getChildren(e2);
 
             assert l1.size() == l2.size();
             for (int j = 0; j < l1.size(); j++) {
@@ -331,7 +483,7 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
             return ensure;
         }
 
-        private static ImmutableList<Term> getChildren(ConjunctiveFormula e) {
+        private static List<Term> getChildren(ConjunctiveFormula e) {
             // TODO: make it better
             assert e.equalities().size() == 1;
             assert e.equalities().get(0).leftHandSide() instanceof KItem;
@@ -400,6 +552,10 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
             }
 
             public ConjunctiveFormula getEvaluatedConstraint(org.kframework.backend.java.kil.Rule rule) {
+                return getEvaluatedConstraint(rule, termContext);
+            }
+
+            public ConjunctiveFormula getEvaluatedConstraint(org.kframework.backend.java.kil.Rule rule, TermContext termContext) {
                 termContext.setTopConstraint(null);
                 //We need this ConsTerm only to evaluate the constraint. That's why we use an empty first argument.
                 ConstrainedTerm constraintHolder = new ConstrainedTerm(
@@ -488,19 +644,61 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
     }
 
 
+    /**
+     * Keeps the java backend definitions of a kompiled definition loaded between kserver requests. The terms of the
+     * rules hold the {@link GlobalContext} they were created with, so a definition is used by one request at a time:
+     * the request taking it {@link GlobalContext#rebind rebinds} its context, and puts it back when the request scope
+     * exits. Concurrent requests on the same module build definitions of their own, and only one is kept. The memory of
+     * the definitions is not part of the estimate of {@link org.kframework.utils.inject.DefinitionScope}, which only
+     * measures the creation of this object.
+     */
+    @DefinitionScoped
     public static class InitializeDefinition {
 
-        private final Map<Module, Definition> cache = new LinkedHashMap<Module, Definition>() {
+        private final SimpleScope requestScope;
+        private final Map<Module, LoadedDefinition> idle = new LinkedHashMap<Module, LoadedDefinition>() {
             @Override
-            protected boolean removeEldestEntry(Map.Entry<Module, Definition> eldest) {
+            protected boolean removeEldestEntry(Map.Entry<Module, LoadedDefinition> eldest) {
                 return this.size() > 20;
             }
         };
 
+        @Inject
+        public InitializeDefinition(@Named("requestScope") SimpleScope requestScope) {
+            this.requestScope = requestScope;
+        }
+
+        /**
+         * Builds a definition for each invocation, e.g. outside of a request.
+         */
+        public InitializeDefinition() {
+            this(null);
+        }
+
         public Definition invoke(Module module, KExceptionManager kem, GlobalContext global) {
-            if (cache.containsKey(module)) {
-                return cache.get(module);
+            LoadedDefinition loaded;
+            synchronized (idle) {
+                loaded = idle.remove(module);
+            }
+            if (loaded != null) {
+                loaded.global.rebind(global);
+                loaded.definition.setKem(kem);
+                global.setDefinition(loaded.definition);
+            } else {
+                loaded = new LoadedDefinition(load(module, kem, global), global);
             }
+            if (requestScope != null) {
+                LoadedDefinition released = loaded;
+                requestScope.onExit(() -> {
+                    synchronized (idle) {
+                        idle.put(module, released);
+                    }
+                });
+            }
+            return loaded.definition;
+        }
+
+        private static Definition load(Module module, KExceptionManager kem, GlobalContext global) {
             Definition definition = new Definition(module, kem);
 
             global.setDefinition(definition);
@@ -509,8 +707,20 @@ public class InitializeRewriter implements Function<org.kframework.definition.De
                     .map(l -> KLabelConstant.of(l, definition))
                     .forEach(definition::addKLabel);
             definition.addKoreRules(module, global);
-            cache.put(module, definition);
             return definition;
         }
+
+        /**
+         * A definition and the context its rules were created with.
+         */
+        private static class LoadedDefinition {
+            final Definition definition;
+            final GlobalContext global;
+
+            LoadedDefinition(Definition definition, GlobalContext global) {
+                this.definition = definition;
+                this.global = global;
+            }
+        }
     }
 }
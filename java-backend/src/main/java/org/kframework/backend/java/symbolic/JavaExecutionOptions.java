@@ -3,6 +3,8 @@ package org.kframework.backend.java.symbolic;
 
 import com.beust.jcommander.Parameter;
 
+import org.kframework.backend.java.util.Metrics;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.backend.java.util.StateLog;
 import org.kframework.utils.inject.RequestScoped;
 import org.kframework.utils.options.BaseEnumConverter;
@@ -48,6 +50,12 @@ public final class JavaExecutionOptions {
     @Parameter(names={"--state-log-events"}, converter=LogEventConverter.class, description="Comma-separated list of events to log: [OPEN|REACHINIT|REACHTARGET|REACHPROVED|EXECINIT|SEARCHINIT|NODE|RULE|SRULE|RULEATTEMPT|IMPLICATION|Z3QUERY|Z3RESULT|CLOSE]")
     public List<StateLog.LogEvent> stateLogEvents = Collections.emptyList();
 
+    @Parameter(names={"--state-log-pack"}, description="Write the debugging information from a background thread, storing the terms in a compressed pack file per execution instead of one file per term. Use k-state-log-unpack to convert it to the blobs directory.")
+    public boolean stateLogPack = false;
+
+    @Parameter(names="--incremental-matching", description="Between rewrite steps, reuse the rule matches of the concrete subterms which were not rewritten instead of matching them again.")
+    public boolean incrementalMatching = false;
+
     @Parameter(names="--cache-func", description="Cache evaluation results of pure functions. Enabled by default.", arity = 1)
     public boolean cacheFunctions = true;
 
@@ -63,6 +71,25 @@ public final class JavaExecutionOptions {
                     "Speeds up logging but eats more memory.", arity = 1)
     public boolean cacheToString = true;
 
+    @Parameter(names="--cache-max-entries", description="Maximum number of entries of each function, formula, " +
+            "toString and implication cache. Least recently used entries are evicted first. " +
+            "Default is 0 (unbounded).")
+    public long cacheMaxEntries = 0;
+
+    @Parameter(names="--cache-max-weight", description="Maximum total weight of the formula cache (in formula " +
+            "size) and of the toString cache (in characters). Takes precedence over --cache-max-entries for those " +
+            "caches. Default is 0 (unbounded).")
+    public long cacheMaxWeight = 0;
+
+    @Parameter(names="--cache-soft-values", description="Reference cached values softly, so that the garbage " +
+            "collector may reclaim them when memory runs low, instead of running out of memory.")
+    public boolean cacheSoftValues = false;
+
+    @Parameter(names="--hash-cons", description="Share one instance between structurally equal ground KItems and " +
+            "KLists built during execution, through a weak interning table. Reduces memory use for large " +
+            "configurations and makes most term comparisons reference comparisons.")
+    public boolean hashCons = false;
+
     @Parameter(names="--format-failures", description="Format failure final states. By default they are printed all " +
             "on one line, using ConstrainedTerm.toString(). If option is enabled, they are printed a bit nicer, " +
             "using custom ConjunctiveFormula formatter, but still fast. Disabled by default for output compatibility " +
@@ -72,6 +99,21 @@ public final class JavaExecutionOptions {
     @Parameter(names="--branching-allowed", arity=1, description="Number of branching events allowed before a forcible stop.")
     public int branchingAllowed = Integer.MAX_VALUE;
 
+    @Parameter(names="--prove-threads", description="Number of threads used to prove independent specification " +
+            "claims concurrently. Each claim is proved with its own rewriter, term context, caches and profiler; " +
+            "results, summaries, profiling data and the state log are merged in claim order. Each claim draws fresh " +
+            "constants from its own range, so they are numbered the same for any number of threads above 1, but " +
+            "differently from sequential proving. Step logging of concurrently proved claims may interleave. " +
+            "Default is 1 (sequential).")
+    public int proveThreads = 1;
+
+    @Parameter(names="--search-threads", description="Number of threads used to expand sibling states of the " +
+            "search or proof frontier concurrently. Each state is expanded once, with its own profiler and state " +
+            "log, which are merged in frontier order, as are the successors. Each sibling draws fresh constants from " +
+            "its own range, so they are numbered the same for any number of threads above 1, but may be numbered " +
+            "differently from sequential exploration. Default is 1 (sequential).")
+    public int searchThreads = 1;
+
     @Parameter(names="--log", description="Log every step.")
     public boolean log = false;
 
@@ -119,6 +161,28 @@ public final class JavaExecutionOptions {
     @Parameter(names="--log-progress", description="Print progress bar")
     public boolean logProgress = false;
 
+    @Parameter(names="--metrics-file", description="File to write the profiling metrics to at the end of the " +
+            "execution: stopwatches, SMT and cache counters, rewrite steps and latency histograms of Z3 queries and " +
+            "function evaluations.")
+    public String metricsFile;
+
+    @Parameter(names="--metrics-format", converter=MetricsFormatConverter.class,
+            description="Format of --metrics-file: json or prometheus (text format). Default is json.")
+    public Metrics.Format metricsFormat = Metrics.Format.JSON;
+
+    @Parameter(names="--metrics-interval", description="Also write --metrics-file every given number of seconds " +
+            "during the execution. Default is 0 (only at the end).")
+    public int metricsInterval = 0;
+
+    @Parameter(names="--profile-rules", description="File to write a per-rule execution profile to at the end of " +
+            "the execution: attempts, applications, matching, constraint evaluation and right-hand side construction " +
+            "time, SMT queries and time of each rule, the most expensive rules first.")
+    public String profileRules;
+
+    @Parameter(names="--profile-rules-format", converter=RuleProfileFormatConverter.class,
+            description="Format of --profile-rules: csv or json. Default is csv.")
+    public RuleProfiler.Format profileRulesFormat = RuleProfiler.Format.CSV;
+
     public static class LogEventConverter extends BaseEnumConverter<StateLog.LogEvent> {
 
         public LogEventConverter(String optionName) {
@@ -130,5 +194,28 @@ public final class JavaExecutionOptions {
             return StateLog.LogEvent.class;
         }
     }
-}
 
+    public static class MetricsFormatConverter extends BaseEnumConverter<Metrics.Format> {
+
+        public MetricsFormatConverter(String optionName) {
+            super(optionName);
+        }
+
+        @Override
+        public Class<Metrics.Format> enumClass() {
+            return Metrics.Format.class;
+        }
+    }
+
+    public static class RuleProfileFormatConverter extends BaseEnumConverter<RuleProfiler.Format> {
+
+        public RuleProfileFormatConverter(String optionName) {
+            super(optionName);
+        }
+
+        @Override
+        public Class<RuleProfiler.Format> enumClass() {
+            return RuleProfiler.Format.class;
+        }
+    }
+}
@@ -2,6 +2,7 @@
 package org.kframework.backend.java.symbolic;
 
 import org.kframework.backend.java.kil.Definition;
+import org.kframework.backend.java.kil.GlobalContext;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.util.FormulaContext;
 import org.kframework.backend.java.util.Z3Wrapper;
@@ -43,7 +44,7 @@ public class SMTOperations {
 
         boolean result = false;
         try {
-            constraint.globalContext().profiler.queryBuildTimer.start();
+            formulaContext.profiler.queryBuildTimer.start();
             CharSequence query;
             if (javaExecutionOptions.debugZ3Queries) {
                 System.err.println("\nAnonymous vars in query:");
@@ -51,12 +52,12 @@ public class SMTOperations {
             try {
                 query = KILtoSMTLib.translateConstraint(constraint).toString();
             } finally {
-                constraint.globalContext().profiler.queryBuildTimer.stop();
+                formulaContext.profiler.queryBuildTimer.stop();
             }
             if (javaExecutionOptions.debugZ3Queries) {
                 System.err.format("\nZ3 constraint query:\n%s\n", query);
             }
-            result = z3.isUnsat(query, smtOptions.z3CnstrTimeout, formulaContext.z3Profiler);
+            result = isUnsat(query, smtOptions.z3CnstrTimeout, formulaContext, constraint.globalContext());
             if (result && RuleAuditing.isAuditBegun()) {
                 System.err.format("SMT query returned unsat: %s\n", query);
             }
@@ -81,7 +82,7 @@ public class SMTOperations {
             Set<Variable> existentialQuantVars, FormulaContext formulaContext) {
         if (smtOptions.smt == SMTSolver.Z3) {
             try {
-                left.globalContext().profiler.queryBuildTimer.start();
+                formulaContext.profiler.queryBuildTimer.start();
                 CharSequence query;
                 if (javaExecutionOptions.debugZ3Queries) {
                     System.err.println("\nAnonymous vars in query:");
@@ -89,12 +90,12 @@ public class SMTOperations {
                 try {
                     query = KILtoSMTLib.translateImplication(left, right, existentialQuantVars).toString();
                 } finally {
-                    left.globalContext().profiler.queryBuildTimer.stop();
+                    formulaContext.profiler.queryBuildTimer.stop();
                 }
                 if (javaExecutionOptions.debugZ3Queries) {
                     System.err.format("\nZ3 query:\n%s\n", query);
                 }
-                return z3.isUnsat(query, smtOptions.z3ImplTimeout, formulaContext.z3Profiler);
+                return isUnsat(query, smtOptions.z3ImplTimeout, formulaContext, left.globalContext());
             } catch (UnsupportedOperationException | SMTTranslationFailure e) {
                 if (!smtOptions.ignoreMissingSMTLibWarning) {
                     //These warnings have different degree of relevance depending whether they are in init or execution phase
@@ -109,4 +110,16 @@ public class SMTOperations {
         }
         return false;
     }
+
+    private boolean isUnsat(CharSequence query, int timeout, FormulaContext formulaContext, GlobalContext global) {
+        if (global.ruleProfiler == null) {
+            return z3.isUnsat(query, timeout, formulaContext.z3Profiler);
+        }
+        long start = System.nanoTime();
+        try {
+            return z3.isUnsat(query, timeout, formulaContext.z3Profiler);
+        } finally {
+            global.ruleProfiler.addSmtQuery(formulaContext.rule, System.nanoTime() - start);
+        }
+    }
 }
@@ -27,6 +27,9 @@ import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.kil.Variable;
 import org.kframework.backend.java.util.StateLog;
 import org.kframework.backend.java.util.FormulaContext;
+import org.kframework.backend.java.util.Profiler2;
+import org.kframework.backend.java.util.RewriterThread;
+import org.kframework.backend.java.util.RuleProfiler;
 import org.kframework.backend.java.util.RuleSourceUtil;
 import org.kframework.backend.java.utils.BitSet;
 import org.kframework.builtin.KLabels;
@@ -35,6 +38,7 @@ import org.kframework.kore.K;
 import org.kframework.kore.KApply;
 import org.kframework.kore.KORE;
 import org.kframework.rewriter.SearchType;
+import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 
 import java.util.ArrayList;
@@ -46,9 +50,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.io.File;
+import java.io.PrintStream;
 
 /**
  * @author AndreiS
@@ -61,10 +72,24 @@ public class SymbolicRewriter {
     private final GlobalContext global;
     private boolean transition;
     private final Set<ConstrainedTerm> superheated = Sets.newHashSet();
-    private final Set<ConstrainedTerm> newSuperheated = Sets.newHashSet();
-    private final FastRuleMatcher theFastMatcher;
+    private final Set<ConstrainedTerm> newSuperheated = Sets.newConcurrentHashSet();
+    /**
+     * {@link FastRuleMatcher} keeps per-match state, so each thread expanding the frontier needs its own.
+     */
+    private final ThreadLocal<FastRuleMatcher> theFastMatcher;
+    /**
+     * Pool expanding sibling states of the frontier during {@link #search} and {@link #proveRule}, or null if
+     * exploration is sequential. Idle threads take the next sibling not yet expanded.
+     */
+    private ExecutorService frontierPool;
+    /**
+     * The number of fresh constants reserved for each sibling state expanded concurrently, see
+     * {@link #expandFrontier}.
+     */
+    private static final long SIBLING_FRESH_COUNTER_RANGE = 1_000;
     private final Definition definition;
     private final BitSet allRuleBits;
+    private PrintStream summaryStream = System.err;
 
     public SymbolicRewriter(GlobalContext global, List<String> transitions,
                             KOREtoBackendKIL constructor) {
@@ -73,7 +98,7 @@ public class SymbolicRewriter {
         this.allRuleBits = BitSet.apply(definition.ruleTable.size());
         this.allRuleBits.makeOnes(definition.ruleTable.size());
         this.transitions = transitions;
-        this.theFastMatcher = new FastRuleMatcher(global, definition.ruleTable.size());
+        this.theFastMatcher = ThreadLocal.withInitial(() -> new FastRuleMatcher(global, definition.ruleTable.size()));
         this.transition = true;
         this.global = global;
         parseLogCells();
@@ -83,6 +108,13 @@ public class SymbolicRewriter {
         return constructor;
     }
 
+    /**
+     * Sets the stream the summary box of {@link #rewrite} and {@link #proveRule} is printed to. Defaults to stderr.
+     */
+    public void setSummaryStream(PrintStream summaryStream) {
+        this.summaryStream = summaryStream;
+    }
+
     public RewriterResult rewrite(ConstrainedTerm constrainedTerm, int bound) {
         stopwatch.start();
         int step = 0;
@@ -150,12 +182,13 @@ public class SymbolicRewriter {
     }
 
     public List<ConstrainedTerm> fastComputeRewriteStep(ConstrainedTerm subject, boolean computeOne, boolean narrowing, boolean proofFlag, int step) {
+        global.profiler().countRewriteSteps++;
         global.stateLog.log(StateLog.LogEvent.NODE, subject.term(), subject.constraint());
         List<ConstrainedTerm> results = new ArrayList<>();
         if (definition.automaton == null) {
             return results;
         }
-        List<FastRuleMatcher.RuleMatchResult> matches = theFastMatcher.matchRulePattern(
+        List<FastRuleMatcher.RuleMatchResult> matches = theFastMatcher.get().matchRulePattern(
                 subject,
                 definition.automaton.leftHandSide(),
                 allRuleBits,
@@ -164,9 +197,11 @@ public class SymbolicRewriter {
                 transitions,
                 proofFlag,
                 subject.termContext(), step);
+        RuleProfiler ruleProfiler = global.ruleProfiler;
         for (FastRuleMatcher.RuleMatchResult matchResult : matches) {
             Rule rule = definition.ruleTable.get(matchResult.ruleIndex);
             global.stateLog.log(StateLog.LogEvent.RULEATTEMPT, rule.toKRewrite(), subject.term(), subject.constraint());
+            long rhsStart = ruleProfiler != null ? System.nanoTime() : 0;
             if (global.javaExecutionOptions.logRulesPublic) {
                 RuleSourceUtil.printRuleAndSource(rule);
             }
@@ -209,11 +244,14 @@ public class SymbolicRewriter {
             constraint = ((ConjunctiveFormula) constraint.substituteWithBinders(renameSubst)).simplify(subject.termContext());
 
             ConstrainedTerm result = new ConstrainedTerm(theNew, constraint, subject.termContext());
+            if (ruleProfiler != null) {
+                ruleProfiler.addRhsTime(rule, System.nanoTime() - rhsStart);
+            }
             if (!matchResult.isMatching) {
                 // TODO(AndreiS): move these some other place
                 result = result.expandPatterns(true);
                 if (result.constraint().isFalseExtended() || result.constraint().checkUnsat(
-                        new FormulaContext(FormulaContext.Kind.RegularConstr, rule))) {
+                        new FormulaContext(FormulaContext.Kind.RegularConstr, rule, global))) {
                     if (global.javaExecutionOptions.debugZ3) {
                         System.err.println("Execution path aborted after expanding patterns");
                     }
@@ -235,6 +273,9 @@ public class SymbolicRewriter {
             if (global.javaExecutionOptions.debugZ3 && !result.constraint().equals(subject.constraint())) {
                 System.err.format("New top constraint created: \n%s\n", result.constraint().toStringMultiline());
             }
+            if (ruleProfiler != null) {
+                ruleProfiler.countSuccess(rule);
+            }
             results.add(result);
         }
 
@@ -314,14 +355,10 @@ public class SymbolicRewriter {
                 return KItem.of(kItemSubject.kLabel(), KList.concatenate(newContents), context.global()).applyAnywhereRules(context);
             } else if (subject instanceof BuiltinList) {
                 BuiltinList builtinListSubject = (BuiltinList) subject;
-                List<Term> newContents = new ArrayList<>(builtinListSubject.children);
+                int index = path.head().getLeft();
                 //noinspection RedundantCast
-                newContents.set(path.head().getLeft(), buildRHS(newContents.get(path.head().getLeft()), substitution,
+                return builtinListSubject.with(index, buildRHS(builtinListSubject.get(index), substitution,
                         (scala.collection.immutable.List<Pair<Integer, Integer>>) path.tail(), rhs, context));
-                return BuiltinList
-                        .builder(builtinListSubject.sort, builtinListSubject.operatorKLabel, builtinListSubject.unitKLabel, builtinListSubject.globalContext())
-                        .addAll(newContents)
-                        .build();
             } else {
                 throw new AssertionError("unexpected rewrite in subject: " + subject);
             }
@@ -467,6 +504,16 @@ public class SymbolicRewriter {
             int depth,
             SearchType searchType,
             TermContext context) {
+        return withFrontierPool(() -> searchStates(initialTerm, pattern, bound, depth, searchType, context));
+    }
+
+    private K searchStates(
+            Term initialTerm,
+            Rule pattern,
+            int bound,
+            int depth,
+            SearchType searchType,
+            TermContext context) {
         stopwatch.start();
 
         List<K> searchResults = new ArrayList<>();
@@ -510,11 +557,22 @@ public class SymbolicRewriter {
             superheated.clear();
             superheated.addAll(newSuperheated);
             newSuperheated.clear();
-            for (Map.Entry<ConstrainedTerm, Integer> entry : queue.entrySet()) {
-                ConstrainedTerm term = entry.getKey();
-                Integer currentDepth = entry.getValue();
-
-                List<ConstrainedTerm> results = computeRewriteStep(term, step, false);
+            List<ConstrainedTerm> frontier = new ArrayList<>(queue.keySet());
+            int currentStep = step;
+            List<List<ConstrainedTerm>> expansions = Collections.emptyList();
+            int batchStart = 0;
+            for (int i = 0; i < frontier.size(); i++) {
+                ConstrainedTerm term = frontier.get(i);
+                Integer currentDepth = queue.get(term);
+
+                if (i == batchStart + expansions.size()) {
+                    // with a bound, no more states are expanded at once than results may still be needed
+                    int batch = bound > 0 ? Math.max(bound - searchResults.size(), 1) : frontier.size();
+                    batchStart = i;
+                    expansions = expandFrontier(frontier.subList(i, Math.min(i + batch, frontier.size())),
+                            t -> computeRewriteStep(t, currentStep, false));
+                }
+                List<ConstrainedTerm> results = expansions.get(i - batchStart);
 
                 if (results.isEmpty() && searchType == SearchType.FINAL) {
                     if (addSearchResult(searchResults, term, pattern, bound, context)) {
@@ -558,6 +616,98 @@ public class SymbolicRewriter {
         return disjunctResults(searchResults);
     }
 
+    /**
+     * Runs the given exploration with a {@link #frontierPool} of {@code --search-threads} threads, if greater than 1,
+     * which is shut down once it is done.
+     */
+    private <T> T withFrontierPool(Supplier<T> exploration) {
+        if (global.javaExecutionOptions.searchThreads <= 1) {
+            return exploration.get();
+        }
+        frontierPool = RewriterThread.newPool(global.javaExecutionOptions.searchThreads);
+        try {
+            return exploration.get();
+        } finally {
+            frontierPool.shutdown();
+            frontierPool = null;
+        }
+    }
+
+    /**
+     * Applies {@code expansion} to each state of the frontier and returns the results in frontier order.
+     * If {@code --search-threads} is greater than 1, sibling states are expanded concurrently on
+     * {@link #frontierPool}, each once, with a {@link TermContext} forked for its thread. Callers merge the results
+     * sequentially, which keeps visited-set, depth and bound handling identical to sequential exploration.
+     * <p>
+     * The thread expanding a state is bound to a forked profiler and state log, which are merged in frontier order
+     * once the whole frontier is expanded, so that profiling counters and state log events do not depend on the
+     * scheduling. State {@code i} draws fresh constants from {@code i * SIBLING_FRESH_COUNTER_RANGE} above the shared
+     * counter, which is then advanced past all the constants drawn. The first state draws the same constants as in
+     * sequential exploration; the constants of the others are the same for any number of threads above 1.
+     */
+    private <T> List<T> expandFrontier(List<ConstrainedTerm> frontier, Function<ConstrainedTerm, T> expansion) {
+        if (frontierPool == null || frontier.size() < 2) {
+            return frontier.stream().map(expansion).collect(Collectors.toList());
+        }
+        TermContext context = frontier.get(0).termContext();
+        long start = context.hasFreshCounter() ? context.getCounterValue() : 0;
+        Profiler2 profiler = global.profiler();
+        StateLog stateLog = RewriterThread.stateLog(global.stateLog);
+        List<TermContext> forks = new ArrayList<>();
+        List<Profiler2> profilers = new ArrayList<>();
+        List<StateLog> stateLogs = new ArrayList<>();
+        List<Callable<T>> tasks = new ArrayList<>();
+        for (int i = 0; i < frontier.size(); i++) {
+            ConstrainedTerm term = frontier.get(i);
+            TermContext fork = term.termContext().forkForThread(start + i * SIBLING_FRESH_COUNTER_RANGE);
+            Profiler2 forkProfiler = profiler.fork();
+            StateLog forkStateLog = stateLog.fork();
+            forks.add(fork);
+            profilers.add(forkProfiler);
+            stateLogs.add(forkStateLog);
+            tasks.add(() -> RewriterThread.bind(forkProfiler, forkStateLog,
+                    () -> expansion.apply(new ConstrainedTerm(term.term(), term.constraint(), fork))));
+        }
+
+        List<Future<T>> futures;
+        try {
+            futures = frontierPool.invokeAll(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw KEMException.criticalError("Interrupted while expanding the frontier.", e);
+        }
+        List<T> results = new ArrayList<>();
+        Throwable failure = null;
+        long next = start;
+        for (int i = 0; i < frontier.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw KEMException.criticalError("Interrupted while expanding the frontier.", e);
+            } catch (ExecutionException e) {
+                failure = failure != null ? failure : e.getCause();
+            }
+            profiler.join(profilers.get(i));
+            stateLog.append(stateLogs.get(i));
+            if (context.hasFreshCounter()) {
+                next = Math.max(next, forks.get(i).getCounterValue());
+                forks.get(i).join(context);
+            }
+        }
+        if (context.hasFreshCounter()) {
+            context.setCounterValue(next);
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw KEMException.criticalError("Failed to expand the frontier: " + failure.getMessage(), failure);
+        }
+        return results;
+    }
+
     private K kApplyConversion(K k) {
         if (k instanceof KItem) {
             KItem kItem = (KItem) k;
@@ -591,6 +741,13 @@ public class SymbolicRewriter {
             Rule rule, ConstrainedTerm initialTerm,
             ConstrainedTerm targetTerm,
             List<Rule> specRules, KExceptionManager kem) {
+        return withFrontierPool(() -> proveRuleStates(rule, initialTerm, targetTerm, specRules, kem));
+    }
+
+    private List<ConstrainedTerm> proveRuleStates(
+            Rule rule, ConstrainedTerm initialTerm,
+            ConstrainedTerm targetTerm,
+            List<Rule> specRules, KExceptionManager kem) {
         List<ConstrainedTerm> proofResults = new ArrayList<>();
         List<ConstrainedTerm> successResults = new ArrayList<>();
         int successPaths = 0;
@@ -626,10 +783,20 @@ public class SymbolicRewriter {
                 System.err.print(".");
             }
 
-            for (ConstrainedTerm term : queue) {
+            List<ProofExpansion> expansions = null;
+            if (frontierPool != null && queue.size() > 1) {
+                boolean currentGuarded = guarded;
+                int currentStep = step;
+                expansions = expandFrontier(queue, term ->
+                        expandProofState(term, targetTerm, rule, specRules, currentGuarded, currentStep));
+            }
+
+            for (int i = 0; i < queue.size(); i++) {
+                ConstrainedTerm term = queue.get(i);
+                ProofExpansion expansion = expansions != null ? expansions.get(i) : null;
                 v++;
                 boolean alreadyLogged = logStep(step, v, term, step == 1, false);
-                if (term.implies(targetTerm, rule, false)) {
+                if (expansion != null ? expansion.implied : term.implies(targetTerm, rule, false)) {
                     global.stateLog.log(StateLog.LogEvent.REACHPROVED, term.term(), term.constraint());
                     if (global.javaExecutionOptions.logBasic) {
                         logStep(step, v, term, true, alreadyLogged);
@@ -661,7 +828,7 @@ public class SymbolicRewriter {
                 }*/
 
                 if (guarded) {
-                    ConstrainedTerm result = applySpecRules(term, specRules);
+                    ConstrainedTerm result = expansion != null ? expansion.specRuleResult : applySpecRules(term, specRules);
                     if (result != null) {
                         nextStepLogEnabled = true;
                         logStep(step, v, term, true, alreadyLogged);
@@ -682,7 +849,7 @@ public class SymbolicRewriter {
 
                 List<ConstrainedTerm> results;
                 try {
-                    results = fastComputeRewriteStep(term, false, true, true, step);
+                    results = expansion != null ? expansion.successors() : fastComputeRewriteStep(term, false, true, true, step);
                     // DISABLE EXCEPTION CHECKSTYLE
                 } catch (Throwable e) {
                     // ENABLE EXCEPTION CHECKSTYLE
@@ -762,6 +929,50 @@ public class SymbolicRewriter {
         return tweakedProofResults;
     }
 
+    /**
+     * The work done on a single proof state during one step of {@link #proveRule}, computed ahead of the
+     * (sequential) merge when the frontier is expanded concurrently.
+     */
+    private static class ProofExpansion {
+        boolean implied;
+        ConstrainedTerm specRuleResult;
+        List<ConstrainedTerm> results;
+        Throwable failure;
+
+        List<ConstrainedTerm> successors() {
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            } else if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+            return results;
+        }
+    }
+
+    private ProofExpansion expandProofState(
+            ConstrainedTerm term, ConstrainedTerm targetTerm, Rule rule, List<Rule> specRules,
+            boolean guarded, int step) {
+        ProofExpansion expansion = new ProofExpansion();
+        if (term.implies(targetTerm, rule, false)) {
+            expansion.implied = true;
+            return expansion;
+        }
+        if (guarded) {
+            expansion.specRuleResult = applySpecRules(term, specRules);
+            if (expansion.specRuleResult != null) {
+                return expansion;
+            }
+        }
+        try {
+            expansion.results = fastComputeRewriteStep(term, false, true, true, step);
+            // DISABLE EXCEPTION CHECKSTYLE
+        } catch (RuntimeException | Error e) {
+            // ENABLE EXCEPTION CHECKSTYLE
+            expansion.failure = e;
+        }
+        return expansion;
+    }
+
     public void printTermAndConstraint(ConstrainedTerm term) {
         printTermAndConstraint(term, prettyResult);
     }
@@ -775,18 +986,18 @@ public class SymbolicRewriter {
     private void printSummaryBox(Rule rule, List<ConstrainedTerm> proofResults, int successPaths, int step) {
         if (proofResults != null) {
             if (proofResults.isEmpty()) {
-                System.err.format("\nSPEC PROVED: %s %s\n==================================\nExecution paths: %d\n",
+                summaryStream.format("\nSPEC PROVED: %s %s\n==================================\nExecution paths: %d\n",
                         new File(rule.getSource().source()), rule.getLocation(), successPaths);
             } else {
-                System.err.format("\nSPEC FAILED: %s %s\n==================================\n" +
+                summaryStream.format("\nSPEC FAILED: %s %s\n==================================\n" +
                                 "Success execution paths: %d\nFailed execution paths: %d\n",
                         new File(rule.getSource().source()), rule.getLocation(), successPaths, proofResults.size());
             }
         } else {
-            System.err.print("\nEXECUTION FINISHED\n==================================\n");
+            summaryStream.print("\nEXECUTION FINISHED\n==================================\n");
         }
-        System.err.format("Longest path: %d steps\n", step);
-        global.profiler.printResult();
+        summaryStream.format("Longest path: %d steps\n", step);
+        global.profiler().printResult(summaryStream);
     }
 
     //map value = log format: true = pretty, false = toString()
@@ -818,12 +1029,12 @@ public class SymbolicRewriter {
         if (alreadyLogged || !global.javaExecutionOptions.logBasic) {
             return false;
         }
-        global.profiler.logOverheadTimer.start();
+        global.profiler().logOverheadTimer.start();
         KItem top = (KItem) term.term();
 
         if (global.javaExecutionOptions.log || forced || global.javaExecutionOptions.logRulesPublic) {
             System.err.format("\nSTEP %d v%d : %.3f s \n===================\n",
-                    step, v, (System.currentTimeMillis() - global.profiler.getStartTime()) / 1000.);
+                    step, v, (System.currentTimeMillis() - global.profiler().getStartTime()) / 1000.);
         }
 
         boolean actuallyLogged = global.javaExecutionOptions.log || forced;
@@ -838,7 +1049,7 @@ public class SymbolicRewriter {
             }
             printConstraint(term.constraint(), prettyPC);
         }
-        global.profiler.logOverheadTimer.stop();
+        global.profiler().logOverheadTimer.stop();
         return actuallyLogged;
     }
 
@@ -887,10 +1098,10 @@ public class SymbolicRewriter {
         for (Rule specRule : specRules) {
             ConstrainedTerm pattern = specRule.createLhsPattern(constrainedTerm.termContext());
             ConjunctiveFormula constraint = constrainedTerm.matchImplies(pattern, true, false,
-                    new FormulaContext(FormulaContext.Kind.SpecRule, specRule), specRule.matchingSymbols());
+                    new FormulaContext(FormulaContext.Kind.SpecRule, specRule, global), specRule.matchingSymbols());
             if (constraint != null) {
                 ConstrainedTerm result = buildResult(specRule, constraint, null, true, constrainedTerm.termContext(),
-                        new FormulaContext(FormulaContext.Kind.SpecConstr, specRule));
+                        new FormulaContext(FormulaContext.Kind.SpecConstr, specRule, global));
                 global.stateLog.log(StateLog.LogEvent.SRULE, specRule.toKRewrite(), constrainedTerm.term(), constrainedTerm.constraint(), result.term(), result.constraint());
                 if (global.javaExecutionOptions.logRulesPublic) {
                     RuleSourceUtil.printRuleAndSource(specRule);
@@ -0,0 +1,83 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache for the global caches of the Java backend (function evaluation, formula simplification,
+ * toString and implication results), which otherwise grow without bound during long proofs.
+ * <p>
+ * By default the cache is unbounded, like the maps it replaces. {@code --cache-max-entries} bounds the number of
+ * entries and {@code --cache-max-weight} bounds the total weight of the entries, for caches constructed with a
+ * {@link Weigher}; caches without one fall back to the entry bound. Once full, the least recently used entries are
+ * evicted. With {@code --cache-soft-values}, values are softly referenced and may also be reclaimed by the garbage
+ * collector when memory runs low.
+ * <p>
+ * Hit, miss and eviction counts are reported by {@link Profiler2#printResult()}.
+ */
+public class BoundedCache<K, V> {
+
+    private final String name;
+    private final Cache<K, V> cache;
+
+    public BoundedCache(String name, JavaExecutionOptions options) {
+        this(name, options, null);
+    }
+
+    public BoundedCache(String name, JavaExecutionOptions options, Weigher<? super K, ? super V> weigher) {
+        this.name = name;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+        if (options.cacheSoftValues) {
+            builder.softValues();
+        }
+        if (weigher != null && options.cacheMaxWeight > 0) {
+            this.cache = builder.maximumWeight(options.cacheMaxWeight).<K, V>weigher(weigher).build();
+        } else {
+            if (options.cacheMaxEntries > 0) {
+                builder.maximumSize(options.cacheMaxEntries);
+            }
+            this.cache = builder.build();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the value cached for {@code key}, or null if there is none.
+     */
+    public V get(K key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(K key, V value) {
+        cache.put(key, value);
+    }
+
+    /**
+     * Returns the value cached for {@code key}, caching the value computed by {@code mappingFunction} first if there
+     * is none.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return cache.asMap().computeIfAbsent(key, mappingFunction);
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
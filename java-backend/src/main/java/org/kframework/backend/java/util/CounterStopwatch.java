@@ -4,6 +4,10 @@ package org.kframework.backend.java.util;
 /**
  * A stopwatch that can be reentered recursively. Also counts the number of top-level invocations.
  * Time counted in nanoseconds, but displayed in ms.
+ * <p>
+ * Not thread-safe: a stopwatch belongs to the {@link Profiler2} of one rewriter. Claims proved concurrently use the
+ * stopwatches of their own {@link Profiler2#fork() forked} profiler, which are {@link #add added} to the parent ones
+ * once the claim is proved.
  *
  * @author Denis Bogdanas
  * Created on 24-Jul-18.
@@ -16,9 +20,19 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
 
     private int level = 0;
     private int count;
+    private final LatencyHistogram histogram;
 
     public CounterStopwatch(String name) {
+        this(name, false);
+    }
+
+    /**
+     * @param withHistogram whether to also record the duration of each top-level invocation in a
+     *                      {@link LatencyHistogram}.
+     */
+    public CounterStopwatch(String name, boolean withHistogram) {
         this.name = name;
+        this.histogram = withHistogram ? new LatencyHistogram() : null;
     }
 
     public void start() {
@@ -33,12 +47,7 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
      * Should be called in a finally block to avoid exceptions leaving the level incremented.
      */
     public void stop() {
-        level--;
-        if (level == 0) {
-            duration += (System.nanoTime() - lastStartNano);
-        } else if (level < 0) {
-            throw new AssertionError("Unable to stop timer: " + name + "\nTimer already stopped.");
-        }
+        stopAndGetDuration();
     }
 
     /**
@@ -51,6 +60,9 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
         if (level == 0) {
             long lastDuration = System.nanoTime() - lastStartNano;
             this.duration += lastDuration;
+            if (histogram != null) {
+                histogram.record(lastDuration);
+            }
             return lastDuration;
         } else if (level < 0) {
             throw new AssertionError("Unable to stop timer: " + name + "\nTimer already stopped.");
@@ -63,6 +75,17 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
         duration = 0;
     }
 
+    /**
+     * Adds the duration, invocations and histogram of a stopped stopwatch to this one.
+     */
+    public void add(CounterStopwatch other) {
+        duration += other.duration;
+        count += other.count;
+        if (histogram != null && other.histogram != null) {
+            histogram.add(other.histogram);
+        }
+    }
+
     @Override
     public String toString() {
         return String.format("%.3f s", (double) duration / 1000000000);
@@ -77,6 +100,17 @@ public class CounterStopwatch implements Comparable<CounterStopwatch> {
         return count;
     }
 
+    public long getDurationNanos() {
+        return duration;
+    }
+
+    /**
+     * @return the durations of the top-level invocations, or null if this stopwatch was created without a histogram.
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
     public int getLevel() {
         return level;
     }
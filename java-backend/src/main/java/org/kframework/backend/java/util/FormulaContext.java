@@ -53,6 +53,11 @@ public class FormulaContext {
 
     public final Kind kind;
     public final Rule rule;
+    /**
+     * The profiler of the rewriter checking the formula, which may be a fork of the profiler of the context the
+     * formula was created in.
+     */
+    public final Profiler2 profiler;
     public Z3Profiler z3Profiler;
 
     public FormulaContext(Kind kind, @Nonnull Rule rule) {
@@ -62,7 +67,8 @@ public class FormulaContext {
     public FormulaContext(Kind kind, @Nullable Rule rule, @Nonnull GlobalContext globalContext) {
         this.kind = kind;
         this.rule = rule;
-        this.z3Profiler = globalContext.profiler.z3Profilers.get(kind);
+        this.profiler = globalContext.profiler();
+        this.z3Profiler = profiler.z3Profilers.get(kind);
     }
 
     public void printImplication(ConjunctiveFormula left, ConjunctiveFormula right, Boolean proved, boolean cached) {
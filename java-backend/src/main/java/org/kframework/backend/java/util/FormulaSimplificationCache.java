@@ -3,9 +3,8 @@ package org.kframework.backend.java.util;
 
 import org.kframework.backend.java.kil.TermContext;
 import org.kframework.backend.java.symbolic.ConjunctiveFormula;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -45,7 +44,16 @@ public class FormulaSimplificationCache {
         }
     }
 
-    private Map<Entry, ConjunctiveFormula> evaluationCache = new HashMap<>();
+    /**
+     * Weighed by the number of equalities and substitution bindings of the simplified formula.
+     */
+    private final BoundedCache<Entry, ConjunctiveFormula> evaluationCache;
+
+    public FormulaSimplificationCache(JavaExecutionOptions options, Profiler2 profiler) {
+        evaluationCache = new BoundedCache<>("formula cache", options,
+                (entry, result) -> 1 + result.equalities().size() + result.substitution().size());
+        profiler.registerCache(evaluationCache);
+    }
 
     public ConjunctiveFormula cacheGet(ConjunctiveFormula formula, boolean patternFolding,
                                        boolean partialSimplification, TermContext context) {
@@ -0,0 +1,66 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+/**
+ * A histogram of durations, with fixed buckets growing by steps of 1, 2.5 and 5 per decade, from 10 microseconds to
+ * 50 seconds. Exported by {@link Metrics}. Like the {@link CounterStopwatch} recording it, it is not thread-safe.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The upper bounds of the buckets, in seconds. Durations above the last bound fall in an extra, unbounded bucket.
+     */
+    public static final double[] BOUNDS = bounds();
+
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = Math.round(BOUNDS[i] * 1e9);
+        }
+    }
+
+    private static double[] bounds() {
+        double[] steps = {1, 2.5, 5};
+        double[] bounds = new double[7 * steps.length];
+        // scale by exact powers of ten and divide once, so that each bound is the double nearest to its decimal value
+        double decade = 1;
+        for (int i = 0; i < bounds.length; i += steps.length) {
+            for (int j = 0; j < steps.length; j++) {
+                bounds[i + j] = steps[j] * decade / 1e5;
+            }
+            decade *= 10;
+        }
+        return bounds;
+    }
+
+    private final long[] counts = new long[BOUNDS.length + 1];
+    private long sumNanos;
+
+    public void record(long durationNanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && durationNanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        counts[bucket]++;
+        sumNanos += durationNanos;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        sumNanos += other.sumNanos;
+    }
+
+    /**
+     * @return the number of durations recorded in the given bucket, the last one being the unbounded bucket.
+     */
+    public long getCount(int bucket) {
+        return counts[bucket];
+    }
+
+    public long getSumNanos() {
+        return sumNanos;
+    }
+}
@@ -0,0 +1,180 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A snapshot of the profiling data of the Java backend, as collected by {@link Profiler2#metrics()}, which can be
+ * written as JSON or in the Prometheus text format.
+ * <p>
+ * Metrics are grouped into families of samples sharing a name and distinguished by their labels, given as
+ * alternating label names and values. Adding a sample which already exists adds to its value, which is how the
+ * counters of forked profilers are summed up.
+ */
+public class Metrics {
+
+    public enum Format {
+        JSON, PROMETHEUS
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private static class Family {
+        final String name;
+        final String help;
+        final Type type;
+        /**
+         * For counters and gauges, the value. For histograms, the counts of the buckets followed by the sum.
+         */
+        final Map<List<String>, double[]> samples = new LinkedHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private final long timestamp = System.currentTimeMillis();
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    public void counter(String name, String help, double value, String... labels) {
+        sample(name, help, Type.COUNTER, labels, 1)[0] += value;
+    }
+
+    public void gauge(String name, String help, double value, String... labels) {
+        sample(name, help, Type.GAUGE, labels, 1)[0] += value;
+    }
+
+    /**
+     * Adds the durations recorded by the given histogram, in seconds.
+     */
+    public void histogram(String name, String help, LatencyHistogram histogram, String... labels) {
+        double[] sample = sample(name, help, Type.HISTOGRAM, labels, LatencyHistogram.BOUNDS.length + 2);
+        for (int i = 0; i <= LatencyHistogram.BOUNDS.length; i++) {
+            sample[i] += histogram.getCount(i);
+        }
+        sample[LatencyHistogram.BOUNDS.length + 1] += histogram.getSumNanos() / 1e9;
+    }
+
+    private double[] sample(String name, String help, Type type, String[] labels, int size) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already a " + family.type);
+        }
+        return family.samples.computeIfAbsent(Arrays.asList(labels), l -> new double[size]);
+    }
+
+    public void write(Writer out, Format format) {
+        switch (format) {
+        case JSON:
+            writeJson(out);
+            break;
+        case PROMETHEUS:
+            writePrometheus(new PrintWriter(out));
+            break;
+        }
+    }
+
+    private void writeJson(Writer out) {
+        JsonArrayBuilder metrics = Json.createArrayBuilder();
+        for (Family family : families.values()) {
+            JsonArrayBuilder samples = Json.createArrayBuilder();
+            for (Map.Entry<List<String>, double[]> entry : family.samples.entrySet()) {
+                JsonObjectBuilder labels = Json.createObjectBuilder();
+                for (int i = 0; i < entry.getKey().size(); i += 2) {
+                    labels.add(entry.getKey().get(i), entry.getKey().get(i + 1));
+                }
+                JsonObjectBuilder sample = Json.createObjectBuilder().add("labels", labels);
+                double[] values = entry.getValue();
+                if (family.type == Type.HISTOGRAM) {
+                    JsonArrayBuilder buckets = Json.createArrayBuilder();
+                    long count = 0;
+                    for (int i = 0; i <= LatencyHistogram.BOUNDS.length; i++) {
+                        count += values[i];
+                        buckets.add(Json.createObjectBuilder().add("le", le(i)).add("count", count));
+                    }
+                    sample.add("buckets", buckets)
+                            .add("sum", values[LatencyHistogram.BOUNDS.length + 1])
+                            .add("count", count);
+                } else {
+                    sample.add("value", values[0]);
+                }
+                samples.add(sample);
+            }
+            metrics.add(Json.createObjectBuilder()
+                    .add("name", family.name)
+                    .add("type", family.type.name().toLowerCase())
+                    .add("help", family.help)
+                    .add("samples", samples));
+        }
+        try (JsonWriter writer = Json.createWriter(out)) {
+            writer.writeObject(Json.createObjectBuilder()
+                    .add("timestamp", timestamp)
+                    .add("metrics", metrics)
+                    .build());
+        }
+    }
+
+    private void writePrometheus(PrintWriter out) {
+        for (Family family : families.values()) {
+            out.format("# HELP %s %s\n", family.name, family.help.replace("\\", "\\\\").replace("\n", "\\n"));
+            out.format("# TYPE %s %s\n", family.name, family.type.name().toLowerCase());
+            for (Map.Entry<List<String>, double[]> entry : family.samples.entrySet()) {
+                double[] values = entry.getValue();
+                if (family.type == Type.HISTOGRAM) {
+                    long count = 0;
+                    for (int i = 0; i <= LatencyHistogram.BOUNDS.length; i++) {
+                        count += values[i];
+                        List<String> labels = new ArrayList<>(entry.getKey());
+                        labels.add("le");
+                        labels.add(le(i));
+                        out.format("%s_bucket%s %d\n", family.name, labels(labels), count);
+                    }
+                    out.format("%s_sum%s %s\n", family.name, labels(entry.getKey()),
+                            value(values[LatencyHistogram.BOUNDS.length + 1]));
+                    out.format("%s_count%s %d\n", family.name, labels(entry.getKey()), count);
+                } else {
+                    out.format("%s%s %s\n", family.name, labels(entry.getKey()), value(values[0]));
+                }
+            }
+        }
+        out.flush();
+    }
+
+    private static String le(int bucket) {
+        return bucket < LatencyHistogram.BOUNDS.length ? value(LatencyHistogram.BOUNDS[bucket]) : "+Inf";
+    }
+
+    private static String value(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private static String labels(List<String> labels) {
+        if (labels.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.size(); i += 2) {
+            if (i > 0) {
+                sb.append(",");
+            }
+            sb.append(labels.get(i)).append("=\"")
+                    .append(labels.get(i + 1).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append("\"");
+        }
+        return sb.append("}").toString();
+    }
+}
@@ -0,0 +1,79 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the {@link Metrics} of a profiler to {@code --metrics-file} when closed, and every
+ * {@code --metrics-interval} seconds in between. The file is replaced atomically, so that it can be scraped at any
+ * time, e.g. by the textfile collector of the Prometheus node exporter.
+ */
+public class MetricsExporter implements AutoCloseable {
+
+    private final Profiler2 profiler;
+    private final File file;
+    private final Metrics.Format format;
+    private final ScheduledExecutorService scheduler;
+
+    private MetricsExporter(Profiler2 profiler, File file, Metrics.Format format, int interval) {
+        this.profiler = profiler;
+        this.file = file;
+        this.format = format;
+        if (interval > 0) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Metrics exporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleAtFixedRate(this::write, interval, interval, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * @return an exporter for the given profiler, or null if {@code --metrics-file} is not set.
+     */
+    public static MetricsExporter start(Profiler2 profiler, JavaExecutionOptions options, FileUtil files) {
+        if (options.metricsFile == null) {
+            return null;
+        }
+        return new MetricsExporter(profiler, files.resolveWorkingDirectory(options.metricsFile),
+                options.metricsFormat, options.metricsInterval);
+    }
+
+    public synchronized void write() {
+        Metrics metrics = profiler.metrics();
+        File tmp = new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".tmp");
+        try {
+            try (Writer out = new OutputStreamWriter(Files.newOutputStream(tmp.toPath()), StandardCharsets.UTF_8)) {
+                metrics.write(out, format);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not write metrics file: " + file.getAbsolutePath());
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        write();
+    }
+}
@@ -1,14 +1,19 @@
 // Copyright (c) 2015-2019 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
+import com.google.common.cache.CacheStats;
 import com.google.inject.Inject;
-import org.kframework.backend.java.symbolic.ConjunctiveFormula;
 import org.kframework.main.StartTimeHolder;
 import org.kframework.utils.inject.RequestScoped;
 
+import java.io.PrintStream;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.BinaryOperator;
 import java.util.stream.Collectors;
 
@@ -24,13 +29,22 @@ public class Profiler2 {
     private long parsingTimestamp;
     private long initTimestamp;
 
-    public final CounterStopwatch resFuncNanoTimer = new CounterStopwatch("resolveFunction");
+    public final CounterStopwatch resFuncNanoTimer = new CounterStopwatch("resolveFunction", true);
     public final CounterStopwatch logOverheadTimer = new CounterStopwatch("Log");
     public final CounterStopwatch queryBuildTimer = new CounterStopwatch("Z3 query build");
+    public final CounterStopwatch impliesTimer = new CounterStopwatch("impliesSMT");
 
     public int countResFuncTopUncached = 0;
     public int countResFuncRecursiveUncached = 0;
+    public long countRewriteSteps = 0;
     final Map<FormulaContext.Kind, Z3Profiler> z3Profilers = createZ3Profilers();
+    private final List<BoundedCache<?, ?>> caches = new CopyOnWriteArrayList<>();
+    private final Map<String, CacheStats> releasedCacheStats = new ConcurrentHashMap<>();
+    /**
+     * Per function: evaluations, rules tried and rules skipped thanks to the function rule index.
+     */
+    private final Map<String, long[]> functionIndexCounters = new ConcurrentHashMap<>();
+    private final List<Profiler2> forks = new CopyOnWriteArrayList<>();
 
     private Map<FormulaContext.Kind, Z3Profiler> createZ3Profilers() {
         BinaryOperator<Z3Profiler> throwingMerger = (u, v) -> {
@@ -46,46 +60,253 @@ public class Profiler2 {
         this.startTime = startTimeHolder.getStartTime();
     }
 
+    private Profiler2(Profiler2 parent) {
+        this.startTime = parent.startTime;
+        this.parsingTimestamp = parent.parsingTimestamp;
+        this.initTimestamp = parent.initTimestamp;
+    }
+
+    /**
+     * Creates a profiler with the same start, parsing and initialization timestamps as this one, but with its own
+     * counters and stopwatches, for a claim proved on another thread. The counters of the fork are included in the
+     * {@link #metrics()} of this profiler until they are added to it by {@link #join(Profiler2)}.
+     */
+    public Profiler2 fork() {
+        Profiler2 fork = new Profiler2(this);
+        forks.add(fork);
+        return fork;
+    }
+
+    /**
+     * Adds the counters and stopwatches of a fork of this profiler, whose claim is proved, to this profiler.
+     */
+    public void join(Profiler2 fork) {
+        forks.remove(fork);
+        resFuncNanoTimer.add(fork.resFuncNanoTimer);
+        logOverheadTimer.add(fork.logOverheadTimer);
+        queryBuildTimer.add(fork.queryBuildTimer);
+        impliesTimer.add(fork.impliesTimer);
+        countResFuncTopUncached += fork.countResFuncTopUncached;
+        countResFuncRecursiveUncached += fork.countResFuncRecursiveUncached;
+        countRewriteSteps += fork.countRewriteSteps;
+        for (Map.Entry<FormulaContext.Kind, Z3Profiler> entry : fork.z3Profilers.entrySet()) {
+            z3Profilers.get(entry.getKey()).add(entry.getValue());
+        }
+        fork.releaseCaches();
+        fork.releasedCacheStats.forEach((name, stats) -> releasedCacheStats.merge(name, stats, CacheStats::plus));
+        fork.functionIndexCounters.forEach((function, counters) -> {
+            long[] sum = functionIndexCounters.computeIfAbsent(function, f -> new long[3]);
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += counters[i];
+            }
+        });
+        forks.addAll(fork.forks);
+    }
+
+    /**
+     * Registers a cache whose statistics are printed by {@link #printResult()}. Statistics of caches with the same
+     * name, e.g. the caches of the initializing and rewriting contexts, are summed up.
+     */
+    public void registerCache(BoundedCache<?, ?> cache) {
+        caches.add(cache);
+    }
+
+    /**
+     * Stops referencing the registered caches, keeping their statistics for {@link #metrics()}. Called once the
+     * claim profiled by a fork is proved, so that the fork does not keep its caches alive.
+     */
+    public void releaseCaches() {
+        for (BoundedCache<?, ?> cache : caches) {
+            releasedCacheStats.merge(cache.getName(), cache.stats(), CacheStats::plus);
+        }
+        caches.clear();
+    }
+
+    /**
+     * Counts an evaluation of the given function, for which the function rule index selected {@code candidates} out of
+     * {@code total} rules.
+     */
+    public void countFunctionIndexLookup(String function, int candidates, int total) {
+        long[] counters = functionIndexCounters.computeIfAbsent(function, f -> new long[3]);
+        counters[0]++;
+        counters[1] += candidates;
+        counters[2] += total - candidates;
+    }
+
     public void printResult() {
+        printResult(System.err);
+    }
+
+    public void printResult(PrintStream out) {
         long currentTimestamp = System.currentTimeMillis();
-        System.err.format("Total time:            %.3f\n", (currentTimestamp - startTime) / 1000.);
-        System.err.format("  Parsing time:        %.3f\n", (parsingTimestamp - startTime) / 1000.);
-        System.err.format("  Initialization time: %.3f\n", (initTimestamp - parsingTimestamp) / 1000.);
-        System.err.format("  Execution time:      %.3f\n\n", (currentTimestamp - initTimestamp) / 1000.);
+        out.format("Total time:            %.3f\n", (currentTimestamp - startTime) / 1000.);
+        out.format("  Parsing time:        %.3f\n", (parsingTimestamp - startTime) / 1000.);
+        out.format("  Initialization time: %.3f\n", (initTimestamp - parsingTimestamp) / 1000.);
+        out.format("  Execution time:      %.3f\n\n", (currentTimestamp - initTimestamp) / 1000.);
 
-        System.err.format("Init+Execution time:    %.3f\n", (currentTimestamp - parsingTimestamp) / 1000.);
+        out.format("Init+Execution time:    %.3f\n", (currentTimestamp - parsingTimestamp) / 1000.);
         if (queryBuildTimer.getCount() > 0) {
-            System.err.format("  query build time:     %s\n", queryBuildTimer);
+            out.format("  query build time:     %s\n", queryBuildTimer);
         }
+        int diskCacheHits = 0;
+        int diskCacheMisses = 0;
         for (Z3Profiler profiler : z3Profilers.values()) {
-            if (profiler.getQueryCount() > 0) {
-                profiler.print();
+            if (profiler.getQueryCount() > 0 || profiler.getDiskCacheHits() > 0) {
+                profiler.print(out);
             }
+            diskCacheHits += profiler.getDiskCacheHits();
+            diskCacheMisses += profiler.getDiskCacheMisses();
+        }
+        if (diskCacheHits + diskCacheMisses > 0) {
+            out.format("  SMT disk cache:       %d hits, %d misses\n", diskCacheHits, diskCacheMisses);
         }
 
-        System.err.format("  resolveFunction time: %s\n", resFuncNanoTimer);
+        out.format("  resolveFunction time: %s\n", resFuncNanoTimer);
         if (logOverheadTimer.getCount() > 0) {
-            System.err.format("  log time:             %s\n\n", logOverheadTimer);
+            out.format("  log time:             %s\n\n", logOverheadTimer);
         }
 
-        System.err.format("resolveFunction top-level uncached: %d\n", countResFuncTopUncached);
+        out.format("resolveFunction top-level uncached: %d\n", countResFuncTopUncached);
         int countCached = resFuncNanoTimer.getCount() - countResFuncTopUncached;
         if (countCached > 0) {
-            System.err.format("resolveFunction top-level cached:   %d\n", countCached);
+            out.format("resolveFunction top-level cached:   %d\n", countCached);
         }
-        System.err.format("resolveFunction recursive uncached: %d\n", countResFuncRecursiveUncached);
+        out.format("resolveFunction recursive uncached: %d\n", countResFuncRecursiveUncached);
+        printCacheStats(out);
+        printFunctionIndexStats(out);
 
-        if (ConjunctiveFormula.impliesStopwatch.getCount() > 0) {
-            System.err.format("\nimpliesSMT time:    %s\n", ConjunctiveFormula.impliesStopwatch);
-            System.err.format("impliesSMT count: %s\n", ConjunctiveFormula.impliesStopwatch.getCount());
+        if (impliesTimer.getCount() > 0) {
+            out.format("\nimpliesSMT time:    %s\n", impliesTimer);
+            out.format("impliesSMT count: %s\n", impliesTimer.getCount());
         }
 
         //Has some overhead. Enable from class Profiler if needed, by setting value below to true.
         if (Profiler.enableProfilingMode.get()) {
-            System.err.println("==================");
+            out.println("==================");
             Profiler.printResult();
         }
-        System.err.println("==================================\n");
+        out.println("==================================\n");
+    }
+
+    /**
+     * Prints the share of function rules skipped thanks to the function rule index, overall and for the functions
+     * with the most rules skipped.
+     */
+    private void printFunctionIndexStats(PrintStream out) {
+        long tried = functionIndexCounters.values().stream().mapToLong(c -> c[1]).sum();
+        long skipped = functionIndexCounters.values().stream().mapToLong(c -> c[2]).sum();
+        if (tried + skipped == 0) {
+            return;
+        }
+        out.format("\nfunction rule index: %d of %d rules skipped (%.1f%%)\n",
+                skipped, tried + skipped, 100. * skipped / (tried + skipped));
+        functionIndexCounters.entrySet().stream()
+                .filter(e -> e.getValue()[2] > 0)
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> e) -> e.getValue()[2]).reversed())
+                .limit(10)
+                .forEach(e -> {
+                    long functionTried = e.getValue()[1];
+                    long functionSkipped = e.getValue()[2];
+                    out.format("  %s: %d evaluations, %d of %d rules skipped (%.1f%%)\n", e.getKey(),
+                            e.getValue()[0], functionSkipped, functionTried + functionSkipped,
+                            100. * functionSkipped / (functionTried + functionSkipped));
+                });
+    }
+
+    private void printCacheStats(PrintStream out) {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (BoundedCache<?, ?> cache : caches) {
+            stats.merge(cache.getName(), cache.stats(), CacheStats::plus);
+            sizes.merge(cache.getName(), cache.size(), Long::sum);
+        }
+        releasedCacheStats.forEach((name, cacheStats) -> stats.merge(name, cacheStats, CacheStats::plus));
+        boolean first = true;
+        for (Map.Entry<String, CacheStats> entry : stats.entrySet()) {
+            CacheStats cacheStats = entry.getValue();
+            if (cacheStats.requestCount() == 0) {
+                continue;
+            }
+            if (first) {
+                out.println();
+                first = false;
+            }
+            out.format("%-24s hits: %d, misses: %d, evictions: %d, size: %d\n", entry.getKey() + ":",
+                    cacheStats.hitCount(), cacheStats.missCount(), cacheStats.evictionCount(),
+                    sizes.getOrDefault(entry.getKey(), 0L));
+        }
+    }
+
+    /**
+     * Collects the counters, stopwatches and histograms of this profiler and of its forks, for
+     * {@link MetricsExporter}.
+     */
+    public Metrics metrics() {
+        Metrics metrics = new Metrics();
+        long currentTimestamp = System.currentTimeMillis();
+        metrics.gauge("k_uptime_seconds", "Time since the start of the process", (currentTimestamp - startTime) / 1000.);
+        if (parsingTimestamp != 0) {
+            metrics.gauge("k_parsing_seconds", "Parsing time", (parsingTimestamp - startTime) / 1000.);
+        }
+        if (initTimestamp != 0) {
+            metrics.gauge("k_initialization_seconds", "Initialization time", (initTimestamp - parsingTimestamp) / 1000.);
+        }
+        collectMetrics(metrics);
+        return metrics;
+    }
+
+    private void collectMetrics(Metrics metrics) {
+        collectStopwatch(metrics, resFuncNanoTimer);
+        collectStopwatch(metrics, logOverheadTimer);
+        collectStopwatch(metrics, queryBuildTimer);
+        collectStopwatch(metrics, impliesTimer);
+        metrics.histogram("k_resolve_function_seconds", "Duration of the top-level function evaluations",
+                resFuncNanoTimer.getHistogram());
+        metrics.counter("k_resolve_function_total", "Function evaluations",
+                resFuncNanoTimer.getCount() - countResFuncTopUncached, "level", "top", "cached", "true");
+        metrics.counter("k_resolve_function_total", "Function evaluations",
+                countResFuncTopUncached, "level", "top", "cached", "false");
+        metrics.counter("k_resolve_function_total", "Function evaluations",
+                countResFuncRecursiveUncached, "level", "recursive", "cached", "false");
+        metrics.counter("k_rewrite_steps_total", "Rewrite steps computed", countRewriteSteps);
+
+        for (Map.Entry<FormulaContext.Kind, Z3Profiler> entry : z3Profilers.entrySet()) {
+            entry.getValue().collectMetrics(metrics, entry.getKey().name().toLowerCase());
+        }
+        for (BoundedCache<?, ?> cache : caches) {
+            CacheStats cacheStats = cache.stats();
+            metrics.counter("k_cache_hits_total", "Cache hits", cacheStats.hitCount(), "cache", cache.getName());
+            metrics.counter("k_cache_misses_total", "Cache misses", cacheStats.missCount(), "cache", cache.getName());
+            metrics.counter("k_cache_evictions_total", "Cache evictions", cacheStats.evictionCount(),
+                    "cache", cache.getName());
+            metrics.gauge("k_cache_entries", "Cache size", cache.size(), "cache", cache.getName());
+        }
+        for (Map.Entry<String, CacheStats> entry : releasedCacheStats.entrySet()) {
+            metrics.counter("k_cache_hits_total", "Cache hits", entry.getValue().hitCount(), "cache", entry.getKey());
+            metrics.counter("k_cache_misses_total", "Cache misses", entry.getValue().missCount(),
+                    "cache", entry.getKey());
+            metrics.counter("k_cache_evictions_total", "Cache evictions", entry.getValue().evictionCount(),
+                    "cache", entry.getKey());
+        }
+        for (Map.Entry<String, long[]> entry : functionIndexCounters.entrySet()) {
+            long[] counters = entry.getValue();
+            metrics.counter("k_function_index_evaluations_total", "Function evaluations using the function rule index",
+                    counters[0], "function", entry.getKey());
+            metrics.counter("k_function_index_rules_total", "Function rules tried and skipped thanks to the function " +
+                    "rule index", counters[1], "function", entry.getKey(), "result", "tried");
+            metrics.counter("k_function_index_rules_total", "Function rules tried and skipped thanks to the function " +
+                    "rule index", counters[2], "function", entry.getKey(), "result", "skipped");
+        }
+        for (Profiler2 fork : forks) {
+            fork.collectMetrics(metrics);
+        }
+    }
+
+    private static void collectStopwatch(Metrics metrics, CounterStopwatch stopwatch) {
+        metrics.counter("k_stopwatch_seconds_total", "Time accumulated by the profiling stopwatches",
+                stopwatch.getDurationNanos() / 1e9, "stopwatch", stopwatch.getName());
+        metrics.counter("k_stopwatch_invocations_total", "Top-level invocations of the profiling stopwatches",
+                stopwatch.getCount(), "stopwatch", stopwatch.getName());
     }
 
     public void logParsingTime() {
@@ -0,0 +1,69 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * A thread of the pools proving claims ({@code --prove-threads}) and expanding frontier states
+ * ({@code --search-threads}) concurrently.
+ * <p>
+ * While it works on a claim or a state, the thread is bound to a {@link Profiler2#fork() forked} profiler and a
+ * {@link StateLog#fork() forked} state log. The profiling counters and state log events of that work go to the forks,
+ * whichever {@link org.kframework.backend.java.kil.GlobalContext} they are reached from, e.g. the one of a rule or of
+ * a formula created by another thread. The forks are then merged in order by the thread which started the work.
+ */
+public class RewriterThread extends Thread {
+
+    private Profiler2 profiler;
+    private StateLog stateLog;
+
+    private RewriterThread(Runnable target) {
+        super(target);
+    }
+
+    public static ExecutorService newPool(int threads) {
+        return Executors.newFixedThreadPool(threads, RewriterThread::new);
+    }
+
+    /**
+     * Runs the given work on the current thread, which must be a {@link RewriterThread}, bound to the given profiler
+     * and state log.
+     */
+    public static <T> T bind(Profiler2 profiler, StateLog stateLog, Supplier<T> work) {
+        RewriterThread thread = (RewriterThread) Thread.currentThread();
+        Profiler2 oldProfiler = thread.profiler;
+        StateLog oldStateLog = thread.stateLog;
+        thread.profiler = profiler;
+        thread.stateLog = stateLog;
+        try {
+            return work.get();
+        } finally {
+            thread.profiler = oldProfiler;
+            thread.stateLog = oldStateLog;
+        }
+    }
+
+    /**
+     * @return the profiler the current thread is bound to, or {@code unbound} if it is not bound to any.
+     */
+    public static Profiler2 profiler(Profiler2 unbound) {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof RewriterThread && ((RewriterThread) thread).profiler != null) {
+            return ((RewriterThread) thread).profiler;
+        }
+        return unbound;
+    }
+
+    /**
+     * @return the state log the current thread is bound to, or {@code unbound} if it is not bound to any.
+     */
+    public static StateLog stateLog(StateLog unbound) {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof RewriterThread && ((RewriterThread) thread).stateLog != null) {
+            return ((RewriterThread) thread).stateLog;
+        }
+        return unbound;
+    }
+}
@@ -0,0 +1,213 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.attributes.Location;
+import org.kframework.backend.java.kil.Rule;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-rule execution profile, enabled by {@code --profile-rules}. Shared by the contexts forked for claims proved
+ * concurrently.
+ * <p>
+ * For rewrite rules, an attempt is a match of the left-hand side by {@link org.kframework.backend.java.symbolic.FastRuleMatcher},
+ * which is followed by the evaluation of the constraints of the rule; a success is a rule application. The rule
+ * automaton matches all rules at once, so its time is reported separately and rewrite rules have no matching time
+ * of their own. For function and
+ * anywhere rules, an attempt is a call to the pattern matcher, whose time is the matching time, and a success is a
+ * rule whose right-hand side is built. SMT queries are attributed to the rule of their {@link FormulaContext}.
+ * <p>
+ * Times include the nested rule applications, e.g. the function rules applied while evaluating the constraints of
+ * a rewrite rule, so they add up to more than the execution time.
+ */
+public class RuleProfiler {
+
+    public enum Format {
+        CSV, JSON
+    }
+
+    private static class RuleStats {
+        final LongAdder attempts = new LongAdder();
+        final LongAdder successes = new LongAdder();
+        final LongAdder matchNanos = new LongAdder();
+        final LongAdder constraintNanos = new LongAdder();
+        final LongAdder rhsNanos = new LongAdder();
+        final LongAdder smtQueries = new LongAdder();
+        final LongAdder smtNanos = new LongAdder();
+
+        long totalNanos() {
+            return matchNanos.sum() + constraintNanos.sum() + rhsNanos.sum();
+        }
+    }
+
+    private final Map<Rule, RuleStats> stats = new ConcurrentHashMap<>();
+    private final LongAdder automatonRuns = new LongAdder();
+    private final LongAdder automatonNanos = new LongAdder();
+
+    /**
+     * Whether the rule is matched on its own, rather than by the rule automaton.
+     */
+    private static boolean hasMatchTime(Rule rule) {
+        return rule.isFunction() || rule.isAnywhere();
+    }
+
+    private RuleStats get(Rule rule) {
+        RuleStats ruleStats = stats.get(rule);
+        if (ruleStats == null) {
+            ruleStats = stats.computeIfAbsent(rule, r -> new RuleStats());
+        }
+        return ruleStats;
+    }
+
+    public void countAttempt(Rule rule) {
+        get(rule).attempts.increment();
+    }
+
+    public void countSuccess(Rule rule) {
+        get(rule).successes.increment();
+    }
+
+    public void addMatchTime(Rule rule, long nanos) {
+        get(rule).matchNanos.add(nanos);
+    }
+
+    public void addConstraintTime(Rule rule, long nanos) {
+        get(rule).constraintNanos.add(nanos);
+    }
+
+    public void addRhsTime(Rule rule, long nanos) {
+        get(rule).rhsNanos.add(nanos);
+    }
+
+    /**
+     * Counts an SMT query made for the given rule, which may be null.
+     */
+    public void addSmtQuery(Rule rule, long nanos) {
+        if (rule == null) {
+            return;
+        }
+        RuleStats ruleStats = get(rule);
+        ruleStats.smtQueries.increment();
+        ruleStats.smtNanos.add(nanos);
+    }
+
+    /**
+     * Counts a match of the rule automaton, which matches all the rewrite rules at once.
+     */
+    public void addAutomatonTime(long nanos) {
+        automatonRuns.increment();
+        automatonNanos.add(nanos);
+    }
+
+    /**
+     * Writes the profile to the given file, the most expensive rules first, and resets it.
+     */
+    public synchronized void write(File file, Format format) {
+        List<Map.Entry<Rule, RuleStats>> entries = new ArrayList<>(stats.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<Rule, RuleStats> e) -> e.getValue().totalNanos()).reversed());
+        try (Writer out = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            switch (format) {
+            case CSV:
+                writeCsv(new PrintWriter(out), entries);
+                break;
+            case JSON:
+                writeJson(out, entries);
+                break;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not write rule profile: " + file.getAbsolutePath());
+            e.printStackTrace();
+        }
+        System.err.println("Rule profile: " + file);
+        stats.clear();
+        automatonRuns.reset();
+        automatonNanos.reset();
+    }
+
+    private void writeCsv(PrintWriter out, List<Map.Entry<Rule, RuleStats>> entries) {
+        out.println("source,location,label,attempts,successes,match_ms,constraint_ms,rhs_ms,smt_queries,smt_ms,total_ms");
+        out.format(Locale.ROOT, "%s,,,%d,,%.3f,,,,,%.3f\n", "<rule automaton>", automatonRuns.sum(), millis(automatonNanos.sum()),
+                millis(automatonNanos.sum()));
+        for (Map.Entry<Rule, RuleStats> entry : entries) {
+            Rule rule = entry.getKey();
+            RuleStats s = entry.getValue();
+            out.format(Locale.ROOT, "%s,%s,%s,%d,%d,%s,%.3f,%.3f,%d,%.3f,%.3f\n", csv(source(rule)),
+                    location(rule), csv(rule.label()), s.attempts.sum(), s.successes.sum(),
+                    hasMatchTime(rule) ? String.format(Locale.ROOT, "%.3f", millis(s.matchNanos.sum())) : "",
+                    millis(s.constraintNanos.sum()), millis(s.rhsNanos.sum()), s.smtQueries.sum(),
+                    millis(s.smtNanos.sum()), millis(s.totalNanos()));
+        }
+        out.flush();
+    }
+
+    private void writeJson(Writer out, List<Map.Entry<Rule, RuleStats>> entries) {
+        JsonArrayBuilder rules = Json.createArrayBuilder();
+        for (Map.Entry<Rule, RuleStats> entry : entries) {
+            Rule rule = entry.getKey();
+            RuleStats s = entry.getValue();
+            JsonObjectBuilder json = Json.createObjectBuilder()
+                    .add("source", source(rule))
+                    .add("location", location(rule))
+                    .add("label", rule.label() == null ? "" : rule.label())
+                    .add("attempts", s.attempts.sum())
+                    .add("successes", s.successes.sum());
+            if (hasMatchTime(rule)) {
+                json.add("match_ms", millis(s.matchNanos.sum()));
+            }
+            json.add("constraint_ms", millis(s.constraintNanos.sum()))
+                    .add("rhs_ms", millis(s.rhsNanos.sum()))
+                    .add("smt_queries", s.smtQueries.sum())
+                    .add("smt_ms", millis(s.smtNanos.sum()))
+                    .add("total_ms", millis(s.totalNanos()));
+            rules.add(json);
+        }
+        try (JsonWriter writer = Json.createWriter(out)) {
+            writer.writeObject(Json.createObjectBuilder()
+                    .add("automaton", Json.createObjectBuilder()
+                            .add("matches", automatonRuns.sum())
+                            .add("match_ms", millis(automatonNanos.sum())))
+                    .add("rules", rules)
+                    .build());
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String source(Rule rule) {
+        return rule.getSource() == null ? "" : rule.getSource().source();
+    }
+
+    private static String location(Rule rule) {
+        Location location = rule.getLocation();
+        return location == null ? "" : location.startLine() + ":" + location.startColumn();
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,153 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A persistent cache of SMT query results, shared by all kprove/krun runs using the same cache file.
+ * <p>
+ * The file is an append-only log with one record per line: the SHA-256 of the prelude, check-sat command,
+ * timeout and query, a space, and the result. A record is appended with a single write under an exclusive
+ * file lock, so concurrent writers never interleave. Lines that do not parse, e.g. a record truncated by a
+ * crash, are ignored on load. Only {@code sat} and {@code unsat} are cached, since {@code unknown} depends
+ * on machine load as much as on the query.
+ * <p>
+ * The records appended by other processes since the file was last read, e.g. by other kprove runs while a kserver
+ * is running, are read before a query is reported as not cached.
+ */
+public class SMTResultCache {
+
+    private static final Pattern RECORD = Pattern.compile("([0-9a-f]{64}) (sat|unsat)");
+
+    private static final Map<File, SMTResultCache> instances = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final Map<String, Boolean> results = new ConcurrentHashMap<>();
+    /**
+     * The number of bytes of the file read so far, always at the end of a record.
+     */
+    private long loadedLength = 0;
+
+    /**
+     * @return the cache backed by {@code file}, loading it on first use.
+     */
+    public static SMTResultCache of(File file) {
+        return instances.computeIfAbsent(file.getAbsoluteFile(), SMTResultCache::new);
+    }
+
+    private SMTResultCache(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * Reads the records appended to the file since it was last read. A record still being written is left for the
+     * next call. If the file was truncated or replaced by a shorter one, it is read again from the start.
+     */
+    private synchronized void load() {
+        long length = file.length();
+        if (length == loadedLength) {
+            return;
+        }
+        if (length < loadedLength) {
+            loadedLength = 0;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length - loadedLength, Integer.MAX_VALUE - 8));
+            channel.position(loadedLength);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            int end = buffer.position();
+            while (end > 0 && buffer.get(end - 1) != '\n') {
+                end--;
+            }
+            String records = new String(buffer.array(), 0, end, StandardCharsets.UTF_8);
+            try (BufferedReader reader = new BufferedReader(new StringReader(records))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = RECORD.matcher(line);
+                    if (matcher.matches()) {
+                        results.put(matcher.group(1), "unsat".equals(matcher.group(2)));
+                    }
+                }
+            }
+            loadedLength += end;
+        } catch (NoSuchFileException e) {
+            loadedLength = 0;
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not read SMT cache file " + file.getAbsolutePath(), e);
+        }
+    }
+
+    public static String key(String prelude, String checkSat, int timeout, CharSequence query) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(prelude.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(checkSat.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Integer.toString(timeout).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(query.toString().getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest.digest()));
+        } catch (NoSuchAlgorithmException e) {
+            throw KEMException.internalError("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * @return true if the query is known to be unsat, false if it is known to be sat, null if it is not cached.
+     */
+    public Boolean get(String key) {
+        Boolean result = results.get(key);
+        if (result == null) {
+            load();
+            result = results.get(key);
+        }
+        return result;
+    }
+
+    public synchronized void put(String key, String result) {
+        if (!"sat".equals(result) && !"unsat".equals(result)) {
+            return;
+        }
+        if (results.putIfAbsent(key, "unsat".equals(result)) != null) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.wrap((key + " " + result + "\n").getBytes(StandardCharsets.UTF_8));
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             FileLock ignored = channel.lock()) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
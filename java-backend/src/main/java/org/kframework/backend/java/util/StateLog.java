@@ -10,12 +10,19 @@ import org.kframework.unparser.KPrint;
 import org.kframework.unparser.OutputModes;
 import org.kframework.utils.file.FileUtil;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.OutputStream;
+import java.io.StringWriter;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import org.apache.commons.io.output.WriterOutputStream;
 
 import java.security.MessageDigest;
@@ -26,6 +33,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.lang.Math;
@@ -33,14 +42,18 @@ import java.lang.Math;
 public class StateLog {
 
     // *ALL* `public` methods *MUST* return `void` and have their first line be `if (! this.loggingOn) return;`
+    // (the only exception is `fork`, which returns `this` when logging is off)
     private final boolean        loggingOn;
     private final File           loggingPath;
     private final File           blobsDir;
     private final List<LogEvent> logEvents;
+    private final boolean        pack;
 
     private String              sessionId;
     private PrintWriter         sessionLog;
     private Map<Integer,String> writtenHashes;
+    private StringWriter        buffer;
+    private BackgroundWriter    writer;
 
     private boolean inited;
     private long    startTime;
@@ -51,6 +64,7 @@ public class StateLog {
         this.loggingPath   = null;
         this.blobsDir      = null;
         this.logEvents     = Collections.emptyList();
+        this.pack          = false;
         this.writtenHashes = new HashMap<Integer,String>();
     }
 
@@ -68,7 +82,48 @@ public class StateLog {
         this.blobsDir.mkdirs();
 
         this.logEvents     = javaExecutionOptions.stateLogEvents;
+        this.pack          = javaExecutionOptions.stateLogPack;
+        this.writtenHashes = new HashMap<Integer,String>();
+    }
+
+    private StateLog(StateLog parent) {
+        this.loggingOn     = parent.loggingOn;
+        this.loggingPath   = parent.loggingPath;
+        this.blobsDir      = parent.blobsDir;
+        this.logEvents     = parent.logEvents;
+        this.pack          = parent.pack;
+        this.writer        = parent.writer;
+        this.sessionId     = parent.sessionId;
         this.writtenHashes = new HashMap<Integer,String>();
+        this.inited        = true;
+        this.startTime     = parent.startTime;
+        this.buffer        = new StringWriter();
+        this.sessionLog    = new PrintWriter(this.buffer);
+    }
+
+    /**
+     * A log sharing the settings and blob directory of this one, buffering its events in memory.
+     * Used by claims proved concurrently; the events are written to this log in claim order by {@link #append}.
+     */
+    public StateLog fork() {
+        if (! this.loggingOn) return this;
+        return new StateLog(this);
+    }
+
+    public void append(StateLog child) {
+        if (! this.loggingOn) return;
+        if (this.writer != null) {
+            // queued after the events of the child, so runs once they have been written to its buffer
+            PrintWriter sessionLog = this.sessionLog;
+            this.writer.submit(() -> {
+                child.sessionLog.flush();
+                sessionLog.print(child.buffer.toString());
+            });
+            return;
+        }
+        child.sessionLog.flush();
+        this.sessionLog.print(child.buffer.toString());
+        this.sessionLog.flush();
     }
 
     public void open(String defaultSessionId) {
@@ -76,11 +131,15 @@ public class StateLog {
         this.inited = true;
         if (this.sessionId == null) this.sessionId = defaultSessionId;
         File logFile = new File(this.loggingPath, this.sessionId + ".log");
-        PrintWriter sessionLog;
         try {
-            this.sessionLog = new PrintWriter(logFile);
+            if (this.pack) {
+                this.sessionLog = new PrintWriter(new BufferedWriter(new FileWriter(logFile)));
+                this.writer     = new BackgroundWriter(new StateLogPack(this.loggingPath, this.sessionId), this.sessionLog);
+            } else {
+                this.sessionLog = new PrintWriter(logFile);
+            }
             System.err.println("StateLog: " + logFile);
-        } catch (FileNotFoundException e) {
+        } catch (IOException e) {
             e.printStackTrace();
         }
         this.startTime = System.currentTimeMillis();
@@ -91,14 +150,38 @@ public class StateLog {
         OPEN, REACHINIT, REACHTARGET, REACHPROVED, EXECINIT, SEARCHINIT, NODE, RULE, SRULE, RULEATTEMPT, IMPLICATION, Z3QUERY, Z3RESULT, CLOSE
     }
 
-    public void log(String logItem) {
+    public synchronized void log(String logItem) {
         if (! this.loggingOn) return;
-        this.sessionLog.println((System.currentTimeMillis() - this.startTime) + " " + logItem);
+        StateLog bound = RewriterThread.stateLog(this);
+        if (bound != this) {
+            bound.log(logItem);
+            return;
+        }
+        String line = (System.currentTimeMillis() - this.startTime) + " " + logItem;
+        if (this.writer != null) {
+            PrintWriter sessionLog = this.sessionLog;
+            this.writer.submit(() -> sessionLog.println(line));
+            return;
+        }
+        this.sessionLog.println(line);
         this.sessionLog.flush();
     }
 
-    public void log(LogEvent logCode, K... terms) {
+    public synchronized void log(LogEvent logCode, K... terms) {
         if (! (this.loggingOn && this.logEvents.contains(logCode))) return;
+        StateLog bound = RewriterThread.stateLog(this);
+        if (bound != this) {
+            bound.log(logCode, terms);
+            return;
+        }
+        if (this.writer != null) {
+            // the terms are serialized and written by the background writer, the event keeps the current time
+            long             time       = System.currentTimeMillis() - this.startTime;
+            PrintWriter      sessionLog = this.sessionLog;
+            BackgroundWriter writer     = this.writer;
+            writer.submit(() -> sessionLog.println(time + " " + logCode + " " + writer.writeNodes(terms)));
+            return;
+        }
         ArrayList<String> nodeIds = new ArrayList<String>();
         for (K term: terms) {
             nodeIds.add(writeNode(term));
@@ -109,17 +192,24 @@ public class StateLog {
 
     public void close() {
         if (! this.loggingOn) return;
+        // the log could not be opened
+        if (this.sessionLog == null) return;
         this.log(LogEvent.CLOSE);
+        if (this.writer != null) this.writer.close();
         this.sessionLog.close();
     }
 
     private static String hash(K in) {
+        return hash(KPrint.serialize(in, OutputModes.KAST));
+    }
+
+    private static String hash(byte[] in) {
         MessageDigest m = null;
         String hashtext = "__";
         try {
             m = MessageDigest.getInstance("MD5");
             m.reset();
-            m.update(KPrint.serialize(in, OutputModes.KAST));
+            m.update(in);
             byte[] digest = m.digest();
             BigInteger bigInt = new BigInteger(1,digest);
             hashtext = bigInt.toString(16);
@@ -138,12 +228,17 @@ public class StateLog {
             File   outputFile = new File(this.blobsDir, fileCode + "." + OutputModes.JSON.ext());
             if (! outputFile.exists()) {
                 try {
+                    // the blobs directory is shared by the logs of claims proved concurrently, which may write the
+                    // same node at the same time, so each one writes a temporary file and moves it into place
                     String out = new String(KPrint.serialize(contents, OutputModes.JSON), StandardCharsets.UTF_8);
-                    PrintWriter fOut = new PrintWriter(outputFile);
+                    File tmpFile = File.createTempFile(fileCode, ".tmp", this.blobsDir);
+                    PrintWriter fOut = new PrintWriter(tmpFile);
                     fOut.println(out);
                     fOut.close();
+                    Files.move(tmpFile.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
                     writtenHashes.put(objectHash,fileCode);
-                } catch (FileNotFoundException e) {
+                } catch (IOException e) {
                     System.err.println("Could not open node output file: " + outputFile.getAbsolutePath());
                     e.printStackTrace();
                 }
@@ -151,4 +246,103 @@ public class StateLog {
             return fileCode;
         }
     }
+
+    /**
+     * Writes the events of a log and the terms they refer to from a background thread, used with
+     * {@code --state-log-pack}. Events are taken from a bounded queue, blocking the rewriter when it is full, and are
+     * written in batches, flushing the log and the {@link StateLogPack} once per batch.
+     * <p>
+     * Each term is serialized once; the same bytes are hashed and stored, so the node ids differ from the ones of
+     * the directory layout, which hashes the KAST of the term.
+     */
+    private static class BackgroundWriter implements Runnable {
+
+        private static final int QUEUE_SIZE = 1 << 12;
+        private static final int BATCH_SIZE = 1 << 8;
+
+        private final BlockingQueue<Runnable> queue         = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        private final Map<Integer,String>     writtenHashes = new HashMap<Integer,String>();
+        private final StateLogPack            pack;
+        private final PrintWriter             sessionLog;
+        private final Thread                  thread;
+
+        private volatile boolean closed;
+        private boolean          done;
+
+        BackgroundWriter(StateLogPack pack, PrintWriter sessionLog) {
+            this.pack       = pack;
+            this.sessionLog = sessionLog;
+            this.thread     = new Thread(this, "StateLog writer");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        void submit(Runnable task) {
+            if (this.closed) return;
+            Uninterruptibles.putUninterruptibly(this.queue, task);
+        }
+
+        // only called from the writer thread
+        String writeNodes(K... terms) {
+            ArrayList<String> nodeIds = new ArrayList<String>();
+            for (K term: terms) {
+                nodeIds.add(writeNode(term));
+            }
+            return String.join("_", nodeIds);
+        }
+
+        private String writeNode(K contents) {
+            int objectHash = contents.hashCode();
+            String fileCode = writtenHashes.get(objectHash);
+            if (fileCode == null) {
+                byte[] out = KPrint.serialize(contents, OutputModes.JSON);
+                fileCode = hash(out);
+                try {
+                    this.pack.write(fileCode, out);
+                    writtenHashes.put(objectHash, fileCode);
+                } catch (IOException e) {
+                    System.err.println("Could not write node to the state log pack: " + fileCode);
+                    e.printStackTrace();
+                }
+            }
+            return fileCode;
+        }
+
+        @Override
+        public void run() {
+            List<Runnable> batch = new ArrayList<>(BATCH_SIZE);
+            while (! this.done) {
+                batch.add(Uninterruptibles.takeUninterruptibly(this.queue));
+                this.queue.drainTo(batch, BATCH_SIZE - 1);
+                for (Runnable task : batch) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                batch.clear();
+                this.sessionLog.flush();
+                try {
+                    this.pack.flush();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        /**
+         * Writes the events queued so far and stops the writer thread. Events submitted afterwards are dropped.
+         */
+        void close() {
+            submit(() -> this.done = true);
+            this.closed = true;
+            Uninterruptibles.joinUninterruptibly(this.thread);
+            try {
+                this.pack.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 }
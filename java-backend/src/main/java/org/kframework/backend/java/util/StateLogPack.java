@@ -0,0 +1,180 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The terms of a state log session, stored in a compressed append-only pack file instead of one file per term
+ * when running with {@code --state-log-pack}.
+ * <p>
+ * The terms of the session {@code <id>} are stored in {@code <id>.pack}, each one compressed on its own, and are
+ * located through the entries of {@code <id>.idx}: the hash of the term, followed by its offset and compressed length
+ * in the pack, and its length. The index is only flushed after the pack, so it never refers to missing data.
+ * <p>
+ * {@link #main} converts the packs of a state log directory to the {@code blobs/<hash>.json} files of the layout
+ * written without {@code --state-log-pack}.
+ */
+public class StateLogPack implements Closeable {
+
+    public static final String PACK_EXTENSION = ".pack";
+    public static final String INDEX_EXTENSION = ".idx";
+
+    private final DataOutputStream pack;
+    private final DataOutputStream index;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final byte[] buffer = new byte[1 << 16];
+    private final Set<String> written = new HashSet<>();
+    private long offset = 0;
+
+    public StateLogPack(File dir, String sessionId) throws FileNotFoundException {
+        this.pack = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(dir, sessionId + PACK_EXTENSION)), buffer.length));
+        this.index = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(dir, sessionId + INDEX_EXTENSION))));
+    }
+
+    /**
+     * Appends the given contents to the pack, unless contents with the same hash have already been written.
+     */
+    public void write(String hash, byte[] contents) throws IOException {
+        if (!written.add(hash)) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(contents);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            pack.write(buffer, 0, n);
+            compressedLength += n;
+        }
+        index.writeUTF(hash);
+        index.writeLong(offset);
+        index.writeInt(compressedLength);
+        index.writeInt(contents.length);
+        offset += compressedLength;
+    }
+
+    public void flush() throws IOException {
+        pack.flush();
+        index.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            pack.close();
+            index.close();
+            deflater.end();
+        }
+    }
+
+    /**
+     * Calls the given consumer with the hash and the contents of every term of the given session, in the order they
+     * were written. Entries which were not completely written, e.g. because the process was killed, are ignored.
+     */
+    public static void read(File dir, String sessionId, BiConsumer<String, byte[]> consumer) throws IOException {
+        Inflater inflater = new Inflater();
+        try (FileChannel pack = FileChannel.open(new File(dir, sessionId + PACK_EXTENSION).toPath());
+             DataInputStream index = new DataInputStream(new BufferedInputStream(
+                     new FileInputStream(new File(dir, sessionId + INDEX_EXTENSION))))) {
+            long size = pack.size();
+            while (true) {
+                String hash;
+                long offset;
+                int compressedLength;
+                int length;
+                try {
+                    hash = index.readUTF();
+                    offset = index.readLong();
+                    compressedLength = index.readInt();
+                    length = index.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (offset + compressedLength > size) {
+                    return;
+                }
+                // read at the offset rather than through a mapping, which cannot be larger than 2GB
+                ByteBuffer compressed = ByteBuffer.allocate(compressedLength);
+                while (compressed.hasRemaining()) {
+                    if (pack.read(compressed, offset + compressed.position()) < 0) {
+                        throw new EOFException();
+                    }
+                }
+                byte[] contents = new byte[length];
+                inflater.reset();
+                inflater.setInput(compressed.array());
+                try {
+                    inflater.inflate(contents);
+                } catch (DataFormatException e) {
+                    throw new IOException("Corrupted state log pack for session " + sessionId, e);
+                }
+                consumer.accept(hash, contents);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes the terms of all the packs of the given state log directory to its {@code blobs} directory, as they
+     * are written without {@code --state-log-pack}. Returns the number of files written.
+     */
+    public static int unpack(File loggingPath) throws IOException {
+        File blobsDir = new File(loggingPath, "blobs");
+        blobsDir.mkdirs();
+        File[] indices = loggingPath.listFiles((dir, name) -> name.endsWith(INDEX_EXTENSION));
+        if (indices == null) {
+            throw new FileNotFoundException("Not a state log directory: " + loggingPath.getAbsolutePath());
+        }
+        int[] count = {0};
+        for (File indexFile : indices) {
+            String name = indexFile.getName();
+            read(loggingPath, name.substring(0, name.length() - INDEX_EXTENSION.length()), (hash, contents) -> {
+                File outputFile = new File(blobsDir, hash + ".json");
+                if (outputFile.exists()) {
+                    return;
+                }
+                try (PrintWriter fOut = new PrintWriter(outputFile)) {
+                    fOut.println(new String(contents, StandardCharsets.UTF_8));
+                    count[0]++;
+                } catch (FileNotFoundException e) {
+                    System.err.println("Could not open node output file: " + outputFile.getAbsolutePath());
+                    e.printStackTrace();
+                }
+            });
+        }
+        return count[0];
+    }
+
+    // main method used to convert packed state logs to the directory layout
+    public static void main(String[] args) throws IOException {
+        File loggingPath = new File(args.length > 0 ? args[0] : ".");
+        int count = unpack(loggingPath);
+        System.err.println("StateLog: wrote " + count + " terms to " + new File(loggingPath, "blobs"));
+    }
+}
@@ -1,20 +1,21 @@
 // Copyright (c) 2014-2019 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
-import com.google.common.collect.ArrayTable;
 import com.google.common.collect.Sets;
-import com.google.common.collect.Table;
 import org.kframework.Collections;
+import org.kframework.POSet;
 import org.kframework.backend.java.kil.Sort;
 import org.kframework.definition.Module;
 import org.kframework.utils.errorsystem.KEMException;
+import scala.Tuple2;
 import scala.collection.JavaConversions;
 
 import java.io.Serializable;
-import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.kframework.Collections.*;
+
 
 /**
  * Subsort relation.
@@ -28,41 +29,35 @@ public class Subsorts implements Serializable {
     private final Set<Sort> sorts;
 
     /**
-     * {@code subsort[sort1][sort2] = true} iff {@code sort1} is bigger than
-     * {@code sort2}.
+     * The subsort relation between the sorts of the definition, with memoized bounds.
      */
-    private final Table<Sort, Sort, Boolean> subsort;
+    private final POSet<Sort> subsorts;
 
     public Subsorts(Module module) {
         sorts = JavaConversions.asJavaCollection(module.definedSorts()).stream()
                 .map(Sort::of)
                 .collect(Collectors.toSet());
 
-        this.subsort = ArrayTable.create(sorts, sorts);
-        for (org.kframework.kore.Sort sort1 : Collections.iterable(module.definedSorts())) {
-            for (org.kframework.kore.Sort sort2 : Collections.iterable(module.definedSorts())) {
-                subsort.put(
-                        Sort.of(sort1),
-                        Sort.of(sort2),
-                        module.subsorts().$greater(sort1, sort2));
-            }
-        }
+        this.subsorts = new POSet<>(stream(module.subsorts().directRelations())
+                .map(r -> Tuple2.apply(Sort.of(r._1()), Sort.of(r._2())))
+                .filter(r -> sorts.contains(r._1()) && sorts.contains(r._2()))
+                .collect(Collections.toSet()));
     }
 
     public Set<Sort> allSorts() {
         return sorts;
     }
 
-    public boolean isSubsorted(Sort bigSort, Sort smallSort) {
-        Boolean isSubsorted = subsort.get(bigSort, smallSort);
-        if (isSubsorted == null) {
-            if (subsort.containsRow(bigSort)) {
-                throw KEMException.criticalError("Sort " + smallSort.toString() + " is undefined.");
-            } else {
-                throw KEMException.criticalError("Sort " + bigSort.toString() + " is undefined.");
-            }
+    private void checkDefined(Sort sort) {
+        if (!sorts.contains(sort)) {
+            throw KEMException.criticalError("Sort " + sort.toString() + " is undefined.");
         }
-        return isSubsorted;
+    }
+
+    public boolean isSubsorted(Sort bigSort, Sort smallSort) {
+        checkDefined(bigSort);
+        checkDefined(smallSort);
+        return subsorts.lessThan(smallSort, bigSort);
     }
 
     public boolean isSubsortedEq(Sort bigSort, Sort smallSort) {
@@ -107,10 +102,6 @@ public class Subsorts implements Serializable {
                 !(lowerBounds.size() == 1 && lowerBounds.iterator().next().equals(Sort.BOTTOM));
     }
 
-    private boolean inRelation(Sort sort1, Sort sort2, boolean direction) {
-        return direction ? isSubsorted(sort2, sort1) : isSubsorted(sort1, sort2);
-    }
-
     private Set<Sort> getBounds(Set<Sort> subset, boolean direction) {
         if (subset == null || subset.size() == 0) {
             return java.util.Collections.emptySet();
@@ -118,22 +109,8 @@ public class Subsorts implements Serializable {
         if (subset.size() == 1) {
             return java.util.Collections.singleton(subset.iterator().next());
         }
-
-        Set<Sort> bounds = new HashSet<>();
-        for (Sort candidate : sorts) {
-            boolean isBound = true;
-            for (Sort sort : subset) {
-                if (!(inRelation(candidate, sort, direction) || candidate.equals(sort))) {
-                    isBound = false;
-                    break;
-                }
-            }
-            if (isBound) {
-                bounds.add(candidate);
-            }
-        }
-
-        return bounds;
+        subset.forEach(this::checkDefined);
+        return direction ? subsorts.lowerBounds(subset) : subsorts.upperBounds(subset);
     }
 
     public Sort getTopSort(Set<Sort> subset, boolean direction) {
@@ -143,35 +120,8 @@ public class Subsorts implements Serializable {
         if (subset.size() == 1) {
             return subset.iterator().next();
         }
-
-        Set<Sort> bounds = getBounds(subset, direction);
-        if (bounds.size() == 0) {
-            return null;
-        }
-
-        Sort candidate = null;
-        for (Sort bound : bounds) {
-            if (candidate == null) {
-                candidate = bound;
-            } else {
-                if (inRelation(candidate, bound, direction)) {
-                    candidate = bound;
-                } else if (!inRelation(bound, candidate, direction)) {
-                    /* no relation between bound and candidate; none of them is the top element */
-                    candidate = null;
-                }
-            }
-        }
-        /* if there is a top element, it must be candidate */
-        if (candidate != null) {
-            for (Sort bound : bounds) {
-                if (bound != candidate && !inRelation(bound, candidate, direction)) {
-                    candidate = null;
-                    break;
-                }
-            }
-        }
-        return candidate;
+        subset.forEach(this::checkDefined);
+        return (direction ? subsorts.greatestLowerBoundOf(subset) : subsorts.leastUpperBoundOf(subset)).orElse(null);
     }
 
 }
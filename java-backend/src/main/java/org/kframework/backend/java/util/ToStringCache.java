@@ -2,16 +2,21 @@
 package org.kframework.backend.java.util;
 
 import org.kframework.backend.java.kil.KItem;
-
-import java.util.HashMap;
-import java.util.Map;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
 
 /**
+ * Weighed by the length of the cached strings.
+ *
  * @author Denis Bogdanas
  * Created on 31-Jan-19.
  */
 public class ToStringCache {
-    private Map<KItem, String> toStringCache = new HashMap<>();
+    private final BoundedCache<KItem, String> toStringCache;
+
+    public ToStringCache(JavaExecutionOptions options, Profiler2 profiler) {
+        toStringCache = new BoundedCache<>("toString cache", options, (kItem, str) -> str.length());
+        profiler.registerCache(toStringCache);
+    }
 
     public String get(KItem kItem) {
         return toStringCache.get(kItem);
@@ -25,7 +30,7 @@ public class ToStringCache {
         toStringCache.clear();
     }
 
-    public int size() {
+    public long size() {
         return toStringCache.size();
     }
 }
@@ -0,0 +1,213 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.kframework.utils.OS;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * A pool of long-lived {@code z3 -in -smt2} processes sharing the same prelude and soft timeout.
+ * <p>
+ * The prelude is sent once, when a process is started. Each query is then sent as a block of commands
+ * (normally wrapped in {@code (push)}/{@code (pop)} by the caller) followed by {@code (echo SENTINEL)},
+ * and the output is read up to the sentinel line. Up to {@code size} processes run queries concurrently.
+ * A process that dies, or that exceeds its soft timeout by a wide margin and is killed by the watchdog,
+ * is discarded and replaced by a fresh one on demand.
+ * <p>
+ * Pools are shared by all the {@link Z3Wrapper}s of this JVM, e.g. by the requests of a kserver, and take the
+ * number of processes and the {@link FileUtil} of their last user. Processes above a reduced size are stopped
+ * as they become idle.
+ */
+public class Z3ProcessPool {
+
+    private static final String SENTINEL = "k-z3-query-done";
+
+    private static final long HARD_TIMEOUT_GRACE_MILLIS = 1000;
+
+    private static final Map<List<Object>, Z3ProcessPool> pools = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "z3-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String prelude;
+    private final int timeout;
+    private Supplier<ProcessBuilder> processBuilder;
+    private int size;
+    private final BlockingQueue<Z3Process> idle = new LinkedBlockingQueue<>();
+    private int started = 0;
+
+    /**
+     * @return the pool for the given prelude and soft timeout, creating it on first use, with up to {@code size}
+     * processes started by {@code files}.
+     */
+    public static Z3ProcessPool of(FileUtil files, String prelude, int timeout, int size) {
+        Z3ProcessPool pool = pools.computeIfAbsent(Arrays.asList(prelude, timeout),
+                key -> new Z3ProcessPool(prelude, timeout));
+        pool.configure(() -> files.getProcessBuilder().command(
+                OS.current().getNativeExecutable("z3"),
+                "-in",
+                "-smt2",
+                "-t:" + timeout), size);
+        return pool;
+    }
+
+    Z3ProcessPool(String prelude, int timeout) {
+        this.prelude = prelude;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Sets how new processes of this pool are started, and how many may run at once.
+     */
+    synchronized void configure(Supplier<ProcessBuilder> processBuilder, int size) {
+        this.processBuilder = processBuilder;
+        this.size = Math.max(1, size);
+        Z3Process z3;
+        while (started > this.size && (z3 = idle.poll()) != null) {
+            z3.destroy();
+            started--;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Runs {@code commands} on an idle process of the pool, starting one if needed.
+     *
+     * @return the lines printed by Z3 for these commands, or null if the process died. A query killed by the
+     * watchdog is reported as {@code unknown}, like a query that reached the soft timeout.
+     */
+    public List<String> run(CharSequence commands) throws IOException {
+        Z3Process z3 = acquire();
+        AtomicBoolean killed = new AtomicBoolean(false);
+        ScheduledFuture<?> kill = watchdog.schedule(() -> {
+            killed.set(true);
+            z3.destroy();
+        }, timeout + Math.max(timeout, HARD_TIMEOUT_GRACE_MILLIS), TimeUnit.MILLISECONDS);
+        List<String> output = null;
+        try {
+            output = z3.run(commands);
+        } finally {
+            kill.cancel(false);
+            release(z3, output != null && !killed.get());
+        }
+        if (killed.get()) {
+            return Collections.singletonList("unknown");
+        }
+        return output;
+    }
+
+    private Z3Process acquire() throws IOException {
+        try {
+            while (true) {
+                Z3Process z3 = idle.poll();
+                if (z3 != null) {
+                    return z3;
+                }
+                Supplier<ProcessBuilder> startProcess = null;
+                synchronized (this) {
+                    if (started < size) {
+                        started++;
+                        startProcess = processBuilder;
+                    }
+                }
+                if (startProcess != null) {
+                    try {
+                        return new Z3Process(startProcess.get(), prelude);
+                    } catch (IOException e) {
+                        synchronized (this) {
+                            started--;
+                        }
+                        throw e;
+                    }
+                }
+                z3 = idle.poll(100, TimeUnit.MILLISECONDS);
+                if (z3 != null) {
+                    return z3;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a Z3 process", e);
+        }
+    }
+
+    private void release(Z3Process z3, boolean healthy) {
+        synchronized (this) {
+            if (healthy && z3.isAlive() && started <= size) {
+                idle.offer(z3);
+                return;
+            }
+            started--;
+        }
+        z3.destroy();
+    }
+
+    private static class Z3Process {
+        private final Process process;
+        private final PrintWriter input;
+        private final BufferedReader output;
+
+        Z3Process(ProcessBuilder pb, String prelude) throws IOException {
+            pb.redirectInput(ProcessBuilder.Redirect.PIPE);
+            pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
+            process = pb.start();
+            input = new PrintWriter(process.getOutputStream());
+            output = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            List<String> preludeOutput = run(prelude);
+            if (preludeOutput == null) {
+                destroy();
+                throw new IOException("Z3 exited while loading the SMT prelude");
+            }
+            for (String line : preludeOutput) {
+                System.err.println("\nZ3 error in prelude: " + line);
+            }
+        }
+
+        List<String> run(CharSequence commands) throws IOException {
+            input.append(commands);
+            input.format("\n(echo \"%s\")\n", SENTINEL);
+            input.flush();
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.equals(SENTINEL)) {
+                    return lines;
+                }
+                lines.add(line);
+            }
+            return null;
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        void destroy() {
+            process.destroyForcibly();
+        }
+    }
+}
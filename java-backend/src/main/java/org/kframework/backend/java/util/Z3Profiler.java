@@ -1,8 +1,9 @@
 // Copyright (c) 2015-2019 K Team. All Rights Reserved.
 package org.kframework.backend.java.util;
 
-import java.util.HashMap;
+import java.io.PrintStream;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Denis Bogdanas
@@ -15,25 +16,30 @@ public class Z3Profiler {
     private int queryBuildFailureCount;
     private int totalTimeouts;
     private int nonTimeouts;
-    private boolean lastRunTimeout;
-    private Map<String, Integer> queryResultCounts = new HashMap<>();
+    private int diskCacheHits;
+    private int diskCacheMisses;
+    private Map<String, Integer> queryResultCounts = new ConcurrentHashMap<>();
 
     Z3Profiler(String name) {
-        sw = new CounterStopwatch(name);
+        sw = new CounterStopwatch(name, true);
     }
 
     public void startRun() {
         sw.start();
     }
 
-    public void endRun(int timeout) {
+    /**
+     * @return whether the run most likely ended in a timeout.
+     */
+    public boolean endRun(int timeout) {
         long durationNano = sw.stopAndGetDuration();
-        lastRunTimeout = (durationNano / 1000000.d) >= timeout;
-        if (lastRunTimeout) {
+        boolean timedOut = (durationNano / 1000000.d) >= timeout;
+        if (timedOut) {
             totalTimeouts++;
         } else {
             nonTimeouts++;
         }
+        return timedOut;
     }
 
     public void queryResult(String result) {
@@ -53,43 +59,105 @@ public class Z3Profiler {
         queryBuildFailureCount++;
     }
 
-    public void startQuery() {
-        queryCount++;
+    /**
+     * A query answered from the persistent SMT result cache, see {@link SMTResultCache}.
+     */
+    public void diskCacheHit() {
+        diskCacheHits++;
     }
 
-    public boolean isLastRunTimeout() {
-        return lastRunTimeout;
+    public void diskCacheMiss() {
+        diskCacheMisses++;
+    }
+
+    public int getDiskCacheHits() {
+        return diskCacheHits;
+    }
+
+    public int getDiskCacheMisses() {
+        return diskCacheMisses;
+    }
+
+    public void startQuery() {
+        queryCount++;
     }
 
     public int getQueryCount() {
         return queryCount;
     }
 
+    /**
+     * Adds the counters of the same Z3 profiler of a {@link Profiler2#fork() forked} profiler to this one.
+     */
+    void add(Z3Profiler other) {
+        sw.add(other.sw);
+        requestCount += other.requestCount;
+        queryCount += other.queryCount;
+        queryBuildFailureCount += other.queryBuildFailureCount;
+        totalTimeouts += other.totalTimeouts;
+        nonTimeouts += other.nonTimeouts;
+        diskCacheHits += other.diskCacheHits;
+        diskCacheMisses += other.diskCacheMisses;
+        other.queryResultCounts.forEach((result, count) -> queryResultCounts.merge(result, count, Integer::sum));
+    }
+
+    /**
+     * Adds the counters of this profiler to the given metrics, labelled with the given formula context kind.
+     */
+    public void collectMetrics(Metrics metrics, String kind) {
+        metrics.counter("k_z3_requests_total", "SMT requests, including the ones answered from a cache",
+                requestCount, "kind", kind);
+        metrics.counter("k_z3_queries_total", "Queries executed by Z3", queryCount, "kind", kind);
+        for (Map.Entry<String, Integer> entry : queryResultCounts.entrySet()) {
+            metrics.counter("k_z3_query_results_total", "Results of the queries executed by Z3", entry.getValue(),
+                    "kind", kind, "result", entry.getKey());
+        }
+        metrics.counter("k_z3_cached_queries_total", "SMT requests answered from the in-memory caches",
+                requestCount - queryCount - queryBuildFailureCount - diskCacheHits, "kind", kind);
+        metrics.counter("k_z3_disk_cache_hits_total", "SMT requests answered from the persistent result cache",
+                diskCacheHits, "kind", kind);
+        metrics.counter("k_z3_disk_cache_misses_total", "SMT requests missing from the persistent result cache",
+                diskCacheMisses, "kind", kind);
+        metrics.counter("k_z3_query_build_failures_total", "SMT requests which could not be translated to a query",
+                queryBuildFailureCount, "kind", kind);
+        metrics.counter("k_z3_timeouts_total", "Queries which timed out", queryCount - nonTimeouts, "kind", kind);
+        metrics.counter("k_z3_recovered_timeouts_total", "Z3 runs which timed out but were retried successfully",
+                totalTimeouts - (queryCount - nonTimeouts), "kind", kind);
+        metrics.histogram("k_z3_query_seconds", "Duration of the Z3 runs", sw.getHistogram(), "kind", kind);
+    }
+
     public void print() {
-        int cachedQueries = requestCount - queryCount - queryBuildFailureCount;
+        print(System.err);
+    }
+
+    public void print(PrintStream out) {
+        int cachedQueries = requestCount - queryCount - queryBuildFailureCount - diskCacheHits;
         int unrecoveredTimeouts = queryCount - nonTimeouts;
         int recoveredTimeouts = totalTimeouts - unrecoveredTimeouts;
-        System.err.format("  %-28s time:  %s\n", sw.getName(), sw);
+        out.format("  %-28s time:  %s\n", sw.getName(), sw);
         if (queryCount != 0) {
-            System.err.format("    executed queries:     %d\n", queryCount);
+            out.format("    executed queries:     %d\n", queryCount);
             for (String result : Z3Wrapper.Z3_QUERY_RESULTS) {
                 if (queryResultCounts.get(result) != null) {
-                    System.err.format("      %-14s:       %d\n", "unsat".equals(result) ? "unsat (proved)" : result,
+                    out.format("      %-14s:       %d\n", "unsat".equals(result) ? "unsat (proved)" : result,
                             queryResultCounts.get(result));
                 }
             }
         }
         if (cachedQueries > 0) {
-            System.err.format("    cached queries:       %d\n", cachedQueries);
+            out.format("    cached queries:       %d\n", cachedQueries);
+        }
+        if (diskCacheHits > 0) {
+            out.format("    disk cache hits:      %d\n", diskCacheHits);
         }
         if (queryBuildFailureCount > 0) {
-            System.err.format("    query build failures: %d\n", queryBuildFailureCount);
+            out.format("    query build failures: %d\n", queryBuildFailureCount);
         }
         if (unrecoveredTimeouts != 0) {
-            System.err.format("    timeouts:             %d\n", unrecoveredTimeouts);
+            out.format("    timeouts:             %d\n", unrecoveredTimeouts);
         }
         if (recoveredTimeouts != 0) {
-            System.err.format("    recovered timeouts:   %d\n", recoveredTimeouts);
+            out.format("    recovered timeouts:   %d\n", recoveredTimeouts);
         }
     }
 }
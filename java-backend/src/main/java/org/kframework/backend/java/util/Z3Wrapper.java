@@ -6,7 +6,6 @@ import com.google.common.collect.ImmutableSet;
 import org.kframework.backend.java.symbolic.JavaExecutionOptions;
 import org.kframework.backend.java.z3.*;
 import org.kframework.builtin.Sorts;
-import org.kframework.utils.OS;
 import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
@@ -14,10 +13,8 @@ import org.kframework.utils.options.SMTOptions;
 
 import static org.kframework.kore.KORE.KToken;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -35,6 +32,7 @@ public class Z3Wrapper {
     private final KExceptionManager kem;
     private final FileUtil files;
     private final StateLog stateLog;
+    private final SMTResultCache resultCache;
 
     public Z3Wrapper(
             SMTOptions options,
@@ -53,26 +51,55 @@ public class Z3Wrapper {
 
         SMT_PRELUDE = options.smtPrelude == null ? defaultPrelude : files.loadFromWorkingDirectory(options.smtPrelude);
         CHECK_SAT = options.z3Tactic == null ? "(check-sat)" : "(check-sat-using " + options.z3Tactic + ")";
+        if (options.smtCacheFile != null) {
+            resultCache = SMTResultCache.of(files.resolveWorkingDirectory(options.smtCacheFile));
+        } else if (options.smtCache) {
+            resultCache = SMTResultCache.of(files.resolveKompiled("smt-cache.log"));
+        } else {
+            resultCache = null;
+        }
     }
 
-    public synchronized boolean isUnsat(CharSequence query, int timeout, Z3Profiler timer) {
+    /**
+     * Not synchronized: queries run concurrently on the processes of a {@link Z3ProcessPool}.
+     */
+    public boolean isUnsat(CharSequence query, int timeout, Z3Profiler timer) {
         stateLog.log(StateLog.LogEvent.Z3QUERY, KToken(SMT_PRELUDE + "\n" + query + "\n" + CHECK_SAT + "\n", Sorts.Z3Query()));
+        String cacheKey = null;
+        if (resultCache != null) {
+            cacheKey = SMTResultCache.key(SMT_PRELUDE, CHECK_SAT, timeout, query);
+            Boolean cached = resultCache.get(cacheKey);
+            if (cached != null) {
+                timer.diskCacheHit();
+                stateLog.log(StateLog.LogEvent.Z3RESULT, KToken(cached ? "unsat" : "sat", Sorts.Z3Result()));
+                return cached;
+            }
+            timer.diskCacheMiss();
+        }
+        String result;
         if (options.z3JNI) {
-            return checkQueryWithLibrary(query, timeout);
+            result = checkQueryWithLibrary(query, timeout);
         } else {
-            return checkQueryWithExternalProcess(query, timeout, timer);
+            result = checkQueryWithExternalProcess(query, timeout, timer);
+        }
+        if (resultCache != null) {
+            resultCache.put(cacheKey, result);
         }
+        return "unsat".equals(result);
     }
 
-    private boolean checkQueryWithLibrary(CharSequence query, int timeout) {
-        boolean result = false;
+    /**
+     * @return the query result: sat, unsat or unknown.
+     */
+    private synchronized String checkQueryWithLibrary(CharSequence query, int timeout) {
+        String result = "unknown";
         try (Z3Context context = new Z3Context()) {
             Z3Solver solver = new Z3Solver(context);
             Z3Params params = new Z3Params(context);
             params.add("timeout", timeout);
             solver.setParams(params);
             solver._assert(context.parseSmtlib2(SMT_PRELUDE + query));
-            result = solver.check() == Z3Status.UNSAT;
+            result = solver.check().name().toLowerCase();
         } catch (Z3Exception e) {
             kem.registerCriticalWarning(
                     "failed to translate smtlib expression:\n" + SMT_PRELUDE + query, e);
@@ -84,38 +111,40 @@ public class Z3Wrapper {
     }
 
     /**
-     * @return true if query result is unsat, false otherwise.
+     * Runs the query on a process of the {@link Z3ProcessPool} for this prelude and timeout, inside a
+     * {@code (push)}/{@code (pop)} scope so that the process can be reused for the next query.
+     *
+     * @return the query result: sat, unsat or unknown.
      */
-    private boolean checkQueryWithExternalProcess(CharSequence query, int timeout, Z3Profiler profiler) {
+    private String checkQueryWithExternalProcess(CharSequence query, int timeout, Z3Profiler profiler) {
         String result = "";
+        boolean timedOut = false;
         profiler.startQuery();
+        Z3ProcessPool pool = Z3ProcessPool.of(files, SMT_PRELUDE, timeout, options.z3Processes);
         try {
             for (int i = 0; i < Z3_RESTART_LIMIT; i++) {
-                ProcessBuilder pb = files.getProcessBuilder().command(
-                        OS.current().getNativeExecutable("z3"),
-                        "-in",
-                        "-smt2",
-                        "-t:" + timeout);
-                pb.redirectInput(ProcessBuilder.Redirect.PIPE);
-                pb.redirectOutput(ProcessBuilder.Redirect.PIPE);
                 profiler.startRun();
-                Process z3Process = pb.start();
-                PrintWriter input = new PrintWriter(z3Process.getOutputStream());
-                BufferedReader output = new BufferedReader(new InputStreamReader(z3Process.getInputStream()));
-                input.format("%s%s%s\n", SMT_PRELUDE, query, CHECK_SAT);
-                input.close();
+                List<String> output;
+                try {
+                    output = pool.run("(push)\n" + query + "\n" + CHECK_SAT + "\n(pop)");
+                } finally {
+                    timedOut = profiler.endRun(timeout);
+                }
                 result = null;
-                String line = output.readLine();
-                while (line != null && line.startsWith("(error")) {
-                    System.err.println("\nZ3 error: " + line);
-                    result = line;
-                    line = output.readLine();
+                if (output == null) {
+                    // the process died; retry on a fresh one
+                    continue;
                 }
-                if (line != null) {
-                    result = line;
+                for (String line : output) {
+                    if (line.startsWith("(error")) {
+                        System.err.println("\nZ3 error: " + line);
+                        if (result == null) {
+                            result = line;
+                        }
+                    } else if (Z3_QUERY_RESULTS.contains(line)) {
+                        result = line;
+                    }
                 }
-                z3Process.destroy();
-                profiler.endRun(timeout);
                 if (result != null) {
                     break;
                 }
@@ -123,7 +152,7 @@ public class Z3Wrapper {
         } catch (IOException e) {
             e.printStackTrace();
         } finally {
-            if (javaExecutionOptions.debugZ3 && profiler.isLastRunTimeout()) {
+            if (javaExecutionOptions.debugZ3 && timedOut) {
                 System.err.println("\nZ3 likely timeout");
             }
         }
@@ -135,7 +164,7 @@ public class Z3Wrapper {
             System.err.println("\nZ3 query result: " + result);
         }
         profiler.queryResult(result);
-        return "unsat".equals(result);
+        return result;
     }
 }
 
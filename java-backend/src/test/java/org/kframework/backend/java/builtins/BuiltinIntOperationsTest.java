@@ -0,0 +1,54 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.builtins;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.kframework.backend.java.kil.TermContext;
+import org.mockito.Mock;
+
+import java.math.BigInteger;
+
+public class BuiltinIntOperationsTest {
+
+    @Mock
+    TermContext context;
+
+    @Test
+    public void testOverflowPromotesToBigInteger() {
+        IntToken max = IntToken.of(Long.MAX_VALUE);
+        IntToken min = IntToken.of(Long.MIN_VALUE);
+        assertEquals(IntToken.of(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)),
+                BuiltinIntOperations.add(max, IntToken.of(1), context));
+        assertEquals(IntToken.of(BigInteger.valueOf(Long.MIN_VALUE).subtract(BigInteger.ONE)),
+                BuiltinIntOperations.sub(min, IntToken.of(1), context));
+        assertEquals(IntToken.of(BigInteger.valueOf(Long.MAX_VALUE).multiply(BigInteger.valueOf(2))),
+                BuiltinIntOperations.mul(max, IntToken.of(2), context));
+        assertEquals(IntToken.of(BigInteger.valueOf(Long.MIN_VALUE).negate()),
+                BuiltinIntOperations.div(min, IntToken.of(-1), context));
+        assertEquals(IntToken.of(BigInteger.valueOf(Long.MIN_VALUE).negate()),
+                BuiltinIntOperations.abs(min, context));
+    }
+
+    @Test
+    public void testRepresentationIsCanonical() {
+        IntToken big = IntToken.of(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE));
+        IntToken small = BuiltinIntOperations.sub(big, IntToken.of(1), context);
+        assertTrue(small.fitsInLong());
+        assertEquals(IntToken.of(Long.MAX_VALUE), small);
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE).hashCode(), small.hashCode());
+        assertEquals(BigInteger.valueOf(Long.MIN_VALUE).hashCode(), IntToken.of(Long.MIN_VALUE).hashCode());
+        assertEquals(BigInteger.valueOf(-5).hashCode(), IntToken.of(-5).hashCode());
+    }
+
+    @Test
+    public void testDivisionAndModulo() {
+        assertNull(BuiltinIntOperations.div(IntToken.of(1), IntToken.of(0), context));
+        assertNull(BuiltinIntOperations.rem(IntToken.of(1), IntToken.of(0), context));
+        assertEquals(IntToken.of(-2), BuiltinIntOperations.div(IntToken.of(-7), IntToken.of(3), context));
+        assertEquals(IntToken.of(-3), BuiltinIntOperations.ediv(IntToken.of(-7), IntToken.of(3), context));
+        assertEquals(IntToken.of(-1), BuiltinIntOperations.rem(IntToken.of(-7), IntToken.of(3), context));
+        assertEquals(IntToken.of(2), BuiltinIntOperations.mod(IntToken.of(-7), IntToken.of(3), context));
+        assertEquals(IntToken.of(-1), BuiltinIntOperations.shr(IntToken.of(-7), IntToken.of(100), context));
+    }
+}
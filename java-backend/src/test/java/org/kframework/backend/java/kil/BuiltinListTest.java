@@ -7,12 +7,17 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.kframework.attributes.Att;
 import org.kframework.backend.java.builtins.BuiltinListOperations;
 import org.kframework.backend.java.builtins.IntToken;
 import org.kframework.backend.java.util.Subsorts;
+import org.kframework.builtin.KLabels;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.Collections;
+
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -24,9 +29,21 @@ public class BuiltinListTest {
     Definition definition;
     @Mock
     Subsorts subsorts;
+    @Mock
+    TermContext termContext;
 
     @Before
     public void setUp() {
+        when(termContext.global()).thenReturn(globalContext);
+        when(globalContext.getDefinition()).thenReturn(definition);
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.emptySet());
+        when(definition.kLabelAttributesOf(KLabels.List)).thenReturn(Att.empty());
+        when(definition.kLabelAttributesOf(KLabels.DotList)).thenReturn(Att.empty());
+    }
+
+    private BuiltinList list(Term... children) {
+        return (BuiltinList) BuiltinList.builder(globalContext).addAll(children).build();
     }
 
     @Test
@@ -50,4 +67,87 @@ public class BuiltinListTest {
 
         Assert.assertEquals(builtinList.children, ImmutableList.of(new Variable("L", Sort.LIST), IntToken.of(9), IntToken.of(9)));
     }
+
+    @Test
+    public void testGet() throws Exception {
+        Variable l = new Variable("L", Sort.LIST);
+        BuiltinList builtinList = list(IntToken.of(0), IntToken.of(1), l, IntToken.of(9));
+
+        Assert.assertEquals(IntToken.of(1), BuiltinListOperations.get(builtinList, IntToken.of(1), termContext));
+        Assert.assertEquals(l, BuiltinListOperations.get(builtinList, IntToken.of(2), termContext));
+        Assert.assertNull(BuiltinListOperations.get(builtinList, IntToken.of(3), termContext));
+        Assert.assertEquals(IntToken.of(9), BuiltinListOperations.get(builtinList, IntToken.of(-1), termContext));
+        Assert.assertEquals(l, BuiltinListOperations.get(builtinList, IntToken.of(-2), termContext));
+        Assert.assertNull(BuiltinListOperations.get(builtinList, IntToken.of(-3), termContext));
+
+        BuiltinList concreteList = list(IntToken.of(0), IntToken.of(1), IntToken.of(2));
+        Assert.assertEquals(IntToken.of(2), BuiltinListOperations.get(concreteList, IntToken.of(2), termContext));
+        Assert.assertEquals(IntToken.of(0), BuiltinListOperations.get(concreteList, IntToken.of(-3), termContext));
+        Assert.assertEquals(Bottom.BOTTOM, BuiltinListOperations.get(concreteList, IntToken.of(3), termContext));
+        Assert.assertEquals(Bottom.BOTTOM, BuiltinListOperations.get(concreteList, IntToken.of(-4), termContext));
+    }
+
+    @Test
+    public void testWith() throws Exception {
+        BuiltinList builtinList = list(IntToken.of(0), IntToken.of(1), IntToken.of(2));
+        Assert.assertTrue(builtinList.isConcreteCollection());
+
+        BuiltinList updatedList = (BuiltinList) builtinList.with(1, IntToken.of(5));
+        Assert.assertEquals(ImmutableList.of(IntToken.of(0), IntToken.of(5), IntToken.of(2)), updatedList.children);
+        Assert.assertTrue(updatedList.isConcreteCollection());
+        Assert.assertEquals(ImmutableList.of(IntToken.of(0), IntToken.of(1), IntToken.of(2)), builtinList.children);
+
+        Variable l = new Variable("L", Sort.LIST);
+        BuiltinList symbolicList = (BuiltinList) builtinList.with(1, l);
+        Assert.assertEquals(ImmutableList.of(IntToken.of(0), l, IntToken.of(2)), symbolicList.children);
+        Assert.assertFalse(symbolicList.isConcreteCollection());
+        Assert.assertNull(BuiltinListOperations.get(symbolicList, IntToken.of(2), termContext));
+
+        /* a list of the same kind is spliced in */
+        BuiltinList splicedList = (BuiltinList) builtinList.with(1, list(IntToken.of(7), IntToken.of(8)));
+        Assert.assertEquals(
+                ImmutableList.of(IntToken.of(0), IntToken.of(7), IntToken.of(8), IntToken.of(2)),
+                splicedList.children);
+    }
+
+    @Test
+    public void testRangeSymbolic() throws Exception {
+        Variable l = new Variable("L", Sort.LIST);
+        BuiltinList builtinList = list(IntToken.of(0), l, IntToken.of(9), IntToken.of(10));
+
+        Assert.assertEquals(l, BuiltinListOperations.range(builtinList, IntToken.of(1), IntToken.of(2), termContext));
+        Assert.assertEquals(
+                ImmutableList.of(l, IntToken.of(9)),
+                ((BuiltinList) BuiltinListOperations.range(builtinList, IntToken.of(1), IntToken.of(1), termContext)).children);
+
+        BuiltinList concreteList = list(IntToken.of(0), IntToken.of(1), IntToken.of(2), IntToken.of(3));
+        BuiltinList subList = (BuiltinList) BuiltinListOperations.range(concreteList, IntToken.of(1), IntToken.of(1), termContext);
+        Assert.assertEquals(ImmutableList.of(IntToken.of(1), IntToken.of(2)), subList.children);
+        Assert.assertTrue(subList.isConcreteCollection());
+        Assert.assertEquals(Bottom.BOTTOM, BuiltinListOperations.range(concreteList, IntToken.of(3), IntToken.of(2), termContext));
+    }
+
+    @Test
+    public void testConcatenation() throws Exception {
+        Variable l = new Variable("L", Sort.LIST);
+        BuiltinList list1 = list(IntToken.of(0), IntToken.of(1));
+        BuiltinList list2 = list(l, IntToken.of(2), IntToken.of(3));
+
+        BuiltinList builtinList = (BuiltinList) BuiltinListOperations.constructor(list1, list2, termContext);
+        Assert.assertEquals(
+                ImmutableList.of(IntToken.of(0), IntToken.of(1), l, IntToken.of(2), IntToken.of(3)),
+                builtinList.children);
+        Assert.assertFalse(builtinList.isConcreteCollection());
+        Assert.assertEquals(IntToken.of(1), BuiltinListOperations.get(builtinList, IntToken.of(1), termContext));
+        Assert.assertEquals(IntToken.of(2), BuiltinListOperations.get(builtinList, IntToken.of(-2), termContext));
+        Assert.assertNull(BuiltinListOperations.get(builtinList, IntToken.of(3), termContext));
+
+        /* the longer list is kept and the shorter one is added to it, on either side */
+        BuiltinList reversed = (BuiltinList) BuiltinListOperations.constructor(list2, list1, termContext);
+        Assert.assertEquals(
+                ImmutableList.of(l, IntToken.of(2), IntToken.of(3), IntToken.of(0), IntToken.of(1)),
+                reversed.children);
+        Assert.assertEquals(ImmutableList.of(IntToken.of(0), IntToken.of(1)), list1.children);
+        Assert.assertEquals(ImmutableList.of(l, IntToken.of(2), IntToken.of(3)), list2.children);
+    }
 }
@@ -10,6 +10,8 @@ import org.kframework.backend.java.builtins.IntToken;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import java.util.ArrayList;
+
 @RunWith(MockitoJUnitRunner.class)
 public class BuiltinMapTest {
 
@@ -91,4 +93,70 @@ public class BuiltinMapTest {
         Assert.assertEquals(null, resultMap);
     }
 
+
+    @Test
+    public void testPutRemoveKeepOriginal() throws Exception {
+        BuiltinMap.Builder builder = BuiltinMap.builder(termContext.global());
+        builder.put(IntToken.of(0), IntToken.of(0));
+        builder.put(IntToken.of(1), IntToken.of(0));
+        builder.put(IntToken.of(2), IntToken.of(0));
+        BuiltinMap builtinMap = (BuiltinMap) builder.build();
+
+        BuiltinMap updatedMap = (BuiltinMap) BuiltinMapOperations.update(
+                builtinMap, IntToken.of(1), IntToken.of(1), termContext);
+        BuiltinMap extendedMap = (BuiltinMap) BuiltinMapOperations.update(
+                builtinMap, IntToken.of(3), IntToken.of(1), termContext);
+        BuiltinMap removedMap = (BuiltinMap) BuiltinMapOperations.remove(
+                builtinMap, IntToken.of(2), termContext);
+
+        Assert.assertEquals(3, updatedMap.concreteSize());
+        Assert.assertEquals(IntToken.of(1), updatedMap.get(IntToken.of(1)));
+        Assert.assertEquals(4, extendedMap.concreteSize());
+        Assert.assertEquals(IntToken.of(1), extendedMap.get(IntToken.of(3)));
+        Assert.assertEquals(2, removedMap.concreteSize());
+        Assert.assertNull(removedMap.get(IntToken.of(2)));
+
+        Assert.assertEquals(3, builtinMap.concreteSize());
+        Assert.assertEquals(IntToken.of(0), builtinMap.get(IntToken.of(1)));
+        Assert.assertEquals(IntToken.of(0), builtinMap.get(IntToken.of(2)));
+        Assert.assertNull(builtinMap.get(IntToken.of(3)));
+    }
+
+    @Test
+    public void testOrderIndependentOfInsertion() throws Exception {
+        BuiltinMap.Builder ascending = BuiltinMap.builder(termContext.global());
+        for (int i = -50; i <= 50; i++) {
+            ascending.put(IntToken.of(i), IntToken.of(i));
+        }
+        BuiltinMap.Builder descending = BuiltinMap.builder(termContext.global());
+        for (int i = 50; i >= -50; i--) {
+            descending.put(IntToken.of(i), IntToken.of(i));
+        }
+        BuiltinMap map1 = (BuiltinMap) ascending.build();
+        BuiltinMap map2 = (BuiltinMap) descending.build();
+
+        Assert.assertEquals(map1, map2);
+        Assert.assertEquals(
+                new ArrayList<>(map1.getEntries().keySet()),
+                new ArrayList<>(map2.getEntries().keySet()));
+        Assert.assertEquals(
+                new ArrayList<>(map1.getEntries().values()),
+                new ArrayList<>(map2.getEntries().values()));
+    }
+
+    @Test
+    public void testChoice() throws Exception {
+        BuiltinMap.Builder builder = BuiltinMap.builder(termContext.global());
+        builder.put(IntToken.of(3), IntToken.of(0));
+        builder.put(IntToken.of(1), IntToken.of(0));
+        builder.put(IntToken.of(2), IntToken.of(0));
+        BuiltinMap builtinMap = (BuiltinMap) builder.build();
+
+        Assert.assertEquals(IntToken.of(1), BuiltinMapOperations.choice(builtinMap, termContext));
+        BuiltinMap removedMap = (BuiltinMap) BuiltinMapOperations.remove(builtinMap, IntToken.of(1), termContext);
+        Assert.assertEquals(IntToken.of(2), BuiltinMapOperations.choice(removedMap, termContext));
+
+        BuiltinMap emptyMap = (BuiltinMap) BuiltinMap.builder(termContext.global()).build();
+        Assert.assertEquals(Bottom.BOTTOM, BuiltinMapOperations.choice(emptyMap, termContext));
+    }
 }
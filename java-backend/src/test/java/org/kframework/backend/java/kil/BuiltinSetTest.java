@@ -0,0 +1,70 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+
+package org.kframework.backend.java.kil;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.kframework.backend.java.builtins.BuiltinSetOperations;
+import org.kframework.backend.java.builtins.IntToken;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BuiltinSetTest {
+
+    @Mock
+    TermContext termContext;
+
+    private BuiltinSet set(int... elements) {
+        BuiltinSet.Builder builder = BuiltinSet.builder(termContext.global());
+        for (int element : elements) {
+            builder.add(IntToken.of(element));
+        }
+        return (BuiltinSet) builder.build();
+    }
+
+    @Test
+    public void testAddRemoveKeepOriginal() throws Exception {
+        BuiltinSet builtinSet = set(0, 1, 2);
+
+        BuiltinSet extendedSet = (BuiltinSet) BuiltinSetOperations.constructor(
+                builtinSet, BuiltinSetOperations.element(IntToken.of(3), termContext), termContext);
+        BuiltinSet removedSet = (BuiltinSet) BuiltinSetOperations.difference(builtinSet, set(2), termContext);
+
+        Assert.assertEquals(4, extendedSet.concreteSize());
+        Assert.assertTrue(extendedSet.contains(IntToken.of(3)));
+        Assert.assertEquals(2, removedSet.concreteSize());
+        Assert.assertFalse(removedSet.contains(IntToken.of(2)));
+
+        Assert.assertEquals(set(0, 1, 2), builtinSet);
+    }
+
+    @Test
+    public void testOrderIndependentOfInsertion() throws Exception {
+        BuiltinSet.Builder ascending = BuiltinSet.builder(termContext.global());
+        for (int i = -50; i <= 50; i++) {
+            ascending.add(IntToken.of(i));
+        }
+        BuiltinSet.Builder descending = BuiltinSet.builder(termContext.global());
+        for (int i = 50; i >= -50; i--) {
+            descending.add(IntToken.of(i));
+        }
+        BuiltinSet set1 = (BuiltinSet) ascending.build();
+        BuiltinSet set2 = (BuiltinSet) descending.build();
+
+        Assert.assertEquals(set1, set2);
+        Assert.assertEquals(new ArrayList<>(set1.elements()), new ArrayList<>(set2.elements()));
+    }
+
+    @Test
+    public void testChoice() throws Exception {
+        Assert.assertEquals(IntToken.of(1), BuiltinSetOperations.choice(set(3, 1, 2), termContext));
+        Assert.assertEquals(IntToken.of(1), BuiltinSetOperations.choice(set(2, 3, 1), termContext));
+        Assert.assertEquals(IntToken.of(2), BuiltinSetOperations.choice(
+                (BuiltinSet) BuiltinSetOperations.difference(set(1, 2, 3), set(1), termContext), termContext));
+        Assert.assertEquals(Bottom.BOTTOM, BuiltinSetOperations.choice(set(), termContext));
+    }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.attributes.Att;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.kore.KORE;
+import org.kframework.utils.BaseTestCase;
+import org.mockito.Mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+public class FunctionRuleIndexTest extends BaseTestCase {
+
+    @Mock
+    GlobalContext globalContext;
+    @Mock
+    Definition definition;
+
+    private List<Term> patterns;
+    private List<Term> subjects;
+
+    @Before
+    public void setUp() {
+        when(definition.signaturesOf(anyString())).thenReturn(Collections.emptySet());
+        when(definition.allSorts()).thenReturn(Collections.emptySet());
+        when(definition.kLabelAttributesOf(any(org.kframework.kore.KLabel.class))).thenReturn(Att.empty());
+
+        patterns = ImmutableList.of(
+                constant("a"), constant("b"), IntToken.of(0), IntToken.of(1), new Variable("X", Sort.KITEM));
+        subjects = ImmutableList.of(
+                constant("a"), constant("b"), constant("c"), IntToken.of(0), IntToken.of(2),
+                new Variable("Y", Sort.KITEM));
+    }
+
+    private KItem kItem(String label, Term kList) {
+        return new KItem(KLabelConstant.of(KORE.KLabel(label), definition), kList, globalContext, Sort.KITEM, true);
+    }
+
+    private KItem constant(String label) {
+        return kItem(label, KList.EMPTY);
+    }
+
+    private Rule rule(Term leftHandSide) {
+        Rule rule = mock(Rule.class);
+        when(rule.leftHandSide()).thenReturn(leftHandSide);
+        return rule;
+    }
+
+    /**
+     * The head of a term as used by the index, or null if the term may match anything.
+     */
+    private static Object head(Term term) {
+        if (term instanceof KItem && ((KItem) term).kLabel() instanceof KLabelConstant
+                && ((KItem) term).kList() instanceof KList) {
+            return ((KItem) term).kLabel();
+        } else if (term instanceof Token) {
+            return term;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * The rules which are not ruled out by comparing each argument of the left-hand side with the subject argument.
+     */
+    private static List<Rule> fullScan(List<Rule> rules, KList arguments) {
+        return rules.stream().filter(rule -> {
+            KList ruleArguments = (KList) ((KItem) rule.leftHandSide()).kList();
+            for (int i = 0; i < ruleArguments.size(); i++) {
+                Object ruleHead = head(ruleArguments.get(i));
+                Object subjectHead = head(arguments.get(i));
+                if (ruleHead != null && subjectHead != null && !ruleHead.equals(subjectHead)) {
+                    return false;
+                }
+            }
+            return true;
+        }).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testCandidatesMatchFullScan() {
+        List<Rule> rules = new ArrayList<>();
+        for (Term first : patterns) {
+            for (Term second : patterns) {
+                rules.add(rule(kItem("f", KList.concatenate(first, second))));
+            }
+        }
+        FunctionRuleIndex index = new FunctionRuleIndex(rules);
+        assertEquals(rules, index.rules());
+
+        for (Term first : subjects) {
+            for (Term second : subjects) {
+                KList arguments = (KList) KList.concatenate(first, second);
+                assertEquals("f(" + first + ", " + second + ")",
+                        fullScan(rules, arguments), index.candidates(arguments));
+            }
+        }
+    }
+
+    @Test
+    public void testCandidatesKeepDefinitionOrder() {
+        Rule rule1 = rule(kItem("f", KList.concatenate(new Variable("X", Sort.KITEM), constant("a"))));
+        Rule rule2 = rule(kItem("f", KList.concatenate(constant("a"), constant("b"))));
+        Rule rule3 = rule(kItem("f", KList.concatenate(constant("b"), constant("a"))));
+        Rule rule4 = rule(kItem("f", KList.concatenate(new Variable("X", Sort.KITEM), new Variable("Y", Sort.KITEM))));
+        FunctionRuleIndex index = new FunctionRuleIndex(ImmutableList.of(rule1, rule2, rule3, rule4));
+
+        assertEquals(ImmutableList.of(rule1, rule3, rule4),
+                index.candidates((KList) KList.concatenate(constant("b"), constant("a"))));
+        assertEquals(ImmutableList.of(rule2, rule4),
+                index.candidates((KList) KList.concatenate(constant("a"), constant("b"))));
+        assertEquals(ImmutableList.of(rule4),
+                index.candidates((KList) KList.concatenate(constant("c"), constant("c"))));
+    }
+
+    @Test
+    public void testUnindexedRules() {
+        Rule rule1 = rule(kItem("f", KList.concatenate(new Variable("X", Sort.KITEM), new Variable("Y", Sort.KITEM))));
+        Rule rule2 = rule(kItem("f", KList.concatenate(new Variable("Y", Sort.KITEM), new Variable("X", Sort.KITEM))));
+        FunctionRuleIndex index = new FunctionRuleIndex(ImmutableList.of(rule1, rule2));
+
+        assertEquals(ImmutableList.of(rule1, rule2),
+                index.candidates((KList) KList.concatenate(constant("a"), IntToken.of(0))));
+    }
+}
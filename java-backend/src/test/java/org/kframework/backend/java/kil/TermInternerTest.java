@@ -0,0 +1,63 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.kil;
+
+import org.junit.Test;
+import org.kframework.backend.java.builtins.IntToken;
+import org.kframework.backend.java.builtins.StringToken;
+
+import static org.junit.Assert.*;
+
+public class TermInternerTest {
+
+    private final TermInterner interner = new TermInterner();
+
+    private static Term list(String string, long integer) {
+        // above the cached small values, so that equal tokens are distinct instances
+        return KList.concatenate(StringToken.of(string), IntToken.of(integer), IntToken.of(1L << 40));
+    }
+
+    @Test
+    public void testEqualTermsShareAnInstance() {
+        Term first = list("a", 1L << 41);
+        Term second = list("a", 1L << 41);
+        assertNotSame(first, second);
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(second));
+    }
+
+    @Test
+    public void testNestedTermsShareAnInstance() {
+        Term first = KList.concatenate(interner.intern(list("a", 1L << 41)), StringToken.of("b"));
+        Term second = KList.concatenate(interner.intern(list("a", 1L << 41)), StringToken.of("b"));
+        assertSame(interner.intern(first), interner.intern(second));
+    }
+
+    @Test
+    public void testDistinctTermsDoNotCollide() {
+        Term first = list("a", 1L << 41);
+        Term second = list("a", (1L << 41) + 1);
+        assertSame(first, interner.intern(first));
+        assertSame(second, interner.intern(second));
+        assertNotEquals(interner.intern(first), interner.intern(second));
+    }
+
+    @Test
+    public void testTermsWithEqualHashesDoNotCollide() {
+        // "Aa" and "BB" have the same hash code
+        Term first = list("Aa", 1L << 41);
+        Term second = list("BB", 1L << 41);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertSame(first, interner.intern(first));
+        assertSame(second, interner.intern(second));
+        assertSame(first, interner.intern(list("Aa", 1L << 41)));
+        assertSame(second, interner.intern(list("BB", 1L << 41)));
+    }
+
+    @Test
+    public void testTablesAreIndependent() {
+        Term first = list("a", 1L << 41);
+        Term second = list("a", 1L << 41);
+        assertSame(first, interner.intern(first));
+        assertSame(second, new TermInterner().intern(second));
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+
+import static org.junit.Assert.*;
+
+public class BoundedCacheTest {
+
+    private static final int ENTRIES = 1000;
+
+    @Test
+    public void testUnboundedByDefault() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>("test", new JavaExecutionOptions());
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        assertEquals(ENTRIES, cache.size());
+        assertEquals("42", cache.get(42));
+        assertEquals(0, cache.stats().evictionCount());
+    }
+
+    @Test
+    public void testMaxEntries() {
+        JavaExecutionOptions options = new JavaExecutionOptions();
+        options.cacheMaxEntries = 10;
+        BoundedCache<Integer, String> cache = new BoundedCache<>("test", options);
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, Integer.toString(i));
+            assertTrue(cache.size() <= 10);
+        }
+        assertEquals(ENTRIES - cache.size(), cache.stats().evictionCount());
+        // the last entry was just inserted, so it is the most recently used one
+        assertEquals(Integer.toString(ENTRIES - 1), cache.get(ENTRIES - 1));
+    }
+
+    @Test
+    public void testMaxWeight() {
+        JavaExecutionOptions options = new JavaExecutionOptions();
+        options.cacheMaxWeight = 100;
+        BoundedCache<Integer, String> cache = new BoundedCache<>("test", options, (k, v) -> v.length());
+        long weight = 0;
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        for (int i = 0; i < ENTRIES; i++) {
+            String value = cache.get(i);
+            if (value != null) {
+                weight += value.length();
+            }
+        }
+        assertTrue(weight <= 100);
+        assertTrue(cache.stats().evictionCount() > 0);
+    }
+
+    @Test
+    public void testWeightBoundWithoutWeigherFallsBackToEntries() {
+        JavaExecutionOptions options = new JavaExecutionOptions();
+        options.cacheMaxWeight = 5;
+        options.cacheMaxEntries = 20;
+        BoundedCache<Integer, String> cache = new BoundedCache<>("test", options);
+        for (int i = 0; i < ENTRIES; i++) {
+            cache.put(i, Integer.toString(i));
+        }
+        assertTrue(cache.size() <= 20);
+        assertTrue(cache.size() > 5);
+    }
+
+    @Test
+    public void testStatsAndComputeIfAbsent() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>("test", new JavaExecutionOptions());
+        assertNull(cache.get(1));
+        assertEquals("one", cache.computeIfAbsent(1, k -> "one"));
+        assertEquals("one", cache.computeIfAbsent(1, k -> "uno"));
+        assertEquals("one", cache.get(1));
+        assertEquals(1, cache.stats().missCount());
+        assertEquals(1, cache.stats().hitCount());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
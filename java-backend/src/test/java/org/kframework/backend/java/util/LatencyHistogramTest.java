@@ -0,0 +1,45 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBounds() {
+        assertEquals(21, LatencyHistogram.BOUNDS.length);
+        assertEquals(1e-5, LatencyHistogram.BOUNDS[0], 0);
+        assertEquals(2.5e-5, LatencyHistogram.BOUNDS[1], 0);
+        assertEquals(5e-3, LatencyHistogram.BOUNDS[8], 0);
+        assertEquals(1, LatencyHistogram.BOUNDS[15], 0);
+        assertEquals(50, LatencyHistogram.BOUNDS[20], 0);
+    }
+
+    @Test
+    public void testBucketBoundaries() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        // a duration equal to a bound falls in the bucket of that bound
+        histogram.record(0);
+        histogram.record(10_000);
+        histogram.record(10_001);
+        histogram.record(25_000);
+        histogram.record(1_000_000_000L);
+        histogram.record(1_000_000_001L);
+        histogram.record(50_000_000_000L);
+        histogram.record(50_000_000_001L);
+
+        long[] expected = new long[LatencyHistogram.BOUNDS.length + 1];
+        expected[0] = 2;
+        expected[1] = 2;
+        expected[15] = 1;
+        expected[16] = 1;
+        expected[20] = 1;
+        expected[21] = 1;
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("bucket " + i, expected[i], histogram.getCount(i));
+        }
+        assertEquals(102_000_045_003L, histogram.getSumNanos());
+    }
+}
@@ -0,0 +1,144 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Test;
+import org.kframework.main.StartTimeHolder;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    private static final String[] LE = {"1.0E-5", "2.5E-5", "5.0E-5", "1.0E-4", "2.5E-4", "5.0E-4", "0.001", "0.0025",
+            "0.005", "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5", "5", "10", "25", "50", "+Inf"};
+
+    private static Metrics metrics() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10_000);
+        histogram.record(2_000_000_000L);
+        Metrics metrics = new Metrics();
+        metrics.counter("k_test_total", "A counter", 1, "a", "x");
+        metrics.counter("k_test_total", "A counter", 0.5, "a", "y\"z\\");
+        metrics.counter("k_test_total", "A counter", 2, "a", "x");
+        metrics.gauge("k_size", "A gauge\non two lines", 7);
+        metrics.histogram("k_latency_seconds", "A histogram", histogram, "kind", "z3");
+        return metrics;
+    }
+
+    private static String write(Metrics metrics, Metrics.Format format) {
+        StringWriter out = new StringWriter();
+        metrics.write(out, format);
+        return out.toString();
+    }
+
+    @Test
+    public void testPrometheus() {
+        StringBuilder expected = new StringBuilder();
+        expected.append("# HELP k_test_total A counter\n")
+                .append("# TYPE k_test_total counter\n")
+                .append("k_test_total{a=\"x\"} 3\n")
+                .append("k_test_total{a=\"y\\\"z\\\\\"} 0.5\n")
+                .append("# HELP k_size A gauge\\non two lines\n")
+                .append("# TYPE k_size gauge\n")
+                .append("k_size 7\n")
+                .append("# HELP k_latency_seconds A histogram\n")
+                .append("# TYPE k_latency_seconds histogram\n");
+        for (int i = 0; i < LE.length; i++) {
+            expected.append("k_latency_seconds_bucket{kind=\"z3\",le=\"").append(LE[i]).append("\"} ")
+                    .append(i < 16 ? 1 : 2).append("\n");
+        }
+        expected.append("k_latency_seconds_sum{kind=\"z3\"} 2.00001\n")
+                .append("k_latency_seconds_count{kind=\"z3\"} 2\n");
+        assertEquals(expected.toString(), write(metrics(), Metrics.Format.PROMETHEUS));
+    }
+
+    @Test
+    public void testJson() {
+        JsonObject json = Json.createReader(new StringReader(write(metrics(), Metrics.Format.JSON))).readObject();
+        assertTrue(json.getJsonNumber("timestamp").longValue() > 0);
+        JsonArray metrics = json.getJsonArray("metrics");
+        assertEquals(3, metrics.size());
+
+        JsonObject counter = metrics.getJsonObject(0);
+        assertEquals("k_test_total", counter.getString("name"));
+        assertEquals("counter", counter.getString("type"));
+        assertEquals("A counter", counter.getString("help"));
+        JsonArray samples = counter.getJsonArray("samples");
+        assertEquals(2, samples.size());
+        assertEquals("x", samples.getJsonObject(0).getJsonObject("labels").getString("a"));
+        assertEquals(3, samples.getJsonObject(0).getJsonNumber("value").doubleValue(), 0);
+        assertEquals("y\"z\\", samples.getJsonObject(1).getJsonObject("labels").getString("a"));
+        assertEquals(0.5, samples.getJsonObject(1).getJsonNumber("value").doubleValue(), 0);
+
+        JsonObject gauge = metrics.getJsonObject(1);
+        assertEquals("gauge", gauge.getString("type"));
+        assertTrue(gauge.getJsonArray("samples").getJsonObject(0).getJsonObject("labels").isEmpty());
+        assertEquals(7, gauge.getJsonArray("samples").getJsonObject(0).getJsonNumber("value").doubleValue(), 0);
+
+        JsonObject histogram = metrics.getJsonObject(2).getJsonArray("samples").getJsonObject(0);
+        assertEquals("histogram", metrics.getJsonObject(2).getString("type"));
+        assertEquals("z3", histogram.getJsonObject("labels").getString("kind"));
+        JsonArray buckets = histogram.getJsonArray("buckets");
+        assertEquals(LE.length, buckets.size());
+        for (int i = 0; i < LE.length; i++) {
+            assertEquals(LE[i], buckets.getJsonObject(i).getString("le"));
+            assertEquals(i < 16 ? 1 : 2, buckets.getJsonObject(i).getInt("count"));
+        }
+        assertEquals(2.00001, histogram.getJsonNumber("sum").doubleValue(), 0);
+        assertEquals(2, histogram.getInt("count"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeMismatch() {
+        Metrics metrics = new Metrics();
+        metrics.counter("k_test_total", "A counter", 1);
+        metrics.gauge("k_test_total", "A counter", 1);
+    }
+
+    @Test
+    public void testProfilerForks() {
+        Profiler2 profiler = new Profiler2(new StartTimeHolder());
+        Profiler2 fork = profiler.fork();
+        profiler.countFunctionIndexLookup("f", 2, 5);
+        profiler.countFunctionIndexLookup("g", 1, 1);
+        fork.countFunctionIndexLookup("f", 1, 5);
+        profiler.countRewriteSteps += 3;
+        fork.countRewriteSteps++;
+
+        String prometheus = write(profiler.metrics(), Metrics.Format.PROMETHEUS);
+        assertTrue(prometheus, prometheus.contains("\nk_rewrite_steps_total 4\n"));
+        assertTrue(prometheus, prometheus.contains("\nk_function_index_evaluations_total{function=\"f\"} 2\n"));
+        assertTrue(prometheus, prometheus.contains("\nk_function_index_rules_total{function=\"f\",result=\"tried\"} 3\n"));
+        assertTrue(prometheus, prometheus.contains("\nk_function_index_rules_total{function=\"f\",result=\"skipped\"} 7\n"));
+        assertTrue(prometheus, prometheus.contains("\nk_function_index_evaluations_total{function=\"g\"} 1\n"));
+        assertTrue(prometheus, prometheus.contains("\nk_function_index_rules_total{function=\"g\",result=\"skipped\"} 0\n"));
+    }
+
+    @Test
+    public void testProfilerJoin() {
+        Profiler2 profiler = new Profiler2(new StartTimeHolder());
+        Profiler2 fork = profiler.fork();
+        profiler.resFuncNanoTimer.start();
+        profiler.resFuncNanoTimer.stop();
+        fork.resFuncNanoTimer.start();
+        fork.resFuncNanoTimer.stop();
+        fork.countResFuncTopUncached++;
+        fork.countRewriteSteps += 2;
+        fork.countFunctionIndexLookup("f", 1, 5);
+        profiler.join(fork);
+
+        assertEquals(2, profiler.resFuncNanoTimer.getCount());
+        assertEquals(1, profiler.countResFuncTopUncached);
+        assertEquals(2, profiler.countRewriteSteps);
+        String afterJoin = write(profiler.metrics(), Metrics.Format.PROMETHEUS);
+        assertTrue(afterJoin, afterJoin.contains("\nk_rewrite_steps_total 2\n"));
+        assertTrue(afterJoin, afterJoin.contains("\nk_function_index_rules_total{function=\"f\",result=\"skipped\"} 4\n"));
+        assertTrue(afterJoin, afterJoin.contains(
+                "\nk_stopwatch_invocations_total{stopwatch=\"resolveFunction\"} 2\n"));
+    }
+}
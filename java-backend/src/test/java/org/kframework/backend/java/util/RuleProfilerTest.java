@@ -0,0 +1,124 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.attributes.Location;
+import org.kframework.attributes.Source;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class RuleProfilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private org.kframework.backend.java.kil.Rule rewriteRule;
+    private org.kframework.backend.java.kil.Rule functionRule;
+    private RuleProfiler profiler;
+
+    private static org.kframework.backend.java.kil.Rule rule(String label, String source, int line, boolean function) {
+        org.kframework.backend.java.kil.Rule rule = mock(org.kframework.backend.java.kil.Rule.class);
+        when(rule.label()).thenReturn(label);
+        when(rule.getSource()).thenReturn(Source.apply(source));
+        when(rule.getLocation()).thenReturn(new Location(line, 5, line, 20));
+        when(rule.isFunction()).thenReturn(function);
+        return rule;
+    }
+
+    @Before
+    public void setUp() {
+        rewriteRule = rule("step", "/a.k", 3, false);
+        functionRule = rule("f,g", "/b.k", 7, true);
+        profiler = new RuleProfiler();
+
+        profiler.addAutomatonTime(1_000_000);
+        profiler.addAutomatonTime(2_000_000);
+        profiler.countAttempt(rewriteRule);
+        profiler.countAttempt(rewriteRule);
+        profiler.addConstraintTime(rewriteRule, 1_500_000);
+        profiler.addConstraintTime(rewriteRule, 500_000);
+        profiler.countSuccess(rewriteRule);
+        profiler.addRhsTime(rewriteRule, 1_000_000);
+        profiler.addSmtQuery(rewriteRule, 250_000);
+        // a query made outside of any rule
+        profiler.addSmtQuery(null, 1_000_000);
+
+        for (int i = 0; i < 3; i++) {
+            profiler.countAttempt(functionRule);
+            profiler.addMatchTime(functionRule, 1_000_000);
+        }
+        profiler.countSuccess(functionRule);
+        profiler.addRhsTime(functionRule, 500_000);
+    }
+
+    @Test
+    public void testCsv() throws Exception {
+        File file = folder.newFile("profile.csv");
+        profiler.write(file, RuleProfiler.Format.CSV);
+        // the most expensive rule first, and no matching time for the rewrite rule
+        assertEquals(Arrays.asList(
+                "source,location,label,attempts,successes,match_ms,constraint_ms,rhs_ms,smt_queries,smt_ms,total_ms",
+                "<rule automaton>,,,2,,3.000,,,,,3.000",
+                "/b.k,7:5,\"f,g\",3,1,3.000,0.000,0.500,0,0.000,3.500",
+                "/a.k,3:5,step,2,1,,2.000,1.000,1,0.250,3.000"),
+                FileUtils.readLines(file, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        File file = folder.newFile("profile.json");
+        profiler.write(file, RuleProfiler.Format.JSON);
+        JsonObject json;
+        try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            json = Json.createReader(in).readObject();
+        }
+        assertEquals(2, json.getJsonObject("automaton").getInt("matches"));
+        assertEquals(3, json.getJsonObject("automaton").getJsonNumber("match_ms").doubleValue(), 1e-9);
+
+        JsonArray rules = json.getJsonArray("rules");
+        assertEquals(2, rules.size());
+        JsonObject function = rules.getJsonObject(0);
+        assertEquals("f,g", function.getString("label"));
+        assertEquals("/b.k", function.getString("source"));
+        assertEquals("7:5", function.getString("location"));
+        assertEquals(3, function.getInt("attempts"));
+        assertEquals(1, function.getInt("successes"));
+        assertEquals(3, function.getJsonNumber("match_ms").doubleValue(), 1e-9);
+        assertEquals(3.5, function.getJsonNumber("total_ms").doubleValue(), 1e-9);
+
+        JsonObject rewrite = rules.getJsonObject(1);
+        assertEquals("step", rewrite.getString("label"));
+        assertFalse(rewrite.containsKey("match_ms"));
+        assertEquals(2, rewrite.getInt("attempts"));
+        assertEquals(2, rewrite.getJsonNumber("constraint_ms").doubleValue(), 1e-9);
+        assertEquals(1, rewrite.getInt("smt_queries"));
+        assertEquals(0.25, rewrite.getJsonNumber("smt_ms").doubleValue(), 1e-9);
+        assertEquals(3, rewrite.getJsonNumber("total_ms").doubleValue(), 1e-9);
+    }
+
+    @Test
+    public void testWriteResets() throws Exception {
+        profiler.write(folder.newFile("first.csv"), RuleProfiler.Format.CSV);
+        File file = folder.newFile("second.csv");
+        profiler.write(file, RuleProfiler.Format.CSV);
+        assertEquals(Arrays.asList(
+                "source,location,label,attempts,successes,match_ms,constraint_ms,rhs_ms,smt_queries,smt_ms,total_ms",
+                "<rule automaton>,,,0,,0.000,,,,,0.000"),
+                FileUtils.readLines(file, StandardCharsets.UTF_8));
+    }
+}
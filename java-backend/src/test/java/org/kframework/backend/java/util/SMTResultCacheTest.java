@@ -0,0 +1,80 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class SMTResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String key(String query) {
+        return SMTResultCache.key("prelude", "(check-sat)", 1000, query);
+    }
+
+    private static void append(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        SMTResultCache cache = SMTResultCache.of(new File(folder.getRoot(), "put.log"));
+        cache.put(key("a"), "unsat");
+        cache.put(key("b"), "sat");
+        cache.put(key("c"), "unknown");
+        assertEquals(Boolean.TRUE, cache.get(key("a")));
+        assertEquals(Boolean.FALSE, cache.get(key("b")));
+        assertNull(cache.get(key("c")));
+        assertNull(cache.get(key("d")));
+    }
+
+    @Test
+    public void testKeyDependsOnTimeout() {
+        assertNotEquals(SMTResultCache.key("prelude", "(check-sat)", 1000, "a"),
+                SMTResultCache.key("prelude", "(check-sat)", 2000, "a"));
+    }
+
+    @Test
+    public void testLoadsExistingFile() throws IOException {
+        File file = new File(folder.getRoot(), "existing.log");
+        append(file, key("a") + " unsat\n" + "garbage\n" + key("b") + " sat\n");
+        SMTResultCache cache = SMTResultCache.of(file);
+        assertEquals(Boolean.TRUE, cache.get(key("a")));
+        assertEquals(Boolean.FALSE, cache.get(key("b")));
+    }
+
+    @Test
+    public void testSeesRecordsAppendedByOtherProcesses() throws IOException {
+        File file = new File(folder.getRoot(), "shared.log");
+        SMTResultCache cache = SMTResultCache.of(file);
+        cache.put(key("a"), "unsat");
+        assertNull(cache.get(key("b")));
+
+        append(file, key("b") + " sat\n");
+        assertEquals(Boolean.FALSE, cache.get(key("b")));
+        assertEquals(Boolean.TRUE, cache.get(key("a")));
+    }
+
+    @Test
+    public void testIgnoresRecordStillBeingWritten() throws IOException {
+        File file = new File(folder.getRoot(), "partial.log");
+        SMTResultCache cache = SMTResultCache.of(file);
+        String record = key("a") + " unsat";
+        append(file, record.substring(0, 20));
+        assertNull(cache.get(key("a")));
+
+        append(file, record.substring(20) + "\n");
+        assertEquals(Boolean.TRUE, cache.get(key("a")));
+    }
+}
@@ -0,0 +1,115 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.backend.java.symbolic.JavaExecutionOptions;
+import org.kframework.kore.K;
+import org.kframework.unparser.KPrint;
+import org.kframework.unparser.OutputModes;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.kframework.kore.KORE.*;
+
+public class StateLogPackTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<String> read(File dir, String sessionId) throws Exception {
+        List<String> entries = new ArrayList<>();
+        StateLogPack.read(dir, sessionId, (hash, contents) -> entries.add(hash + "=" + new String(contents, StandardCharsets.UTF_8)));
+        return entries;
+    }
+
+    private String blob(File dir, String hash) throws Exception {
+        return FileUtils.readFileToString(new File(dir, "blobs/" + hash + ".json"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testWriteUnpack() throws Exception {
+        File dir = folder.getRoot();
+        String large = String.join(",", Collections.nCopies(100000, "{\"node\":\"KApply\"}"));
+        try (StateLogPack pack = new StateLogPack(dir, "session")) {
+            pack.write("a", bytes("{\"a\":1}"));
+            pack.write("b", bytes(large));
+            pack.write("a", bytes("ignored"));
+            pack.write("c", bytes(""));
+        }
+        assertEquals(Arrays.asList("a={\"a\":1}", "b=" + large, "c="), read(dir, "session"));
+
+        assertEquals(3, StateLogPack.unpack(dir));
+        assertEquals("{\"a\":1}" + System.lineSeparator(), blob(dir, "a"));
+        assertEquals(large + System.lineSeparator(), blob(dir, "b"));
+        assertEquals(System.lineSeparator(), blob(dir, "c"));
+        // existing files are kept
+        assertEquals(0, StateLogPack.unpack(dir));
+    }
+
+    @Test
+    public void testIncompleteEntries() throws Exception {
+        File dir = folder.getRoot();
+        try (StateLogPack pack = new StateLogPack(dir, "session")) {
+            pack.write("a", bytes("{\"a\":1}"));
+        }
+        // an entry whose data was not written, then a partially written entry
+        try (DataOutputStream index = new DataOutputStream(new FileOutputStream(
+                new File(dir, "session" + StateLogPack.INDEX_EXTENSION), true))) {
+            index.writeUTF("b");
+            index.writeLong(1000);
+            index.writeInt(10);
+            index.writeInt(10);
+            index.writeUTF("c");
+        }
+        assertEquals(Arrays.asList("a={\"a\":1}"), read(dir, "session"));
+    }
+
+    @Test
+    public void testStateLog() throws Exception {
+        File dir = folder.getRoot();
+        JavaExecutionOptions options = new JavaExecutionOptions();
+        options.stateLog = true;
+        options.stateLogPath = dir.getAbsolutePath();
+        options.stateLogId = "session";
+        options.stateLogEvents = Arrays.asList(StateLog.LogEvent.OPEN, StateLog.LogEvent.NODE, StateLog.LogEvent.CLOSE);
+        options.stateLogPack = true;
+        K first = KApply(KLabel("f"), KToken("1", Sort("Int")));
+        K second = KToken("2", Sort("Int"));
+
+        StateLog stateLog = new StateLog(options, null);
+        stateLog.open("ignored");
+        stateLog.log(StateLog.LogEvent.NODE, first);
+        stateLog.log(StateLog.LogEvent.NODE, second, first);
+        stateLog.close();
+        StateLogPack.unpack(dir);
+
+        List<String> events = new ArrayList<>();
+        for (String line : FileUtils.readLines(new File(dir, "session.log"), StandardCharsets.UTF_8)) {
+            events.add(line.substring(line.indexOf(' ') + 1).trim());
+        }
+        assertEquals(4, events.size());
+        assertEquals("OPEN", events.get(0));
+        assertEquals("CLOSE", events.get(3));
+        String[] nodes = events.get(2).substring("NODE ".length()).split("_");
+        assertEquals(events.get(1), "NODE " + nodes[1]);
+        assertEquals(new String(KPrint.serialize(second, OutputModes.JSON), StandardCharsets.UTF_8) + System.lineSeparator(),
+                blob(dir, nodes[0]));
+        assertEquals(new String(KPrint.serialize(first, OutputModes.JSON), StandardCharsets.UTF_8) + System.lineSeparator(),
+                blob(dir, nodes[1]));
+    }
+}
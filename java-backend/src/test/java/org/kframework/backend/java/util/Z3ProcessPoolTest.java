@@ -0,0 +1,63 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.java.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kframework.utils.OS;
+import org.kframework.utils.file.FileUtil;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class Z3ProcessPoolTest {
+
+    /**
+     * Answers {@code sat} to {@code (check-sat)}, echoes the end of each query, and loops forever on a query
+     * containing {@code hang}, without starting a child process which would keep its output open once killed.
+     */
+    private static final String FAKE_Z3 = "while read line; do case \"$line\" in "
+            + "*hang*) while :; do :; done;; "
+            + "*check-sat*) echo sat;; "
+            + "*echo*) echo \"$line\" | sed 's/(echo \"\\(.*\\)\")/\\1/';; "
+            + "esac; done";
+
+    private Z3ProcessPool pool;
+
+    @Before
+    public void setUp() {
+        assumeTrue(OS.current().isPosix);
+        pool = new Z3ProcessPool("(set-option :print-success false)", 100);
+        pool.configure(() -> new ProcessBuilder("sh", "-c", FAKE_Z3), 1);
+    }
+
+    @Test
+    public void testRun() throws IOException {
+        assertEquals(Collections.singletonList("sat"), pool.run("(push)\n(check-sat)\n(pop)"));
+        assertEquals(Arrays.asList("sat", "sat"), pool.run("(check-sat)\n(check-sat)"));
+    }
+
+    @Test
+    public void testWatchdogKillsHungQuery() throws IOException {
+        long start = System.nanoTime();
+        assertEquals(Collections.singletonList("unknown"), pool.run("hang"));
+        assertTrue(System.nanoTime() - start < 30_000_000_000L);
+        // the killed process is replaced by a fresh one
+        assertEquals(Collections.singletonList("sat"), pool.run("(check-sat)"));
+    }
+
+    @Test
+    public void testResize() {
+        FileUtil files = Mockito.mock(FileUtil.class);
+        Z3ProcessPool shared = Z3ProcessPool.of(files, "; Z3ProcessPoolTest", 100, 2);
+        assertEquals(2, shared.size());
+        assertSame(shared, Z3ProcessPool.of(files, "; Z3ProcessPoolTest", 100, 4));
+        assertEquals(4, shared.size());
+        Z3ProcessPool.of(files, "; Z3ProcessPoolTest", 100, 1);
+        assertEquals(1, shared.size());
+    }
+}
@@ -0,0 +1,6 @@
+@ECHO off
+SETLOCAL ENABLEEXTENSIONS
+IF ERRORLEVEL 1 ECHO Unable to enable extensions
+call "%~dp0\..\lib\setenv.bat"
+%JAVA% org.kframework.backend.java.util.StateLogPack %*
+::don't call endlocal because that would reset ERRORLEVEL
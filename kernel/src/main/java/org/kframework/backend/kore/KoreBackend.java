@@ -32,16 +32,21 @@ import org.kframework.definition.ModuleTransformer;
 import org.kframework.kompile.CompiledDefinition;
 import org.kframework.kompile.Kompile;
 import org.kframework.kompile.KompileOptions;
+import org.kframework.kompile.ModuleScheduler;
 import org.kframework.kore.KLabel;
+import org.kframework.utils.Stopwatch;
 import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KExceptionManager;
 import org.kframework.utils.file.FileUtil;
 
 import scala.Function1;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashSet;
@@ -77,23 +82,52 @@ public class KoreBackend implements Backend {
 
     @Override
     public void accept(CompiledDefinition def) {
-        String kore = getKompiledString(def);
         File defFile = kompileOptions.outerParsing.mainDefinitionFile(files);
         String name = defFile.getName();
         String basename = FilenameUtils.removeExtension(name);
-        files.saveToDefinitionDirectory(basename + ".kore", kore);
+        writeKompiled(def, files.resolveDefinitionDirectory(basename + ".kore"));
     }
 
     protected String getKompiledString(CompiledDefinition def) {
         return getKompiledString(def.kompiledDefinition.mainModule(), def.topCellInitializer, files, heatCoolEquations);
     }
 
+    /**
+     * Writes the KORE translation of the given definition to the given file as it is translated.
+     */
+    protected void writeKompiled(CompiledDefinition def, File output) {
+        writeKompiled(def.kompiledDefinition.mainModule(), def.topCellInitializer, files, heatCoolEquations, output);
+    }
+
     public static String getKompiledString(Module mainModule, KLabel topCellInitializer, FileUtil files, boolean heatCoolEquations) {
+        ModuleToKORE moduleToKORE = getKompiledConverter(mainModule, topCellInitializer, files);
+        String kompiledString = moduleToKORE.convert(heatCoolEquations);
+        saveKoreToKLabels(moduleToKORE, files);
+        return kompiledString;
+    }
+
+    /**
+     * Like {@link #getKompiledString(Module, KLabel, FileUtil, boolean)}, but writes the translation to the given
+     * file as it goes instead of keeping all of it in memory.
+     */
+    public static void writeKompiled(Module mainModule, KLabel topCellInitializer, FileUtil files, boolean heatCoolEquations, File output) {
+        ModuleToKORE moduleToKORE = getKompiledConverter(mainModule, topCellInitializer, files);
+        try (Writer out = new BufferedWriter(new FileWriter(output))) {
+            moduleToKORE.convert(heatCoolEquations, out);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write to file " + output.getAbsolutePath(), e);
+        }
+        saveKoreToKLabels(moduleToKORE, files);
+    }
+
+    private static ModuleToKORE getKompiledConverter(Module mainModule, KLabel topCellInitializer, FileUtil files) {
         mainModule = new GenerateSortPredicateRules(true).gen(mainModule);
         mainModule = ModuleTransformer.fromKTransformer(new AddSortInjections(mainModule)::addInjections, "Add sort injections").apply(mainModule);
         mainModule = ModuleTransformer.fromSentenceTransformer(new MinimizeTermConstruction(mainModule)::resolve, "Minimize term construction").apply(mainModule);
-        ModuleToKORE moduleToKORE = new ModuleToKORE(mainModule, files, topCellInitializer);
-        String kompiledString = moduleToKORE.convert(heatCoolEquations);
+        return new ModuleToKORE(mainModule, files, topCellInitializer);
+    }
+
+    private static void saveKoreToKLabels(ModuleToKORE moduleToKORE, FileUtil files) {
         Properties koreToKLabels = new Properties();
         koreToKLabels.putAll(moduleToKORE.getKToKoreLabelMap().inverse());
         try {
@@ -103,16 +137,16 @@ public class KoreBackend implements Backend {
         } catch (IOException e) {
             throw KEMException.criticalError("Error while saving kore to K labels map", e);
         }
-        return kompiledString;
     }
 
     @Override
     public Function<Definition, Definition> steps() {
         DefinitionTransformer resolveStrict = DefinitionTransformer.from(new ResolveStrict(kompileOptions)::resolve, "resolving strict and seqstrict attributes");
         DefinitionTransformer resolveHeatCoolAttribute = DefinitionTransformer.fromSentenceTransformer(new ResolveHeatCoolAttribute(new HashSet<>(kompileOptions.transition), heatCoolConditions)::resolve, "resolving heat and cool attributes");
-        DefinitionTransformer resolveAnonVars = DefinitionTransformer.fromSentenceTransformer(new ResolveAnonVar()::resolve, "resolving \"_\" vars");
+        // one instance per sentence, see Kompile.defaultSteps
+        DefinitionTransformer resolveAnonVars = DefinitionTransformer.fromSentenceTransformer(s -> new ResolveAnonVar().resolve(s), "resolving \"_\" vars");
         DefinitionTransformer resolveSemanticCasts =
-                DefinitionTransformer.fromSentenceTransformer(new ResolveSemanticCasts(true)::resolve, "resolving semantic casts");
+                DefinitionTransformer.fromSentenceTransformer(s -> new ResolveSemanticCasts(true).resolve(s), "resolving semantic casts");
         DefinitionTransformer resolveFun = DefinitionTransformer.from(new ResolveFun()::resolve, "resolving #fun");
         DefinitionTransformer generateSortPredicateSyntax = DefinitionTransformer.from(new GenerateSortPredicateSyntax()::gen, "adding sort predicate productions");
         DefinitionTransformer subsortKItem = DefinitionTransformer.from(Kompile::subsortKItem, "subsort all sorts to KItem");
@@ -120,23 +154,29 @@ public class KoreBackend implements Backend {
         Function1<Definition, Definition> resolveFreshConstants = d -> DefinitionTransformer.from(m -> GeneratedTopFormat.resolve(new ResolveFreshConstants(d, true).resolve(m)), "resolving !Var variables").apply(d);
         Function1<Definition, Definition> resolveIO = (d -> Kompile.resolveIOStreams(kem, d));
 
-        return def -> resolveIO
-                .andThen(resolveFun)
-                .andThen(resolveStrict)
-                .andThen(resolveAnonVars)
-                .andThen(d -> new ResolveContexts(kompileOptions).resolve(d))
-                .andThen(resolveHeatCoolAttribute)
-                .andThen(resolveSemanticCasts)
-                .andThen(expandMacros)
-                .andThen(generateSortPredicateSyntax)
-                .andThen(AddImplicitComputationCell::transformDefinition)
-                .andThen(resolveFreshConstants)
-                .andThen(new Strategy(kompileOptions.experimental.heatCoolStrategies).addStrategyCellToRulesTransformer())
-                .andThen(d -> Strategy.addStrategyRuleToMainModule(def.mainModule().name()).apply(d))
-                .andThen(ConcretizeCells::transformDefinition)
-                .andThen(subsortKItem)
-                .andThen(Kompile::addSemanticsModule)
-                .apply(def);
+        return def -> {
+            try (ModuleScheduler scheduler = new ModuleScheduler(kompileOptions, files, kem, new Stopwatch(kompileOptions.global), "kore", heatCoolConditions.toString())) {
+                Definition result = scheduler.sequential("resolving io streams", resolveIO)
+                        .andThen(scheduler.sequential("resolving #fun", resolveFun))
+                        .andThen(scheduler.parallel(resolveStrict))
+                        .andThen(scheduler.parallel(resolveAnonVars))
+                        .andThen(scheduler.sequential("resolving contexts", d -> new ResolveContexts(kompileOptions).resolve(d)))
+                        .andThen(scheduler.parallel(resolveHeatCoolAttribute))
+                        .andThen(scheduler.parallel(resolveSemanticCasts))
+                        .andThen(scheduler.sequential("expand macros", expandMacros))
+                        .andThen(scheduler.parallel(generateSortPredicateSyntax))
+                        .andThen(scheduler.sequential("adding implicit computation cell", AddImplicitComputationCell::transformDefinition))
+                        .andThen(scheduler.sequential("resolving !Var variables", resolveFreshConstants))
+                        .andThen(scheduler.sequential("adding strategy cell", new Strategy(kompileOptions.experimental.heatCoolStrategies).addStrategyCellToRulesTransformer()))
+                        .andThen(scheduler.sequential("adding strategy rule", d -> Strategy.addStrategyRuleToMainModule(def.mainModule().name()).apply(d)))
+                        .andThen(scheduler.sequential("concretizing cells", ConcretizeCells::transformDefinition))
+                        .andThen(scheduler.parallel(subsortKItem))
+                        .andThen(scheduler.sequential("adding semantics module", Kompile::addSemanticsModule))
+                        .apply(def);
+                scheduler.pruneCache();
+                return result;
+            }
+        };
     }
 
     @Override
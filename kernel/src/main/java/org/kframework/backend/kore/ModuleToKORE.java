@@ -43,6 +43,9 @@ import org.kframework.utils.file.FileUtil;
 import scala.Option;
 import scala.Tuple2;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -65,6 +68,10 @@ public class ModuleToKORE {
     private final BiMap<String, String> kToKoreLabelMap = HashBiMap.create();
     private final FileUtil files;
     private final StringBuilder sb = new StringBuilder();
+    /**
+     * If not null, the translation is written to this writer as it goes instead of being kept in {@link #sb}.
+     */
+    private Writer out;
     private final Set<String> impureFunctions = new HashSet<>();
     private final Map<String, List<Set<Integer>>> polyKLabels = new HashMap<>();
     private final KLabel topCellInitializer;
@@ -75,8 +82,22 @@ public class ModuleToKORE {
         this.topCellInitializer = topCellInitializer;
     }
     private static final boolean METAVAR = false;
+    static final int FLUSH_THRESHOLD = 1 << 16;
 
     public String convert(boolean heatCoolEq) {
+        convertDefinition(heatCoolEq);
+        return sb.toString();
+    }
+
+    /**
+     * Like {@link #convert(boolean)}, but writes the translation to the given writer as it goes, so that only the
+     * translation of the current sort, symbol or sentence is kept in memory.
+     */
+    public void convert(boolean heatCoolEq, Writer out) throws IOException {
+        writeTo(out, () -> convertDefinition(heatCoolEq));
+    }
+
+    private void convertDefinition(boolean heatCoolEq) {
         ConfigurationInfoFromModule configInfo = new ConfigurationInfoFromModule(module);
         Sort topCell = configInfo.getRootCell();
         String prelude = files.loadFromKBase("include/kore/prelude.kore");
@@ -108,6 +129,7 @@ public class ModuleToKORE {
         collectionSorts.add("LIST.List");
         collectionSorts.add("ARRAY.Array");
         for (Sort sort : iterable(module.definedSorts())) {
+            flush();
             if (sort.equals(Sorts.K()) || sort.equals(Sorts.KItem())) {
                 continue;
             }
@@ -160,6 +182,7 @@ public class ModuleToKORE {
             }
         }
         for (Production prod : iterable(module.productions())) {
+            flush();
             prod = computePolyProd(prod);
             if (prod.klabel().isEmpty()) {
                 continue;
@@ -191,6 +214,7 @@ public class ModuleToKORE {
         sb.append("\n// generated axioms\n");
         Set<Tuple2<Production, Production>> noConfusion = new HashSet<>();
         for (Production prod : iterable(module.productions())) {
+            flush();
             prod = computePolyProd(prod);
             if (prod.isSubsort()) {
                 Production finalProd = prod;
@@ -395,6 +419,7 @@ public class ModuleToKORE {
             }
         }
         for (Sort sort : iterable(module.definedSorts())) {
+            flush();
             sb.append("  axiom{} ");
             boolean hasToken = false;
             int numTerms = 0;
@@ -479,6 +504,7 @@ public class ModuleToKORE {
             sb.append("\n");
         }
         for (Production lesser : iterable(module.overloads().elements())) {
+            flush();
             for (Production greater : iterable(module.overloads().relations().get(lesser).getOrElse(() -> Collections.<Production>Set()))) {
                 sb.append("  axiom{R} \\equals{");
                 convert(greater.sort(), greater);
@@ -525,15 +551,55 @@ public class ModuleToKORE {
         }
         sb.append("\n// rules\n");
         for (Rule rule : iterable(module.rules())) {
+            flush();
             convertRule(rule, heatCoolEq, topCell, attributes, functionRules, false);
         }
         sb.append("endmodule ");
         convert(attributes, module.att());
         sb.append("\n");
-        return sb.toString();
     }
 
     public String convertSpecificationModule(Module definition, Module spec) {
+        convertSpecification(definition, spec);
+        return sb.toString();
+    }
+
+    /**
+     * Like {@link #convertSpecificationModule(Module, Module)}, but writes the translation to the given writer as it
+     * goes.
+     */
+    public void convertSpecificationModule(Module definition, Module spec, Writer out) throws IOException {
+        writeTo(out, () -> convertSpecification(definition, spec));
+    }
+
+    private void writeTo(Writer out, Runnable conversion) throws IOException {
+        this.out = out;
+        try {
+            conversion.run();
+            out.append(sb);
+            sb.setLength(0);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            this.out = null;
+        }
+    }
+
+    /**
+     * Writes what was translated so far to {@link #out}, if any. Called between sorts, symbols and sentences.
+     */
+    private void flush() {
+        if (out != null && sb.length() >= FLUSH_THRESHOLD) {
+            try {
+                out.append(sb);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            sb.setLength(0);
+        }
+    }
+
+    private void convertSpecification(Module definition, Module spec) {
         ConfigurationInfoFromModule configInfo = new ConfigurationInfoFromModule(definition);
         Sort topCell = configInfo.getRootCell();
         sb.append("[]\n");
@@ -545,6 +611,7 @@ public class ModuleToKORE {
         sb.append(" []\n");
         sb.append("\n\n// claims\n");
         for (Sentence sentence : iterable(spec.sentencesExcept(definition))) {
+            flush();
             assert sentence instanceof Rule || sentence instanceof ModuleComment
                 : "Unexpected non-rule claim " + sentence.toString();
             if (sentence instanceof Rule) {
@@ -554,7 +621,6 @@ public class ModuleToKORE {
         sb.append("endmodule ");
         convert(new HashMap<>(), spec.att());
         sb.append("\n");
-        return sb.toString();
     }
 
     private void convertRule(Rule rule, boolean heatCoolEq, Sort topCellSort, Map<String, Boolean> consideredAttributes, SetMultimap<KLabel, Rule> functionRules, boolean rulesAsClaims) {
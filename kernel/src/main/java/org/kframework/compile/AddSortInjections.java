@@ -37,8 +37,6 @@ import static org.kframework.Collections.*;
 import static org.kframework.definition.Constructors.*;
 import static org.kframework.kore.KORE.*;
 
-import static org.kframework.Collections.iterable;
-
 public class AddSortInjections {
 
     private final Module mod;
@@ -260,8 +258,9 @@ public class AddSortInjections {
 
     private Set<Sort> upperBounds(Collection<Sort> bounds) {
         Set<Sort> maxs = new HashSet<>();
-    nextsort:
-        for (Sort sort : iterable(mod.definedSorts())) { // for every declared sort
+        for (Sort sort : mod.subsorts().upperBounds(bounds)) { // for every common upper bound
+            if (!mod.definedSorts().contains(sort))
+                continue;
             // Sorts at or below KBott, or above K, are assumed to be
             // sorts from kast.k representing meta-syntax that is not a real sort.
             // This is done to prevent variables from being inferred as KBott or
@@ -270,9 +269,6 @@ public class AddSortInjections {
                 continue;
             if (mod.subsorts().greaterThan(sort, Sorts.K()))
                 continue;
-            for (Sort bound : bounds)
-                if (!mod.subsorts().lessThanEq(bound, sort))
-                    continue nextsort;
             maxs.add(sort);
         }
         return maxs;
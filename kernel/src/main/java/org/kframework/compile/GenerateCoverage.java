@@ -49,9 +49,7 @@ public class GenerateCoverage implements AutoCloseable {
         int col = r.att().get(Location.class).startColumn();
         String loc = file + ":" + line + ":" + col;
         String id = r.att().get("UNIQUE_ID");
-        allRulesFile.print(id);
-        allRulesFile.print(" ");
-        allRulesFile.println(loc);
+        allRulesFile.println(id + " " + loc);
         if (r.att().contains("macro") || r.att().contains("alias")) {
             //handled by macro expander
             return body;
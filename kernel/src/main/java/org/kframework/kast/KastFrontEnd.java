@@ -11,6 +11,7 @@ import org.kframework.compile.ExpandMacros;
 import org.kframework.kompile.CompiledDefinition;
 import org.kframework.kore.K;
 import org.kframework.main.FrontEnd;
+import org.kframework.parser.concrete2kore.ParserCache;
 import org.kframework.parser.outer.Outer;
 import org.kframework.unparser.ToKast;
 import org.kframework.utils.Stopwatch;
@@ -109,7 +110,8 @@ public class KastFrontEnd extends FrontEnd {
                 mod = mod2.get();
                 compiledMod = def.kompiledDefinition.getModule(options.module).get();
             }
-            K parsed = def.getParser(mod, sort, kem).apply(FileUtil.read(stringToParse), source);
+            ParserCache cache = new ParserCache(files.resolveKompiled("parser-cache"), kem);
+            K parsed = def.getParser(mod, sort, kem, cache).apply(FileUtil.read(stringToParse), source);
             if (options.expandMacros || options.kore) {
                 parsed = new ExpandMacros(compiledMod, files, def.kompileOptions, false).expand(parsed);
             }
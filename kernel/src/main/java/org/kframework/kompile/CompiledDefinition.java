@@ -20,6 +20,7 @@ import org.kframework.kore.Sort;
 import org.kframework.kore.VisitK;
 import org.kframework.parser.TreeNodesToKORE;
 import org.kframework.parser.concrete2kore.ParseInModule;
+import org.kframework.parser.concrete2kore.ParserCache;
 import org.kframework.parser.concrete2kore.generator.RuleGrammarGenerator;
 import org.kframework.parser.outer.Outer;
 import org.kframework.utils.errorsystem.KEMException;
@@ -30,6 +31,9 @@ import scala.Option;
 import scala.Tuple2;
 import scala.util.Either;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -37,6 +41,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static org.kframework.Collections.*;
@@ -49,7 +54,11 @@ import static org.kframework.kore.KORE.*;
 
 public class CompiledDefinition implements Serializable {
     public final KompileOptions kompileOptions;
-    private final Definition parsedDefinition;
+    private transient volatile Definition parsedDefinition;
+    /**
+     * Loads the parsed definition on first use, when this object was read by {@link CompiledDefinitionFile}.
+     */
+    transient Supplier<Definition> parsedDefinitionLoader;
     public final Definition kompiledDefinition;
     public final Sort programStartSymbol;
     public final HashMap<String, Sort> configurationVariableDefaultSorts = new HashMap<>();
@@ -95,7 +104,7 @@ public class CompiledDefinition implements Serializable {
 
     private void initializeConfigurationVariableDefaultSorts() {
         // searching for #SemanticCastTo<Sort>(Map:lookup(_, #token(<VarName>, KConfigVar)))
-        Collections.stream(parsedDefinition.mainModule().rules())
+        Collections.stream(getParsedDefinition().mainModule().rules())
                 .forEach(r -> {
                     new VisitK() {
                         @Override
@@ -132,7 +141,28 @@ public class CompiledDefinition implements Serializable {
      * The parsed but uncompiled definition
      */
     public Definition getParsedDefinition() {
-        return parsedDefinition;
+        Definition parsed = parsedDefinition;
+        if (parsed == null && parsedDefinitionLoader != null) {
+            synchronized (this) {
+                parsed = parsedDefinition;
+                if (parsed == null) {
+                    parsed = parsedDefinitionLoader.get();
+                    parsedDefinition = parsed;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        // CompiledDefinitionFile stores the parsed definition in a section of its own
+        out.writeObject(out instanceof CompiledDefinitionFile.SectionOutputStream ? null : getParsedDefinition());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        parsedDefinition = (Definition) in.readObject();
     }
 
     /**
@@ -142,7 +172,7 @@ public class CompiledDefinition implements Serializable {
         return kompiledDefinition.mainModule();
     }
 
-    public String mainSyntaxModuleName() { return parsedDefinition.att().<String>getOptional(Att.syntaxModule()).get(); }
+    public String mainSyntaxModuleName() { return getParsedDefinition().att().<String>getOptional(Att.syntaxModule()).get(); }
 
     /**
      * @return the module used for generating the program (i.e. ground) parser for the module named moduleName
@@ -150,6 +180,7 @@ public class CompiledDefinition implements Serializable {
      * {@link RuleGrammarGenerator#POSTFIX}. In latter case, it uses the user-defined module.
      */
     public Option<Module> programParsingModuleFor(String moduleName, KExceptionManager kem) {
+        Definition parsedDefinition = getParsedDefinition();
         RuleGrammarGenerator gen = new RuleGrammarGenerator(parsedDefinition);
 
         Option<Module> userProgramParsingModule = parsedDefinition.getModule(moduleName + RuleGrammarGenerator.POSTFIX);
@@ -178,7 +209,18 @@ public class CompiledDefinition implements Serializable {
      */
 
     public BiFunction<String, Source, K> getParser(Module module, Sort programStartSymbol, KExceptionManager kem) {
+        return getParser(module, programStartSymbol, kem, null);
+    }
+
+    /**
+     * Like {@link #getParser(Module, Sort, KExceptionManager)}, but loads the scanner and grammar of the parser from
+     * the given cache, if not null, instead of building them.
+     */
+    public BiFunction<String, Source, K> getParser(Module module, Sort programStartSymbol, KExceptionManager kem, ParserCache cache) {
         ParseInModule parseInModule = RuleGrammarGenerator.getCombinedGrammar(module, kompileOptions.strict());
+        if (cache != null) {
+            cache.initialize(parseInModule);
+        }
 
         return (BiFunction<String, Source, K> & Serializable) (s, source) -> {
             Tuple2<Either<Set<ParseFailedException>, K>, Set<ParseFailedException>> res = parseInModule.parseString(s, programStartSymbol, source);
@@ -0,0 +1,248 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.kompile;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import org.kframework.attributes.Att;
+import org.kframework.definition.Definition;
+import org.kframework.kore.ADT;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Reads and writes the compiled.bin file of a kompiled definition.
+ * <p>
+ * The file starts with a magic number and a format version, followed by length-prefixed sections: the
+ * {@link CompiledDefinition} without its parsed definition, and the parsed definition. Each section is a
+ * self-contained Java serialization stream in which equal strings, sorts, labels and attributes are written once
+ * and shared through back references. The file is memory-mapped when loaded, and the parsed definition is only
+ * deserialized when a tool first asks for it, so tools which only need the kompiled definition do not pay for it.
+ * Files too large to be mapped are read with a stream instead.
+ * <p>
+ * The file is written next to its destination and then moved over it, so a tool loading the definition never sees
+ * a partially written file, and a tool which mapped the previous file is not affected.
+ */
+public class CompiledDefinitionFile {
+
+    private static final byte[] MAGIC = "KCDF".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Change when the layout of the file changes.
+     */
+    private static final int VERSION = 1;
+
+    private static final String DEFINITION = "definition";
+    private static final String PARSED_DEFINITION = "parsed-definition";
+
+    private CompiledDefinitionFile() {}
+
+    public static void save(File file, CompiledDefinition def) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw KEMException.criticalError("Could not create directory " + dir);
+        }
+        File temp = null;
+        try {
+            temp = File.createTempFile(file.getName() + "-", ".tmp", dir);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.write(MAGIC);
+                out.writeInt(VERSION);
+                writeSection(out, DEFINITION, def);
+                writeSection(out, PARSED_DEFINITION, def.getParsedDefinition());
+            }
+            // a tool which mapped the previous file keeps reading the previous file
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not write to " + file, e);
+        } finally {
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given file was written by {@link #save(File, CompiledDefinition)}, as opposed to plain
+     * Java serialization.
+     */
+    public static boolean isCompiledDefinitionFile(File file) {
+        byte[] magic = new byte[MAGIC.length];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(magic);
+            return Arrays.equals(magic, MAGIC);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static CompiledDefinition load(File file) {
+        // a mapping cannot be larger than 2GB
+        return load(file, file.length() <= Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param map whether to memory-map the file. Otherwise, the sections are read with a stream and deserialized at
+     *            once, as the file may be replaced by the time the parsed definition is needed.
+     */
+    static CompiledDefinition load(File file, boolean map) {
+        Map<String, Supplier<Object>> sections = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            // the mapping stays valid after the channel is closed
+            ByteBuffer buffer = map ? channel.map(FileChannel.MapMode.READ_ONLY, 0, size) : null;
+            CountingInputStream counting = new CountingInputStream(map
+                    ? new ByteBufferInputStream(buffer.duplicate())
+                    : new BufferedInputStream(Channels.newInputStream(channel)));
+            DataInputStream in = new DataInputStream(counting);
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION) {
+                throw outOfDate(null);
+            }
+            while (counting.getCount() < size) {
+                String name = in.readUTF();
+                int length = in.readInt();
+                long offset = counting.getCount();
+                if (map) {
+                    ByteStreams.skipFully(in, length);
+                    ByteBuffer section = buffer.duplicate();
+                    section.position((int) offset);
+                    section.limit((int) offset + length);
+                    ByteBuffer slice = section.slice();
+                    sections.put(name, () -> readSection(file, new ByteBufferInputStream(slice.duplicate())));
+                } else {
+                    Object o = readSection(file, ByteStreams.limit(counting, length));
+                    sections.put(name, () -> o);
+                    ByteStreams.skipFully(in, offset + length - counting.getCount());
+                }
+            }
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not read from " + file, e);
+        }
+        if (!sections.containsKey(DEFINITION) || !sections.containsKey(PARSED_DEFINITION)) {
+            throw outOfDate(null);
+        }
+        CompiledDefinition def = (CompiledDefinition) sections.get(DEFINITION).get();
+        Supplier<Object> parsed = sections.get(PARSED_DEFINITION);
+        def.parsedDefinitionLoader = () -> (Definition) parsed.get();
+        return def;
+    }
+
+    private static void writeSection(DataOutputStream out, String name, Object o) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (SectionOutputStream serializer = new SectionOutputStream(bytes)) {
+            serializer.writeObject(o);
+        }
+        out.writeUTF(name);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Deserializes a section from the given stream, which is not closed.
+     */
+    private static Object readSection(File file, InputStream section) {
+        try {
+            return new ObjectInputStream(section).readObject();
+        } catch (ClassNotFoundException e) {
+            throw new AssertionError("Something wrong with deserialization", e);
+        } catch (ObjectStreamException e) {
+            throw outOfDate(e);
+        } catch (IOException e) {
+            throw KEMException.criticalError("Could not read from " + file, e);
+        }
+    }
+
+    private static KEMException outOfDate(Throwable e) {
+        String message = "Kompiled definition is out of date with "
+                + "the latest version of the K tool. Please re-run kompile and try again.";
+        return e == null ? KEMException.criticalError(message) : KEMException.criticalError(message, e);
+    }
+
+    /**
+     * The stream a section is serialized with. Objects of immutable classes which are equal but not identical,
+     * e.g. the same sort or label built by different passes, are replaced by the first one written, so they are
+     * written and deserialized once.
+     */
+    static class SectionOutputStream extends ObjectOutputStream {
+
+        private final Map<Object, Object> canonical = new HashMap<>();
+
+        SectionOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) {
+            if (obj instanceof String || obj instanceof ADT.Sort || obj instanceof ADT.KLabel || obj instanceof Att) {
+                return canonical.computeIfAbsent(obj, o -> o);
+            }
+            return obj;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
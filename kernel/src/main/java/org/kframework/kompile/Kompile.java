@@ -93,7 +93,7 @@ public class Kompile {
     }
 
     public CompiledDefinition run(File definitionFile, String mainModuleName, String mainProgramsModuleName) {
-        return run(definitionFile, mainModuleName, mainProgramsModuleName, defaultSteps(kompileOptions, kem, files), Collections.emptySet());
+        return run(definitionFile, mainModuleName, mainProgramsModuleName, defaultSteps(kompileOptions, kem, files, sw), Collections.emptySet());
     }
 
     /**
@@ -149,11 +149,23 @@ public class Kompile {
     }
 
     public static Function<Definition, Definition> defaultSteps(KompileOptions kompileOptions, KExceptionManager kem, FileUtil files) {
+        return defaultSteps(kompileOptions, kem, files, new Stopwatch(kompileOptions.global));
+    }
+
+    /**
+     * The default compilation pipeline. Passes which transform each module independently of the others are applied
+     * to independent modules in parallel (see {@link ModuleScheduler}), and the time taken by each pass is reported
+     * with the given stopwatch.
+     */
+    public static Function<Definition, Definition> defaultSteps(KompileOptions kompileOptions, KExceptionManager kem, FileUtil files, Stopwatch sw) {
         DefinitionTransformer resolveStrict = DefinitionTransformer.from(new ResolveStrict(kompileOptions)::resolve, "resolving strict and seqstrict attributes");
         DefinitionTransformer resolveHeatCoolAttribute = DefinitionTransformer.fromSentenceTransformer(new ResolveHeatCoolAttribute(new HashSet<>(kompileOptions.transition), EnumSet.of(HEAT_RESULT, COOL_RESULT_CONDITION, COOL_RESULT_INJECTION))::resolve, "resolving heat and cool attributes");
-        DefinitionTransformer resolveAnonVars = DefinitionTransformer.fromSentenceTransformer(new ResolveAnonVar()::resolve, "resolving \"_\" vars");
+        // these passes keep state while resolving a sentence, so each sentence gets its own instance; sharing one
+        // would serialize the modules transformed in parallel
+        DefinitionTransformer resolveAnonVars = DefinitionTransformer.fromSentenceTransformer(s -> new ResolveAnonVar().resolve(s), "resolving \"_\" vars");
+        boolean skipSortPredicates = kompileOptions.backend.equals(Backends.JAVA);
         DefinitionTransformer resolveSemanticCasts =
-                DefinitionTransformer.fromSentenceTransformer(new ResolveSemanticCasts(kompileOptions.backend.equals(Backends.JAVA))::resolve, "resolving semantic casts");
+                DefinitionTransformer.fromSentenceTransformer(s -> new ResolveSemanticCasts(skipSortPredicates).resolve(s), "resolving semantic casts");
         DefinitionTransformer resolveFun = DefinitionTransformer.from(new ResolveFun()::resolve, "resolving #fun");
         DefinitionTransformer generateSortPredicateSyntax = DefinitionTransformer.from(new GenerateSortPredicateSyntax()::gen, "adding sort predicate productions");
         DefinitionTransformer subsortKItem = DefinitionTransformer.from(Kompile::subsortKItem, "subsort all sorts to KItem");
@@ -162,24 +174,30 @@ public class Kompile {
         DefinitionTransformer numberSentences = DefinitionTransformer.fromSentenceTransformer(new NumberSentences()::number, "number sentences uniquely");
         Function1<Definition, Definition> resolveIO = (d -> Kompile.resolveIOStreams(kem, d));
 
-        return def -> resolveIO
-                .andThen(resolveFun)
-                .andThen(resolveStrict)
-                .andThen(resolveAnonVars)
-                .andThen(d -> new ResolveContexts(kompileOptions).resolve(d))
-                .andThen(numberSentences)
-                .andThen(resolveHeatCoolAttribute)
-                .andThen(resolveSemanticCasts)
-                .andThen(generateSortPredicateSyntax)
-                .andThen(Kompile::resolveFreshConstants)
-                .andThen(AddImplicitComputationCell::transformDefinition)
-                .andThen(new Strategy(kompileOptions.experimental.heatCoolStrategies).addStrategyCellToRulesTransformer())
-                .andThen(ConcretizeCells::transformDefinition)
-                .andThen(genCoverage)
-                .andThen(d -> { cov.close(); return d; })
-                .andThen(subsortKItem)
-                .andThen(Kompile::addSemanticsModule)
-                .apply(def);
+        return def -> {
+            try (ModuleScheduler scheduler = new ModuleScheduler(kompileOptions, files, kem, sw, "default", "")) {
+                Definition result = scheduler.sequential("resolving io streams", resolveIO)
+                        .andThen(scheduler.sequential("resolving #fun", resolveFun))
+                        .andThen(scheduler.parallel(resolveStrict))
+                        .andThen(scheduler.parallel(resolveAnonVars))
+                        .andThen(scheduler.sequential("resolving contexts", d -> new ResolveContexts(kompileOptions).resolve(d)))
+                        .andThen(scheduler.parallel(numberSentences))
+                        .andThen(scheduler.parallel(resolveHeatCoolAttribute))
+                        .andThen(scheduler.parallel(resolveSemanticCasts))
+                        .andThen(scheduler.parallel(generateSortPredicateSyntax))
+                        .andThen(scheduler.sequential("resolving !Var variables", Kompile::resolveFreshConstants))
+                        .andThen(scheduler.sequential("adding implicit computation cell", AddImplicitComputationCell::transformDefinition))
+                        .andThen(scheduler.sequential("adding strategy cell", new Strategy(kompileOptions.experimental.heatCoolStrategies).addStrategyCellToRulesTransformer()))
+                        .andThen(scheduler.sequential("concretizing cells", ConcretizeCells::transformDefinition))
+                        .andThen(scheduler.sequential("generate coverage instrumentation", genCoverage))
+                        .andThen(d -> { cov.close(); return d; })
+                        .andThen(scheduler.parallel(subsortKItem))
+                        .andThen(scheduler.sequential("adding semantics module", Kompile::addSemanticsModule))
+                        .apply(def);
+                scheduler.pruneCache();
+                return result;
+            }
+        };
     }
 
     public static Module subsortKItem(Module module) {
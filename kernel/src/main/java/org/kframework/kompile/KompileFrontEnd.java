@@ -69,7 +69,7 @@ public class KompileFrontEnd extends FrontEnd {
         Backend backend = koreBackend.get();
         CompiledDefinition def = kompile.run(options.outerParsing.mainDefinitionFile(files), options.mainModule(files), options.syntaxModule(files), backend.steps(), backend.excludedModuleTags());
         sw.printIntermediate("Kompile to kore");
-        loader.saveOrDie(files.resolveKompiled("compiled.bin"), def);
+        CompiledDefinitionFile.save(files.resolveKompiled("compiled.bin"), def);
         sw.printIntermediate("Save to disk");
         backend.accept(def);
         sw.printIntermediate("Backend");
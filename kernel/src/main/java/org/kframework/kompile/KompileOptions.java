@@ -70,6 +70,9 @@ public class KompileOptions implements Serializable {
     @Parameter(names="--coverage", description="Generate coverage data when executing semantics.")
     public boolean coverage;
 
+    @Parameter(names="--compile-threads", description="Number of threads used to apply compilation passes to independent modules in parallel. Default is the number of available processors.")
+    public int compileThreads = Runtime.getRuntime().availableProcessors();
+
     @ParametersDelegate
     public Experimental experimental = new Experimental();
 
@@ -106,5 +109,8 @@ public class KompileOptions implements Serializable {
 
         @Parameter(names="--cache-file", description="Location of parse cache file. Default is $KOMPILED_DIR/cache.bin.")
         public String cacheFile;
+
+        @Parameter(names="--no-pipeline-cache", description="Do not reuse the compilation of unchanged modules from the previous kompile, stored in $KOMPILED_DIR/pipeline-cache.")
+        public boolean noPipelineCache = false;
     }
 }
@@ -0,0 +1,192 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.kompile;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.kframework.attributes.Att;
+import org.kframework.definition.Definition;
+import org.kframework.definition.DefinitionTransformer;
+import org.kframework.definition.Module;
+import org.kframework.definition.ModuleTransformer;
+import org.kframework.definition.Sentence;
+import org.kframework.utils.Stopwatch;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+import scala.Function1;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.kframework.Collections.*;
+import static org.kframework.definition.Constructors.*;
+
+/**
+ * Applies the passes of the compilation pipeline to a definition, reporting the time taken by each pass through
+ * the {@link Stopwatch}.
+ * <p>
+ * Passes wrapped with {@link #parallel(DefinitionTransformer)} transform independent modules concurrently: every
+ * module is scheduled on the thread pool as soon as all of its imports are transformed, following the topological
+ * order of the import graph. This is only correct for passes whose module transformation depends on nothing but the
+ * module and its (transformed) imports, which is what {@link ModuleTransformer} assumes anyway; the result is then
+ * the same as applying the pass sequentially. With {@code --debug}, the time spent on each module of a parallel pass
+ * is reported too.
+ * <p>
+ * Unless {@code --no-pipeline-cache} is given, the output of these passes is also persisted per module with a
+ * {@link PipelineCache}, and reused by the next kompile for the modules whose fingerprint did not change.
+ */
+public class ModuleScheduler implements AutoCloseable {
+
+    private final ExecutorService pool;
+    private final Executor executor;
+    private final Stopwatch sw;
+    private final boolean debug;
+    private final PipelineCache cache;
+
+    /**
+     * @param pipeline the name of the pipeline, which has its own cache.
+     * @param configuration anything else the passes of the pipeline depend on, besides the kompile options.
+     */
+    public ModuleScheduler(KompileOptions kompileOptions, FileUtil files, KExceptionManager kem, Stopwatch sw,
+                           String pipeline, String configuration) {
+        this.pool = kompileOptions.compileThreads > 1
+                ? Executors.newFixedThreadPool(kompileOptions.compileThreads,
+                        new ThreadFactoryBuilder().setNameFormat("kompile-%d").setDaemon(true).build())
+                : null;
+        this.executor = pool != null ? pool : MoreExecutors.directExecutor();
+        this.sw = sw;
+        this.debug = kompileOptions.global.debug;
+        this.cache = kompileOptions.experimental.noPipelineCache ? null
+                : new PipelineCache(files.resolveKompiled("pipeline-cache/" + pipeline), configuration
+                        + "\n" + kompileOptions.backend + "\n" + kompileOptions.transition + "\n" + kompileOptions.strict()
+                        + "\n" + kompileOptions.coverage + "\n" + kompileOptions.experimental.heatCoolStrategies, kem);
+    }
+
+    /**
+     * Returns the given pass, applied to independent modules in parallel.
+     */
+    public Function1<Definition, Definition> parallel(DefinitionTransformer pass) {
+        return d -> apply(pass, d);
+    }
+
+    /**
+     * Returns the given pass, applied as is.
+     */
+    public Function1<Definition, Definition> sequential(String name, Function1<Definition, Definition> pass) {
+        return d -> {
+            long start = System.currentTimeMillis();
+            Definition result = pass.apply(d);
+            sw.printTime("  " + name, System.currentTimeMillis() - start);
+            return result;
+        };
+    }
+
+    private Definition apply(DefinitionTransformer pass, Definition d) {
+        long start = System.currentTimeMillis();
+        if (!(pass.moduleTransformer() instanceof ModuleTransformer)) {
+            return sequential("unnamed pass", pass).apply(d);
+        }
+        ModuleTransformer transformer = (ModuleTransformer) pass.moduleTransformer();
+        Map<String, Long> timings = new ConcurrentHashMap<>();
+        AtomicInteger compiled = new AtomicInteger();
+        // transform every module ahead of time; the definition is then assembled from the memoized results
+        Map<Module, CompletableFuture<Void>> scheduled = new HashMap<>();
+        for (Module m : iterable(d.modules())) {
+            schedule(transformer, m, scheduled, timings, compiled);
+        }
+        try {
+            CompletableFuture.allOf(scheduled.values().toArray(new CompletableFuture[scheduled.size()])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+        Definition result = pass.apply(d);
+        sw.printTime("  " + transformer.name() + " [" + compiled.get() + "/" + scheduled.size() + " modules]",
+                System.currentTimeMillis() - start);
+        if (debug) {
+            timings.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                    .forEachOrdered(e -> sw.printTime("    " + e.getKey(), e.getValue()));
+        }
+        return result;
+    }
+
+    private CompletableFuture<Void> schedule(ModuleTransformer transformer, Module m,
+                                             Map<Module, CompletableFuture<Void>> scheduled, Map<String, Long> timings,
+                                             AtomicInteger compiled) {
+        CompletableFuture<Void> future = scheduled.get(m);
+        if (future != null) {
+            return future;
+        }
+        List<CompletableFuture<Void>> imports = new ArrayList<>();
+        for (Module i : iterable(m.imports())) {
+            imports.add(schedule(transformer, i, scheduled, timings, compiled));
+        }
+        future = CompletableFuture.allOf(imports.toArray(new CompletableFuture[imports.size()])).thenRunAsync(() -> {
+            long start = System.currentTimeMillis();
+            if (!transformer.memoization().contains(m)) {
+                transform(transformer, m, compiled);
+            }
+            timings.put(m.name(), System.currentTimeMillis() - start);
+        }, executor);
+        scheduled.put(m, future);
+        return future;
+    }
+
+    private void transform(ModuleTransformer transformer, Module m, AtomicInteger compiled) {
+        if (cache == null) {
+            transformer.apply(m);
+            compiled.incrementAndGet();
+            return;
+        }
+        // the imports are already transformed, so this only looks them up
+        scala.collection.immutable.Set<Module> imports = immutable(stream(m.imports()).map(transformer::apply).collect(Collectors.toSet()));
+        String key = cache.key(transformer.name(), m);
+        Optional<Tuple2<scala.collection.immutable.Set<Sentence>, Att>> cached = cache.load(key);
+        Module output;
+        if (cached.isPresent()) {
+            output = Module(m.name(), imports, cached.get()._1(), cached.get()._2());
+            transformer.memoization().put(m, output);
+        } else {
+            output = transformer.apply(m);
+            compiled.incrementAndGet();
+            if (output.imports().equals(imports)) {
+                cache.store(key, output);
+            }
+        }
+        cache.identify(output, key);
+    }
+
+    /**
+     * Deletes the cache entries which were not used by the pipeline. Only called once the whole pipeline succeeded:
+     * a kompile failing halfway did not look up the entries of the later passes, which are still valid.
+     */
+    public void pruneCache() {
+        if (cache != null) {
+            cache.prune();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.kompile;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.kframework.attributes.Att;
+import org.kframework.definition.Module;
+import org.kframework.definition.Sentence;
+import org.kframework.kore.KSequence;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.JarInfo;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.JarURLConnection;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.jar.Manifest;
+
+import static org.kframework.Collections.*;
+
+/**
+ * Persists the output of the module-local passes of the compilation pipeline (see {@link ModuleScheduler}), so that
+ * kompiling a definition again only recompiles the modules that changed and the modules importing them.
+ * <p>
+ * The output of a pass on a module is stored in a file of the kompiled directory named after the pass, the options
+ * and version of the tool, and the fingerprint of the input module. The fingerprint of a module is a hash of its name,
+ * attributes and local sentences, and of the fingerprints of its imports, so a change in a module changes the
+ * fingerprint of every module importing it. Sentences and attributes are hashed through a canonical encoding of
+ * their fields, which is the same in every JVM.
+ * <p>
+ * The fingerprint of a module is computed once: the output of a cached pass is identified by the key of its entry
+ * instead, and a module rebuilt by another pass with new imports only but the same local sentences reuses the hash
+ * of its local sentences. Only the modules whose sentences are changed by a pass which is not cached are hashed
+ * again.
+ * <p>
+ * Entries not used by a kompile are deleted at the end of it, if it succeeds.
+ */
+public class PipelineCache {
+
+    private final File directory;
+    private final String context;
+    private final BinaryLoader loader;
+    private final KExceptionManager kem;
+
+    private final Set<String> used = ConcurrentHashMap.newKeySet();
+    // both compare their keys by identity
+    private final Cache<Module, String> fingerprints = CacheBuilder.newBuilder().weakKeys().build();
+    private final Cache<scala.collection.Set<Sentence>, String> sentenceFingerprints = CacheBuilder.newBuilder().weakKeys().build();
+
+    /**
+     * @param context the options the passes depend on, e.g. the backend.
+     */
+    public PipelineCache(File directory, String context, KExceptionManager kem) {
+        this.directory = directory;
+        this.context = toolVersion() + "\n" + context;
+        this.loader = new BinaryLoader(kem);
+        this.kem = kem;
+    }
+
+    /**
+     * Returns the key of the output of the given pass on the given module.
+     */
+    public String key(String pass, Module input) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(context, StandardCharsets.UTF_8).putChar('\n');
+        hasher.putString(pass, StandardCharsets.UTF_8).putChar('\n');
+        hasher.putString(fingerprint(input), StandardCharsets.UTF_8);
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Records that the given module is the output of the pass stored under the given key, which then identifies it
+     * in the keys of the next passes.
+     */
+    public void identify(Module output, String key) {
+        fingerprints.asMap().putIfAbsent(output, key);
+        // the empty set is shared by unrelated modules
+        if (!output.localSentences().isEmpty()) {
+            sentenceFingerprints.asMap().putIfAbsent(output.localSentences(), "sentences of " + key);
+        }
+    }
+
+    /**
+     * Returns the local sentences and attributes of the module stored under the given key, if any.
+     */
+    public Optional<Tuple2<scala.collection.immutable.Set<Sentence>, Att>> load(String key) {
+        File entry = new File(directory, key + ".bin");
+        used.add(key);
+        if (!entry.exists()) {
+            return Optional.empty();
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            Tuple2<scala.collection.immutable.Set<Sentence>, Att> result = loader.load(Tuple2.class, entry);
+            return Optional.of(result);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            kem.registerInternalHiddenWarning("Invalidating cached compilation of module due to corruption.", e);
+            return Optional.empty();
+        }
+    }
+
+    public void store(String key, Module output) {
+        File temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = File.createTempFile("pass-", ".tmp", directory);
+            loader.save(temp, Tuple2.apply(output.localSentences(), output.att()));
+            Files.move(temp.toPath(), new File(directory, key + ".bin").toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            kem.registerInternalHiddenWarning("Could not cache compilation of module " + output.name() + ".", e);
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Deletes the entries which were not used since this object was created.
+     */
+    public void prune() {
+        File[] entries = directory.listFiles();
+        if (entries == null) {
+            return;
+        }
+        for (File entry : entries) {
+            String name = entry.getName();
+            if (!name.endsWith(".bin") || !used.contains(name.substring(0, name.length() - ".bin".length()))) {
+                entry.delete();
+            }
+        }
+    }
+
+    private String fingerprint(Module m) {
+        try {
+            return fingerprints.get(m, () -> {
+                List<String> importFingerprints = new ArrayList<>();
+                for (Module i : iterable(m.imports())) {
+                    importFingerprints.add(fingerprint(i));
+                }
+                Collections.sort(importFingerprints);
+
+                Hasher hasher = Hashing.sha256().newHasher();
+                hasher.putString(m.name(), StandardCharsets.UTF_8).putChar('\n');
+                encode(hasher, m.att());
+                hasher.putString(sentenceFingerprints.get(m.localSentences(), () -> digest(m.localSentences())), StandardCharsets.UTF_8);
+                importFingerprints.forEach(s -> hasher.putString(s, StandardCharsets.UTF_8));
+                return hasher.hash().toString();
+            });
+        } catch (ExecutionException e) {
+            throw KEMException.internalError("Could not compute fingerprint of module " + m.name(), e.getCause());
+        }
+    }
+
+    private static String digest(Object o) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        encode(hasher, o);
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Feeds a canonical encoding of the given object to the hasher. Case classes, e.g. sentences, K terms and
+     * attributes, are encoded through their fields, and the elements of sets and maps in the order of their own
+     * hashes, so that equal objects have the same encoding in every JVM. Other objects are encoded through their
+     * serialized form.
+     */
+    private static void encode(Hasher hasher, Object o) {
+        if (o == null) {
+            hasher.putChar('n');
+        } else if (o instanceof String) {
+            putString(hasher, 's', (String) o);
+        } else if (o instanceof Number || o instanceof Boolean || o instanceof Character) {
+            putString(hasher, 'v', o.getClass().getName() + ":" + o);
+        } else if (o instanceof Enum) {
+            putString(hasher, 'e', o.getClass().getName() + ":" + ((Enum<?>) o).name());
+        } else if (o instanceof Class) {
+            putString(hasher, 'c', ((Class<?>) o).getName());
+        } else if (o instanceof scala.collection.Set || o instanceof scala.collection.Map) {
+            encodeUnordered(hasher, 'u', iterable((scala.collection.Iterable<?>) o));
+        } else if (o instanceof scala.collection.Iterable) {
+            encodeOrdered(hasher, 'l', iterable((scala.collection.Iterable<?>) o));
+        } else if (o instanceof java.util.Set) {
+            encodeUnordered(hasher, 'u', (java.util.Set<?>) o);
+        } else if (o instanceof java.util.Map) {
+            List<Object> entries = new ArrayList<>();
+            ((java.util.Map<?, ?>) o).forEach((k, v) -> entries.add(Tuple2.apply(k, v)));
+            encodeUnordered(hasher, 'u', entries);
+        } else if (o instanceof java.util.List) {
+            encodeOrdered(hasher, 'l', (java.util.List<?>) o);
+        } else if (o instanceof KSequence) {
+            putString(hasher, 'p', o.getClass().getName());
+            encode(hasher, ((KSequence) o).items());
+            encode(hasher, ((KSequence) o).att());
+        } else if (o instanceof scala.Product) {
+            scala.Product p = (scala.Product) o;
+            putString(hasher, 'p', o.getClass().getName());
+            hasher.putInt(p.productArity());
+            for (int i = 0; i < p.productArity(); i++) {
+                encode(hasher, p.productElement(i));
+            }
+        } else {
+            Hasher serialized = Hashing.sha256().newHasher();
+            try (OutputStream out = Funnels.asOutputStream(serialized);
+                 ObjectOutputStream serializer = new ObjectOutputStream(out)) {
+                serializer.writeObject(o);
+            } catch (IOException e) {
+                throw KEMException.internalError("Could not compute fingerprint of " + o, e);
+            }
+            putString(hasher, 'o', serialized.hash().toString());
+        }
+    }
+
+    private static void encodeOrdered(Hasher hasher, char tag, Iterable<?> elements) {
+        hasher.putChar(tag);
+        int size = 0;
+        for (Object e : elements) {
+            encode(hasher, e);
+            size++;
+        }
+        hasher.putInt(size);
+    }
+
+    private static void encodeUnordered(Hasher hasher, char tag, Iterable<?> elements) {
+        List<String> digests = new ArrayList<>();
+        for (Object e : elements) {
+            digests.add(digest(e));
+        }
+        Collections.sort(digests);
+        hasher.putChar(tag).putInt(digests.size());
+        digests.forEach(d -> hasher.putString(d, StandardCharsets.UTF_8));
+    }
+
+    private static void putString(Hasher hasher, char tag, String s) {
+        hasher.putChar(tag).putInt(s.length()).putString(s, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Identifies the build of the tool, so that entries computed by another build are not used. Builds from source
+     * which are not packaged are identified by the modification time of their classes.
+     */
+    private static String toolVersion() {
+        try {
+            URLConnection conn = JarInfo.class.getResource("versionMarker").openConnection();
+            if (conn instanceof JarURLConnection) {
+                Manifest mf = ((JarURLConnection) conn).getManifest();
+                return mf.getMainAttributes().getValue("Implementation-Revision") + " "
+                        + mf.getMainAttributes().getValue("Implementation-Date");
+            }
+            return "internal build " + conn.getLastModified() + " "
+                    + new File(PipelineCache.class.getProtectionDomain().getCodeSource().getLocation().getPath()).lastModified();
+        } catch (IOException | RuntimeException e) {
+            // never reuse entries if we cannot tell which build wrote them
+            return UUID.randomUUID().toString();
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.kframework.utils.file.FileUtil;
 import org.kframework.utils.file.JarInfo;
 import org.kframework.utils.file.TTYInfo;
 import org.kframework.utils.inject.CommonModule;
+import org.kframework.utils.inject.DefinitionScope;
 import org.kframework.utils.inject.JCommanderModule;
 import org.kframework.utils.inject.JCommanderModule.ExperimentalUsage;
 import org.kframework.utils.inject.JCommanderModule.Usage;
@@ -67,7 +68,7 @@ public class KServerFrontEnd extends FrontEnd {
     @Override
     protected int run() {
         for (String tool : tools) {
-            injectors.put(tool, Main.getInjector(tool));
+            injectors.put(tool, getInjector(tool));
         }
         NGServer server;
         File dir = null;
@@ -126,6 +127,13 @@ public class KServerFrontEnd extends FrontEnd {
         }
     }
 
+    private Injector getInjector(String tool) {
+        Injector injector = Main.getInjector(tool);
+        injector.getInstance(DefinitionScope.class).setLimits(options.definitionCacheSize,
+                options.definitionCacheMemory * 1024 * 1024);
+        return injector;
+    }
+
     public static KServerFrontEnd instance() {
         return instance;
     }
@@ -178,7 +186,7 @@ public class KServerFrontEnd extends FrontEnd {
             try {
                 kserver.injectors.clear();
                 for (String tool : tools) {
-                    kserver.injectors.put(tool, Main.getInjector(tool));
+                    kserver.injectors.put(tool, kserver.getInjector(tool));
                 }
             } finally {
                 kserver.lock.writeLock().unlock();
@@ -19,4 +19,10 @@ public class KServerOptions {
     @Parameter(names={"--socket"}, description="The directory to put the unix domain socket in.")
     public String socket = null;
 
+    @Parameter(names={"--definition-cache-size"}, description="The number of kompiled definitions each tool keeps loaded between requests.")
+    public int definitionCacheSize = Runtime.getRuntime().availableProcessors() * 2;
+
+    @Parameter(names={"--definition-cache-memory"}, description="The memory, in megabytes, the kompiled definitions kept loaded by each tool can take before the least recently used ones are unloaded. The memory of a definition is roughly estimated by the growth of the heap while loading it.")
+    public long definitionCacheMemory = Runtime.getRuntime().maxMemory() / 2 / 1024 / 1024;
+
 }
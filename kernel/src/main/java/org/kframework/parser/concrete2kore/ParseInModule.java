@@ -47,6 +47,7 @@ public class ParseInModule implements Serializable {
      */
     private final Module parsingModule;
     private volatile Grammar grammar = null;
+    private transient volatile Scanner scanner = null;
     private final boolean strict;
     public ParseInModule(Module seedModule) {
         this(seedModule, seedModule, seedModule, seedModule, true);
@@ -80,6 +81,8 @@ public class ParseInModule implements Serializable {
 
     public Module getParsingModule() { return parsingModule; }
 
+    public boolean isStrict() { return strict; }
+
     public void initialize() {
        disambModule.definedSorts();
        disambModule.subsorts();
@@ -103,17 +106,33 @@ public class ParseInModule implements Serializable {
         }
     }
 
-    private Scanner getGrammar(Scanner scanner) {
+    public Grammar getGrammar(Scanner scanner) {
         Grammar g = grammar;
         if (g == null) {
             g = KSyntax2GrammarStatesFilter.getGrammar(this.parsingModule, scanner);
             grammar = g;
         }
-        return scanner;
+        return g;
     }
 
+    /**
+     * Returns the scanner of this module, which is built once and shared by all the parses in this module.
+     */
     public Scanner getScanner() {
-        return new Scanner(this);
+        Scanner s = scanner;
+        if (s == null) {
+            s = new Scanner(this);
+            scanner = s;
+        }
+        return s;
+    }
+
+    /**
+     * Uses the given scanner and grammar, built for the parsing module of this object, e.g. by a {@link ParserCache}.
+     */
+    void setScannerAndGrammar(Scanner scanner, Grammar grammar) {
+        this.scanner = scanner;
+        this.grammar = grammar;
     }
 
     public Tuple2<Either<Set<ParseFailedException>, K>, Set<ParseFailedException>>
@@ -145,9 +164,7 @@ public class ParseInModule implements Serializable {
      */
     private Tuple2<Either<Set<ParseFailedException>, Term>, Set<ParseFailedException>>
             parseStringTerm(String input, Sort startSymbol, Scanner scanner, Source source, int startLine, int startColumn, boolean inferSortChecks) {
-        scanner = getGrammar(scanner);
-
-        Grammar.NonTerminal startSymbolNT = grammar.get(startSymbol.toString());
+        Grammar.NonTerminal startSymbolNT = getGrammar(scanner).get(startSymbol.toString());
         Set<ParseFailedException> warn = Sets.newHashSet();
         if (startSymbolNT == null) {
             String msg = "Could not find start symbol: " + startSymbol;
@@ -0,0 +1,160 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.kframework.builtin.Sorts;
+import org.kframework.definition.Module;
+import org.kframework.definition.Production;
+import org.kframework.definition.RegexTerminal;
+import org.kframework.definition.TerminalLike;
+import org.kframework.parser.concrete2kore.kernel.Grammar;
+import org.kframework.parser.concrete2kore.kernel.KSyntax2GrammarStatesFilter;
+import org.kframework.parser.concrete2kore.kernel.Scanner;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import scala.Tuple2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.kframework.Collections.*;
+
+/**
+ * A content-addressed cache of the scanners and grammars of {@link ParseInModule}s, stored in a directory of the
+ * kompiled definition so that every kast process parsing with the same module does not rebuild them.
+ * <p>
+ * Entries are keyed by a hash of the syntax the scanner and the grammar are built from: the productions of the
+ * parsing module with their attributes, its sorts, the layout of the seed module and the tokens with their
+ * precedences. Strict and non-strict parsers of the same module get separate entries. The scanner and the grammar
+ * are stored together since the grammar refers to the token kinds of the scanner. Entries are written to a
+ * temporary file first and then moved in place, so concurrent processes never see partial entries. A corrupt or
+ * unreadable entry is rebuilt.
+ * <p>
+ * The cache keeps at most {@link #MAX_ENTRIES} entries, as the directory outlives the syntax it was filled for when
+ * a definition is kompiled again in place. Once an entry is stored, the entries written the longest time ago are
+ * deleted.
+ */
+public class ParserCache {
+
+    /**
+     * Change when the serialized form of the scanner or the grammar changes, to ignore existing entries.
+     */
+    private static final String VERSION = "1";
+
+    static final int MAX_ENTRIES = 32;
+
+    private final File directory;
+    private final BinaryLoader loader;
+    private final KExceptionManager kem;
+    private final int maxEntries;
+
+    public ParserCache(File directory, KExceptionManager kem) {
+        this(directory, kem, MAX_ENTRIES);
+    }
+
+    ParserCache(File directory, KExceptionManager kem, int maxEntries) {
+        this.directory = directory;
+        this.loader = new BinaryLoader(kem);
+        this.kem = kem;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Loads the scanner and the grammar of the given parser from the cache, or builds and stores them.
+     */
+    public void initialize(ParseInModule parser) {
+        File entry = new File(directory, key(parser) + ".bin");
+        if (entry.exists()) {
+            try {
+                @SuppressWarnings("unchecked")
+                Tuple2<Scanner, Grammar> cached = loader.load(Tuple2.class, entry);
+                parser.setScannerAndGrammar(new Scanner(parser, cached._1()), cached._2());
+                return;
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                kem.registerInternalHiddenWarning("Invalidating cached parser " + entry + " due to corruption.", e);
+            }
+        }
+
+        Scanner scanner = parser.getScanner();
+        Grammar grammar = parser.getGrammar(scanner);
+        File temp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            temp = File.createTempFile("parser-", ".tmp", directory);
+            loader.save(temp, Tuple2.apply(scanner, grammar));
+            Files.move(temp.toPath(), entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            prune(entry);
+        } catch (IOException e) {
+            // e.g. the definition is installed in a read-only location; the parser still works without the cache
+            kem.registerInternalHiddenWarning("Could not cache parser in " + directory + ".", e);
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * Deletes the entries written the longest time ago, other than the given one, until at most
+     * {@link #maxEntries} are left. Entries deleted concurrently by another process are ignored.
+     */
+    private void prune(File keep) {
+        File[] entries = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+        if (entries == null || entries.length <= maxEntries) {
+            return;
+        }
+        Arrays.sort(entries, Comparator.comparingLong(File::lastModified));
+        int excess = entries.length - maxEntries;
+        for (File entry : entries) {
+            if (excess == 0) {
+                break;
+            }
+            if (!entry.equals(keep)) {
+                entry.delete();
+                excess--;
+            }
+        }
+    }
+
+    private static String key(ParseInModule parser) {
+        Module module = parser.getParsingModule();
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(VERSION, StandardCharsets.UTF_8);
+
+        List<String> syntax = new ArrayList<>();
+        for (Production p : iterable(module.productions())) {
+            syntax.add(p.sort() + " ::= " + p.items().mkString(" ") + " " + p.klabel() + " " + p.att());
+        }
+        for (org.kframework.kore.Sort sort : iterable(module.definedSorts())) {
+            syntax.add(sort.toString());
+        }
+        for (org.kframework.kore.Sort sort : iterable(module.usedCellSorts())) {
+            syntax.add("cell " + sort);
+        }
+        for (Map.Entry<TerminalLike, Tuple2<Integer, Integer>> token : KSyntax2GrammarStatesFilter.getTokens(module).entrySet()) {
+            TerminalLike t = token.getKey();
+            String terminal = t instanceof RegexTerminal
+                    ? "r " + ((RegexTerminal) t).precedeRegex() + " " + ((RegexTerminal) t).regex() + " " + ((RegexTerminal) t).followRegex()
+                    : t.toString();
+            syntax.add("token " + terminal + " " + token.getValue()._2());
+        }
+        if (parser.seedModule().definedSorts().contains(Sorts.Layout())) {
+            syntax.add("layout " + parser.seedModule().layout());
+        }
+        syntax.add("strict " + parser.isStrict());
+        Collections.sort(syntax);
+        for (String s : syntax) {
+            hasher.putString(s, StandardCharsets.UTF_8).putChar('\n');
+        }
+        return hasher.hash().toString();
+    }
+}
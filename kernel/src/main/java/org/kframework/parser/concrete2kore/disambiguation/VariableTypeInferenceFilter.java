@@ -67,8 +67,9 @@ public class VariableTypeInferenceFilter extends SetsGeneralTransformer<ParseFai
      */
     private Set<Sort> lowerBounds(Collection<Sort> bounds) {
         Set<Sort> mins = new HashSet<>();
-        nextsort:
-        for (Sort sort : iterable(sortSet)) { // for every declared sort
+        for (Sort sort : subsorts.lowerBounds(bounds)) { // for every common lower bound
+            if (!sortSet.contains(sort))
+                continue;
             // Sorts at or below KBott, or above K, are assumed to be
             // sorts from kast.k representing meta-syntax that is not a real sort.
             // This is done to prevent variables from being inferred as KBott or
@@ -77,9 +78,6 @@ public class VariableTypeInferenceFilter extends SetsGeneralTransformer<ParseFai
                 continue;
             if (subsorts.greaterThan(sort, Sorts.K()))
                 continue;
-            for (Sort bound : bounds)
-                if (!subsorts.greaterThanEq(bound, sort))
-                    continue nextsort;
             mins.add(sort);
         }
         return mins;
@@ -0,0 +1,330 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore.kernel;
+
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.BasicAutomata;
+import dk.brics.automaton.BasicOperations;
+import org.kframework.utils.errorsystem.KEMException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Translates the flex syntax of the regular expressions of {@link org.kframework.definition.RegexTerminal}s
+ * into {@link Automaton}s.
+ * <p>
+ * Like flex, the automata work on the bytes of the UTF-8 encoding of the input: each byte is represented
+ * by the char of the same value, so all automata are over the first 256 chars. Trailing context
+ * ({@code /}), anchors ({@code ^} and {@code $}), start conditions and definitions are not supported, since
+ * the scanner never generated them.
+ */
+public class FlexRegex {
+
+    private static final int ALPHABET = 256;
+
+    private final String regex;
+    private final byte[] input;
+    private int pos;
+
+    private FlexRegex(String regex) {
+        this.regex = regex;
+        this.input = regex.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the automaton accepting the UTF-8 encodings of the strings matched by the given flex regular expression.
+     */
+    public static Automaton toAutomaton(String regex) {
+        FlexRegex parser = new FlexRegex(regex);
+        if (parser.input.length == 0) {
+            throw parser.error("empty regular expression");
+        }
+        if (parser.input[0] == '^') {
+            throw parser.error("anchor '^' is not supported");
+        }
+        if (parser.input[parser.input.length - 1] == '$'
+                && (parser.input.length < 2 || parser.input[parser.input.length - 2] != '\\')) {
+            throw parser.error("anchor '$' is not supported");
+        }
+        Automaton result = parser.parseUnion();
+        if (parser.pos != parser.input.length) {
+            throw parser.error("unexpected '" + (char) parser.peek() + "'");
+        }
+        return result;
+    }
+
+    /**
+     * Returns the automaton accepting exactly the UTF-8 encoding of the given string.
+     */
+    public static Automaton literal(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        StringBuilder sb = new StringBuilder(bytes.length);
+        for (byte b : bytes) {
+            sb.append((char) (b & 0xff));
+        }
+        return BasicAutomata.makeString(sb.toString());
+    }
+
+    private Automaton parseUnion() {
+        List<Automaton> alternatives = new ArrayList<>();
+        alternatives.add(parseConcatenation());
+        while (more() && peek() == '|') {
+            pos++;
+            alternatives.add(parseConcatenation());
+        }
+        return alternatives.size() == 1 ? alternatives.get(0) : BasicOperations.union(alternatives);
+    }
+
+    private Automaton parseConcatenation() {
+        List<Automaton> factors = new ArrayList<>();
+        while (more() && peek() != '|' && peek() != ')') {
+            factors.add(parseRepetition());
+        }
+        if (factors.isEmpty()) {
+            throw error("empty alternative");
+        }
+        return factors.size() == 1 ? factors.get(0) : BasicOperations.concatenate(factors);
+    }
+
+    private Automaton parseRepetition() {
+        Automaton result = parseAtom();
+        while (more()) {
+            int c = peek();
+            if (c == '*') {
+                pos++;
+                result = result.repeat();
+            } else if (c == '+') {
+                pos++;
+                result = result.repeat(1);
+            } else if (c == '?') {
+                pos++;
+                result = result.optional();
+            } else if (c == '{') {
+                pos++;
+                int min = parseNumber();
+                int max = min;
+                if (more() && peek() == ',') {
+                    pos++;
+                    max = more() && peek() == '}' ? -1 : parseNumber();
+                }
+                expect('}');
+                if (max == -1) {
+                    result = result.repeat(min);
+                } else if (max < min) {
+                    throw error("bad repetition bounds {" + min + "," + max + "}");
+                } else {
+                    result = result.repeat(min, max);
+                }
+            } else {
+                break;
+            }
+        }
+        return result;
+    }
+
+    private int parseNumber() {
+        int start = pos;
+        while (more() && peek() >= '0' && peek() <= '9') {
+            pos++;
+        }
+        if (start == pos) {
+            throw error("definitions ({name}) and set operations are not supported");
+        }
+        return Integer.parseInt(new String(input, start, pos - start, StandardCharsets.US_ASCII));
+    }
+
+    private Automaton parseAtom() {
+        int c = next();
+        switch (c) {
+        case '(':
+            Automaton group = parseUnion();
+            expect(')');
+            return group;
+        case '[':
+            return toAutomaton(parseClass());
+        case '"':
+            StringBuilder literal = new StringBuilder();
+            while (more() && peek() != '"') {
+                literal.append((char) (peek() == '\\' ? parseEscape() : next()));
+            }
+            expect('"');
+            return BasicAutomata.makeString(literal.toString());
+        case '.':
+            BitSet any = new BitSet(ALPHABET);
+            any.set(0, ALPHABET);
+            any.clear('\n');
+            return toAutomaton(any);
+        case '\\':
+            pos--;
+            return BasicAutomata.makeChar((char) parseEscape());
+        case '/':
+            throw error("trailing context '/' is not supported");
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+            throw error("'" + (char) c + "' does not follow an expression");
+        default:
+            return BasicAutomata.makeChar((char) c);
+        }
+    }
+
+    private BitSet parseClass() {
+        BitSet set = new BitSet(ALPHABET);
+        boolean negated = false;
+        if (more() && peek() == '^') {
+            pos++;
+            negated = true;
+        }
+        boolean first = true;
+        while (true) {
+            if (!more()) {
+                throw error("unterminated character class");
+            }
+            if (peek() == ']' && !first) {
+                pos++;
+                break;
+            }
+            first = false;
+            if (peek() == '[' && pos + 1 < input.length && input[pos + 1] == ':') {
+                parseClassExpression(set);
+                continue;
+            }
+            int low = peek() == '\\' ? parseEscape() : next();
+            if (more() && peek() == '-' && pos + 1 < input.length && input[pos + 1] != ']') {
+                pos++;
+                int high = peek() == '\\' ? parseEscape() : next();
+                if (high < low) {
+                    throw error("negative range in character class");
+                }
+                set.set(low, high + 1);
+            } else {
+                set.set(low);
+            }
+        }
+        if (negated) {
+            set.flip(0, ALPHABET);
+        }
+        return set;
+    }
+
+    private void parseClassExpression(BitSet set) {
+        int end = pos + 2;
+        while (end + 1 < input.length && !(input[end] == ':' && input[end + 1] == ']')) {
+            end++;
+        }
+        if (end + 1 >= input.length) {
+            throw error("unterminated character class expression");
+        }
+        String name = new String(input, pos + 2, end - pos - 2, StandardCharsets.US_ASCII);
+        pos = end + 2;
+        for (int c = 0; c < 128; c++) {
+            boolean member;
+            switch (name) {
+            case "alnum":  member = Character.isLetterOrDigit(c); break;
+            case "alpha":  member = Character.isLetter(c); break;
+            case "blank":  member = c == ' ' || c == '\t'; break;
+            case "cntrl":  member = c < 32 || c == 127; break;
+            case "digit":  member = c >= '0' && c <= '9'; break;
+            case "graph":  member = c > 32 && c < 127; break;
+            case "lower":  member = c >= 'a' && c <= 'z'; break;
+            case "print":  member = c >= 32 && c < 127; break;
+            case "punct":  member = c > 32 && c < 127 && !Character.isLetterOrDigit(c); break;
+            case "space":  member = c == ' ' || (c >= '\t' && c <= '\r'); break;
+            case "upper":  member = c >= 'A' && c <= 'Z'; break;
+            case "xdigit": member = Character.digit(c, 16) >= 0; break;
+            default:
+                throw error("unknown character class expression [:" + name + ":]");
+            }
+            if (member) {
+                set.set(c);
+            }
+        }
+    }
+
+    /**
+     * Parses an escape sequence starting at the current backslash and returns the byte it denotes.
+     */
+    private int parseEscape() {
+        expect('\\');
+        if (!more()) {
+            throw error("trailing backslash");
+        }
+        int c = next();
+        switch (c) {
+        case 'n': return '\n';
+        case 't': return '\t';
+        case 'r': return '\r';
+        case 'f': return '\f';
+        case 'v': return 0x0b;
+        case 'a': return 0x07;
+        case 'b': return '\b';
+        case 'x': {
+            int value = 0;
+            int digits = 0;
+            while (digits < 2 && more() && Character.digit(peek(), 16) >= 0) {
+                value = value * 16 + Character.digit(next(), 16);
+                digits++;
+            }
+            if (digits == 0) {
+                throw error("missing hexadecimal digits after \\x");
+            }
+            return value;
+        }
+        default:
+            if (c >= '0' && c <= '7') {
+                int value = c - '0';
+                int digits = 1;
+                while (digits < 3 && more() && peek() >= '0' && peek() <= '7') {
+                    value = value * 8 + (next() - '0');
+                    digits++;
+                }
+                if (value >= ALPHABET) {
+                    throw error("octal escape out of range");
+                }
+                return value;
+            }
+            return c;
+        }
+    }
+
+    private static Automaton toAutomaton(BitSet set) {
+        List<Automaton> ranges = new ArrayList<>();
+        for (int low = set.nextSetBit(0); low >= 0 && low < ALPHABET; low = set.nextSetBit(low)) {
+            int high = set.nextClearBit(low);
+            ranges.add(BasicAutomata.makeCharRange((char) low, (char) (high - 1)));
+            low = high;
+        }
+        return ranges.isEmpty() ? BasicAutomata.makeEmpty() : BasicOperations.union(ranges);
+    }
+
+    private boolean more() {
+        return pos < input.length;
+    }
+
+    private int peek() {
+        return input[pos] & 0xff;
+    }
+
+    private int next() {
+        if (!more()) {
+            throw error("unexpected end of regular expression");
+        }
+        return input[pos++] & 0xff;
+    }
+
+    private void expect(int c) {
+        if (!more() || peek() != c) {
+            throw error("expected '" + (char) c + "'");
+        }
+        pos++;
+    }
+
+    private KEMException error(String message) {
+        return KEMException.compilerError("Unsupported regular expression for scanner: " + message
+                + " at offset " + pos + " in " + regex);
+    }
+
+}
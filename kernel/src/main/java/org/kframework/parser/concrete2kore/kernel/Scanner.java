@@ -1,10 +1,8 @@
 // Copyright (c) 2016-2019 K Team. All Rights Reserved.
 package org.kframework.parser.concrete2kore.kernel;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import dk.brics.automaton.Automaton;
+import dk.brics.automaton.RunAutomaton;
 import org.kframework.attributes.Location;
 import org.kframework.attributes.Source;
 import org.kframework.builtin.Sorts;
@@ -13,39 +11,84 @@ import org.kframework.definition.RegexTerminal;
 import org.kframework.definition.Terminal;
 import org.kframework.definition.TerminalLike;
 import org.kframework.parser.concrete2kore.ParseInModule;
-import org.kframework.utils.OS;
-import org.kframework.utils.StringUtil;
-import org.kframework.utils.errorsystem.KEMException;
 import org.kframework.utils.errorsystem.KException;
 import org.kframework.utils.errorsystem.ParseFailedException;
 import scala.Tuple2;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Semaphore;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 /**
  * Created by dwightguth on 7/21/16.
+ * <p>
+ * Tokenizes input with the semantics of the flex scanner it replaces, using a single minimal DFA over the bytes of
+ * the input built from the layout and the terminals of the module (see {@link FlexRegex}).
  */
-public class Scanner implements AutoCloseable {
+public class Scanner implements AutoCloseable, Serializable {
 
     private final Map<TerminalLike, Tuple2<Integer, Integer>> tokens;
-    private final File scanner;
-    private final Module module;
+    private final transient Module module;
 
-    private static final String EXE_EXTENSION = OS.current().equals(OS.WINDOWS) ? ".exe" : "";
+    /**
+     * The kind of the token recognized by each rule of the scanner, in priority order. Layout is skipped.
+     */
+    private final int[] ruleKinds;
+    private final Dfa dfa;
+
+    static final int LAYOUT = -2;
 
     public Scanner(ParseInModule module) {
         this.tokens  = KSyntax2GrammarStatesFilter.getTokens(module.getParsingModule());
         this.module  = module.seedModule();
-        this.scanner = getScanner();
+
+        // the rules are in the order of the flex file we used to generate: layout, then tokens by decreasing precedence
+        List<Automaton> rules = new ArrayList<>();
+        List<Integer> kinds = new ArrayList<>();
+        if (this.module.definedSorts().contains(Sorts.Layout())) {
+            rules.add(FlexRegex.toAutomaton(this.module.layout()));
+            kinds.add(LAYOUT);
+        }
+        List<TerminalLike> ordered = tokens.keySet().stream().sorted((t1, t2) -> tokens.get(t2)._2() - tokens.get(t1)._2()).collect(Collectors.toList());
+        for (TerminalLike key : ordered) {
+            if (key instanceof Terminal) {
+                rules.add(FlexRegex.literal(((Terminal) key).value()));
+            } else {
+                rules.add(FlexRegex.toAutomaton(((RegexTerminal) key).regex()));
+            }
+            kinds.add(tokens.get(key)._1());
+        }
+        this.ruleKinds = kinds.stream().mapToInt(Integer::intValue).toArray();
+        this.dfa = new Dfa(rules);
+    }
+
+    /**
+     * Creates a scanner recognizing the given rules, in priority order, as tokens of the corresponding kinds, or as
+     * layout for the kind {@link #LAYOUT}. Used to test the automaton without a module.
+     */
+    Scanner(List<Automaton> rules, int[] ruleKinds) {
+        this.tokens = Collections.emptyMap();
+        this.module = null;
+        this.ruleKinds = ruleKinds;
+        this.dfa = new Dfa(rules);
+    }
+
+    /**
+     * Creates a scanner for the given module reusing the automaton of a scanner built for the same tokens, e.g. one
+     * loaded from a {@link org.kframework.parser.concrete2kore.ParserCache}.
+     */
+    public Scanner(ParseInModule module, Scanner scanner) {
+        this.tokens = scanner.tokens;
+        this.module = module.seedModule();
+        this.ruleKinds = scanner.ruleKinds;
+        this.dfa = scanner.dfa;
     }
 
     public Module getModule() {
@@ -57,123 +100,6 @@ public class Scanner implements AutoCloseable {
         return tokens.entrySet().stream().filter(e -> e.getValue()._1() == kind).findAny().get().getKey();
     }
 
-    public File getScanner() {
-        File scanner;
-        // tokenization
-        try {
-            File scannerSource = File.createTempFile("tmp-kompile-", ".l");
-            scannerSource.deleteOnExit();
-            StringBuilder flex = new StringBuilder();
-            flex.append("%{\n" +
-                    "#include<stdio.h>\n" +
-                    "#include<stddef.h>\n" +
-                    "#include <fcntl.h>\n" +
-                    "#define ECHO do " +
-                    " {" +
-                    "   long long start_pos = yytext - buffer;" +
-                    "   long long end_pos = start_pos + yyleng;" +
-                    "   fwrite(&start_pos, sizeof(start_pos), 1, stdout);" +
-                    "   fwrite(&end_pos, sizeof(end_pos), 1, stdout);" +
-                    "   int kind = -1;" +
-                    "   fwrite(&kind, sizeof(kind), 1, stdout);" +
-                    "   int len = strlen(yytext);" +
-                    "   fwrite(&len, sizeof(len), 1, stdout);" +
-                    "   fwrite(yytext, 1, len, stdout);" +
-                    " } while (0) \n" +
-                    "char *buffer;\n" +
-                    "%}\n\n" +
-                    "%%\n\n");
-            if (this.module.definedSorts().contains(Sorts.Layout())) {
-                flex.append(this.module.layout() + " ;\n");
-            }
-            List<TerminalLike> ordered = tokens.keySet().stream().sorted((t1, t2) -> tokens.get(t2)._2() - tokens.get(t1)._2()).collect(Collectors.toList());
-            for (TerminalLike key : ordered) {
-                if (key instanceof Terminal) {
-                    Terminal t = (Terminal) key;
-                    flex.append(StringUtil.enquoteCString(t.value()));
-                } else {
-                    RegexTerminal t = (RegexTerminal) key;
-                    flex.append(t.regex());
-                }
-                writeAction(flex, key);
-            }
-            //WIN32 fix for line terminator issue: https://sourceforge.net/p/mingw/mailman/message/11374534/
-            flex.append("\n\n%%\n\n" +
-                    "int main(int argc, char **argv) {\n" +
-                    "  freopen(NULL, \"rb\", stdin);\n" +
-                    "  freopen(NULL, \"wb\", stdout);\n" +
-                    "# ifdef WIN32\n" +
-                    "    if ( -1 == _setmode( _fileno( stdout ), _O_BINARY ) ) {\n" +
-                    "        perror ( \"generated scanner: Cannot set BINARY mode for stdout\" );\n" +
-                    "        exit(1);\n" +
-                    "    }\n" +
-                    "    if ( -1 == _setmode( _fileno( stdin ), _O_BINARY ) ) {\n" +
-                    "        perror ( \"generated scanner: Cannot set BINARY mode for stdin\" );\n" +
-                    "        exit(1);\n" +
-                    "    }\n" +
-                    "# endif  /* WIN32 */\n" +
-                    "\n" +
-                    "  while(1) {\n" +
-                    "    int length;\n" +
-                    "    size_t nread = fread(&length, sizeof(length), 1, stdin);\n" +
-                    "    if (nread < 1) exit(0);\n" +
-                    "    buffer = malloc(length + 2);\n" +
-                    "    buffer[length] = 0;\n" +
-                    "    buffer[length+1] = 0;\n" +
-                    "    fread(buffer, length, 1, stdin);\n" +
-                    "    YY_BUFFER_STATE bs = yy_scan_buffer(buffer, length + 2);\n" +
-                    "    yy_switch_to_buffer(bs);\n" +
-                    "    yylex();\n" +
-                    "    long long exit = -1;\n" +
-                    "    fwrite(&exit, sizeof(exit), 1, stdout);\n" +
-                    "    fwrite(&exit, sizeof(exit), 1, stdout);\n" +
-                    "    fwrite(&exit, sizeof(exit), 1, stdout);\n" +
-                    "    fflush(stdout);\n" +
-                    "  }\n" +
-                    "}");
-            FileUtils.write(scannerSource, flex);
-            File scannerCSource = File.createTempFile("tmp-kompile-", ".c");
-            scannerCSource.deleteOnExit();
-            ProcessBuilder pb = new ProcessBuilder("flex", "--nowarn", "--noyywrap", "-Ca", "-o",
-                    scannerCSource.getAbsolutePath(), scannerSource.getAbsolutePath());
-            pb.inheritIO();
-            int exit = pb.start().waitFor();
-            if (exit != 0) {
-                System.err.println(pb.command());
-                throw KEMException.internalError(
-                        "Flex returned nonzero exit code. See output for details. flex command: " + pb.command());
-            }
-            scanner = File.createTempFile("tmp-kompile-", EXE_EXTENSION);
-            scanner.deleteOnExit();
-            //Option -lfl unnecessary. Same effect achieved by --noyywrap above.
-            pb = new ProcessBuilder("gcc", scannerCSource.getAbsolutePath(), "-o", scanner.getAbsolutePath());
-            pb.inheritIO();
-            exit = pb.start().waitFor();
-            scanner.setExecutable(true);
-            if (exit != 0) {
-                throw KEMException.internalError(
-                        "gcc returned nonzero exit code. See output for details. gcc command: " + pb.command());
-            }
-        } catch (IOException | InterruptedException e) {
-            throw KEMException.internalError("Failed to write file for scanner", e);
-        }
-        return scanner;
-    }
-
-    private void writeAction(StringBuilder flex, TerminalLike key) {
-        flex.append(" {\n" +
-                "   long long start_pos = yytext - buffer;\n" +
-                "   long long end_pos = start_pos + yyleng;\n" +
-                "   fwrite(&start_pos, sizeof(start_pos), 1, stdout);\n" +
-                "   fwrite(&end_pos, sizeof(end_pos), 1, stdout);\n" +
-                "   int kind = ").append(tokens.get(key)._1()).append(";\n" +
-                "   fwrite(&kind, sizeof(kind), 1, stdout);\n" +
-                "   int len = strlen(yytext);\n" +
-                "   fwrite(&len, sizeof(len), 1, stdout);\n" +
-                "   fwrite(yytext, 1, len, stdout);\n" +
-                " }\n");
-    }
-
     private int maxToken = -1;
 
     public int getMaxToken() {
@@ -212,116 +138,247 @@ public class Scanner implements AutoCloseable {
         }
     }
 
+    /**
+     * The scanner no longer holds external resources; kept so that callers can keep scoping scanners.
+     */
     @Override
     public void close() {
-        synchronized(idleProcesses) {
-            for (Process p : idleProcesses.get(this)) {
-                p.destroy();
-                cache.remove(p);
-                activeProcceses--;
-            }
-            idleProcesses.removeAll(this);
-        }
     }
 
-    private static final int N_CPUS = Runtime.getRuntime().availableProcessors();
-    private static final int N_PROCS = 512;
-    private static int activeProcceses = 0;
-    private static final Semaphore runningScanners = new Semaphore(N_PROCS);
-    private static final ListMultimap<Scanner, Process> idleProcesses = ArrayListMultimap.create();
-    private static final Map<Process, Scanner> cache = new LinkedHashMap<Process, Scanner>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<Process, Scanner> entry) {
-            if (activeProcceses > N_PROCS) {
-                entry.getKey().destroy();
-                idleProcesses.get(entry.getValue()).remove(entry.getKey());
-                activeProcceses--;
-                return true;
+    /**
+     * Splits the input into tokens with the semantics of flex: at each position the longest match is taken, and
+     * among the rules with a match of that length, the first one. Layout is skipped. Locations are offsets in the
+     * UTF-8 encoding of the input, which index {@code lines} and {@code columns}.
+     */
+    public Token[] tokenize(String input, Source source, int[] lines, int[] columns) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        List<Token> result = new ArrayList<>();
+        int pos = 0;
+        while (pos < bytes.length) {
+            int state = dfa.initialState;
+            int rule = -1;
+            int end = pos + 1;
+            for (int i = pos; i < bytes.length; i++) {
+                state = dfa.step(state, bytes[i]);
+                if (state < 0) {
+                    break;
+                }
+                if (dfa.acceptingRules[state] >= 0) {
+                    rule = dfa.acceptingRules[state];
+                    end = i + 1;
+                }
+            }
+            if (rule < 0) {
+                String msg = "Scanner error: unexpected character sequence '"
+                        + new String(bytes, pos, 1, StandardCharsets.UTF_8) + "'.";
+                Location loc = new Location(lines[pos], columns[pos], lines[pos + 1], columns[pos + 1]);
+                throw new ParseFailedException(new KException(
+                        KException.ExceptionType.ERROR, KException.KExceptionGroup.INNER_PARSER, msg, source, loc));
             }
-            return false;
+            if (ruleKinds[rule] != LAYOUT) {
+                result.add(new Token(ruleKinds[rule], new String(bytes, pos, end - pos, StandardCharsets.UTF_8), pos, end));
+            }
+            pos = end;
         }
-    };
+        return result.toArray(new Token[result.size()]);
+    }
 
-    public Token[] tokenize(String input, Source source, int[] lines, int[] columns) {
-        try {
-            runningScanners.acquire();
-
-            Process process;
-            synchronized (idleProcesses) {
-                if (idleProcesses.get(this).size() > 0) {
-                    List<Process> idleForThisScanner = idleProcesses.get(this);
-                    process = idleForThisScanner.remove(idleForThisScanner.size() - 1);
-                    cache.remove(process);
-                } else {
-                    process = new ProcessBuilder(scanner.getAbsolutePath()).start();
-                    activeProcceses++;
-                    // temporarily add it so that LinkedHashMap evicts the old entry
-                    cache.put(process, this);
-                    cache.remove(process);
+    /**
+     * Returns the number of states of the automaton of this scanner.
+     */
+    int stateCount() {
+        return dfa.acceptingRules.length;
+    }
+
+    /**
+     * The minimal deterministic automaton over bytes recognizing all the rules of the scanner at once. Each state
+     * records the first rule accepting the input read so far, if any.
+     */
+    private static class Dfa implements Serializable {
+        /**
+         * Maps each byte to its class: bytes of the same class have the same transitions in every state.
+         */
+        final int[] byteClasses = new int[256];
+        final int classCount;
+        /**
+         * The successor of each state for each byte class, at {@code state * classCount + class}, or -1 if no rule can
+         * match anymore.
+         */
+        final int[] transitions;
+        final int[] acceptingRules;
+        final int initialState;
+
+        Dfa(List<Automaton> rules) {
+            RunAutomaton[] runs = new RunAutomaton[rules.size()];
+            boolean[][] live = new boolean[rules.size()][];
+            TreeSet<Integer> points = new TreeSet<>();
+            points.add(0);
+            for (int r = 0; r < runs.length; r++) {
+                Automaton automaton = rules.get(r);
+                automaton.minimize();
+                runs[r] = new RunAutomaton(automaton);
+                for (char c : runs[r].getCharIntervals()) {
+                    if (c < 256) {
+                        points.add((int) c);
+                    }
                 }
             }
+            int[] representatives = points.stream().mapToInt(Integer::intValue).toArray();
+            classCount = representatives.length;
+            for (int c = 0, cls = 0; c < 256; c++) {
+                if (cls + 1 < classCount && representatives[cls + 1] == c) {
+                    cls++;
+                }
+                byteClasses[c] = cls;
+            }
+            for (int r = 0; r < runs.length; r++) {
+                live[r] = liveStates(runs[r], representatives);
+            }
 
-            byte[] buf = input.getBytes("UTF-8");
-            ByteBuffer size = ByteBuffer.allocate(4);
-            size.order(ByteOrder.nativeOrder());
-            size.putInt(buf.length);
-            process.getOutputStream().write(size.array());
-            process.getOutputStream().write(buf);
-            process.getOutputStream().flush();
-            return readTokenizedOutput(process, source, lines, columns);
-        } catch (IOException | InterruptedException e) {
-            throw KEMException.internalError("Failed to invoke scanner", e);
-        } finally {
-            runningScanners.release();
-        }
-    }
+            // subset construction: a state is the sorted list of (rule, state of the rule's automaton) pairs that
+            // can still lead to a match
+            Map<IntArray, Integer> ids = new HashMap<>();
+            List<int[]> states = new ArrayList<>();
+            int[] initial = new int[runs.length * 2];
+            int size = 0;
+            for (int r = 0; r < runs.length; r++) {
+                int s = runs[r].getInitialState();
+                if (live[r][s]) {
+                    initial[size++] = r;
+                    initial[size++] = s;
+                }
+            }
+            initial = Arrays.copyOf(initial, size);
+            ids.put(new IntArray(initial), 0);
+            states.add(initial);
+            List<int[]> successors = new ArrayList<>();
+            for (int i = 0; i < states.size(); i++) {
+                int[] state = states.get(i);
+                int[] next = new int[classCount];
+                for (int cls = 0; cls < classCount; cls++) {
+                    int[] target = new int[state.length];
+                    size = 0;
+                    for (int j = 0; j < state.length; j += 2) {
+                        int r = state[j];
+                        int s = runs[r].step(state[j + 1], (char) representatives[cls]);
+                        if (s >= 0 && live[r][s]) {
+                            target[size++] = r;
+                            target[size++] = s;
+                        }
+                    }
+                    if (size == 0) {
+                        next[cls] = -1;
+                        continue;
+                    }
+                    target = Arrays.copyOf(target, size);
+                    Integer id = ids.get(new IntArray(target));
+                    if (id == null) {
+                        id = states.size();
+                        ids.put(new IntArray(target), id);
+                        states.add(target);
+                    }
+                    next[cls] = id;
+                }
+                successors.add(next);
+            }
+            int[] accepting = new int[states.size()];
+            for (int i = 0; i < accepting.length; i++) {
+                accepting[i] = -1;
+                int[] state = states.get(i);
+                for (int j = 0; j < state.length; j += 2) {
+                    if (runs[state[j]].isAccept(state[j + 1])) {
+                        accepting[i] = state[j];
+                        break;
+                    }
+                }
+            }
 
-    private Token[] readTokenizedOutput(Process process, Source source, int[] lines, int[] columns) throws IOException {
-        List<Token> result = new ArrayList<>();
-        boolean success = false;
-        try {
+            // Moore minimization: refine the partition by accepting rule until the successors agree
+            int[] block = new int[accepting.length];
+            Map<Integer, Integer> acceptingBlocks = new HashMap<>();
+            for (int i = 0; i < block.length; i++) {
+                block[i] = acceptingBlocks.computeIfAbsent(accepting[i], k -> acceptingBlocks.size());
+            }
+            int blockCount = acceptingBlocks.size();
             while (true) {
-                byte[] buf = new byte[24];
-                IOUtils.readFully(process.getInputStream(), buf);
-                ByteBuffer byteBuf = ByteBuffer.wrap(buf);
-                byteBuf.order(ByteOrder.nativeOrder());
-                long startLoc = byteBuf.getLong();
-                if (startLoc < 0) {
-                    break;
+                Map<IntArray, Integer> signatures = new HashMap<>();
+                int[] refined = new int[block.length];
+                for (int i = 0; i < block.length; i++) {
+                    int[] signature = new int[classCount + 1];
+                    signature[0] = block[i];
+                    for (int cls = 0; cls < classCount; cls++) {
+                        int target = successors.get(i)[cls];
+                        signature[cls + 1] = target < 0 ? -1 : block[target];
+                    }
+                    refined[i] = signatures.computeIfAbsent(new IntArray(signature), k -> signatures.size());
                 }
-                long endLoc = byteBuf.getLong();
-                int kind = byteBuf.getInt();
-                int len = byteBuf.getInt();
-                byte[] bytes = new byte[len];
-                IOUtils.readFully(process.getInputStream(), bytes);
-                String value = new String(bytes, "UTF-8");
-                Token t = new Token(kind, value, startLoc, endLoc);
-                if (kind == -1) {
-                    String msg = "Scanner error: unexpected character sequence '" + value + "'.";
-                    Location loc = new Location(lines[t.startLoc], columns[t.startLoc],
-                            lines[t.endLoc], columns[t.endLoc]);
-                    throw new ParseFailedException(new KException(
-                            KException.ExceptionType.ERROR, KException.KExceptionGroup.INNER_PARSER, msg, source, loc));
+                block = refined;
+                if (signatures.size() == blockCount) {
+                    break;
                 }
-                result.add(t);
+                blockCount = signatures.size();
             }
-            success = true;
-            return result.toArray(new Token[result.size()]);
-        } finally {
-            if (success) {
-                synchronized (idleProcesses) {
-                    cache.put(process, this);
-                    idleProcesses.put(this, process);
+
+            transitions = new int[blockCount * classCount];
+            acceptingRules = new int[blockCount];
+            for (int i = 0; i < block.length; i++) {
+                acceptingRules[block[i]] = accepting[i];
+                for (int cls = 0; cls < classCount; cls++) {
+                    int target = successors.get(i)[cls];
+                    transitions[block[i] * classCount + cls] = target < 0 ? -1 : block[target];
                 }
-            } else {
-                // we aren't returning this process to the pool since something went wrong with it,
-                // so we have to clean up here and then make sure that the pool knows it can allocate a new process.
-                synchronized (idleProcesses) {
-                    process.destroy();
-                    activeProcceses--;
+            }
+            initialState = block[0];
+        }
+
+        int step(int state, byte b) {
+            return transitions[state * classCount + byteClasses[b & 0xff]];
+        }
+
+        /**
+         * Returns the states of the automaton from which an accepting state is reachable.
+         */
+        private static boolean[] liveStates(RunAutomaton run, int[] representatives) {
+            boolean[] live = new boolean[run.getSize()];
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (int s = 0; s < live.length; s++) {
+                    if (live[s]) {
+                        continue;
+                    }
+                    boolean isLive = run.isAccept(s);
+                    for (int cls = 0; !isLive && cls < representatives.length; cls++) {
+                        int t = run.step(s, (char) representatives[cls]);
+                        isLive = t >= 0 && live[t];
+                    }
+                    if (isLive) {
+                        live[s] = true;
+                        changed = true;
+                    }
                 }
             }
+            return live;
         }
     }
 
+    private static class IntArray {
+        private final int[] values;
+        private final int hashCode;
+
+        IntArray(int[] values) {
+            this.values = values;
+            this.hashCode = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IntArray && Arrays.equals(values, ((IntArray) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
 }
@@ -41,6 +41,14 @@ public class Stopwatch {
             f.format("%-60s = %s%n", message, milisecondsToTime(lastIntermediate - start));
     }
 
+    /**
+     * Prints the given duration, e.g. of a step which is not sequential with the other intermediate steps.
+     */
+    public synchronized void printTime(String message, long miliseconds) {
+        if (options.verbose)
+            f.format("%-60s = %s%n", message, milisecondsToTime(miliseconds));
+    }
+
     private static String milisecondsToTime(long miliseconds) {
         long h = miliseconds / 3600000;
         long m = miliseconds % 3600000 / 60000;
@@ -5,6 +5,7 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provider;
 import com.google.inject.Provides;
 import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.CompiledDefinitionFile;
 import org.kframework.kompile.KompileOptions;
 import org.kframework.utils.BinaryLoader;
 import org.kframework.utils.errorsystem.KEMException;
@@ -28,7 +29,11 @@ public class DefinitionLoadingModule extends AbstractModule {
 
     @Provides @DefinitionScoped
     CompiledDefinition koreDefinition(BinaryLoader loader, FileUtil files) {
-        return loader.loadOrDie(CompiledDefinition.class, files.resolveKompiled("compiled.bin"));
+        File compiled = files.resolveKompiled("compiled.bin");
+        if (CompiledDefinitionFile.isCompiledDefinitionFile(compiled)) {
+            return CompiledDefinitionFile.load(compiled);
+        }
+        return loader.loadOrDie(CompiledDefinition.class, compiled);
     }
 
 
@@ -4,8 +4,11 @@ package org.kframework.utils.inject;
 import static com.google.common.base.Preconditions.checkState;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
 
 import com.google.common.collect.Maps;
 import com.google.inject.Key;
@@ -14,19 +17,61 @@ import com.google.inject.Provider;
 import com.google.inject.Scope;
 import com.google.inject.Scopes;
 
+/**
+ * The scope of objects which depend only on the kompiled definition, e.g. the {@link
+ * org.kframework.kompile.CompiledDefinition} and the rewriter of the backend. Objects are kept across scoping blocks
+ * on the same definition, which kserver uses to avoid loading a definition on every request.
+ * <p>
+ * Definitions are identified by the canonical path of their kompiled directory and the modification time and size
+ * of its compiled.bin, so kompiling a definition again makes its objects be created anew. The least recently used
+ * definitions are evicted when there are more than a given number of them, or when the memory their objects took
+ * when created exceeds a given budget. The memory is measured as the growth of the heap while creating the objects,
+ * which includes the garbage and the objects allocated by other threads in the meantime, so it is only a rough
+ * upper bound of the memory the objects retain. Objects created while creating another object of the scope are
+ * counted once, as part of the outermost one.
+ */
 public class DefinitionScope implements Scope {
 
-    private final InheritableThreadLocal<File> currentDefinitionId = new InheritableThreadLocal<>();
+    private final InheritableThreadLocal<DefinitionId> currentDefinitionId = new InheritableThreadLocal<>();
 
-    private final LinkedHashMap<File, Map<Key<?>, Object>> values = new LinkedHashMap<File, Map<Key<?>, Object>>() {
-        protected boolean removeEldestEntry(Map.Entry<File, Map<Key<?>, Object>> eldest) {
-            return size() > Runtime.getRuntime().availableProcessors() * 2;
+    private int maxDefinitions = Runtime.getRuntime().availableProcessors() * 2;
+    private long maxMemory = Long.MAX_VALUE;
+    private long usedMemory = 0;
+
+    private final LinkedHashMap<DefinitionId, ScopedObjects> values = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Whether the current thread is creating an object of the scope.
+     */
+    private final ThreadLocal<Boolean> creating = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * @param maxDefinitions the number of definitions to keep.
+     * @param maxMemory the estimated number of bytes the objects of the definitions kept can take.
+     */
+    public void setLimits(int maxDefinitions, long maxMemory) {
+        synchronized(values) {
+            this.maxDefinitions = maxDefinitions;
+            this.maxMemory = maxMemory;
+            evict();
         }
-    };
+    }
 
     public void enter(File definitionId) {
         checkState(currentDefinitionId.get() == null, "A scoping block is already in progress");
-        currentDefinitionId.set(definitionId);
+        DefinitionId id = new DefinitionId(definitionId);
+        synchronized(values) {
+            // objects of a previous kompilation of the same directory are never used again
+            Iterator<Map.Entry<DefinitionId, ScopedObjects>> it = values.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<DefinitionId, ScopedObjects> entry = it.next();
+                if (entry.getKey().directory.equals(id.directory) && !entry.getKey().equals(id)) {
+                    usedMemory -= entry.getValue().memory;
+                    it.remove();
+                }
+            }
+        }
+        currentDefinitionId.set(id);
     }
 
     public void exit() {
@@ -38,20 +83,30 @@ public class DefinitionScope implements Scope {
     public <T> Provider<T> scope(Key<T> key, Provider<T> unscoped) {
         return new Provider<T>() {
             public T get() {
-              Map<Key<?>, Object> scopedObjects = getScopedObjectMap(key);
+              ScopedObjects scopedObjects = getScopedObjects(key);
 
               synchronized(scopedObjects) {
                   @SuppressWarnings("unchecked")
-                  T current = (T) scopedObjects.get(key);
-                  if (current == null && !scopedObjects.containsKey(key)) {
-                    current = unscoped.get();
+                  T current = (T) scopedObjects.objects.get(key);
+                  if (current == null && !scopedObjects.objects.containsKey(key)) {
+                    boolean outermost = !creating.get();
+                    long before = outermost ? heapUsed() : 0;
+                    creating.set(true);
+                    try {
+                      current = unscoped.get();
+                    } finally {
+                      creating.set(!outermost);
+                    }
 
                     // don't remember proxies; these exist only to serve circular dependencies
                     if (Scopes.isCircularProxy(current)) {
                       return current;
                     }
 
-                    scopedObjects.put(key, current);
+                    scopedObjects.objects.put(key, current);
+                    if (outermost) {
+                      addMemory(scopedObjects, Math.max(0, heapUsed() - before));
+                    }
                   }
                   return current;
               }
@@ -59,20 +114,83 @@ public class DefinitionScope implements Scope {
           };
     }
 
-    private <T> Map<Key<?>, Object> getScopedObjectMap(Key<T> key) {
-        File definitionId = currentDefinitionId.get();
+    private <T> ScopedObjects getScopedObjects(Key<T> key) {
+        DefinitionId definitionId = currentDefinitionId.get();
         if (definitionId == null) {
           throw new OutOfScopeException("Cannot access " + key
               + " outside of a scoping block");
         }
         synchronized(values) {
-            Map<Key<?>, Object> scopedObjects = values.get(definitionId);
+            ScopedObjects scopedObjects = values.get(definitionId);
             if (scopedObjects == null) {
-                scopedObjects = Maps.newHashMap();
+                scopedObjects = new ScopedObjects();
                 values.put(definitionId, scopedObjects);
+                evict();
             }
             return scopedObjects;
         }
       }
 
+    private void addMemory(ScopedObjects scopedObjects, long memory) {
+        synchronized(values) {
+            scopedObjects.memory += memory;
+            if (values.containsValue(scopedObjects)) {
+                usedMemory += memory;
+                evict();
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used definitions, but never the most recently used one.
+     */
+    private void evict() {
+        Iterator<ScopedObjects> it = values.values().iterator();
+        while (values.size() > 1 && (values.size() > maxDefinitions || usedMemory > maxMemory)) {
+            usedMemory -= it.next().memory;
+            it.remove();
+        }
+    }
+
+    private static long heapUsed() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class ScopedObjects {
+        final Map<Key<?>, Object> objects = Maps.newHashMap();
+        long memory;
+    }
+
+    private static class DefinitionId {
+        final File directory;
+        final long lastModified;
+        final long length;
+
+        DefinitionId(File kompiledDir) {
+            File directory;
+            try {
+                directory = kompiledDir.getCanonicalFile();
+            } catch (IOException e) {
+                directory = kompiledDir.getAbsoluteFile();
+            }
+            File compiled = new File(directory, "compiled.bin");
+            this.directory = directory;
+            this.lastModified = compiled.lastModified();
+            this.length = compiled.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            DefinitionId that = (DefinitionId) o;
+            return lastModified == that.lastModified && length == that.length && directory.equals(that.directory);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(directory, lastModified, length);
+        }
+    }
 }
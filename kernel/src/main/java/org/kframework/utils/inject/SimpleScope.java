@@ -11,6 +11,9 @@ import com.google.inject.Provider;
 import com.google.inject.Scope;
 import com.google.inject.Scopes;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -61,16 +64,35 @@ public class SimpleScope implements Scope {
         }
     };
     private final InheritableThreadLocal<Map<Key<?>, Object>> values = new InheritableThreadLocal<Map<Key<?>, Object>>();
+    private final InheritableThreadLocal<List<Runnable>> exitActions = new InheritableThreadLocal<List<Runnable>>();
 
     public void enter() {
         checkState(values.get() == null,
                 "A scoping block is already in progress");
         values.set(Maps.<Key<?>, Object> newHashMap());
+        exitActions.set(Collections.synchronizedList(new ArrayList<>()));
     }
 
     public void exit() {
         checkState(values.get() != null, "No scoping block in progress");
+        List<Runnable> actions = exitActions.get();
         values.remove();
+        exitActions.remove();
+        synchronized (actions) {
+            actions.forEach(Runnable::run);
+        }
+    }
+
+    /**
+     * Runs the given action when the current scoping block is exited, e.g. to release the objects of a longer
+     * lived scope the block was using.
+     */
+    public void onExit(Runnable action) {
+        List<Runnable> actions = exitActions.get();
+        if (actions == null) {
+            throw new OutOfScopeException("Cannot register an exit action outside of a scoping block");
+        }
+        actions.add(action);
     }
 
     public <T> void seed(Key<T> key, T value) {
@@ -45,6 +45,11 @@ public class SMTOptions implements Serializable {
             "JNI is slightly faster, but can potentially lead to JVM crash.")
     public boolean z3JNI = false;
 
+    @Parameter(names="--z3-processes", description="Maximum number of long-lived Z3 processes per timeout value. " +
+            "Each process loads the SMT prelude once and runs queries inside (push)/(pop); up to this many " +
+            "queries run concurrently.")
+    public int z3Processes = 1;
+
     @Parameter(names="--z3-cnstr-timeout", description="The default soft timeout (in milli seconds) of Z3 for checking constraint satisfiability.")
     public int z3CnstrTimeout = 50;
 
@@ -53,4 +58,11 @@ public class SMTOptions implements Serializable {
 
     @Parameter(names="--z3-tactic", description="The solver tactic to use to check satisfiability in Z3.")
     public String z3Tactic;
+
+    @Parameter(names="--smt-cache", description="Cache results of SMT queries on disk, so that they are reused by " +
+            "later runs. The cache is stored in the kompiled directory unless --smt-cache-file is given.")
+    public boolean smtCache = false;
+
+    @Parameter(names="--smt-cache-file", description="Path to the persistent SMT result cache. Implies --smt-cache.")
+    public String smtCacheFile;
 }
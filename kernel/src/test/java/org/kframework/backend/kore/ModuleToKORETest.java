@@ -0,0 +1,67 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.backend.kore;
+
+import com.google.inject.util.Providers;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.definition.Module;
+import org.kframework.kompile.CompiledDefinition;
+import org.kframework.kompile.Kompile;
+import org.kframework.kompile.KompileOptions;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ModuleToKORETest {
+
+    private static final String DEF = "requires \"domains.k\"\n" +
+            "module TEST\n" +
+            "  imports INT\n" +
+            "  imports MAP\n" +
+            "  configuration <k> $PGM:Exp </k> <store> .Map </store>\n" +
+            "  syntax Exp ::= Int | Exp \"+\" Exp [seqstrict] | \"inc\" Exp\n" +
+            "  syntax KResult ::= Int\n" +
+            "  syntax Int ::= f(Int) [function]\n" +
+            "  rule I1 + I2 => I1 +Int I2\n" +
+            "  rule inc I => I +Int 1\n" +
+            "  rule f(I) => I *Int 2 requires I >Int 0\n" +
+            "  rule f(_) => 0 [owise]\n" +
+            "endmodule\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testWriteKompiledMatchesConvert() throws Exception {
+        File definitionFile = folder.newFile("test.k");
+        FileUtils.writeStringToFile(definitionFile, DEF);
+        File kompiled = folder.newFolder("test-kompiled");
+        FileUtil files = new FileUtil(folder.newFolder("tmp"), Providers.of(folder.getRoot()), folder.getRoot(),
+                Providers.of(kompiled), new GlobalOptions(), System.getenv());
+        KompileOptions kompileOptions = new KompileOptions();
+        kompileOptions.backend = "kore";
+        KExceptionManager kem = new KExceptionManager(kompileOptions.global);
+        CompiledDefinition def = new Kompile(kompileOptions, files, kem, false).run(definitionFile, "TEST", "TEST",
+                new KoreBackend(kompileOptions, files, kem).steps(), Collections.emptySet());
+        Module mainModule = def.kompiledDefinition.mainModule();
+
+        for (boolean heatCoolEquations : new boolean[]{false, true}) {
+            String expected = KoreBackend.getKompiledString(mainModule, def.topCellInitializer, files, heatCoolEquations);
+            // the prelude and domains.k alone make the translation be written in several pieces
+            assertTrue(expected.length() > 2 * ModuleToKORE.FLUSH_THRESHOLD);
+
+            File output = new File(kompiled, "test.kore");
+            KoreBackend.writeKompiled(mainModule, def.topCellInitializer, files, heatCoolEquations, output);
+            assertArrayEquals(expected.getBytes(Charset.defaultCharset()), Files.readAllBytes(output.toPath()));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.kompile;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.attributes.Att;
+import org.kframework.attributes.Source;
+import org.kframework.definition.Definition;
+import org.kframework.definition.Module;
+import org.kframework.main.GlobalOptions;
+import org.kframework.parser.concrete2kore.ParserUtils;
+import org.kframework.utils.BinaryLoader;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+import static org.kframework.Collections.*;
+import static org.kframework.kore.KORE.*;
+
+public class CompiledDefinitionFileTest {
+
+    private static final String DEF = "module TEST\n" +
+            "  syntax Exp ::= \"a\"\n" +
+            "endmodule\n";
+    private static final String OTHER_DEF = "module TEST\n" +
+            "  syntax Exp ::= \"a\" | \"b\"\n" +
+            "endmodule\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CompiledDefinition compiledDefinition(String def) {
+        KompileOptions kompileOptions = new KompileOptions();
+        kompileOptions.backend = "kore";
+        Module main = ParserUtils.parseMainModuleOuterSyntax(def, Source.apply("generated by CompiledDefinitionFileTest"), "TEST");
+        Module languageParsing = Module.apply("LANGUAGE-PARSING", Set(), Set(), Att.empty());
+        Definition parsed = Definition.apply(main, Set(main), Att.empty().add(Att.syntaxModule(), "TEST"));
+        Definition kompiled = Definition.apply(main, Set(main, languageParsing), Att.empty());
+        return new CompiledDefinition(kompileOptions, parsed, kompiled, null, null, KLabel("init"));
+    }
+
+    private void assertSameDefinition(CompiledDefinition expected, CompiledDefinition actual) {
+        assertEquals(expected.kompiledDefinition, actual.kompiledDefinition);
+        assertEquals(expected.topCellInitializer, actual.topCellInitializer);
+        assertEquals(expected.getParsedDefinition(), actual.getParsedDefinition());
+        assertEquals(expected.getParsedDefinition().mainModule().localSentences(),
+                actual.getParsedDefinition().mainModule().localSentences());
+        assertEquals("TEST", actual.mainSyntaxModuleName());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        CompiledDefinition def = compiledDefinition(DEF);
+        File file = new File(folder.getRoot(), "compiled.bin");
+        CompiledDefinitionFile.save(file, def);
+        assertTrue(CompiledDefinitionFile.isCompiledDefinitionFile(file));
+        assertSameDefinition(def, CompiledDefinitionFile.load(file, true));
+        assertSameDefinition(def, CompiledDefinitionFile.load(file, false));
+        assertArrayEquals(new String[]{"compiled.bin"}, folder.getRoot().list());
+    }
+
+    @Test
+    public void testReplaceWhileLoaded() {
+        CompiledDefinition def = compiledDefinition(DEF);
+        CompiledDefinition other = compiledDefinition(OTHER_DEF);
+        File file = new File(folder.getRoot(), "compiled.bin");
+        CompiledDefinitionFile.save(file, def);
+        CompiledDefinition mapped = CompiledDefinitionFile.load(file, true);
+        CompiledDefinition streamed = CompiledDefinitionFile.load(file, false);
+
+        // the parsed definitions are only deserialized now, after the file is replaced
+        CompiledDefinitionFile.save(file, other);
+        assertSameDefinition(def, mapped);
+        assertSameDefinition(def, streamed);
+        assertSameDefinition(other, CompiledDefinitionFile.load(file));
+    }
+
+    @Test
+    public void testLegacyFormat() {
+        CompiledDefinition def = compiledDefinition(DEF);
+        File file = new File(folder.getRoot(), "compiled.bin");
+        BinaryLoader loader = new BinaryLoader(new KExceptionManager(new GlobalOptions()));
+        loader.saveOrDie(file, def);
+        assertFalse(CompiledDefinitionFile.isCompiledDefinitionFile(file));
+        assertSameDefinition(def, loader.loadOrDie(CompiledDefinition.class, file));
+    }
+
+    @Test(expected = KEMException.class)
+    public void testOtherVersion() throws Exception {
+        File file = new File(folder.getRoot(), "compiled.bin");
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(file))) {
+            out.write("KCDF".getBytes(StandardCharsets.US_ASCII));
+            out.writeInt(0);
+        }
+        assertTrue(CompiledDefinitionFile.isCompiledDefinitionFile(file));
+        CompiledDefinitionFile.load(file);
+    }
+}
@@ -0,0 +1,140 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.kompile;
+
+import com.google.inject.util.Providers;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.attributes.Att;
+import org.kframework.attributes.Source;
+import org.kframework.definition.Definition;
+import org.kframework.definition.DefinitionTransformer;
+import org.kframework.definition.Module;
+import org.kframework.main.GlobalOptions;
+import org.kframework.parser.concrete2kore.ParserUtils;
+import org.kframework.utils.Stopwatch;
+import org.kframework.utils.errorsystem.KEMException;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.file.FileUtil;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+import static org.kframework.Collections.*;
+
+public class ModuleSchedulerTest {
+
+    private static final String DEF = "module A\n" +
+            "  syntax A ::= \"a\"\n" +
+            "endmodule\n" +
+            "module B\n" +
+            "  imports A\n" +
+            "  syntax B ::= \"b\"\n" +
+            "endmodule\n" +
+            "module C\n" +
+            "  syntax C ::= \"c\"\n" +
+            "endmodule\n" +
+            "module TEST\n" +
+            "  imports B\n" +
+            "  imports C\n" +
+            "endmodule\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private KompileOptions kompileOptions;
+    private FileUtil files;
+    private KExceptionManager kem;
+    private File cacheDir;
+
+    @Before
+    public void setUp() {
+        kompileOptions = new KompileOptions();
+        kompileOptions.compileThreads = 2;
+        File kompiled = folder.getRoot();
+        files = new FileUtil(kompiled, Providers.of(kompiled), kompiled, Providers.of(kompiled), new GlobalOptions(), System.getenv());
+        kem = new KExceptionManager(new GlobalOptions());
+        cacheDir = new File(kompiled, "pipeline-cache/test");
+    }
+
+    private Definition definition(String def) {
+        Module main = ParserUtils.parseMainModuleOuterSyntax(def, Source.apply("generated by ModuleSchedulerTest"), "TEST");
+        return Definition.apply(main, Set(main), Att.empty());
+    }
+
+    /**
+     * Runs a pass marking every module through a new scheduler, as a new kompile would, and records the modules the
+     * pass was applied to.
+     */
+    private Definition kompile(Definition def, Map<String, Integer> compiled, String failOn) {
+        DefinitionTransformer pass = DefinitionTransformer.from(m -> {
+            if (m.name().equals(failOn)) {
+                throw KEMException.compilerError("failing on " + m.name());
+            }
+            compiled.merge(m.name(), 1, Integer::sum);
+            return Module.apply(m.name(), m.imports(), m.localSentences(), m.att().add("visited"));
+        }, "marking modules");
+        try (ModuleScheduler scheduler = new ModuleScheduler(kompileOptions, files, kem, new Stopwatch(kompileOptions.global), "test", "")) {
+            Definition result = scheduler.parallel(pass).apply(def);
+            scheduler.pruneCache();
+            return result;
+        }
+    }
+
+    private int entries() {
+        File[] entries = cacheDir.listFiles((dir, name) -> name.endsWith(".bin"));
+        return entries == null ? 0 : entries.length;
+    }
+
+    @Test
+    public void testUnchangedModulesAreReused() {
+        Map<String, Integer> compiled = new ConcurrentHashMap<>();
+        Definition first = kompile(definition(DEF), compiled, null);
+        assertEquals(Integer.valueOf(1), compiled.get("A"));
+        assertEquals(Integer.valueOf(1), compiled.get("TEST"));
+        assertTrue(first.getModule("C").get().att().contains("visited"));
+
+        Map<String, Integer> recompiled = new ConcurrentHashMap<>();
+        Definition second = kompile(definition(DEF), recompiled, null);
+        assertTrue(recompiled.toString(), recompiled.isEmpty());
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testChangedModuleIsInvalidated() {
+        kompile(definition(DEF), new ConcurrentHashMap<>(), null);
+        int entries = entries();
+
+        Map<String, Integer> recompiled = new ConcurrentHashMap<>();
+        Definition changed = kompile(definition(DEF.replace("syntax C ::= \"c\"", "syntax C ::= \"c\" | \"d\"")), recompiled, null);
+        // the changed module and the modules importing it
+        assertEquals(2, recompiled.size());
+        assertTrue(recompiled.containsKey("C"));
+        assertTrue(recompiled.containsKey("TEST"));
+        assertTrue(changed.getModule("TEST").get().att().contains("visited"));
+        // the entries of the previous version of C and TEST are pruned
+        assertEquals(entries, entries());
+    }
+
+    @Test
+    public void testFailedPipelineKeepsEntries() {
+        kompile(definition(DEF), new ConcurrentHashMap<>(), null);
+        int entries = entries();
+
+        try {
+            kompile(definition(DEF.replace("syntax C ::= \"c\"", "syntax C ::= \"c\" | \"d\"")), new ConcurrentHashMap<>(), "TEST");
+            fail("the pass should fail");
+        } catch (KEMException e) {
+            // expected
+        }
+        // the entries of the unchanged modules are kept, plus the new entry of C
+        assertEquals(entries + 1, entries());
+
+        Map<String, Integer> recompiled = new ConcurrentHashMap<>();
+        kompile(definition(DEF), recompiled, null);
+        assertTrue(recompiled.toString(), recompiled.isEmpty());
+    }
+}
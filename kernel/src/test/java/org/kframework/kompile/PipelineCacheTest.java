@@ -0,0 +1,71 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.kompile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.attributes.Att;
+import org.kframework.attributes.Location;
+import org.kframework.definition.Module;
+import org.kframework.definition.Production;
+import org.kframework.main.GlobalOptions;
+import org.kframework.utils.errorsystem.KExceptionManager;
+
+import static org.junit.Assert.*;
+import static org.kframework.Collections.*;
+import static org.kframework.definition.Constructors.*;
+import static org.kframework.kore.KORE.*;
+
+public class PipelineCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PipelineCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new PipelineCache(folder.getRoot(), "", new KExceptionManager(new GlobalOptions()));
+    }
+
+    private Production production(String klabel, String terminal) {
+        return Production(KLabel(klabel), Sort("Exp"), Seq(Terminal(terminal)),
+                Att().add(Location.class, new Location(1, 1, 1, 10)));
+    }
+
+    @Test
+    public void testKeyIsCanonical() {
+        Production a = production("a", "a");
+        Production b = production("b", "b");
+        // the same sentences and attributes, inserted in another order
+        Module first = Module("TEST", Set(), Set(a, b), Att().add("x").add("y", "1"));
+        Module second = Module("TEST", Set(), Set(b, a), Att().add("y", "1").add("x"));
+        assertEquals(cache.key("pass", first), cache.key("pass", second));
+        assertNotEquals(cache.key("pass", first), cache.key("other pass", first));
+    }
+
+    @Test
+    public void testKeyCoversAllFields() {
+        // the two productions are printed the same, but have different labels
+        Module first = Module("TEST", Set(), Set(production("a", "a")), Att());
+        Module second = Module("TEST", Set(), Set(production("b", "a")), Att());
+        assertEquals(first.localSentences().toString(), second.localSentences().toString());
+        assertNotEquals(cache.key("pass", first), cache.key("pass", second));
+
+        Module imported = Module("IMPORTED", Set(), Set(production("a", "a")), Att());
+        Module importing = Module("TEST", Set(imported), Set(production("a", "a")), Att());
+        assertNotEquals(cache.key("pass", first), cache.key("pass", importing));
+    }
+
+    @Test
+    public void testOutputIsIdentifiedByItsKey() {
+        Module input = Module("TEST", Set(), Set(production("a", "a")), Att());
+        Module output = Module("TEST", Set(), Set(production("a", "a")), Att().add("visited"));
+        Module copy = Module("TEST", Set(), Set(production("a", "a")), Att().add("visited"));
+        cache.identify(output, cache.key("pass", input));
+        // a rebuilt module is hashed from its content again, the output of the pass is not
+        assertNotEquals(cache.key("next pass", output), cache.key("next pass", copy));
+        assertEquals(cache.key("next pass", output), cache.key("next pass", output));
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore;
+
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kframework.attributes.Source;
+import org.kframework.definition.Definition;
+import org.kframework.definition.Module;
+import org.kframework.kompile.Kompile;
+import org.kframework.kore.K;
+import org.kframework.main.GlobalOptions;
+import org.kframework.parser.concrete2kore.generator.RuleGrammarGenerator;
+import org.kframework.utils.errorsystem.KExceptionManager;
+import org.kframework.utils.errorsystem.ParseFailedException;
+import org.kframework.utils.file.FileUtil;
+import scala.Tuple2;
+import scala.util.Either;
+
+import java.io.File;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.kframework.kore.KORE.*;
+
+public class ParserCacheTest {
+
+    private static final String DEF = "module TEST\n" +
+            "  syntax Exp ::= \"a\" | Exp \"+\" Exp [left]\n" +
+            "endmodule\n";
+    private static final String OTHER_DEF = "module TEST\n" +
+            "  syntax Exp ::= \"a\" | \"b\" | Exp \"+\" Exp [left]\n" +
+            "endmodule\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RuleGrammarGenerator gen;
+    private KExceptionManager kem;
+
+    @Before
+    public void setUp() throws Exception {
+        FileUtil files = FileUtil.testFileUtil();
+        kem = new KExceptionManager(new GlobalOptions());
+        ParserUtils parser = new ParserUtils(files::resolveWorkingDirectory, kem);
+        File definitionFile = new File(Kompile.BUILTIN_DIRECTORY.toString() + "/kast.k");
+        String definitionText = files.loadFromWorkingDirectory(definitionFile.getPath());
+
+        Definition baseK =
+                parser.loadDefinition("K", "K", definitionText,
+                        definitionFile,
+                        definitionFile.getParentFile(),
+                        Lists.newArrayList(Kompile.BUILTIN_DIRECTORY),
+                        false, false);
+
+        gen = new RuleGrammarGenerator(baseK);
+    }
+
+    private ParseInModule parser(String def, boolean strict) {
+        Module test = ParserUtils.parseMainModuleOuterSyntax(def, Source.apply("generated by ParserCacheTest"), "TEST");
+        return RuleGrammarGenerator.getCombinedGrammar(gen.getProgramsGrammar(test), strict);
+    }
+
+    private K parse(ParseInModule parser, String input) {
+        Tuple2<Either<Set<ParseFailedException>, K>, Set<ParseFailedException>> result =
+                parser.parseString(input, Sort("Exp"), Source.apply("generated by ParserCacheTest"));
+        assertTrue("Unexpected parse errors " + result._1(), result._1().isRight());
+        return result._1().right().get();
+    }
+
+    private File[] entries(File directory) {
+        return directory.listFiles((dir, name) -> name.endsWith(".bin"));
+    }
+
+    @Test
+    public void testHitAndMiss() throws Exception {
+        File directory = new File(folder.getRoot(), "parser-cache");
+        ParserCache cache = new ParserCache(directory, kem);
+
+        ParseInModule first = parser(DEF, true);
+        cache.initialize(first);
+        File[] entries = entries(directory);
+        assertEquals(1, entries.length);
+        assertTrue(entries[0].setLastModified(1000));
+
+        // the same syntax reuses the stored entry without writing it again
+        ParseInModule second = parser(DEF, true);
+        cache.initialize(second);
+        assertEquals(1, entries(directory).length);
+        assertEquals(1000, entries[0].lastModified());
+        assertEquals(parse(parser(DEF, true), "a + a + a"), parse(second, "a + a + a"));
+
+        // the strict flag and the syntax are part of the key
+        cache.initialize(parser(DEF, false));
+        assertEquals(2, entries(directory).length);
+        cache.initialize(parser(OTHER_DEF, true));
+        assertEquals(3, entries(directory).length);
+        assertEquals(1000, entries[0].lastModified());
+        assertEquals(0, directory.listFiles((dir, name) -> name.endsWith(".tmp")).length);
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        File directory = new File(folder.getRoot(), "parser-cache");
+        ParserCache cache = new ParserCache(directory, kem, 2);
+
+        cache.initialize(parser(DEF, true));
+        File oldest = entries(directory)[0];
+        assertTrue(oldest.setLastModified(1000));
+        cache.initialize(parser(DEF, false));
+        assertEquals(2, entries(directory).length);
+
+        // storing a third entry deletes the one written the longest time ago
+        cache.initialize(parser(OTHER_DEF, true));
+        assertEquals(2, entries(directory).length);
+        assertFalse(oldest.exists());
+
+        // the deleted entry is rebuilt on its next use
+        ParseInModule rebuilt = parser(DEF, true);
+        cache.initialize(rebuilt);
+        assertEquals(2, entries(directory).length);
+        assertTrue(oldest.exists());
+        assertEquals(parse(parser(DEF, true), "a + a"), parse(rebuilt, "a + a"));
+    }
+}
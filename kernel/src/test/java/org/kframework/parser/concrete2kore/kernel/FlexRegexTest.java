@@ -0,0 +1,39 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore.kernel;
+
+import dk.brics.automaton.Automaton;
+import org.junit.Test;
+import org.kframework.utils.errorsystem.KEMException;
+
+import static org.junit.Assert.*;
+
+public class FlexRegexTest {
+
+    @Test
+    public void testEscapesAndClasses() {
+        Automaton comment = FlexRegex.toAutomaton("(\\/\\/[^\\n\\r]*)");
+        assertTrue(comment.run("// a comment"));
+        assertFalse(comment.run("// a\ncomment"));
+        Automaton id = FlexRegex.toAutomaton("[A-Za-z\\_][A-Za-z0-9\\_]*");
+        assertTrue(id.run("_x1"));
+        assertFalse(id.run("1x"));
+        Automaton integer = FlexRegex.toAutomaton("[\\+-]?[0-9]+");
+        assertTrue(integer.run("-12"));
+        assertTrue(integer.run("+3"));
+        assertTrue(FlexRegex.toAutomaton("[[:digit:]]{2,3}").run("123"));
+        assertFalse(FlexRegex.toAutomaton("[[:digit:]]{2,3}").run("1234"));
+        assertTrue(FlexRegex.toAutomaton("\"a|b\"").run("a|b"));
+        assertFalse(FlexRegex.toAutomaton(".").run("\n"));
+    }
+
+    @Test
+    public void testUtf8() {
+        assertTrue(FlexRegex.literal("\u2192").run("\u00e2\u0086\u0092"));
+        assertTrue(FlexRegex.toAutomaton("[^\\n]+").run("\u00e2\u0086\u0092"));
+    }
+
+    @Test(expected = KEMException.class)
+    public void testTrailingContext() {
+        FlexRegex.toAutomaton("a/b");
+    }
+}
@@ -0,0 +1,128 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.parser.concrete2kore.kernel;
+
+import com.google.common.collect.ImmutableList;
+import dk.brics.automaton.Automaton;
+import org.junit.Test;
+import org.kframework.attributes.Source;
+import org.kframework.utils.errorsystem.ParseFailedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ScannerTest {
+
+    private static Scanner.Token[] tokenize(Scanner scanner, String input) {
+        int length = input.length() + 1;
+        return scanner.tokenize(input, new Source("ScannerTest"), new int[length], new int[length]);
+    }
+
+    private static String show(Scanner.Token[] tokens) {
+        List<String> result = new ArrayList<>();
+        for (Scanner.Token token : tokens) {
+            result.add(token.toString() + "@" + token.startLoc + "-" + token.endLoc);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Tokenizes an ASCII input by trying every rule on every candidate token, longest first.
+     */
+    private static String reference(List<String> regexes, int[] kinds, String input) {
+        List<Automaton> rules = new ArrayList<>();
+        for (String regex : regexes) {
+            rules.add(FlexRegex.toAutomaton(regex));
+        }
+        List<String> result = new ArrayList<>();
+        int pos = 0;
+        next:
+        while (pos < input.length()) {
+            for (int end = input.length(); end > pos; end--) {
+                for (int rule = 0; rule < rules.size(); rule++) {
+                    if (rules.get(rule).run(input.substring(pos, end))) {
+                        if (kinds[rule] != Scanner.LAYOUT) {
+                            result.add(kinds[rule] + ":" + input.substring(pos, end) + "@" + pos + "-" + end);
+                        }
+                        pos = end;
+                        continue next;
+                    }
+                }
+            }
+            return null;
+        }
+        return result.toString();
+    }
+
+    private static Scanner scanner(List<String> regexes, int[] kinds) {
+        List<Automaton> rules = new ArrayList<>();
+        for (String regex : regexes) {
+            rules.add(FlexRegex.toAutomaton(regex));
+        }
+        return new Scanner(rules, kinds);
+    }
+
+    @Test
+    public void testLongestMatch() {
+        Scanner scanner = scanner(ImmutableList.of("[\\ ]+", "if", "[a-z]+", "[0-9]+"), new int[]{Scanner.LAYOUT, 1, 2, 3});
+        assertEquals("[2:iff@0-3, 1:if@4-6, 2:ifx@7-10, 3:12@10-12]", show(tokenize(scanner, "iff if ifx12")));
+    }
+
+    @Test
+    public void testPriorityTie() {
+        Scanner keywordFirst = scanner(ImmutableList.of("if", "[a-z]+"), new int[]{1, 2});
+        assertEquals("[1:if@0-2]", show(tokenize(keywordFirst, "if")));
+        Scanner identifierFirst = scanner(ImmutableList.of("[a-z]+", "if"), new int[]{2, 1});
+        assertEquals("[2:if@0-2]", show(tokenize(identifierFirst, "if")));
+    }
+
+    @Test
+    public void testUtf8Locations() {
+        Scanner scanner = new Scanner(
+                ImmutableList.of(FlexRegex.toAutomaton("[\\ ]"), FlexRegex.literal("\u2192"), FlexRegex.toAutomaton("[a-z]+")),
+                new int[]{Scanner.LAYOUT, 1, 2});
+        assertEquals("[2:a@0-1, 1:\u2192@2-5, 2:b@6-7]", show(tokenize(scanner, "a \u2192 b")));
+    }
+
+    @Test(expected = ParseFailedException.class)
+    public void testUnexpectedCharacter() {
+        Scanner scanner = scanner(ImmutableList.of("[a-z]+"), new int[]{1});
+        tokenize(scanner, "ab#");
+    }
+
+    @Test
+    public void testMinimization() {
+        // the states reached after "ab", accepted by both rules, and after "ac", accepted by the first rule only,
+        // both accept the first rule and have no successors, so they are merged
+        Scanner scanner = scanner(ImmutableList.of("a(b|c)", "ab"), new int[]{1, 2});
+        assertEquals(3, scanner.stateCount());
+        assertEquals("[1:ab@0-2, 1:ac@2-4]", show(tokenize(scanner, "abac")));
+    }
+
+    @Test
+    public void testAgainstReference() {
+        List<String> regexes = ImmutableList.of("[\\ \\n]+", "\"//\"[^\\n]*", "if", "iff", "[a-z][a-z0-9]*",
+                "[0-9]+", "[0-9]+\\.[0-9]+", "\"+\"", "\"++\"", "\"/\"");
+        int[] kinds = {Scanner.LAYOUT, Scanner.LAYOUT, 1, 2, 3, 4, 5, 6, 7, 8};
+        Scanner scanner = scanner(regexes, kinds);
+        String alphabet = "if +/.0123\nxyz";
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                input.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String expected = reference(regexes, kinds, input.toString());
+            String actual;
+            try {
+                actual = show(tokenize(scanner, input.toString()));
+            } catch (ParseFailedException e) {
+                actual = null;
+            }
+            assertEquals(input.toString(), expected, actual);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+// Copyright (c) 2019 K Team. All Rights Reserved.
+package org.kframework.utils.inject;
+
+import com.google.inject.OutOfScopeException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SimpleScopeTest {
+
+    @Test
+    public void testExitActions() throws InterruptedException {
+        SimpleScope scope = new SimpleScope();
+        List<String> ran = new ArrayList<>();
+        scope.enter();
+        scope.onExit(() -> ran.add("first"));
+        // threads started by the block register to the same block
+        Thread thread = new Thread(() -> scope.onExit(() -> ran.add("second")));
+        thread.start();
+        thread.join();
+        assertTrue(ran.isEmpty());
+        scope.exit();
+        assertEquals(2, ran.size());
+        assertEquals("first", ran.get(0));
+
+        // the actions of a block are not run again by the next one
+        scope.enter();
+        scope.exit();
+        assertEquals(2, ran.size());
+    }
+
+    @Test(expected = OutOfScopeException.class)
+    public void testExitActionOutsideOfBlock() {
+        new SimpleScope().onExit(() -> { });
+    }
+}
@@ -3,36 +3,82 @@ package org.kframework
 
 import java.util
 import java.util.Optional
+import java.util.concurrent.ConcurrentHashMap
 import collection._
 
 case class CircularityException[T](cycle: Seq[T]) extends Exception(cycle.mkString(" < "))
 
 /**
  * A partially ordered set based on an initial set of direct relations.
+ *
+ * The elements are numbered densely, and the transitive closure of the relations is stored as a bit matrix whose
+ * row of an element has the bits of the elements greater than it set. The matrix of the inverse relation is kept as
+ * well, so both upper and lower bounds of a set of elements are computed by intersecting rows. Bound queries are
+ * memoized, as the same few sets of sorts and productions are asked about again and again while parsing and
+ * compiling a definition.
  */
-class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
+class POSet[T](val directRelations: Set[(T, T)]) extends Serializable {
 
   // convert the input set of relations to Map form for performance
   private val directRelationsMap: Map[T, Set[T]] = directRelations groupBy { _._1 } mapValues { _ map { _._2 } toSet } map identity
 
-  lazy val elements: Set[T] = directRelations.flatMap(a => Set(a._1, a._2))
+  val elements: Set[T] = directRelations.flatMap(a => Set(a._1, a._2))
+
+  private val indexed: IndexedSeq[T] = elements.toIndexedSeq
+
+  @transient private lazy val index: util.HashMap[T, Integer] = {
+    val index = new util.HashMap[T, Integer]()
+    for (i <- indexed.indices) {
+      index.put(indexed(i), i)
+    }
+    index
+  }
+
+  private def indexOf(x: T): Int = {
+    val i = index.get(x)
+    if (i == null) -1 else i
+  }
+
+  private val words = (indexed.size + 63) >>> 6
+
+  private def get(row: Array[Long], i: Int): Boolean = (row(i >>> 6) & (1L << i)) != 0
+
+  private def set(row: Array[Long], i: Int): Unit = row(i >>> 6) |= 1L << i
 
   /**
-   * Internal private method. Computes the transitive closer of the initial relations.
-   * It also checks for cycles during construction and throws an exception if it finds any.
-   *
-   * The implementation is simple. It links each element to the successors of its successors.
-   * TODO: there may be a more efficient algorithm (low priority)
-   */
-  private def transitiveClosure(relations: Map[T, Set[T]]): Map[T, Set[T]] = {
-    val newRelations = relations map {
-      case (start, succ) =>
-        val newSucc = succ flatMap { relations.getOrElse(_, Set()) }
-        if (newSucc.contains(start))
-          constructAndThrowCycleException(start, start, Seq())
-        (start, succ | newSucc)
+   * Internal private method. Computes the transitive closure of the initial relations with Warshall's algorithm:
+   * after the k-th step, x < y in the matrix if there is a path from x to y through elements numbered below k.
+   * It also checks for cycles and throws an exception if it finds any.
+   */
+  private def transitiveClosure(): Array[Array[Long]] = {
+    val n = indexed.size
+    val matrix = Array.ofDim[Long](n, words)
+    for ((x, y) <- directRelations) {
+      set(matrix(indexOf(x)), indexOf(y))
+    }
+    var k = 0
+    while (k < n) {
+      val rowK = matrix(k)
+      var i = 0
+      while (i < n) {
+        val rowI = matrix(i)
+        if (get(rowI, k)) {
+          var w = 0
+          while (w < words) {
+            rowI(w) |= rowK(w)
+            w += 1
+          }
+        }
+        i += 1
+      }
+      k += 1
+    }
+    for ((start, _) <- directRelationsMap) {
+      val i = indexOf(start)
+      if (get(matrix(i), i))
+        constructAndThrowCycleException(start, start, Seq())
     }
-    if (relations != newRelations) transitiveClosure(newRelations) else relations
+    matrix
   }
 
   /**
@@ -51,13 +97,52 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
     succs foreach { constructAndThrowCycleException(start, _, currentPath) }
   }
 
+  /**
+   * greater(i) has the bits of the elements greater than the element numbered i set.
+   *
+   * The matrices are not serialized, as they are quadratic in the number of elements. They are computed again when
+   * they are first used after deserialization.
+   */
+  @transient private lazy val greater: Array[Array[Long]] = transitiveClosure()
+
+  // check for cycles on construction
+  greater
+
+  /**
+   * less(i) has the bits of the elements less than the element numbered i set.
+   */
+  @transient private lazy val less: Array[Array[Long]] = {
+    val n = indexed.size
+    val matrix = Array.ofDim[Long](n, words)
+    for (i <- 0 until n; j <- 0 until n if get(greater(i), j)) {
+      set(matrix(j), i)
+    }
+    matrix
+  }
+
+  private def toSet(row: Array[Long]): Set[T] = {
+    val builder = Set.newBuilder[T]
+    var i = 0
+    while (i < indexed.size) {
+      if (get(row, i))
+        builder += indexed(i)
+      i += 1
+    }
+    builder.result()
+  }
+
   /**
    * All the relations of the POSet, including the transitive ones.
    */
-  val relations = transitiveClosure(directRelationsMap)
+  lazy val relations: Map[T, Set[T]] =
+    indexed.indices.filter(i => greater(i).exists(_ != 0)).map(i => (indexed(i), toSet(greater(i)))).toMap
 
-  def <(x: T, y: T): Boolean = relations.get(x).exists(_.contains(y))
-  def >(x: T, y: T): Boolean = relations.get(y).exists(_.contains(x))
+  def <(x: T, y: T): Boolean = {
+    val i = indexOf(x)
+    val j = indexOf(y)
+    i >= 0 && j >= 0 && get(greater(i), j)
+  }
+  def >(x: T, y: T): Boolean = <(y, x)
   def ~(x: T, y: T) = <(x, y) || <(y, x)
 
   /**
@@ -105,6 +190,100 @@ class POSet[T](directRelations: Set[(T, T)]) extends Serializable {
     }
   }
 
+  @transient private lazy val upperBoundsCache = new ConcurrentHashMap[Set[T], Set[T]]()
+  @transient private lazy val lowerBoundsCache = new ConcurrentHashMap[Set[T], Set[T]]()
+  @transient private lazy val leastUpperBoundCache = new ConcurrentHashMap[Set[T], Option[T]]()
+  @transient private lazy val greatestLowerBoundCache = new ConcurrentHashMap[Set[T], Option[T]]()
+
+  private def memoize[R](cache: ConcurrentHashMap[Set[T], R], xs: Iterable[T], f: Set[T] => R): R = {
+    val key = xs.toSet
+    val cached = cache.get(key)
+    if (cached != null) {
+      cached
+    } else {
+      val result = f(key)
+      cache.putIfAbsent(key, result)
+      result
+    }
+  }
+
+  /**
+   * The elements which are in the relation of the given matrix with, or equal to, all of xs.
+   */
+  private def bounds(xs: Set[T], matrix: Array[Array[Long]]): Set[T] = {
+    if (xs.size == 1 && indexOf(xs.head) < 0) {
+      // an element in no relation is only a bound of itself
+      xs
+    } else if (xs.exists(indexOf(_) < 0)) {
+      Set()
+    } else {
+      val row = Array.fill(words)(-1L)
+      for (x <- xs) {
+        val i = indexOf(x)
+        var w = 0
+        while (w < words) {
+          row(w) &= (if (w == i >>> 6) matrix(i)(w) | 1L << i else matrix(i)(w))
+          w += 1
+        }
+      }
+      toSet(row)
+    }
+  }
+
+  /**
+   * The element of xs which is in the relation of the given matrix with all the others, if any.
+   */
+  private def first(xs: Set[T], matrix: Array[Array[Long]]): Option[T] =
+    xs.find(c => xs.forall(x => x == c || get(matrix(indexOf(c)), indexOf(x))))
+
+  /**
+   * Returns the elements which are greater than or equal to all the given elements.
+   */
+  def upperBounds(xs: Iterable[T]): Set[T] = memoize(upperBoundsCache, xs, bounds(_: Set[T], greater))
+
+  def upperBounds(xs: util.Collection[T]): util.Set[T] = {
+    import scala.collection.JavaConversions._
+    upperBounds(xs: Iterable[T])
+  }
+
+  /**
+   * Returns the elements which are less than or equal to all the given elements.
+   */
+  def lowerBounds(xs: Iterable[T]): Set[T] = memoize(lowerBoundsCache, xs, bounds(_: Set[T], less))
+
+  def lowerBounds(xs: util.Collection[T]): util.Set[T] = {
+    import scala.collection.JavaConversions._
+    lowerBounds(xs: Iterable[T])
+  }
+
+  /**
+   * Returns the least of the upper bounds of the given elements, if it exists.
+   */
+  def leastUpperBoundOf(xs: Iterable[T]): Option[T] =
+    memoize(leastUpperBoundCache, xs, (s: Set[T]) => first(upperBounds(s), greater))
+
+  def leastUpperBoundOf(xs: util.Collection[T]): Optional[T] = {
+    import scala.collection.JavaConversions._
+    leastUpperBoundOf(xs: Iterable[T]) match {
+      case Some(x) => Optional.of(x)
+      case None => Optional.empty()
+    }
+  }
+
+  /**
+   * Returns the greatest of the lower bounds of the given elements, if it exists.
+   */
+  def greatestLowerBoundOf(xs: Iterable[T]): Option[T] =
+    memoize(greatestLowerBoundCache, xs, (s: Set[T]) => first(lowerBounds(s), less))
+
+  def greatestLowerBoundOf(xs: util.Collection[T]): Optional[T] = {
+    import scala.collection.JavaConversions._
+    greatestLowerBoundOf(xs: Iterable[T]) match {
+      case Some(x) => Optional.of(x)
+      case None => Optional.empty()
+    }
+  }
+
   lazy val asOrdering: Ordering[T] = (x: T, y: T) => if (lessThanEq(x, y)) -1 else if (lessThanEq(y, x)) 1 else 0
 
   /**
@@ -63,7 +63,7 @@ object ModuleTransformer {
   * Transform all modules, transforming each module after its imports.
   * The f function take a module with all the imported modules already transformed, and changes the current module.
   */
-class ModuleTransformer(f: Module => Module, name: String) extends (Module => Module) {
+class ModuleTransformer(f: Module => Module, val name: String) extends (Module => Module) {
   val memoization = collection.concurrent.TrieMap[Module, Module]()
 
   override def apply(input: Module): Module = {
@@ -103,7 +103,7 @@ object DefinitionTransformer {
   def apply(f: Module => Module, name: String): DefinitionTransformer = new DefinitionTransformer(ModuleTransformer(f, name))
 }
 
-class DefinitionTransformer(moduleTransformer: Module => Module) extends (Definition => Definition) {
+class DefinitionTransformer(val moduleTransformer: Module => Module) extends (Definition => Definition) {
   override def apply(d: Definition): Definition = {
     definition.Definition(
       moduleTransformer(d.mainModule),
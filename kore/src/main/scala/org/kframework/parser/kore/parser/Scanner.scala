@@ -5,15 +5,25 @@ package org.kframework.parser.kore.parser
   * Should be initialized by [[init]] before use,
   * and closed by [[close]] after use.
   *
+  * The input is read in blocks into a character buffer, so that large inputs can be scanned
+  * without allocating for each line or character. Line terminators ("\n", "\r\n" and "\r")
+  * are all returned as '\n', and the last line is terminated by '\n' even if the input is not.
+  *
   * @constructor Creates a new scanner.
   */
 class Scanner {
 
-  private var stream: io.Source = _
-  private var lines: Iterator[String] = _
-  private var input: Iterator[Char] = _
-  /** The string of the line that this scanner currently reads. */
-  var line: String = _
+  private var reader: java.io.Reader = _
+  private val buffer = new Array[Char](1 << 16)
+  private var pos: Int = 0
+  private var limit: Int = 0
+
+  /** The characters of the current line read so far. */
+  private var lineChars = new Array[Char](256)
+  private var lineLength: Int = 0
+  /** Whether the last character read terminated its line. */
+  private var endOfLine: Boolean = false
+
   /** The line number of the current line. */
   var lineNum: Int = _
   /** The column position of this scanner in the line. */
@@ -23,35 +33,82 @@ class Scanner {
     *
     * @param src The stream to associate with this scanner.
     */
+  @throws(classOf[java.io.EOFException])
   def init(src: io.Source): Unit = {
-    stream = src
-    lines = stream.getLines()
-    line = ""
+    init(new java.io.Reader {
+      override def read(cbuf: Array[Char], off: Int, len: Int): Int = {
+        var n = 0
+        while (n < len && src.hasNext) {
+          cbuf(off + n) = src.next()
+          n += 1
+        }
+        if (n == 0 && len > 0) -1 else n
+      }
+
+      override def close(): Unit = src.close()
+    })
+  }
+
+  /** Initializes this scanner.
+    *
+    * @param src The reader to associate with this scanner.
+    */
+  @throws(classOf[java.io.EOFException])
+  def init(src: java.io.Reader): Unit = {
+    reader = src
+    pos = 0
+    limit = 0
+    lineLength = 0
+    endOfLine = false
+    hasLookahead = false
     lineNum = 0
     columnNum = 0
-    readLine()
+    if (!fill()) {
+      // end of file
+      throw new java.io.EOFException()
+    }
+    lineNum = 1
   }
 
   /** Closes the stream associated with this scanner. */
   def close(): Unit = {
-    stream.close()
+    reader.close()
   }
 
-  @throws(classOf[java.io.EOFException])
-  private def readLine(): Unit = {
-    if (lines.hasNext) {
-      line = lines.next() // each line doesn't contain newline characters
-      input = line.iterator
-      lineNum += 1
-      columnNum = 0
+  /** The string of the line that this scanner currently reads.
+    *
+    * Reads the rest of the line from the stream, so it should only be used to report errors.
+    */
+  def line: String = {
+    while (!endOfLine && (pos < limit || fill()) && buffer(pos) != '\n' && buffer(pos) != '\r') {
+      appendToLine(buffer(pos))
+      pos += 1
+    }
+    new String(lineChars, 0, lineLength)
+  }
+
+  /** Refills the buffer if it is exhausted. Returns false at the end of the stream. */
+  private def fill(): Boolean = {
+    if (pos < limit) {
+      true
     } else {
-      // end of file
-      throw new java.io.EOFException()
+      val n = reader.read(buffer, 0, buffer.length)
+      pos = 0
+      limit = if (n < 0) 0 else n
+      limit > 0
     }
   }
 
-  private var lookahead: Option[Char] = None
-  private var yieldEOL: Boolean = false
+  private def appendToLine(c: Char): Unit = {
+    if (lineLength == lineChars.length) {
+      lineChars = java.util.Arrays.copyOf(lineChars, lineLength * 2)
+    }
+    lineChars(lineLength) = c
+    lineLength += 1
+  }
+
+  private var lookahead: Char = _
+  private var hasLookahead: Boolean = false
 
   /** Returns the next character from the stream.
     * Returns '\n' when a newline is encountered.
@@ -59,22 +116,39 @@ class Scanner {
   @throws(classOf[java.io.EOFException])
   def next(): Char = {
     columnNum += 1
-    lookahead match {
-      case Some(c) =>
-        lookahead = None
-        c
-      case None =>
-        if (input.hasNext) {
-          input.next()
-        } else if (!yieldEOL) {
-          // end of line
-          yieldEOL = true
-          '\n' // the newline character '\n' is used to decide when to terminate line comments
-        } else {
-          yieldEOL = false
-          readLine()
-          next()
-        }
+    if (hasLookahead) {
+      hasLookahead = false
+      return lookahead
+    }
+    if (endOfLine) {
+      if (!fill()) {
+        // end of file
+        throw new java.io.EOFException()
+      }
+      endOfLine = false
+      lineLength = 0
+      lineNum += 1
+      columnNum = 1
+    }
+    if (pos == limit && !fill()) {
+      // the last line is not terminated
+      endOfLine = true
+      return '\n'
+    }
+    val c = buffer(pos)
+    pos += 1
+    if (c == '\n') {
+      endOfLine = true
+      '\n' // the newline character '\n' is used to decide when to terminate line comments
+    } else if (c == '\r') {
+      if ((pos < limit || fill()) && buffer(pos) == '\n') {
+        pos += 1
+      }
+      endOfLine = true
+      '\n'
+    } else {
+      appendToLine(c)
+      c
     }
   }
 
@@ -84,23 +158,24 @@ class Scanner {
     */
   def putback(c: Char): Unit = {
     columnNum -= 1
-    lookahead match {
-      case Some(_) => ???
-      case None =>
-        lookahead = Some(c)
+    if (hasLookahead) {
+      ???
     }
+    lookahead = c
+    hasLookahead = true
   }
 
   /** Consumes the whitespace characters until a non-whitespace character is met.
     */
   @throws(classOf[java.io.EOFException])
   def skipWhitespaces(): Unit = {
-    next() match {
-      case ' ' | '\n' => skipWhitespaces()
-      case '\t' => columnNum += 3; skipWhitespaces()
-      case '\r' => ??? // skipWhitespaces() // shouldn't be reachable.
-      case '/' => skipComments(); skipWhitespaces()
-      case c => putback(c)
+    while (true) {
+      next() match {
+        case ' ' | '\n' =>
+        case '\t' => columnNum += 3
+        case '/' => skipComments()
+        case c => putback(c); return
+      }
     }
   }
 
@@ -118,31 +193,18 @@ class Scanner {
     }
 
     def skipLineComment(): Unit = {
-      next() match {
-        case '\n' => ;
-        case c => skipLineComment()
-      }
+      while (next() != '\n') {}
     }
 
     /**
       * Skip all until seeing STAR(*) SLASH(/)
       */
     def skipBlockComment(): Unit = {
-      next() match {
-        case '*' =>
-          skipBlockCommentAfterStar()
-        case c => skipBlockComment()
-      }
-    }
-
-    /**
-      * Have seen a STAR(*)
-      */
-    def skipBlockCommentAfterStar(): Unit = {
-      next() match {
-        case '/' => ;
-        case '*' => skipBlockCommentAfterStar()
-        case c => skipBlockComment()
+      var star = false
+      var c = next()
+      while (!(star && c == '/')) {
+        star = c == '*'
+        c = next()
       }
     }
   }
@@ -169,4 +231,3 @@ class Scanner {
   }
 
 }
-
@@ -5,6 +5,8 @@ import org.kframework.parser.kore
 import org.kframework.parser.kore.implementation.DefaultBuilders
 import org.kframework.utils.StringUtil
 
+import scala.collection.mutable.ListBuffer
+
 /** Parsing error exception. */
 case class ParseError(msg: String) extends Exception(msg) // ParseError.msg eq Exception.detailMessage, i.e., msg() == getMessage()
 
@@ -41,45 +43,57 @@ class TextToKore(b: Builders = DefaultBuilders) {
   // Therefore, [[parseId]] is the only method that directly modifies previousParsingLevel.
   private var previousParsingLevel: ParsingLevel = both
 
+  // Identifiers occur many times in large definitions and patterns, so each distinct one is kept once.
+  private val identifiers = new java.util.HashMap[String, String]()
+
   /** Parses the file and returns [[kore.Definition]]. */
   @throws(classOf[ParseError])
   def parse(file: java.io.File): Definition = {
-    parse(io.Source.fromFile(file))
+    parse(new java.io.FileReader(file))
   }
 
   /** Parses the file and returns [[kore.Definition]]. */
   @throws(classOf[ParseError])
   def parsePattern(file: java.io.File): Pattern = {
-    parsePattern(io.Source.fromFile(file))
+    parsePattern(new java.io.FileReader(file))
   }
 
   /** Parses from the stream and returns [[kore.Definition]]. */
   @throws(classOf[ParseError])
   def parse(src: io.Source): Definition = {
-    try {
-      scanner.init(src)
-      parseDefinition()
-    } catch {
-      case _: java.io.EOFException => throw ParseError("ERROR: Unexpected end of file while parsing")
-      case exc: ParseError => throw exc
-      case exc: Throwable => throw ParseError("ERROR: Unexpected error while parsing: " + exc.getMessage) // shouldn't be reachable
-    } finally {
-      scanner.close()
-    }
+    parsing(scanner.init(src), parseDefinition())
+  }
+
+  /** Parses from the reader and returns [[kore.Definition]]. */
+  @throws(classOf[ParseError])
+  def parse(src: java.io.Reader): Definition = {
+    parsing(scanner.init(src), parseDefinition())
   }
 
   /** Parses from the stream and returns [[kore.Definition]]. */
   @throws(classOf[ParseError])
   def parsePattern(src: io.Source): Pattern = {
+    parsing(scanner.init(src), parsePattern())
+  }
+
+  /** Parses from the reader and returns [[kore.Pattern]]. */
+  @throws(classOf[ParseError])
+  def parsePattern(src: java.io.Reader): Pattern = {
+    parsing(scanner.init(src), parsePattern())
+  }
+
+  private def parsing[T](init: => Unit, parse: => T): T = {
     try {
-      scanner.init(src)
-      parsePattern()
+      identifiers.clear()
+      init
+      parse
     } catch {
       case _: java.io.EOFException => throw ParseError("ERROR: Unexpected end of file while parsing")
       case exc: ParseError => throw exc
       case exc: Throwable => throw ParseError("ERROR: Unexpected error while parsing: " + exc.getMessage) // shouldn't be reachable
     } finally {
       scanner.close()
+      identifiers.clear()
     }
   }
 
@@ -147,25 +161,25 @@ class TextToKore(b: Builders = DefaultBuilders) {
   private def parseModule(): Module = {
     consumeWithLeadingWhitespaces("module")
     val name = parseId(parsingLevel = objt)
-    val decls = parseDeclarations(Seq())
+    val decls = parseDeclarations(new ListBuffer[Declaration])
     consumeWithLeadingWhitespaces("endmodule")
     val att = parseAttributes()
     b.Module(name, decls, att)
   }
 
   private def parseModules() : Seq[Module] = {
-    var ms = Seq.empty[Module]
+    val ms = new ListBuffer[Module]
     while(!scanner.isEOF()) {
       val leading_char = scanner.nextWithSkippingWhitespaces()
       if (leading_char == 'm') { // a module starts
         scanner.putback('m')
         val m = parseModule()
-        ms = ms :+ m
+        ms += m
       }
       else
         throw error('m', leading_char)
     }
-    ms
+    ms.toList
   }
 
   // Declarations = <lookahead>(e) // <empty>
@@ -175,11 +189,11 @@ class TextToKore(b: Builders = DefaultBuilders) {
   //             | alias Alias ( SortList ) : Sort Attributes
   //             | axiom { SortVariableList } Axiom
   //             | import Id Attributes
-  private def parseDeclarations(decls: Seq[Declaration]): Seq[Declaration] = {
+  private def parseDeclarations(decls: ListBuffer[Declaration]): Seq[Declaration] = {
     val c1 = scanner.nextWithSkippingWhitespaces()
     if (c1 == 'e') { // endmodule
       scanner.putback('e')
-      decls
+      decls.toList
     }
     else {
       val c2 = scanner.nextWithSkippingWhitespaces()
@@ -189,7 +203,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
            val nameStr = parseId()
            val att = parseAttributes()
            val decl = b.Import(nameStr, att)
-           parseDeclarations(decls :+ decl)
+           parseDeclarations(decls += decl)
         case ('s', 'o') => // sort declaration
           consume("rt")
           val ctr = parseId(parsingLevel = objt)
@@ -198,7 +212,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
           consumeWithLeadingWhitespaces("}")
           val att = parseAttributes()
           val decl = b.SortDeclaration(params, b.CompoundSort(ctr, params), att)
-          parseDeclarations(decls :+ decl)
+          parseDeclarations(decls += decl)
         case ('s', 'y') => // symbol declaration
           consume("mbol")
           val ctr = parseId() // previousParsingLevel is set here
@@ -213,7 +227,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
           val returnSort = parseSort(parsingLevel = previousParsingLevel)
           val att = parseAttributes()
           val decl = b.SymbolDeclaration(symbol, argSorts, returnSort, att)
-          parseDeclarations(decls :+ decl)
+          parseDeclarations(decls += decl)
         case ('h', 'o') => // hook-sort or hook-symbol declaration
           consume("oked-")
           val c1 = scanner.next()
@@ -227,7 +241,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
               consumeWithLeadingWhitespaces("}")
               val att = parseAttributes()
               val decl = b.HookSortDeclaration(params, b.CompoundSort(ctr, params), att)
-              parseDeclarations(decls :+ decl)
+              parseDeclarations(decls += decl)
             case ('s', 'y') => // hook-symbol
               consume("mbol")
               val ctr = parseId() // previousParsingLevel is set here
@@ -242,7 +256,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
               val returnSort = parseSort(parsingLevel = previousParsingLevel)
               val att = parseAttributes()
               val decl = b.HookSymbolDeclaration(symbol, argSorts, returnSort, att)
-              parseDeclarations(decls :+ decl)
+              parseDeclarations(decls += decl)
             case (e1, e2) => // error
               throw error("sort, symbol", e1)
           }
@@ -264,7 +278,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
           val rightPattern = parsePattern()
           val att = parseAttributes()
           val decl = b.AliasDeclaration(alias, argSorts, returnSort, leftPattern, rightPattern, att)
-          parseDeclarations(decls :+ decl)
+          parseDeclarations(decls += decl)
         case ('a', 'x') => // axiom declaration
           consume("iom")
           consumeWithLeadingWhitespaces("{")
@@ -273,7 +287,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
           val pattern = parsePattern()
           val att = parseAttributes()
           val decl = b.AxiomDeclaration(params, pattern, att)
-          parseDeclarations(decls :+ decl)
+          parseDeclarations(decls += decl)
         case (e1, e2) =>
           throw error("sort, symbol, alias, axiom", e1)
       }
@@ -634,17 +648,17 @@ class TextToKore(b: Builders = DefaultBuilders) {
             case '`' => // #`ID
               scanner.next() match {
                 case c if isLetter(c) =>
-                  "#`" + loop(new StringBuilder(c.toString()))
+                  intern("#`" + loop(new StringBuilder(c.toString())))
                 case c => throw error("Meta-Identifier>", c)
               }
             case '\\' => // #\ID
               scanner.next() match {
                 case c if isLetter(c) =>
-                  "#\\" + loop(new StringBuilder(c.toString()))
+                  intern("#\\" + loop(new StringBuilder(c.toString())))
                 case c => throw error("Meta-Identifier>", c)
               }
             case c if isLetter(c) => // #ID
-              "#" + loop(new StringBuilder(c.toString()))
+              intern("#" + loop(new StringBuilder(c.toString())))
             case err => throw error("<Meta-Identifier>", err)
           }
         }
@@ -656,7 +670,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
         previousParsingLevel = objt // if parse succeeds, the level is object
         if (parsingLevel == both || parsingLevel == objt) {
           // expect both levels or only object-level
-          val id = loop(new StringBuilder(c.toString))
+          val id = intern(loop(new StringBuilder(c.toString)))
           val kwds = Seq("module", "endmodule", "sort", "symbol", "alias", "axiom")
           if (kwds.contains(id)) {
             throw error("<Object-Identifier> should not be keywords", id)
@@ -671,6 +685,11 @@ class TextToKore(b: Builders = DefaultBuilders) {
     }
   }
 
+  private def intern(id: String): String = {
+    val existing = identifiers.putIfAbsent(id, id)
+    if (existing == null) id else existing
+  }
+
   private def isObjectIdChar(c: Char): Boolean = TextToKore.isObjectIdChar(c) // TODO(Daejun): more efficient way?
 
   private def isLetter(c: Char): Boolean = TextToKore.isLetter(c)
@@ -702,13 +721,13 @@ class TextToKore(b: Builders = DefaultBuilders) {
   private def parseList[T](parseElem: () => T, sep: Char, endsWith: Char): Seq[T] = {
     assert(sep != endsWith)
 
-    def parseList2(lst: Seq[T]): Seq[T] = {
+    def parseList2(lst: ListBuffer[T]): Seq[T] = {
       scanner.nextWithSkippingWhitespaces() match {
         case c if c == endsWith => scanner.putback(c)
-          lst
+          lst.toList
         case c if c == sep =>
           val elem = parseElem()
-          parseList2(lst :+ elem)
+          parseList2(lst += elem)
         case err => throw error("'" + endsWith + "' or '" + sep + "'", err)
       }
     }
@@ -718,7 +737,7 @@ class TextToKore(b: Builders = DefaultBuilders) {
         Seq()
       case c => scanner.putback(c)
         val elem = parseElem()
-        parseList2(Seq(elem))
+        parseList2(ListBuffer(elem))
     }
   }
 
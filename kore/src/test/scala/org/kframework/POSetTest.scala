@@ -46,4 +46,35 @@ class POSetTest {
     assertEquals(None, POSet(b1 -> b2, b2 -> b3, b4 -> b5).lub)
     assertEquals(None, POSet(b1 -> b2, b2 -> b3, b2 -> b4).lub)
   }
+
+  @Test def bounds() {
+    val p = POSet(b1 -> b3, b2 -> b3, b3 -> b4, b3 -> b5)
+
+    assertEquals(Set(b3, b4, b5), p.upperBounds(Set(b1, b2)))
+    assertEquals(Set(b1, b3, b4, b5), p.upperBounds(Set(b1)))
+    assertEquals(Set(b1, b2, b3), p.lowerBounds(Set(b4, b5)))
+    assertEquals(Set(), p.lowerBounds(Set(b1, b2)))
+
+    assertEquals(Some(b3), p.leastUpperBoundOf(Set(b1, b2)))
+    assertEquals(None, p.leastUpperBoundOf(Set(b4, b5)))
+    assertEquals(Some(b3), p.greatestLowerBoundOf(Set(b4, b5)))
+    assertEquals(None, p.greatestLowerBoundOf(Set(b1, b2)))
+    // memoized
+    assertEquals(Some(b3), p.leastUpperBoundOf(Seq(b2, b1)))
+
+    val b6 = Bar(6)
+    assertEquals(Some(b6), p.leastUpperBoundOf(Set(b6)))
+    assertEquals(None, p.leastUpperBoundOf(Set(b1, b6)))
+  }
+
+  @Test def wideClosure() {
+    // more elements than fit in one word of a row
+    val bars = (0 until 200).map(Bar(_))
+    implicit val p = POSet(bars.zip(bars.tail): _*)
+
+    assertTrue(bars(0) < bars(199))
+    assertTrue(bars(70) < bars(130))
+    assertFalse(bars(130) < bars(70))
+    assertEquals(Some(bars(150)), p.leastUpperBoundOf(Set(bars(3), bars(150))))
+  }
 }
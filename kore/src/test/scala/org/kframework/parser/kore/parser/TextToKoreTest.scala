@@ -0,0 +1,43 @@
+package org.kframework.parser.kore.parser
+
+import org.junit.Test
+import org.junit.Assert._
+
+class TextToKoreTest {
+
+  private def definition(axioms: Int, newline: String): String = {
+    val sb = new StringBuilder("[]" + newline + "// a line comment" + newline + "module FOO" + newline)
+    sb ++= "  sort Foo{} []" + newline
+    sb ++= "  symbol foo{}(Foo{}, Foo{}) : Foo{} [functional{}()]" + newline
+    for (i <- 0 until axioms) {
+      sb ++= "  /* axiom " + i + " */ axiom{R} \\equals{Foo{},R}(foo{}(X" + i + ":Foo{},\tY:Foo{}), \"s\\\"" + i + "\") []" + newline
+    }
+    sb ++= "endmodule []"
+    sb.toString
+  }
+
+  @Test def readerAndSourceAgree() {
+    val text = definition(5000, "\n")
+    val fromReader = new TextToKore().parse(new java.io.StringReader(text))
+    val fromSource = new TextToKore().parse(io.Source.fromString(text))
+    assertEquals(fromSource, fromReader)
+    assertEquals(5002, fromReader.modules.head.decls.size)
+  }
+
+  @Test def lineTerminators() {
+    val expected = new TextToKore().parse(new java.io.StringReader(definition(3, "\n")))
+    assertEquals(expected, new TextToKore().parse(new java.io.StringReader(definition(3, "\r\n"))))
+    assertEquals(expected, new TextToKore().parse(new java.io.StringReader(definition(3, "\r"))))
+  }
+
+  @Test def errorLocation() {
+    try {
+      new TextToKore().parse(new java.io.StringReader("[]\nmodule FOO\n  sort Foo{ [] ]\nendmodule []"))
+      fail()
+    } catch {
+      case e: ParseError =>
+        assertTrue(e.getMessage, e.getMessage.startsWith("ERROR: Line 3: Column 13: "))
+        assertTrue(e.getMessage, e.getMessage.contains("  sort Foo{ [] ]" + System.lineSeparator()))
+    }
+  }
+}
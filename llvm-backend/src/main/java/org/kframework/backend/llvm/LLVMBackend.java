@@ -33,8 +33,7 @@ public class LLVMBackend extends KoreBackend {
 
     @Override
     public void accept(CompiledDefinition def) {
-        String kore = getKompiledString(def);
-        files.saveToKompiled("definition.kore", kore);
+        writeKompiled(def, files.resolveKompiled("definition.kore"));
         ProcessBuilder pb = files.getProcessBuilder();
         List<String> args = new ArrayList<>();
         args.add("llvm-kompile");